@@ -6,6 +6,8 @@ import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.config.AppConfigLoader;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatastoreModule;
+import ca.jonathanfritz.ofxcat.datastore.utils.Workload;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfiles;
 import ca.jonathanfritz.ofxcat.exception.CliException;
 import ca.jonathanfritz.ofxcat.exception.OfxCatException;
 import ca.jonathanfritz.ofxcat.matching.KeywordRule;
@@ -13,6 +15,8 @@ import ca.jonathanfritz.ofxcat.matching.KeywordRulesConfig;
 import ca.jonathanfritz.ofxcat.matching.KeywordRulesLoader;
 import ca.jonathanfritz.ofxcat.matching.MatchingModule;
 import ca.jonathanfritz.ofxcat.service.CategoryCombineService;
+import ca.jonathanfritz.ofxcat.service.DatabaseBackupService;
+import ca.jonathanfritz.ofxcat.service.DatastoreBenchmarkService;
 import ca.jonathanfritz.ofxcat.service.GapDetectionService;
 import ca.jonathanfritz.ofxcat.service.MigrationReport;
 import ca.jonathanfritz.ofxcat.service.ReportingService;
@@ -22,14 +26,20 @@ import ca.jonathanfritz.ofxcat.utils.PathUtils;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import jakarta.inject.Inject;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -53,6 +63,9 @@ public class OfxCat {
     private final TokenMigrationService tokenMigrationService;
     private final CategoryCombineService categoryCombineService;
     private final GapDetectionService gapDetectionService;
+    private final DatastoreBenchmarkService datastoreBenchmarkService;
+    private final DatabaseBackupService databaseBackupService;
+    private final WorkloadProfiles workloadProfiles;
     private final PathUtils pathUtils;
     private final CLI cli;
     private final KeywordRulesConfig keywordRulesConfig;
@@ -60,6 +73,9 @@ public class OfxCat {
 
     private static final Logger logger = LogManager.getLogger(OfxCat.class);
 
+    // the number of timed runs of each query in a benchmark
+    private static final int BENCHMARK_RUNS = 5;
+
     @Inject
     OfxCat(
             Flyway flyway,
@@ -68,6 +84,9 @@ public class OfxCat {
             TokenMigrationService tokenMigrationService,
             CategoryCombineService categoryCombineService,
             GapDetectionService gapDetectionService,
+            DatastoreBenchmarkService datastoreBenchmarkService,
+            DatabaseBackupService databaseBackupService,
+            WorkloadProfiles workloadProfiles,
             PathUtils pathUtils,
             CLI cli,
             KeywordRulesConfig keywordRulesConfig,
@@ -78,6 +97,9 @@ public class OfxCat {
         this.tokenMigrationService = tokenMigrationService;
         this.categoryCombineService = categoryCombineService;
         this.gapDetectionService = gapDetectionService;
+        this.datastoreBenchmarkService = datastoreBenchmarkService;
+        this.databaseBackupService = databaseBackupService;
+        this.workloadProfiles = workloadProfiles;
         this.pathUtils = pathUtils;
         this.cli = cli;
         this.keywordRulesConfig = keywordRulesConfig;
@@ -115,27 +137,109 @@ public class OfxCat {
         }
     }
 
+    private void rebuildMonthlySummariesIfNeeded() {
+        if (!reportingService.isMonthlySummaryRebuildNeeded()) {
+            logger.debug("Monthly summary rebuild not needed");
+            return;
+        }
+
+        cli.println("Summarizing existing transactions by month...");
+        rebuildMonthlySummaries();
+    }
+
+    private void rebuildMonthlySummaries() {
+        if (reportingService.rebuildMonthlySummaries()) {
+            cli.println("Monthly summaries rebuilt");
+        } else {
+            cli.println("Error: Failed to rebuild monthly summaries");
+        }
+    }
+
+    private void rebuildGaps() {
+        if (gapDetectionService.rebuildGaps()) {
+            cli.println("Gaps rebuilt");
+        } else {
+            cli.println("Error: Failed to rebuild gaps");
+        }
+    }
+
     // Package-private for testing
     void importTransactions(String path) throws OfxCatException {
-        final Path pathToImportFile = pathUtils.expand(path);
-        if (!(Files.exists(pathToImportFile) && Files.isReadable(pathToImportFile))) {
-            throw new CliException("Import file path either does not exist or cannot be read");
+        importTransactions(List.of(path));
+    }
+
+    // Package-private for testing
+    void importTransactions(List<String> paths) throws OfxCatException {
+        final List<Path> importFiles = new ArrayList<>();
+        for (String path : paths) {
+            importFiles.addAll(findImportFiles(path));
+        }
+        if (importFiles.isEmpty()) {
+            throw new CliException("No OFX files found to import");
         }
 
-        // Create database backup before import
+        // Create database backup before import. All files are imported as a single batch, so one backup is enough
         backupDatabase();
 
         // TODO: show a progress bar?
         // TODO: retain scrolling list of categorizations on screen
-        transactionImportService.importTransactions(pathToImportFile.toFile());
+        transactionImportService.importTransactions(importFiles.stream().map(Path::toFile).toList());
 
-        backupOfxFile(pathToImportFile);
-        deleteOfxFile(path, pathToImportFile);
+        for (Path importFile : importFiles) {
+            backupOfxFile(importFile);
+        }
+        deleteOfxFiles(importFiles);
 
         cli.waitForInput("Press enter to exit");
         cli.exit();
     }
 
+    /**
+     * Expands the specified path into the files that should be imported. A directory expands to all the OFX files that
+     * it contains, and a path whose file name is a glob pattern like {@code ~/Downloads/*.ofx} expands to all the
+     * matching files in its parent directory.
+     */
+    private List<Path> findImportFiles(String path) throws CliException {
+        if (StringUtils.isBlank(path)) {
+            throw new CliException("Import file path not specified");
+        }
+
+        final int separatorIndex = Math.max(path.lastIndexOf('/'), path.lastIndexOf(File.separatorChar));
+        final String fileName = path.substring(separatorIndex + 1);
+        if (StringUtils.containsAny(fileName, '*', '?', '[', '{')) {
+            final Path directory =
+                    separatorIndex >= 0 ? pathUtils.expand(path.substring(0, separatorIndex + 1)) : Path.of(".");
+            return listFiles(directory, fileName);
+        }
+
+        final Path pathToImportFile = pathUtils.expand(path);
+        if (!(Files.exists(pathToImportFile) && Files.isReadable(pathToImportFile))) {
+            throw new CliException("Import file path either does not exist or cannot be read");
+        }
+        if (Files.isDirectory(pathToImportFile)) {
+            return listFiles(pathToImportFile, "*.{ofx,OFX}");
+        }
+        return List.of(pathToImportFile);
+    }
+
+    private List<Path> listFiles(Path directory, String glob) throws CliException {
+        if (!(Files.isDirectory(directory) && Files.isReadable(directory))) {
+            throw new CliException("Import directory either does not exist or cannot be read");
+        }
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : directoryStream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new CliException("Failed to list import files in " + directory, ex);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
     private void backupDatabase() throws CliException {
         try {
             final Path databasePath = pathUtils.getDatabasePath();
@@ -147,11 +251,13 @@ public class OfxCat {
                 final String today = LocalDate.now().format(DateTimeFormatter.ISO_LOCAL_DATE);
                 final Path backupPath = backupDir.resolve("ofxcat-" + today + ".db");
                 if (!Files.exists(backupPath)) {
-                    Files.copy(databasePath, backupPath);
+                    // the backup is written through the live connection rather than by copying the database file,
+                    // because committed transactions may still be in the write-ahead log
+                    databaseBackupService.backup(backupPath);
                     logger.info("Database backed up to {}", backupPath);
                 }
             }
-        } catch (IOException ex) {
+        } catch (IOException | SQLException ex) {
             throw new CliException("Failed to backup database before import", ex);
         }
     }
@@ -173,10 +279,15 @@ public class OfxCat {
         }
     }
 
-    private void deleteOfxFile(String path, Path pathToImportFile) throws CliException {
-        if (cli.promptYesNo(String.format("Delete import file %s?", path))) {
+    private void deleteOfxFiles(List<Path> importFiles) throws CliException {
+        final String prompt = importFiles.size() == 1
+                ? String.format("Delete import file %s?", importFiles.get(0))
+                : String.format("Delete %d import files?", importFiles.size());
+        if (cli.promptYesNo(prompt)) {
             try {
-                Files.delete(pathToImportFile);
+                for (Path importFile : importFiles) {
+                    Files.delete(importFile);
+                }
             } catch (IOException ex) {
                 throw new CliException("Failed to delete import file", ex);
             }
@@ -239,6 +350,20 @@ public class OfxCat {
         reportingService.reportCategories();
     }
 
+    private void runBenchmark() {
+        cli.println("Benchmarking the datastore profiles. Your transactions are only read, not changed...");
+        final List<DatastoreBenchmarkService.Result> results = datastoreBenchmarkService.benchmark(
+                BENCHMARK_RUNS, (current, total) -> cli.updateProgressBar("Benchmarking", current, total));
+        cli.finishProgressBar();
+
+        cli.println("PROFILE, QUERY, MEDIAN MS");
+        for (DatastoreBenchmarkService.Result result : results) {
+            cli.println(String.format(
+                    "%s, %s, %.1f",
+                    result.workload().name().toLowerCase(Locale.ROOT), result.query(), result.medianMillis()));
+        }
+    }
+
     private void runMigration(MigrateOptions options) {
         if (options.dryRun()) {
             cli.println("Dry run mode: showing what would change without making actual changes\n");
@@ -329,8 +454,10 @@ public class OfxCat {
 
     private void printHelp() {
         cli.println(Arrays.asList(
-                "ofxcat import [FILENAME]",
-                "   Imports the transactions in the specified *.ofx file.",
+                "ofxcat import [FILENAME]...",
+                "   Imports the transactions in the specified *.ofx files as a single batch.",
+                "   Each FILENAME may also be a directory, in which case every *.ofx file that",
+                "   it contains is imported, or a glob pattern like ~/Downloads/*.ofx.",
                 "ofxcat get accounts",
                 "   Prints a list of known accounts in CSV format.",
                 "ofxcat get categories",
@@ -362,14 +489,24 @@ public class OfxCat {
                 "   The target category is created if it doesn't already exist.",
                 "   --source: Required. Name of the category to move transactions from.",
                 "   --target: Required. Name of the category to move transactions to.",
+                "ofxcat rebuild summaries",
+                "   Recomputes the monthly category totals that transaction reports are generated",
+                "   from. They are kept up to date automatically, so this is only needed for repair.",
+                "ofxcat rebuild gaps",
+                "   Detects every gap in the transaction record again. Gaps are kept up to date as",
+                "   transactions are imported, so this is only needed for repair.",
                 "ofxcat rename category --source=SOURCE --target=TARGET",
                 "   Alias for 'combine categories'. Renames a category by moving all its",
                 "   transactions to the target (created if it doesn't exist) and deleting the source.",
+                "ofxcat benchmark",
+                "   Times the queries behind transaction reports under each of the datastore",
+                "   profiles in config.yaml, using your own database. Transactions are only read.",
                 "ofxcat help",
                 "   Displays this help text"));
     }
 
     // TODO: add a mode that allows reprocessing of transactions from some category
+    @SuppressWarnings("try") // the workload scope is only held open while the mode runs
     public static void main(String[] args) {
         final PathUtils pathUtils = new PathUtils();
 
@@ -385,40 +522,10 @@ public class OfxCat {
         final OfxCat ofxCat = initializeApplication(pathUtils, configResult.config());
 
         try {
-            // figure out which of the major modes we're in
-            switch (getMode(args)) {
-                case IMPORT:
-                    // if mode is IMPORT, the second argument is the path to the file to import
-                    if (args.length != 2) {
-                        throw new CliException("Import file path not specified");
-                    }
-                    ofxCat.importTransactions(args[1]);
-                    break;
-                case GET:
-                    // if mode is GET, determine which concern needs to be got
-                    switch (getConcern(args)) {
-                        case TRANSACTIONS ->
-                            // TODO: add a way to export actual transactions, not just category sums
-                            ofxCat.reportTransactions(getOptions(args));
-                        case ACCOUNTS -> ofxCat.reportAccounts();
-                        case CATEGORIES ->
-                            // TODO: need a way to edit categories and category descriptions
-                            ofxCat.reportCategories();
-                        case GAPS -> ofxCat.reportGaps();
-                    }
-                    break;
-                case MIGRATE:
-                    ofxCat.runMigration(getMigrateOptions(args));
-                    break;
-                case COMBINE:
-                    ofxCat.combineCategories(getCombineOptions(args));
-                    break;
-                case RENAME:
-                    ofxCat.combineCategories(getRenameOptions(args));
-                    break;
-                case HELP:
-                    ofxCat.printHelp();
-                    break;
+            // figure out which of the major modes we're in, and switch the database to a profile that suits it
+            final Mode mode = getMode(args);
+            try (WorkloadProfiles.Scope scope = ofxCat.workloadProfiles.use(mode.getWorkload())) {
+                runMode(ofxCat, mode, args);
             }
         } catch (OfxCatException ex) {
             logger.error("Caught unhandled exception", ex);
@@ -426,14 +533,62 @@ public class OfxCat {
         }
     }
 
+    private static void runMode(OfxCat ofxCat, Mode mode, String[] args) throws OfxCatException {
+        switch (mode) {
+            case IMPORT:
+                // if mode is IMPORT, the remaining arguments are the paths to the files to import
+                if (args.length < 2) {
+                    throw new CliException("Import file path not specified");
+                }
+                ofxCat.importTransactions(Arrays.asList(args).subList(1, args.length));
+                break;
+            case GET:
+                // if mode is GET, determine which concern needs to be got
+                switch (getConcern(args)) {
+                    case TRANSACTIONS ->
+                        // TODO: add a way to export actual transactions, not just category sums
+                        ofxCat.reportTransactions(getOptions(args));
+                    case ACCOUNTS -> ofxCat.reportAccounts();
+                    case CATEGORIES ->
+                        // TODO: need a way to edit categories and category descriptions
+                        ofxCat.reportCategories();
+                    case GAPS -> ofxCat.reportGaps();
+                }
+                break;
+            case MIGRATE:
+                ofxCat.runMigration(getMigrateOptions(args));
+                break;
+            case COMBINE:
+                ofxCat.combineCategories(getCombineOptions(args));
+                break;
+            case RENAME:
+                ofxCat.combineCategories(getRenameOptions(args));
+                break;
+            case REBUILD:
+                switch (getRebuildTarget(args)) {
+                    case SUMMARIES -> ofxCat.rebuildMonthlySummaries();
+                    case GAPS -> ofxCat.rebuildGaps();
+                }
+                break;
+            case BENCHMARK:
+                ofxCat.runBenchmark();
+                break;
+            case HELP:
+                ofxCat.printHelp();
+                break;
+        }
+    }
+
     private static OfxCat initializeApplication(PathUtils pathUtils, AppConfig appConfig) {
         final Injector injector = Guice.createInjector(
                 new CLIModule(),
-                DatastoreModule.onDisk(pathUtils.getDatabaseConnectionString()),
+                DatastoreModule.onDisk(
+                        pathUtils.getDatabaseConnectionString(), appConfig.getDatastore().toWorkloadProfiles()),
                 new MatchingModule(appConfig, pathUtils.getConfigPath()));
         final OfxCat ofxCat = injector.getInstance(OfxCat.class);
         ofxCat.migrateDatabase();
         ofxCat.migrateTokens();
+        ofxCat.rebuildMonthlySummariesIfNeeded();
         logger.debug(
                 "Application initialized with config: keyword_rules_path={}, overlap_threshold={}",
                 appConfig.getKeywordRulesPath(),
@@ -454,12 +609,28 @@ public class OfxCat {
 
     // Package-private for testing
     enum Mode {
-        IMPORT,
-        GET,
-        MIGRATE,
-        COMBINE,
-        RENAME,
-        HELP
+        IMPORT(Workload.BULK_IMPORT),
+        GET(Workload.REPORT),
+        MIGRATE(Workload.BULK_IMPORT),
+        COMBINE(Workload.BULK_IMPORT),
+        RENAME(Workload.BULK_IMPORT),
+        REBUILD(Workload.BULK_IMPORT),
+        // the benchmark switches between every profile itself
+        BENCHMARK(Workload.INTERACTIVE),
+        HELP(Workload.INTERACTIVE);
+
+        private final Workload workload;
+
+        Mode(Workload workload) {
+            this.workload = workload;
+        }
+
+        /**
+         * @return the workload whose database profile the mode runs under
+         */
+        Workload getWorkload() {
+            return workload;
+        }
     }
 
     // Package-private for testing
@@ -481,6 +652,23 @@ public class OfxCat {
         GAPS
     }
 
+    // Package-private for testing
+    static RebuildTarget getRebuildTarget(String[] args) throws CliException {
+        if (args.length < 2) {
+            throw new CliException("Usage: ofxcat rebuild <summaries|gaps>");
+        }
+        return Arrays.stream(RebuildTarget.values())
+                .filter(t -> t.name().equalsIgnoreCase(args[1]))
+                .findFirst()
+                .orElseThrow(() -> new CliException(String.format("Invalid rebuild target %s specified", args[1])));
+    }
+
+    // Package-private for testing
+    enum RebuildTarget {
+        SUMMARIES,
+        GAPS
+    }
+
     // Package-private for testing
     static OfxCatOptions getOptions(String[] args) throws CliException {
         try {
@@ -1,8 +1,16 @@
 package ca.jonathanfritz.ofxcat.config;
 
+import ca.jonathanfritz.ofxcat.datastore.utils.Workload;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfile;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonMerge;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
  * Application configuration loaded from ~/.ofxcat/config.yaml.
@@ -12,11 +20,17 @@ public class AppConfig {
 
     private String keywordRulesPath;
     private TokenMatchingSettings tokenMatching;
+    private ImportSettings importSettings;
+    private TransferMatchingSettings transferMatching;
+    private DatastoreSettings datastore;
 
     public AppConfig() {
         // Default values
         this.keywordRulesPath = "keyword-rules.yaml";
         this.tokenMatching = new TokenMatchingSettings();
+        this.importSettings = new ImportSettings();
+        this.transferMatching = new TransferMatchingSettings();
+        this.datastore = new DatastoreSettings();
     }
 
     /**
@@ -42,6 +56,30 @@ public class AppConfig {
         this.tokenMatching = tokenMatching;
     }
 
+    public ImportSettings getImportSettings() {
+        return importSettings;
+    }
+
+    public void setImportSettings(ImportSettings importSettings) {
+        this.importSettings = importSettings;
+    }
+
+    public TransferMatchingSettings getTransferMatching() {
+        return transferMatching;
+    }
+
+    public void setTransferMatching(TransferMatchingSettings transferMatching) {
+        this.transferMatching = transferMatching;
+    }
+
+    public DatastoreSettings getDatastore() {
+        return datastore;
+    }
+
+    public void setDatastore(DatastoreSettings datastore) {
+        this.datastore = datastore;
+    }
+
     /**
      * Resolves the keyword rules path relative to the config directory.
      * If the path is absolute, returns it as-is.
@@ -64,10 +102,13 @@ public class AppConfig {
      */
     public static class TokenMatchingSettings {
         private double overlapThreshold;
+        private boolean useTokenIndex;
 
         public TokenMatchingSettings() {
             // Default: 60% overlap required for a match
             this.overlapThreshold = 0.6;
+            // Default: match against an in-memory index of stored tokens
+            this.useTokenIndex = true;
         }
 
         public double getOverlapThreshold() {
@@ -77,5 +118,253 @@ public class AppConfig {
         public void setOverlapThreshold(double overlapThreshold) {
             this.overlapThreshold = overlapThreshold;
         }
+
+        public boolean isUseTokenIndex() {
+            return useTokenIndex;
+        }
+
+        public void setUseTokenIndex(boolean useTokenIndex) {
+            this.useTokenIndex = useTokenIndex;
+        }
+    }
+
+    /**
+     * Settings for importing transactions from OFX files.
+     */
+    public static class ImportSettings {
+        private int commitBatchSize;
+
+        public ImportSettings() {
+            // Default: commit imported transactions to the database 500 at a time
+            this.commitBatchSize = 500;
+        }
+
+        /**
+         * Returns the number of imported transactions that are written to the database in each commit. A value of 1
+         * commits every transaction separately, and a value of 0 commits all transactions for each account at once.
+         */
+        public int getCommitBatchSize() {
+            return commitBatchSize;
+        }
+
+        public void setCommitBatchSize(int commitBatchSize) {
+            this.commitBatchSize = commitBatchSize;
+        }
+    }
+
+    /**
+     * Settings for matching the source and sink of inter-account transfers.
+     */
+    public static class TransferMatchingSettings {
+        private int dateWindowDays;
+
+        public TransferMatchingSettings() {
+            // Default: transfers between institutions often take up to 3 days to settle
+            this.dateWindowDays = 3;
+        }
+
+        /**
+         * Returns the maximum number of days between the source and sink of a transfer. A value of 0 only matches
+         * transfers whose source and sink were posted on the same day.
+         */
+        public int getDateWindowDays() {
+            return dateWindowDays;
+        }
+
+        public void setDateWindowDays(int dateWindowDays) {
+            this.dateWindowDays = dateWindowDays;
+        }
+    }
+
+    /**
+     * SQLite settings for each kind of work that the application does against its database.
+     * Profiles that are only partly specified in config.yaml keep the defaults of the settings that are missing.
+     */
+    public static class DatastoreSettings {
+        private static final Logger logger = LogManager.getLogger(DatastoreSettings.class);
+
+        @JsonMerge
+        private ProfileSettings interactive;
+
+        @JsonMerge
+        private ProfileSettings bulkImport;
+
+        @JsonMerge
+        private ProfileSettings report;
+
+        public DatastoreSettings() {
+            // Default: the profile of each workload, see WorkloadProfile.defaults
+            this.interactive = ProfileSettings.of(WorkloadProfile.defaults(Workload.INTERACTIVE));
+            this.bulkImport = ProfileSettings.of(WorkloadProfile.defaults(Workload.BULK_IMPORT));
+            this.report = ProfileSettings.of(WorkloadProfile.defaults(Workload.REPORT));
+        }
+
+        /**
+         * Converts these settings into the profile of each workload. A profile with a setting that SQLite doesn't
+         * understand, or with a negative size, is logged and replaced by the default profile of its workload.
+         */
+        public Map<Workload, WorkloadProfile> toWorkloadProfiles() {
+            final Map<Workload, ProfileSettings> settings = new EnumMap<>(Workload.class);
+            settings.put(Workload.INTERACTIVE, interactive);
+            settings.put(Workload.BULK_IMPORT, bulkImport);
+            settings.put(Workload.REPORT, report);
+
+            final Map<Workload, WorkloadProfile> profiles = new EnumMap<>(Workload.class);
+            for (Map.Entry<Workload, ProfileSettings> entry : settings.entrySet()) {
+                try {
+                    profiles.put(entry.getKey(), entry.getValue().toWorkloadProfile());
+                } catch (IllegalArgumentException ex) {
+                    logger.error("Invalid datastore profile for {} in config.yaml, using defaults", entry.getKey(), ex);
+                    profiles.put(entry.getKey(), WorkloadProfile.defaults(entry.getKey()));
+                }
+            }
+            return profiles;
+        }
+
+        public ProfileSettings getInteractive() {
+            return interactive;
+        }
+
+        public void setInteractive(ProfileSettings interactive) {
+            this.interactive = interactive;
+        }
+
+        public ProfileSettings getBulkImport() {
+            return bulkImport;
+        }
+
+        public void setBulkImport(ProfileSettings bulkImport) {
+            this.bulkImport = bulkImport;
+        }
+
+        public ProfileSettings getReport() {
+            return report;
+        }
+
+        public void setReport(ProfileSettings report) {
+            this.report = report;
+        }
+    }
+
+    /**
+     * The SQLite settings that one kind of work runs under.
+     */
+    public static class ProfileSettings {
+        private String journalMode;
+        private String synchronous;
+        private int cacheSizeKib;
+        private int mmapSizeMib;
+        private String tempStore;
+        private boolean optimizeOnClose;
+
+        public ProfileSettings() {
+            // Default: the settings of the interactive workload
+            this(WorkloadProfile.builder().build());
+        }
+
+        private ProfileSettings(WorkloadProfile profile) {
+            this.journalMode = profile.getJournalMode().name();
+            this.synchronous = profile.getSynchronous().name();
+            this.cacheSizeKib = profile.getCacheSizeKib();
+            this.mmapSizeMib = profile.getMmapSizeMib();
+            this.tempStore = profile.getTempStore().name();
+            this.optimizeOnClose = profile.isOptimizeOnClose();
+        }
+
+        /**
+         * Creates the settings that describe the specified profile
+         */
+        public static ProfileSettings of(WorkloadProfile profile) {
+            return new ProfileSettings(profile);
+        }
+
+        /**
+         * Converts these settings into a {@link WorkloadProfile}. Names are matched case-insensitively.
+         *
+         * @throws IllegalArgumentException if a name isn't one that SQLite understands, or a size is negative
+         */
+        public WorkloadProfile toWorkloadProfile() {
+            return WorkloadProfile.builder()
+                    .journalMode(toEnum(WorkloadProfile.JournalMode.class, journalMode))
+                    .synchronous(toEnum(WorkloadProfile.Synchronous.class, synchronous))
+                    .cacheSizeKib(cacheSizeKib)
+                    .mmapSizeMib(mmapSizeMib)
+                    .tempStore(toEnum(WorkloadProfile.TempStore.class, tempStore))
+                    .optimizeOnClose(optimizeOnClose)
+                    .build();
+        }
+
+        private static <E extends Enum<E>> E toEnum(Class<E> type, String value) {
+            if (value == null) {
+                throw new IllegalArgumentException(type.getSimpleName() + " not specified");
+            }
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * Returns the SQLite journal mode: DELETE, TRUNCATE, PERSIST, MEMORY, WAL or OFF.
+         */
+        public String getJournalMode() {
+            return journalMode;
+        }
+
+        public void setJournalMode(String journalMode) {
+            this.journalMode = journalMode;
+        }
+
+        /**
+         * Returns how often SQLite waits for writes to reach the disk: OFF, NORMAL, FULL or EXTRA.
+         */
+        public String getSynchronous() {
+            return synchronous;
+        }
+
+        public void setSynchronous(String synchronous) {
+            this.synchronous = synchronous;
+        }
+
+        /**
+         * Returns the maximum size of the page cache, in kibibytes.
+         */
+        public int getCacheSizeKib() {
+            return cacheSizeKib;
+        }
+
+        public void setCacheSizeKib(int cacheSizeKib) {
+            this.cacheSizeKib = cacheSizeKib;
+        }
+
+        /**
+         * Returns how much of the database file is memory-mapped, in mebibytes. A value of 0 disables memory mapping.
+         */
+        public int getMmapSizeMib() {
+            return mmapSizeMib;
+        }
+
+        public void setMmapSizeMib(int mmapSizeMib) {
+            this.mmapSizeMib = mmapSizeMib;
+        }
+
+        /**
+         * Returns where SQLite keeps temporary tables and indexes: DEFAULT, FILE or MEMORY.
+         */
+        public String getTempStore() {
+            return tempStore;
+        }
+
+        public void setTempStore(String tempStore) {
+            this.tempStore = tempStore;
+        }
+
+        /**
+         * Returns true if SQLite should refresh its query planner statistics when the work is done.
+         */
+        public boolean isOptimizeOnClose() {
+            return optimizeOnClose;
+        }
+
+        public void setOptimizeOnClose(boolean optimizeOnClose) {
+            this.optimizeOnClose = optimizeOnClose;
+        }
     }
 }
@@ -123,7 +123,50 @@ public class AppConfigLoader {
                 + "  # Higher values require more tokens to match\n"
                 + "  # Default: 0.6 (60% of tokens must match)\n"
                 + "  overlap_threshold: "
-                + config.getTokenMatching().getOverlapThreshold() + "\n";
+                + config.getTokenMatching().getOverlapThreshold() + "\n"
+                + "  # Keep an in-memory index of stored tokens for fast matching\n"
+                + "  # Set to false to score matches in the database instead, which uses less memory\n"
+                + "  # Default: true\n"
+                + "  use_token_index: "
+                + config.getTokenMatching().isUseTokenIndex() + "\n" + "\n"
+                + "# Transaction import settings\n"
+                + "import_settings:\n"
+                + "  # Number of imported transactions to write to the database in each commit\n"
+                + "  # Set to 1 to commit every transaction separately, or 0 to commit each account at once\n"
+                + "  # Default: 500\n"
+                + "  commit_batch_size: "
+                + config.getImportSettings().getCommitBatchSize() + "\n" + "\n"
+                + "# Inter-account transfer matching settings\n"
+                + "transfer_matching:\n"
+                + "  # Maximum number of days between the withdrawal and the deposit of a transfer\n"
+                + "  # Set to 0 to only match transfers that were posted on the same day\n"
+                + "  # Default: 3\n"
+                + "  date_window_days: "
+                + config.getTransferMatching().getDateWindowDays() + "\n" + "\n"
+                + "# SQLite settings for each kind of work that is done against the database\n"
+                + "# interactive: prompts and lookups. bulk_import: imports, migrations and rebuilds. report: reports\n"
+                + "# Each profile sets:\n"
+                + "#   journal_mode: DELETE, TRUNCATE, PERSIST, MEMORY, WAL or OFF\n"
+                + "#   synchronous: how often to wait for writes to reach the disk: OFF, NORMAL, FULL or EXTRA\n"
+                + "#   cache_size_kib: maximum size of the page cache, in kibibytes\n"
+                + "#   mmap_size_mib: how much of the database file to memory-map, in mebibytes (0 to disable)\n"
+                + "#   temp_store: where to keep temporary tables and indexes: DEFAULT, FILE or MEMORY\n"
+                + "#   optimize_on_close: refresh query planner statistics when the work is done\n"
+                + "# Run 'ofxcat benchmark' to compare the profiles on your database\n"
+                + "datastore:\n"
+                + generateProfileWithComments("interactive", config.getDatastore().getInteractive())
+                + generateProfileWithComments("bulk_import", config.getDatastore().getBulkImport())
+                + generateProfileWithComments("report", config.getDatastore().getReport());
+    }
+
+    private String generateProfileWithComments(String name, AppConfig.ProfileSettings profile) {
+        return "  " + name + ":\n" + "    journal_mode: "
+                + profile.getJournalMode() + "\n" + "    synchronous: "
+                + profile.getSynchronous() + "\n" + "    cache_size_kib: "
+                + profile.getCacheSizeKib() + "\n" + "    mmap_size_mib: "
+                + profile.getMmapSizeMib() + "\n" + "    temp_store: "
+                + profile.getTempStore() + "\n" + "    optimize_on_close: "
+                + profile.isOptimizeOnClose() + "\n";
     }
 
     /**
@@ -71,17 +71,50 @@ public class AccountDao {
     }
 
     Optional<Account> select(DatabaseTransaction t, long id) {
+        final Optional<Account> cached = t.getCachedEntity(Account.class, id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
         try {
             logger.debug("Attempting to query Account with id {}", id);
             final String selectStatement = "SELECT * FROM Account WHERE id = ?";
             final List<Account> results = t.query(selectStatement, ps -> ps.setLong(1, id), accountDeserializer);
-            return DatabaseTransaction.getFirstResult(results);
+            final Optional<Account> account = DatabaseTransaction.getFirstResult(results);
+            account.ifPresent(t::cacheEntity);
+            return account;
         } catch (SQLException e) {
             logger.error("Failed to query Account with id {}", id, e);
             return Optional.empty();
         }
     }
 
+    /**
+     * Gets all {@link Account}s that have fewer than the specified number of transactions. Each account's transactions
+     * are only counted up to that number, so accounts with long histories are not scanned in full
+     * @param transactionCount the number of transactions that a returned Account has fewer than
+     * @return a {@link List<Account>}, or an empty list if every account has at least transactionCount transactions
+     */
+    public List<Account> selectWithFewerTransactionsThan(int transactionCount) {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            logger.debug("Attempting to select accounts with fewer than {} transactions", transactionCount);
+            final String selectStatement = "SELECT a.* FROM Account a WHERE ("
+                    + "SELECT COUNT(*) FROM ("
+                    + "SELECT 1 FROM CategorizedTransaction ct WHERE ct.account_id = a.id LIMIT ?"
+                    + ")) < ?";
+            return t.query(
+                    selectStatement,
+                    ps -> {
+                        ps.setInt(1, transactionCount);
+                        ps.setInt(2, transactionCount);
+                    },
+                    accountDeserializer);
+        } catch (SQLException ex) {
+            logger.error("Failed to select accounts with fewer than {} transactions", transactionCount, ex);
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * Gets the {@link Account} with the specified account number from the database
      * @param accountNumber the account number (assigned by the institution) of the Account to get
@@ -118,7 +151,7 @@ public class AccountDao {
             logger.debug("Attempting to insert Account {}", accountToInsert);
             final String insertStatement =
                     "INSERT INTO Account (bank_number, account_number, account_type, name) VALUES (?, ?, ?, ?);";
-            return t.insert(
+            final Optional<Account> inserted = t.insert(
                     insertStatement,
                     ps -> {
                         ps.setString(1, accountToInsert.getBankId());
@@ -127,6 +160,8 @@ public class AccountDao {
                         ps.setString(4, accountToInsert.getName());
                     },
                     accountDeserializer);
+            inserted.ifPresent(t::cacheEntity);
+            return inserted;
         } catch (SQLException e) {
             logger.error("Failed to insert Account {}", accountToInsert, e);
             return Optional.empty();
@@ -15,12 +15,18 @@ import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
@@ -29,46 +35,93 @@ import org.apache.logging.log4j.Logger;
 public class CategorizedTransactionDao {
 
     private final Connection connection;
-    private final SqlFunction<TransactionState, List<CategorizedTransaction>> categorizedTransactionDeserializer;
+    private final MonthlyCategorySummaryDao monthlyCategorySummaryDao;
+    private final GapDao gapDao;
+    private final ResultSetDeserializer<CategorizedTransaction> categorizedTransactionDeserializer;
 
     private static final Logger logger = LogManager.getLogger(CategorizedTransactionDao.class);
 
+    // the number of rows that the driver is asked to read at a time when transactions are streamed
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Selects each CategorizedTransaction along with the Account and Category that it references, so that a full
+     * {@link CategorizedTransaction} can be built from a single row. Columns are read by index in the order that they
+     * are listed here, so the deserializer must be kept in sync with this statement. The joins are outer joins so that
+     * a row whose Account or Category is missing fails to deserialize instead of silently disappearing.
+     */
+    private static final String SELECT_CATEGORIZED_TRANSACTION = "SELECT "
+            + "ct.id, ct.type, ct.date, ct.amount, ct.description, ct.balance, ct.fitId, "
+            + "a.id, a.bank_number, a.account_number, a.account_type, a.name, "
+            + "c.id, c.name, "
+            + "ct.account_id, ct.category_id "
+            + "FROM CategorizedTransaction ct "
+            + "LEFT JOIN Account a ON a.id = ct.account_id "
+            + "LEFT JOIN Category c ON c.id = ct.category_id ";
+
+    // matches transactions in the TRANSFER category that are not the source or sink of a Transfer. Each side of the
+    // Transfer table is probed through its own index, rather than materializing both columns into a list
+    private static final String UNLINKED_TRANSFER_CLAUSE = "WHERE ct.category_id = 1 "
+            + "AND NOT EXISTS (SELECT 1 FROM Transfer tr WHERE tr.source_id = ct.id) "
+            + "AND NOT EXISTS (SELECT 1 FROM Transfer tr WHERE tr.sink_id = ct.id) ";
+
     @Inject
-    public CategorizedTransactionDao(Connection connection, AccountDao accountDao, CategoryDao categoryDao) {
+    public CategorizedTransactionDao(
+            Connection connection, MonthlyCategorySummaryDao monthlyCategorySummaryDao, GapDao gapDao) {
         this.connection = connection;
+        this.monthlyCategorySummaryDao = monthlyCategorySummaryDao;
+        this.gapDao = gapDao;
         this.categorizedTransactionDeserializer =
                 new ResultSetDeserializer<>((transactionState, categorizedTransactions) -> {
                     final ResultSet resultSet = transactionState.getResultSet();
+                    final DatabaseTransaction t = transactionState.getDatabaseTransaction();
+
+                    // Accounts and Categories are shared by many rows, so reuse the instances that the
+                    // DatabaseTransaction has already cached instead of building a copy for every row
+                    final long accountId = resultSet.getLong(8);
+                    if (resultSet.wasNull()) {
+                        throw new SQLException(
+                                String.format("Account with id %d does not exist", resultSet.getLong(15)));
+                    }
+                    final Optional<Account> cachedAccount = t.getCachedEntity(Account.class, accountId);
+                    final Account account;
+                    if (cachedAccount.isPresent()) {
+                        account = cachedAccount.get();
+                    } else {
+                        account = Account.newBuilder()
+                                .setId(accountId)
+                                .setBankId(resultSet.getString(9))
+                                .setAccountNumber(resultSet.getString(10))
+                                .setAccountType(resultSet.getString(11))
+                                .setName(resultSet.getString(12))
+                                .build();
+                        t.cacheEntity(account);
+                    }
 
-                    // TODO: some kind of cache for Account and Category objects would be a good idea...
-                    final long accountId = resultSet.getLong("account_id");
-                    final Account account = accountDao
-                            .select(transactionState.getDatabaseTransaction(), accountId)
-                            .orElseThrow(() ->
-                                    new SQLException(String.format("Account with id %d does not exist", accountId)));
-
-                    final long categoryId = resultSet.getLong("category_id");
-                    final Category category = categoryDao
-                            .select(transactionState.getDatabaseTransaction(), categoryId)
-                            .orElseThrow(() ->
-                                    new SQLException(String.format("Category with id %d does not exist", categoryId)));
-
-                    final Date date = resultSet.getDate("date");
-                    final float amount = resultSet.getFloat("amount");
-                    final String description = resultSet.getString("description");
-                    final String type = resultSet.getString("type");
-                    final float balance = resultSet.getFloat("balance");
-                    final String fitId = resultSet.getString("fitId");
-                    final Transaction transaction = Transaction.newBuilder(fitId)
+                    final long categoryId = resultSet.getLong(13);
+                    if (resultSet.wasNull()) {
+                        throw new SQLException(
+                                String.format("Category with id %d does not exist", resultSet.getLong(16)));
+                    }
+                    final Optional<Category> cachedCategory = t.getCachedEntity(Category.class, categoryId);
+                    final Category category;
+                    if (cachedCategory.isPresent()) {
+                        category = cachedCategory.get();
+                    } else {
+                        category = new Category(categoryId, resultSet.getString(14));
+                        t.cacheEntity(category);
+                    }
+
+                    final Transaction transaction = Transaction.newBuilder(resultSet.getString(7))
                             .setAccount(account)
-                            .setDate(date.toLocalDate())
-                            .setAmount(amount)
-                            .setDescription(description)
-                            .setType(Transaction.TransactionType.valueOf(type))
-                            .setBalance(balance)
+                            .setType(Transaction.TransactionType.valueOf(resultSet.getString(2)))
+                            .setDate(resultSet.getDate(3).toLocalDate())
+                            .setAmount(resultSet.getFloat(4))
+                            .setDescription(resultSet.getString(5))
+                            .setBalance(resultSet.getFloat(6))
                             .build();
 
-                    final long id = resultSet.getLong("id");
+                    final long id = resultSet.getLong(1);
                     categorizedTransactions.add(new CategorizedTransaction(id, transaction, category));
                 });
     }
@@ -81,37 +134,76 @@ public class CategorizedTransactionDao {
      */
     public Optional<CategorizedTransaction> select(long id) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            logger.debug("Attempting to query CategorizedTransaction with id {}", id);
-            final String selectStatement = "SELECT * FROM CategorizedTransaction WHERE id = ?";
-            final List<CategorizedTransaction> results =
-                    t.query(selectStatement, ps -> ps.setLong(1, id), categorizedTransactionDeserializer);
-            return DatabaseTransaction.getFirstResult(results);
+            return select(t, id);
         } catch (SQLException e) {
             logger.error("Failed to query CategorizedTransaction with id {}", id, e);
             return Optional.empty();
         }
     }
 
+    /**
+     * Gets the {@link CategorizedTransaction} with the specified id from the database
+     * @param t the {@link DatabaseTransaction} to perform this operation on
+     * @param id the primary key of the CategorizedTransaction to fetch
+     * @return an {@link Optional<CategorizedTransaction>} containing the specified CategorizedTransaction, or
+     *      {@link Optional#empty()} if it does not exist
+     * @throws SQLException if something goes wrong
+     */
+    public Optional<CategorizedTransaction> select(DatabaseTransaction t, long id) throws SQLException {
+        logger.debug("Attempting to query CategorizedTransaction with id {}", id);
+        final String selectStatement = SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.id = ?";
+        final List<CategorizedTransaction> results =
+                t.query(selectStatement, ps -> ps.setLong(1, id), categorizedTransactionDeserializer);
+        return DatabaseTransaction.getFirstResult(results);
+    }
+
     public Optional<CategorizedTransaction> selectByFitId(String fitId) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            logger.debug("Attempting to query CategorizedTransaction with fitId {}", fitId);
-            final String selectStatement = "SELECT * FROM CategorizedTransaction WHERE fitId = ?";
-            final List<CategorizedTransaction> results =
-                    t.query(selectStatement, ps -> ps.setString(1, fitId), categorizedTransactionDeserializer);
-            return DatabaseTransaction.getFirstResult(results);
+            return selectByFitId(t, fitId);
         } catch (SQLException e) {
             logger.error("Failed to query CategorizedTransaction with fitId {}", fitId, e);
             return Optional.empty();
         }
     }
 
+    public Optional<CategorizedTransaction> selectByFitId(DatabaseTransaction t, String fitId) throws SQLException {
+        logger.debug("Attempting to query CategorizedTransaction with fitId {}", fitId);
+        final String selectStatement = SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.fitId = ?";
+        final List<CategorizedTransaction> results =
+                t.query(selectStatement, ps -> ps.setString(1, fitId), categorizedTransactionDeserializer);
+        return DatabaseTransaction.getFirstResult(results);
+    }
+
+    /**
+     * Gets the {@link CategorizedTransaction} with the specified fitId that belongs to the specified {@link Account}
+     * @param t the {@link DatabaseTransaction} to perform this operation on
+     * @param account the Account that the transaction belongs to
+     * @param fitId the fitId of the transaction
+     * @return an {@link Optional<CategorizedTransaction>} containing the matching CategorizedTransaction, or
+     *      {@link Optional#empty()} if it does not exist
+     * @throws SQLException if something goes wrong
+     */
+    public Optional<CategorizedTransaction> selectByFitId(DatabaseTransaction t, Account account, String fitId)
+            throws SQLException {
+        logger.debug("Attempting to query CategorizedTransaction with fitId {} in {}", fitId, account);
+        final String selectStatement = SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.account_id = ? AND ct.fitId = ?";
+        final List<CategorizedTransaction> results = t.query(
+                selectStatement,
+                ps -> {
+                    ps.setLong(1, account.getId());
+                    ps.setString(2, fitId);
+                },
+                categorizedTransactionDeserializer);
+        return DatabaseTransaction.getFirstResult(results);
+    }
+
     public Map<Category, List<CategorizedTransaction>> selectGroupByCategory(LocalDate startDate, LocalDate endDate) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
             logger.debug(
                     "Attempting to get CategorizedTransactions between {} and {} grouped by category",
                     startDate,
                     endDate);
-            final String query = "SELECT * FROM CategorizedTransaction WHERE date >= ? AND date <= ?";
+            final String query = SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.date >= ? AND ct.date <= ?";
             final List<CategorizedTransaction> results = t.query(
                     query,
                     ps -> {
@@ -134,6 +226,85 @@ public class CategorizedTransactionDao {
         }
     }
 
+    /**
+     * Sums the amount of every transaction in each category, for each calendar month between the specified dates.
+     * Complete months are read from the MonthlyCategorySummary table, and only the partial months at either end of the
+     * range are summed from individual transactions, so reports don't have to scan every transaction.
+     * @param startDate the earliest date on which a summed transaction can occur, inclusive
+     * @param endDate the latest date on which a summed transaction can occur, inclusive
+     * @return a map of month to the total amount of each category's transactions in that month, in chronological order.
+     *      Each month is keyed by its first day, except for the first month, which is keyed by startDate. Months that
+     *      have no transactions map to an empty map
+     */
+    public Map<LocalDate, Map<Category, Float>> selectMonthlySumGroupByCategory(
+            LocalDate startDate, LocalDate endDate) {
+        final List<MonthRange> months = MonthRange.between(startDate, endDate);
+        final Map<LocalDate, Map<Category, Float>> monthlySums = new LinkedHashMap<>();
+        for (MonthRange month : months) {
+            monthlySums.put(month.start(), new HashMap<>());
+        }
+
+        final List<MonthRange> fullMonths = months.stream().filter(MonthRange::isFullMonth).toList();
+        final List<MonthRange> partialMonths = months.stream().filter(month -> !month.isFullMonth()).toList();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            logger.debug(
+                    "Attempting to sum CategorizedTransactions between {} and {} by month and category",
+                    startDate,
+                    endDate);
+            if (!fullMonths.isEmpty()) {
+                monthlyCategorySummaryDao
+                        .selectSumGroupByCategory(t, fullMonths.getFirst().start(), fullMonths.getLast().start())
+                        .forEach((month, sums) -> monthlySums.get(month).putAll(sums));
+            }
+            if (!partialMonths.isEmpty()) {
+                selectSumGroupByCategory(t, partialMonths)
+                        .forEach((month, sums) -> monthlySums.get(month).putAll(sums));
+            }
+            return monthlySums;
+        } catch (SQLException e) {
+            logger.error(
+                    "Failed to sum CategorizedTransactions between {} and {} by month and category",
+                    startDate,
+                    endDate,
+                    e);
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Sums the amount of every transaction in each category for each of the specified months, with a single query
+     * @return a map of the start of each month to the total amount of each category's transactions in that month
+     */
+    private Map<LocalDate, Map<Category, Float>> selectSumGroupByCategory(
+            DatabaseTransaction t, List<MonthRange> months) throws SQLException {
+        final String selectStatement = "WITH Month (month_index, start_date, end_date) AS (VALUES "
+                + String.join(", ", Collections.nCopies(months.size(), "(?, ?, ?)")) + ") "
+                + "SELECT m.month_index, c.id, c.name, SUM(ct.amount) "
+                + "FROM Month m "
+                + "JOIN CategorizedTransaction ct ON ct.date >= m.start_date AND ct.date <= m.end_date "
+                + "JOIN Category c ON c.id = ct.category_id "
+                + "GROUP BY m.month_index, c.id, c.name;";
+        return t.queryRaw(
+                selectStatement,
+                ps -> {
+                    for (int i = 0; i < months.size(); i++) {
+                        ps.setInt(i * 3 + 1, i);
+                        ps.setDate(i * 3 + 2, Date.valueOf(months.get(i).start()));
+                        ps.setDate(i * 3 + 3, Date.valueOf(months.get(i).end()));
+                    }
+                },
+                rs -> {
+                    final Map<LocalDate, Map<Category, Float>> sums = new HashMap<>();
+                    while (rs.next()) {
+                        final Category category = new Category(rs.getLong(2), rs.getString(3));
+                        sums.computeIfAbsent(months.get(rs.getInt(1)).start(), month -> new HashMap<>())
+                                .put(category, rs.getFloat(4));
+                    }
+                    return sums;
+                });
+    }
+
     /**
      * Finds all categorized transactions that belong to the specified category
      * @param category the category that returned transactions belong to
@@ -142,7 +313,7 @@ public class CategorizedTransactionDao {
     public List<CategorizedTransaction> selectByCategory(final Category category) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
             logger.debug("Attempting to get all CategorizedTransactions in Category {}", category);
-            final String query = "SELECT * FROM CategorizedTransaction WHERE category_id = ? ORDER BY date ASC";
+            final String query = SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.category_id = ? ORDER BY ct.date ASC";
             return t.query(query, ps -> ps.setLong(1, category.getId()), categorizedTransactionDeserializer);
         } catch (SQLException e) {
             logger.error("Failed to get CategorizedTransactions in Category {}", category, e);
@@ -165,8 +336,8 @@ public class CategorizedTransactionDao {
                     category,
                     startDate,
                     endDate);
-            final String query = "SELECT * FROM CategorizedTransaction "
-                    + "WHERE category_id = ? AND date >= ? AND date <= ? " + "ORDER BY date ASC";
+            final String query = SELECT_CATEGORIZED_TRANSACTION
+                    + "WHERE ct.category_id = ? AND ct.date >= ? AND ct.date <= ? ORDER BY ct.date ASC";
             return t.query(
                     query,
                     ps -> {
@@ -186,7 +357,9 @@ public class CategorizedTransactionDao {
     }
 
     /**
-     * Checks to see if a transaction exists in the database that has the same fitId as the specified {@link Transaction}
+     * Checks to see if a transaction exists in the database that belongs to the same {@link Account} and has the same
+     * fitId as the specified {@link Transaction}. This is the same rule that {@link #selectFitIds} applies to a whole
+     * import, because fitIds are only unique within the account that issued them
      * @param t the {@link DatabaseTransaction} to perform this operation on
      * @param transaction the Transaction to look for
      * @return true if the specified Transaction already exists, false otherwise
@@ -194,18 +367,74 @@ public class CategorizedTransactionDao {
      */
     public boolean isDuplicate(DatabaseTransaction t, Transaction transaction) throws SQLException {
         logger.debug("Attempting to determine if {} is a duplicate", transaction);
-        final String selectStatement = "SELECT * FROM CategorizedTransaction WHERE " + "fitId = ?;";
+        final String selectStatement =
+                "SELECT 1 FROM CategorizedTransaction WHERE account_id = ? AND fitId = ? LIMIT 1;";
+        return t.exists(selectStatement, ps -> {
+            ps.setLong(1, transaction.getAccount().getId());
+            ps.setString(2, transaction.getFitId());
+        });
+    }
 
-        final List<CategorizedTransaction> results = t.query(
-                selectStatement, ps -> ps.setString(1, transaction.getFitId()), categorizedTransactionDeserializer);
+    /**
+     * Gets the fitIds of all existing transactions that belong to the same accounts and fall within the same date
+     * range as the specified transactions. This allows an import to check every incoming transaction for duplicates
+     * with a single query, instead of running {@link #isDuplicate(DatabaseTransaction, Transaction)} once per row.
+     * @param t the {@link DatabaseTransaction} to perform this operation on
+     * @param accountTransactions the incoming transactions, grouped by the {@link Account} that they belong to
+     * @return a map of account id to the set of fitIds that already exist in that account
+     * @throws SQLException if something goes wrong
+     */
+    public Map<Long, Set<String>> selectFitIds(
+            DatabaseTransaction t, Map<Account, List<Transaction>> accountTransactions) throws SQLException {
+        // each account is searched between the earliest and latest dates of its incoming transactions
+        final List<DateRange> dateRanges = new ArrayList<>();
+        for (Map.Entry<Account, List<Transaction>> entry : accountTransactions.entrySet()) {
+            LocalDate start = null;
+            LocalDate end = null;
+            for (Transaction transaction : entry.getValue()) {
+                if (start == null || transaction.getDate().isBefore(start)) {
+                    start = transaction.getDate();
+                }
+                if (end == null || transaction.getDate().isAfter(end)) {
+                    end = transaction.getDate();
+                }
+            }
+            if (start != null) {
+                dateRanges.add(new DateRange(entry.getKey().getId(), start, end));
+            }
+        }
+        if (dateRanges.isEmpty()) {
+            return new HashMap<>();
+        }
 
-        return !results.isEmpty();
+        logger.debug("Attempting to select existing fitIds for {} accounts", dateRanges.size());
+        final String rangeClause = "(account_id = ? AND date BETWEEN ? AND ?)";
+        final String selectStatement = "SELECT account_id, fitId FROM CategorizedTransaction WHERE "
+                + String.join(" OR ", Collections.nCopies(dateRanges.size(), rangeClause)) + ";";
+        return t.queryRaw(
+                selectStatement,
+                ps -> {
+                    int index = 1;
+                    for (DateRange range : dateRanges) {
+                        ps.setLong(index++, range.accountId());
+                        ps.setDate(index++, Date.valueOf(range.start()));
+                        ps.setDate(index++, Date.valueOf(range.end()));
+                    }
+                },
+                rs -> {
+                    final Map<Long, Set<String>> fitIds = new HashMap<>();
+                    while (rs.next()) {
+                        fitIds.computeIfAbsent(rs.getLong("account_id"), id -> new HashSet<>())
+                                .add(rs.getString("fitId"));
+                    }
+                    return fitIds;
+                });
     }
 
     public List<CategorizedTransaction> findByDescription(DatabaseTransaction t, String description)
             throws SQLException {
         logger.debug("Searching for CategorizedTransactions with description {}", description);
-        final String selectStatement = "SELECT * " + "FROM CategorizedTransaction " + "WHERE description = ?;";
+        final String selectStatement = SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.description = ?;";
 
         return t.query(selectStatement, ps -> ps.setString(1, description), categorizedTransactionDeserializer);
     }
@@ -221,10 +450,9 @@ public class CategorizedTransactionDao {
         }
 
         final String likeClauses =
-                "(" + String.join(" OR ", Collections.nCopies(tokens.size(), "description LIKE ?")) + ") ";
+                "(" + String.join(" OR ", Collections.nCopies(tokens.size(), "ct.description LIKE ?")) + ") ";
 
-        final String selectStatement =
-                "SELECT DISTINCT * " + "FROM CategorizedTransaction " + "WHERE " + likeClauses + ";";
+        final String selectStatement = SELECT_CATEGORIZED_TRANSACTION + "WHERE " + likeClauses + ";";
 
         return t.query(
                 selectStatement,
@@ -237,30 +465,41 @@ public class CategorizedTransactionDao {
     }
 
     /**
-     * Finds all TRANSFER type transactions that are not a source or sink in the Transfer table.
+     * Finds the TRANSFER type transactions between the specified dates that are not a source or sink in the Transfer
+     * table. Used to reconcile the transfers around newly imported transactions without loading every unlinked
+     * transfer in the database.
+     * @param startDate the earliest date to search, inclusive
+     * @param endDate the latest date to search, inclusive
+     * @return a map of each account to its unlinked transfers, or an empty map if there are none
      */
-    public Map<Account, List<Transaction>> findUnlinkedTransfers() {
-        logger.debug(
-                "Attempting to find CategorizedTransactions with Category TRANSFER that have not been used as the source or sink of a Transfer");
+    public Map<Account, List<Transaction>> findUnlinkedTransfers(LocalDate startDate, LocalDate endDate) {
+        logger.debug("Attempting to find unlinked transfers between {} and {}", startDate, endDate);
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            final String selectStatement = "SELECT DISTINCT * " + "FROM CategorizedTransaction "
-                    + "WHERE category_id = 1 "
-                    + "AND id NOT IN ("
-                    + "  SELECT source_id FROM Transfer UNION ALL SELECT sink_id FROM Transfer "
-                    + ");";
-            return t.query(selectStatement, categorizedTransactionDeserializer).stream()
-                    .collect(Collectors.toMap(
-                            Transaction::getAccount,
-                            categorizedTransaction -> List.of(categorizedTransaction.getTransaction()),
-                            (list1, list2) -> Stream.concat(list1.stream(), list2.stream())
-                                    .collect(Collectors.toList())));
+            final String selectStatement =
+                    SELECT_CATEGORIZED_TRANSACTION + UNLINKED_TRANSFER_CLAUSE + "AND ct.date >= ? AND ct.date <= ?;";
+            final List<CategorizedTransaction> unlinkedTransfers = t.query(
+                    selectStatement,
+                    ps -> {
+                        ps.setDate(1, Date.valueOf(startDate));
+                        ps.setDate(2, Date.valueOf(endDate));
+                    },
+                    categorizedTransactionDeserializer);
+            return groupByAccount(unlinkedTransfers);
         } catch (SQLException ex) {
-            logger.error(
-                    "Failed to find CategorizedTransactions with Category TRANSFER that have not been used as the source or sink of a Transfer");
+            logger.error("Failed to find unlinked transfers between {} and {}", startDate, endDate, ex);
             return new HashMap<>();
         }
     }
 
+    private static Map<Account, List<Transaction>> groupByAccount(List<CategorizedTransaction> transactions) {
+        return transactions.stream()
+                .collect(Collectors.toMap(
+                        Transaction::getAccount,
+                        categorizedTransaction -> List.of(categorizedTransaction.getTransaction()),
+                        (list1, list2) -> Stream.concat(list1.stream(), list2.stream())
+                                .collect(Collectors.toList())));
+    }
+
     /**
      * Checks if there are any transactions that don't have tokens stored.
      * This is an efficient check that doesn't load transaction data into memory.
@@ -287,68 +526,106 @@ public class CategorizedTransactionDao {
     public boolean hasTransactionsWithoutTokens(DatabaseTransaction t) throws SQLException {
         logger.debug("Checking for transactions without tokens");
         final String checkStatement = """
-            SELECT EXISTS(
-                SELECT 1 FROM CategorizedTransaction ct
-                WHERE NOT EXISTS (
-                    SELECT 1 FROM TransactionToken tt WHERE tt.transaction_id = ct.id
-                )
+            SELECT 1 FROM CategorizedTransaction ct
+            WHERE NOT EXISTS (
+                SELECT 1 FROM TransactionToken tt WHERE tt.transaction_id = ct.id
             )
+            LIMIT 1;
             """;
-        return t.queryRaw(checkStatement, null, rs -> rs.next() && rs.getInt(1) == 1);
+        return t.exists(checkStatement, null);
     }
 
     /**
-     * Selects all transactions in the database.
+     * Passes every transaction in the database to the specified consumer, one at a time. Rows are deserialized as they
+     * are read, so the whole history is never held in memory at once.
      *
-     * @return a list of all CategorizedTransactions
+     * @param consumer accepts each CategorizedTransaction in turn
+     * @return true if every transaction was consumed, false otherwise
      */
-    public List<CategorizedTransaction> selectAll() {
+    public boolean forEach(Consumer<CategorizedTransaction> consumer) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            logger.debug("Selecting all transactions");
-            final String selectStatement = "SELECT * FROM CategorizedTransaction";
-            return t.query(selectStatement, categorizedTransactionDeserializer);
+            logger.debug("Streaming all transactions");
+            t.forEach(
+                    SELECT_CATEGORIZED_TRANSACTION,
+                    null,
+                    STREAM_FETCH_SIZE,
+                    categorizedTransactionDeserializer,
+                    consumer::accept);
+            return true;
         } catch (SQLException e) {
-            logger.error("Failed to select all transactions", e);
-            return Collections.emptyList();
+            logger.error("Failed to stream all transactions", e);
+            return false;
         }
     }
 
     /**
-     * Selects only transactions that don't have tokens stored.
-     * Used for token migration to avoid loading all transactions into memory.
+     * Counts the transactions in the database
      *
-     * @return a list of CategorizedTransactions that need token migration
+     * @return the number of CategorizedTransactions, or zero if the query fails
      */
-    public List<CategorizedTransaction> selectWithoutTokens() {
+    public int count() {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            return selectWithoutTokens(t);
+            return Math.toIntExact(t.queryLong("SELECT COUNT(*) FROM CategorizedTransaction;", null));
         } catch (SQLException e) {
-            logger.error("Failed to select transactions without tokens", e);
-            return Collections.emptyList();
+            logger.error("Failed to count transactions", e);
+            return 0;
         }
     }
 
     /**
-     * Selects only transactions that don't have tokens stored.
-     * Used for token migration to avoid loading all transactions into memory.
+     * Counts the transactions that don't have tokens stored
+     *
+     * @return the number of CategorizedTransactions that need token migration, or zero if the query fails
+     */
+    public int countWithoutTokens() {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final String countStatement = """
+                SELECT COUNT(*) FROM CategorizedTransaction ct
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM TransactionToken tt WHERE tt.transaction_id = ct.id
+                )
+                """;
+            return Math.toIntExact(t.queryLong(countStatement, null));
+        } catch (SQLException e) {
+            logger.error("Failed to count transactions without tokens", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Selects a page of the transactions that don't have tokens stored, in primary key order. Pages are found by
+     * seeking past the last ID of the previous page rather than with an offset, so each page costs the same to read
+     * no matter how far into the table it is, and transactions that are given tokens between pages are not skipped
+     * over.
      *
      * @param t the database transaction to use
-     * @return a list of CategorizedTransactions that need token migration
+     * @param afterId the ID of the last transaction on the previous page, or zero to get the first page
+     * @param limit the maximum number of transactions to return
+     * @return the next page of CategorizedTransactions that need token migration, sorted by id ASC
      * @throws SQLException if the query fails
      */
-    public List<CategorizedTransaction> selectWithoutTokens(DatabaseTransaction t) throws SQLException {
-        logger.debug("Selecting transactions without tokens");
-        final String selectStatement = """
-            SELECT * FROM CategorizedTransaction ct
-            WHERE NOT EXISTS (
+    public List<CategorizedTransaction> selectWithoutTokens(DatabaseTransaction t, long afterId, int limit)
+            throws SQLException {
+        logger.debug("Selecting up to {} transactions without tokens after id {}", limit, afterId);
+        final String selectStatement = SELECT_CATEGORIZED_TRANSACTION + """
+            WHERE ct.id > ? AND NOT EXISTS (
                 SELECT 1 FROM TransactionToken tt WHERE tt.transaction_id = ct.id
             )
+            ORDER BY ct.id ASC
+            LIMIT ?
             """;
-        return t.query(selectStatement, categorizedTransactionDeserializer);
+        return t.query(
+                selectStatement,
+                ps -> {
+                    ps.setLong(1, afterId);
+                    ps.setInt(2, limit);
+                },
+                categorizedTransactionDeserializer);
     }
 
     /**
-     * Updates the category of an existing transaction.
+     * Updates the category of an existing transaction. The monthly summaries of the old and new categories are updated
+     * in the same database transaction.
      *
      * @param t the database transaction to use
      * @param transactionId the ID of the transaction to update
@@ -358,14 +635,90 @@ public class CategorizedTransactionDao {
      */
     public boolean updateCategory(DatabaseTransaction t, long transactionId, Category newCategory) throws SQLException {
         logger.debug("Attempting to update category of transaction {} to {}", transactionId, newCategory.getName());
+        final Optional<CategorizedTransaction> existing = select(t, transactionId);
+        if (existing.isEmpty()) {
+            return false;
+        }
+
         final String updateStatement = "UPDATE CategorizedTransaction SET category_id = ? WHERE id = ?";
         int rowsUpdated = t.execute(updateStatement, ps -> {
             ps.setLong(1, newCategory.getId());
             ps.setLong(2, transactionId);
         });
+
+        // the transaction has left one summary and joined another, so both are recomputed
+        final CategorizedTransaction categorizedTransaction = existing.get();
+        final long accountId = categorizedTransaction.getAccount().getId();
+        final LocalDate date = categorizedTransaction.getDate();
+        monthlyCategorySummaryDao.refresh(t, accountId, categorizedTransaction.getCategory().getId(), date);
+        monthlyCategorySummaryDao.refresh(t, accountId, newCategory.getId(), date);
         return rowsUpdated > 0;
     }
 
+    /**
+     * Updates the category of several existing transactions, sending the updates to the database as a single batch.
+     * Each monthly summary that the transactions leave or join is recomputed once, rather than once per transaction.
+     *
+     * @param t the database transaction to use
+     * @param transactions the transactions to update, as they are currently stored
+     * @param newCategory the new category to assign
+     * @return the number of transactions that were updated
+     * @throws SQLException if the update fails
+     */
+    public int updateCategory(DatabaseTransaction t, List<CategorizedTransaction> transactions, Category newCategory)
+            throws SQLException {
+        logger.debug(
+                "Attempting to update category of {} transactions to {}", transactions.size(), newCategory.getName());
+        final String updateStatement = "UPDATE CategorizedTransaction SET category_id = ? WHERE id = ?";
+        final int rowsUpdated = t.executeBatch(updateStatement, transactions, (ps, transaction) -> {
+            ps.setLong(1, newCategory.getId());
+            ps.setLong(2, transaction.getId());
+        });
+
+        final Set<SummaryKey> summaries = new LinkedHashSet<>();
+        for (CategorizedTransaction transaction : transactions) {
+            final long accountId = transaction.getAccount().getId();
+            final LocalDate month = transaction.getDate().withDayOfMonth(1);
+            summaries.add(new SummaryKey(accountId, transaction.getCategory().getId(), month));
+            summaries.add(new SummaryKey(accountId, newCategory.getId(), month));
+        }
+        for (SummaryKey summary : summaries) {
+            monthlyCategorySummaryDao.refresh(t, summary.accountId(), summary.categoryId(), summary.month());
+        }
+        return rowsUpdated;
+    }
+
+    /**
+     * Checks if the monthly category summaries must be rebuilt, which is the case when transactions were imported
+     * before the summary table existed.
+     *
+     * @return true if the summaries must be rebuilt, false otherwise
+     */
+    public boolean isMonthlySummaryRebuildNeeded() {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            return monthlyCategorySummaryDao.isRebuildNeeded(t);
+        } catch (SQLException e) {
+            logger.error("Failed to check if monthly category summaries must be rebuilt", e);
+            return false;
+        }
+    }
+
+    /**
+     * Discards the monthly category summaries and recomputes them from every transaction in the database.
+     *
+     * @return true if the summaries were rebuilt, false otherwise
+     */
+    public boolean rebuildMonthlySummaries() {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final int summaryCount = monthlyCategorySummaryDao.rebuild(t);
+            logger.info("Rebuilt {} monthly category summaries", summaryCount);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to rebuild monthly category summaries", e);
+            return false;
+        }
+    }
+
     /**
      * Returns all transactions for the given account, sorted by date then insertion order.
      * Used for gap detection.
@@ -376,7 +729,8 @@ public class CategorizedTransactionDao {
     public List<CategorizedTransaction> selectByAccount(Account account) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
             logger.debug("Attempting to get all CategorizedTransactions for Account {}", account);
-            final String query = "SELECT * FROM CategorizedTransaction WHERE account_id = ? ORDER BY date ASC, id ASC";
+            final String query =
+                    SELECT_CATEGORIZED_TRANSACTION + "WHERE ct.account_id = ? ORDER BY ct.date ASC, ct.id ASC";
             return t.query(query, ps -> ps.setLong(1, account.getId()), categorizedTransactionDeserializer);
         } catch (SQLException e) {
             logger.error("Failed to get CategorizedTransactions for Account {}", account, e);
@@ -384,6 +738,34 @@ public class CategorizedTransactionDao {
         }
     }
 
+    /**
+     * Gets the last transaction in the given account that occurred before the specified date. Same-day transactions are
+     * ordered by insertion order, so this is the transaction whose balance the account held going into that date.
+     *
+     * @param account the account whose transactions to search
+     * @param date the date to search before, exclusive
+     * @return an {@link Optional<CategorizedTransaction>} containing the last transaction before the date, or
+     *      {@link Optional#empty()} if the account has no earlier transactions
+     */
+    public Optional<CategorizedTransaction> selectLastBefore(Account account, LocalDate date) {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            logger.debug("Attempting to get the last CategorizedTransaction before {} for Account {}", date, account);
+            final String query = SELECT_CATEGORIZED_TRANSACTION
+                    + "WHERE ct.account_id = ? AND ct.date < ? ORDER BY ct.date DESC, ct.id DESC LIMIT 1";
+            final List<CategorizedTransaction> results = t.query(
+                    query,
+                    ps -> {
+                        ps.setLong(1, account.getId());
+                        ps.setDate(2, Date.valueOf(date));
+                    },
+                    categorizedTransactionDeserializer);
+            return DatabaseTransaction.getFirstResult(results);
+        } catch (SQLException e) {
+            logger.error("Failed to get the last CategorizedTransaction before {} for Account {}", date, account, e);
+            return Optional.empty();
+        }
+    }
+
     /**
      * Inserts the specified {@link CategorizedTransaction} into the database
      * @param categorizedTransactionToInsert the CategorizedTransaction to insert
@@ -400,7 +782,8 @@ public class CategorizedTransactionDao {
     }
 
     /**
-     * Inserts the specified {@link CategorizedTransaction} into the database
+     * Inserts the specified {@link CategorizedTransaction} into the database, and adds it to the summary of its
+     * account, category and month
      * @param t the {@link DatabaseTransaction} to perform this operation on
      * @param categorizedTransactionToInsert the CategorizedTransaction to insert
      * @return an {@link Optional<CategorizedTransaction>} containing the inserted CategorizedTransaction, or
@@ -413,7 +796,7 @@ public class CategorizedTransactionDao {
         final String insertStatement = "INSERT INTO CategorizedTransaction "
                 + "(type, date, amount, description, account_id, category_id, balance, fitId) "
                 + "VALUES (?, ?, ROUND(?,2), ?, ?, ?, ROUND(?,2), ?);";
-        return t.insert(
+        final Optional<CategorizedTransaction> inserted = t.insert(
                 insertStatement,
                 ps -> {
                     ps.setString(1, categorizedTransactionToInsert.getType().name());
@@ -425,6 +808,43 @@ public class CategorizedTransactionDao {
                     ps.setFloat(7, categorizedTransactionToInsert.getBalance());
                     ps.setString(8, categorizedTransactionToInsert.getFitId());
                 },
-                categorizedTransactionDeserializer);
+                insertedTransactionDeserializer(t, categorizedTransactionToInsert));
+        if (inserted.isPresent()) {
+            monthlyCategorySummaryDao.add(t, inserted.get().getId(), inserted.get().getDate());
+            gapDao.refresh(t, inserted.get().getAccount().getId(), inserted.get().getDate(), inserted.get().getDate());
+        }
+        return inserted;
     }
+
+    /**
+     * Deserializes the row that is returned by inserting the specified {@link CategorizedTransaction}. That row only
+     * holds the IDs of its Account and Category, so the instances that were inserted with it are reused instead of
+     * being queried, unless the {@link DatabaseTransaction} has already cached them
+     */
+    private static SqlFunction<TransactionState, List<CategorizedTransaction>> insertedTransactionDeserializer(
+            DatabaseTransaction t, CategorizedTransaction categorizedTransactionToInsert) {
+        final Account insertedAccount = categorizedTransactionToInsert.getAccount();
+        final Account account = t.getCachedEntity(Account.class, insertedAccount.getId()).orElse(insertedAccount);
+        final Category insertedCategory = categorizedTransactionToInsert.getCategory();
+        final Category category = t.getCachedEntity(Category.class, insertedCategory.getId()).orElse(insertedCategory);
+        return new ResultSetDeserializer<>((transactionState, categorizedTransactions) -> {
+            final ResultSet resultSet = transactionState.getResultSet();
+            final Transaction transaction = Transaction.newBuilder(resultSet.getString("fitId"))
+                    .setAccount(account)
+                    .setType(Transaction.TransactionType.valueOf(resultSet.getString("type")))
+                    .setDate(resultSet.getDate("date").toLocalDate())
+                    .setAmount(resultSet.getFloat("amount"))
+                    .setDescription(resultSet.getString("description"))
+                    .setBalance(resultSet.getFloat("balance"))
+                    .build();
+            categorizedTransactions.add(new CategorizedTransaction(resultSet.getLong("id"), transaction, category));
+        });
+    }
+
+    private record DateRange(long accountId, LocalDate start, LocalDate end) {}
+
+    /**
+     * Identifies a monthly summary by its account, category and month
+     */
+    private record SummaryKey(long accountId, long categoryId, LocalDate month) {}
 }
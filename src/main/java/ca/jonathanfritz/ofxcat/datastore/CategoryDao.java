@@ -45,12 +45,26 @@ public class CategoryDao {
         }
     }
 
-    Optional<Category> select(DatabaseTransaction t, long id) {
+    /**
+     * Gets the {@link Category} with the specified id from the database
+     * @param t the {@link DatabaseTransaction} to perform this operation on
+     * @param id the primary key of the Category to fetch
+     * @return an {@link Optional<Category>} containing the specified Category, or {@link Optional#empty()} if it does
+     *      not exist
+     */
+    public Optional<Category> select(DatabaseTransaction t, long id) {
+        final Optional<Category> cached = t.getCachedEntity(Category.class, id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+
         try {
             logger.debug("Attempting to query Category with id {}", id);
             final String selectStatement = "SELECT * FROM Category WHERE id = ?";
             final List<Category> results = t.query(selectStatement, ps -> ps.setLong(1, id), categoryDeserializer);
-            return DatabaseTransaction.getFirstResult(results);
+            final Optional<Category> category = DatabaseTransaction.getFirstResult(results);
+            category.ifPresent(t::cacheEntity);
+            return category;
         } catch (SQLException e) {
             logger.error("Failed to query Category with id {}", id, e);
             return Optional.empty();
@@ -88,6 +102,17 @@ public class CategoryDao {
      */
     public List<Category> select() {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            return select(t);
+        }
+    }
+
+    /**
+     * Selects all {@link Category} objects from the database
+     * @param t the {@link DatabaseTransaction} to perform this operation on
+     * @return a {@link List<Category>} containing the results, or an empty list if there are no results
+     */
+    public List<Category> select(DatabaseTransaction t) {
+        try {
             logger.debug("Attempting to select all Category objects");
             final String selectStatement = "SELECT * FROM Category ORDER BY name ASC;";
             return t.query(selectStatement, categoryDeserializer);
@@ -113,7 +138,10 @@ public class CategoryDao {
         try {
             logger.debug("Attempting to insert Category {}", categoryToInsert);
             final String insertStatement = "INSERT INTO Category (name) VALUES (?);";
-            return t.insert(insertStatement, ps -> ps.setString(1, categoryToInsert.getName()), categoryDeserializer);
+            final Optional<Category> inserted =
+                    t.insert(insertStatement, ps -> ps.setString(1, categoryToInsert.getName()), categoryDeserializer);
+            inserted.ifPresent(t::cacheEntity);
+            return inserted;
         } catch (SQLException e) {
             logger.error("Failed to insert Category {}", categoryToInsert, e);
             return Optional.empty();
@@ -138,6 +166,7 @@ public class CategoryDao {
         logger.debug("Attempting to delete Category with id {}", categoryId);
         final String deleteStatement = "DELETE FROM Category WHERE id = ?";
         int rowsDeleted = t.execute(deleteStatement, ps -> ps.setLong(1, categoryId));
+        t.evictEntity(Category.class, categoryId);
         return rowsDeleted > 0;
     }
 
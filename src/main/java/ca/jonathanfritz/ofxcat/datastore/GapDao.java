@@ -0,0 +1,168 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import ca.jonathanfritz.ofxcat.datastore.dto.Account;
+import ca.jonathanfritz.ofxcat.datastore.dto.BalanceGap;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * DAO for the gaps in each account's transaction record. A gap is a pair of consecutive transactions where
+ * {@code balance[n+1] != balance[n] + amount[n+1]}, comparing amounts in cents. Transactions are ordered by date then
+ * insertion order, and pairs that fall on the same day are skipped.
+ * The gaps are maintained by {@link CategorizedTransactionDao} in the same database transaction as the inserts that
+ * create or close them.
+ */
+public class GapDao {
+
+    private final Connection connection;
+
+    private static final Logger logger = LogManager.getLogger(GapDao.class);
+
+    /**
+     * Pairs each transaction with the one before it in its account and inserts the pairs whose balances don't agree.
+     * The %s placeholder is replaced with a WHERE clause that limits the transactions that are considered. A null
+     * balance is treated as zero, which is how {@link CategorizedTransactionDao} reads it.
+     */
+    private static final String INSERT_GAPS = """
+        INSERT INTO Gap (account_id, first_date_after_gap, last_good_date, missing_cents)
+        SELECT account_id, date, previous_date, balance_cents - (previous_balance_cents + amount_cents)
+        FROM (
+            SELECT account_id, date,
+                CAST(ROUND(amount * 100) AS INTEGER) AS amount_cents,
+                CAST(ROUND(COALESCE(balance, 0) * 100) AS INTEGER) AS balance_cents,
+                LAG(date) OVER (PARTITION BY account_id ORDER BY date, id) AS previous_date,
+                LAG(CAST(ROUND(COALESCE(balance, 0) * 100) AS INTEGER)) OVER (PARTITION BY account_id ORDER BY date, id)
+                    AS previous_balance_cents
+            FROM CategorizedTransaction
+            %s
+        )
+        WHERE previous_date IS NOT NULL
+            AND previous_date <> date
+            AND balance_cents <> previous_balance_cents + amount_cents;
+        """;
+
+    @Inject
+    public GapDao(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the gaps in the specified account's transaction record
+     * @param account the account whose gaps to get
+     * @return a {@link List<BalanceGap>} sorted by date ASC, or an empty list if the account has no gaps
+     */
+    public List<BalanceGap> select(Account account) {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            logger.debug("Attempting to select gaps for Account {}", account);
+            final String selectStatement = """
+                SELECT last_good_date, first_date_after_gap, missing_cents
+                FROM Gap
+                WHERE account_id = ?
+                ORDER BY first_date_after_gap ASC;
+                """;
+            return t.queryRaw(selectStatement, ps -> ps.setLong(1, account.getId()), rs -> {
+                final List<BalanceGap> gaps = new ArrayList<>();
+                while (rs.next()) {
+                    gaps.add(new BalanceGap(
+                            account, rs.getDate(1).toLocalDate(), rs.getDate(2).toLocalDate(), rs.getLong(3)));
+                }
+                return gaps;
+            });
+        } catch (SQLException e) {
+            logger.error("Failed to select gaps for Account {}", account, e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Re-validates the gaps around transactions that were inserted into the specified account between the specified
+     * dates. Inserting a transaction can only change the pairs that it belongs to, so only the transactions from the
+     * last date before the window to the first date after it are checked. Gaps that the inserted transactions filled
+     * are removed, and any that they created or changed are stored.
+     *
+     * @param t the database transaction to participate in
+     * @param accountId the ID of the Account that transactions were inserted into
+     * @param startDate the date of the earliest inserted transaction, inclusive
+     * @param endDate the date of the latest inserted transaction, inclusive
+     */
+    public void refresh(DatabaseTransaction t, long accountId, LocalDate startDate, LocalDate endDate)
+            throws SQLException {
+        logger.debug("Refreshing gaps for account {} between {} and {}", accountId, startDate, endDate);
+
+        // dates are read back as they were stored, so that they can be compared to other stored dates exactly
+        final String boundsStatement = """
+            SELECT
+                (SELECT MAX(date) FROM CategorizedTransaction WHERE account_id = ? AND date < ?),
+                (SELECT MIN(date) FROM CategorizedTransaction WHERE account_id = ? AND date > ?);
+            """;
+        final List<Date> bounds = t.queryRaw(
+                boundsStatement,
+                ps -> {
+                    ps.setLong(1, accountId);
+                    ps.setDate(2, Date.valueOf(startDate));
+                    ps.setLong(3, accountId);
+                    ps.setDate(4, Date.valueOf(endDate));
+                },
+                rs -> {
+                    rs.next();
+                    final Date lower = rs.getDate(1);
+                    final Date upper = rs.getDate(2);
+                    return List.of(
+                            lower != null ? lower : Date.valueOf(startDate),
+                            upper != null ? upper : Date.valueOf(endDate));
+                });
+
+        // a gap that ends on the lower bound is between two transactions that precede the window, so it is unaffected
+        final String deleteStatement =
+                "DELETE FROM Gap WHERE account_id = ? AND first_date_after_gap > ? AND first_date_after_gap <= ?;";
+        t.execute(deleteStatement, ps -> {
+            ps.setLong(1, accountId);
+            ps.setDate(2, bounds.get(0));
+            ps.setDate(3, bounds.get(1));
+        });
+
+        // the transactions on the lower bound have no predecessor in the window or share its date, so they never
+        // produce a gap themselves. They are only included as the predecessors of the transactions after them
+        final String insertStatement = String.format(INSERT_GAPS, "WHERE account_id = ? AND date >= ? AND date <= ?");
+        t.execute(insertStatement, ps -> {
+            ps.setLong(1, accountId);
+            ps.setDate(2, bounds.get(0));
+            ps.setDate(3, bounds.get(1));
+        });
+    }
+
+    /**
+     * Discards every gap and detects them all again from the CategorizedTransaction table
+     * @return true if the gaps were rebuilt, false otherwise
+     */
+    public boolean rebuild() {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final int gapCount = rebuild(t);
+            logger.info("Rebuilt {} gaps", gapCount);
+            return true;
+        } catch (SQLException e) {
+            logger.error("Failed to rebuild gaps", e);
+            return false;
+        }
+    }
+
+    /**
+     * Discards every gap and detects them all again from the CategorizedTransaction table
+     * @param t the database transaction to participate in
+     * @return the number of gaps that were found
+     */
+    public int rebuild(DatabaseTransaction t) throws SQLException {
+        logger.debug("Rebuilding gaps");
+        t.execute("DELETE FROM Gap;", null);
+        return t.execute(String.format(INSERT_GAPS, ""), null);
+    }
+}
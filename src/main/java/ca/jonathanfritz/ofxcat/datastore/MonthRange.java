@@ -0,0 +1,40 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The portion of a calendar month that falls within some larger date range
+ * @param start the first day of the month that is in the range, inclusive
+ * @param end the last day of the month that is in the range, inclusive
+ */
+record MonthRange(LocalDate start, LocalDate end) {
+
+    /**
+     * Splits the specified date range into calendar months. The first and last months are clamped to the range, so
+     * they may be partial months.
+     * @param startDate the first day of the range, inclusive
+     * @param endDate the last day of the range, inclusive
+     * @return the months in the range, in chronological order
+     */
+    static List<MonthRange> between(LocalDate startDate, LocalDate endDate) {
+        final List<MonthRange> months = new ArrayList<>();
+        LocalDate month = startDate.withDayOfMonth(1);
+        do {
+            final LocalDate monthStart = month.isBefore(startDate) ? startDate : month;
+            final LocalDate endOfMonth = month.withDayOfMonth(month.lengthOfMonth());
+            final LocalDate monthEnd = endOfMonth.isAfter(endDate) ? endDate : endOfMonth;
+            months.add(new MonthRange(monthStart, monthEnd));
+            month = month.plusMonths(1);
+        } while (!month.isAfter(endDate));
+        return months;
+    }
+
+    /**
+     * @return true if this range covers every day of its month, false otherwise
+     */
+    boolean isFullMonth() {
+        return start.getDayOfMonth() == 1 && end.getDayOfMonth() == end.lengthOfMonth();
+    }
+}
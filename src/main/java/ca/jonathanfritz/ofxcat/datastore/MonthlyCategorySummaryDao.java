@@ -0,0 +1,191 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * DAO for the monthly totals of each account and category that transaction reports are generated from.
+ * The summaries are maintained by {@link CategorizedTransactionDao} in the same database transaction as the changes to
+ * the transactions that they summarize.
+ */
+public class MonthlyCategorySummaryDao {
+
+    private static final Logger logger = LogManager.getLogger(MonthlyCategorySummaryDao.class);
+
+    /**
+     * Adds the specified transaction to the summary of its account, category and month.
+     *
+     * @param t the database transaction to participate in
+     * @param transactionId the ID of the CategorizedTransaction to add
+     * @param date the date of the CategorizedTransaction
+     */
+    public void add(DatabaseTransaction t, long transactionId, LocalDate date) throws SQLException {
+        logger.debug("Adding transaction {} to the monthly category summary", transactionId);
+
+        // the amount is read from the inserted row, so that the summary holds exactly what was stored
+        final String upsertStatement = """
+            INSERT INTO MonthlyCategorySummary
+                (account_id, category_id, month, total, transaction_count, min_amount, max_amount)
+            SELECT account_id, category_id, ?, amount, 1, amount, amount
+            FROM CategorizedTransaction
+            WHERE id = ?
+            ON CONFLICT (account_id, category_id, month) DO UPDATE SET
+                total = total + excluded.total,
+                transaction_count = transaction_count + 1,
+                min_amount = MIN(min_amount, excluded.min_amount),
+                max_amount = MAX(max_amount, excluded.max_amount);
+            """;
+        t.execute(upsertStatement, ps -> {
+            ps.setDate(1, Date.valueOf(date.withDayOfMonth(1)));
+            ps.setLong(2, transactionId);
+        });
+    }
+
+    /**
+     * Recomputes the summary of the specified account, category and month from the transactions that it contains.
+     * Used when a transaction leaves a summary, because its minimum and maximum can't be updated incrementally.
+     *
+     * @param t the database transaction to participate in
+     * @param accountId the ID of the Account to summarize
+     * @param categoryId the ID of the Category to summarize
+     * @param date any date in the month to summarize
+     */
+    public void refresh(DatabaseTransaction t, long accountId, long categoryId, LocalDate date) throws SQLException {
+        logger.debug(
+                "Refreshing monthly category summary for account {} and category {} in {}",
+                accountId,
+                categoryId,
+                date);
+        final Date monthStart = Date.valueOf(date.withDayOfMonth(1));
+        final Date monthEnd = Date.valueOf(date.withDayOfMonth(date.lengthOfMonth()));
+
+        final String deleteStatement =
+                "DELETE FROM MonthlyCategorySummary WHERE account_id = ? AND category_id = ? AND month = ?;";
+        t.execute(deleteStatement, ps -> {
+            ps.setLong(1, accountId);
+            ps.setLong(2, categoryId);
+            ps.setDate(3, monthStart);
+        });
+
+        // grouping ensures that no row is inserted if the month no longer has any transactions
+        final String insertStatement = """
+            INSERT INTO MonthlyCategorySummary
+                (account_id, category_id, month, total, transaction_count, min_amount, max_amount)
+            SELECT account_id, category_id, ?, SUM(amount), COUNT(*), MIN(amount), MAX(amount)
+            FROM CategorizedTransaction
+            WHERE category_id = ? AND date >= ? AND date <= ? AND account_id = ?
+            GROUP BY account_id, category_id;
+            """;
+        t.execute(insertStatement, ps -> {
+            ps.setDate(1, monthStart);
+            ps.setLong(2, categoryId);
+            ps.setDate(3, monthStart);
+            ps.setDate(4, monthEnd);
+            ps.setLong(5, accountId);
+        });
+    }
+
+    /**
+     * Discards every summary and recomputes them all from the CategorizedTransaction table.
+     *
+     * @param t the database transaction to participate in
+     * @return the number of summaries that were created
+     */
+    public int rebuild(DatabaseTransaction t) throws SQLException {
+        logger.debug("Rebuilding monthly category summaries");
+        t.execute("DELETE FROM MonthlyCategorySummary;", null);
+
+        // the earliest and latest transaction dates, or an empty list if there are no transactions
+        final List<LocalDate> dateRange =
+                t.queryRaw("SELECT MIN(date), MAX(date) FROM CategorizedTransaction;", null, rs -> {
+                    if (rs.next() && rs.getDate(1) != null) {
+                        return List.of(rs.getDate(1).toLocalDate(), rs.getDate(2).toLocalDate());
+                    }
+                    return List.of();
+                });
+        if (dateRange.isEmpty()) {
+            logger.debug("There are no transactions to summarize");
+            return 0;
+        }
+
+        // months are bound as parameters so that they are computed in the same time zone as transaction dates
+        final List<MonthRange> months = MonthRange.between(dateRange.get(0).withDayOfMonth(1), dateRange.get(1));
+        final String insertStatement = "WITH Month (month, start_date, end_date) AS (VALUES "
+                + String.join(", ", Collections.nCopies(months.size(), "(?, ?, ?)")) + ") "
+                + "INSERT INTO MonthlyCategorySummary "
+                + "(account_id, category_id, month, total, transaction_count, min_amount, max_amount) "
+                + "SELECT ct.account_id, ct.category_id, m.month, "
+                + "SUM(ct.amount), COUNT(*), MIN(ct.amount), MAX(ct.amount) "
+                + "FROM Month m "
+                + "JOIN CategorizedTransaction ct ON ct.date >= m.start_date AND ct.date <= m.end_date "
+                + "GROUP BY ct.account_id, ct.category_id, m.month;";
+        return t.execute(insertStatement, ps -> {
+            for (int i = 0; i < months.size(); i++) {
+                ps.setDate(i * 3 + 1, Date.valueOf(months.get(i).start()));
+                ps.setDate(i * 3 + 2, Date.valueOf(months.get(i).start()));
+                ps.setDate(i * 3 + 3, Date.valueOf(months.get(i).end()));
+            }
+        });
+    }
+
+    /**
+     * Checks if there are transactions that have not been summarized, which is the case when the summary table was
+     * created after the transactions were imported.
+     *
+     * @param t the database transaction to participate in
+     * @return true if the summaries must be rebuilt, false otherwise
+     */
+    public boolean isRebuildNeeded(DatabaseTransaction t) throws SQLException {
+        final String selectStatement = """
+            SELECT 1 FROM CategorizedTransaction
+            WHERE NOT EXISTS (SELECT 1 FROM MonthlyCategorySummary)
+            LIMIT 1;
+            """;
+        return t.exists(selectStatement, null);
+    }
+
+    /**
+     * Sums the summaries of every account for each category and month between the specified months.
+     *
+     * @param t the database transaction to participate in
+     * @param firstMonth the first day of the earliest month to sum, inclusive
+     * @param lastMonth the first day of the latest month to sum, inclusive
+     * @return a map of the first day of each month to the total amount of each category's transactions in that month.
+     *      Months that have no transactions are omitted
+     */
+    public Map<LocalDate, Map<Category, Float>> selectSumGroupByCategory(
+            DatabaseTransaction t, LocalDate firstMonth, LocalDate lastMonth) throws SQLException {
+        logger.debug("Selecting monthly category summaries between {} and {}", firstMonth, lastMonth);
+        final String selectStatement = """
+            SELECT s.month, c.id, c.name, SUM(s.total)
+            FROM MonthlyCategorySummary s
+            JOIN Category c ON c.id = s.category_id
+            WHERE s.month >= ? AND s.month <= ?
+            GROUP BY s.month, c.id, c.name;
+            """;
+        return t.queryRaw(
+                selectStatement,
+                ps -> {
+                    ps.setDate(1, Date.valueOf(firstMonth));
+                    ps.setDate(2, Date.valueOf(lastMonth));
+                },
+                rs -> {
+                    final Map<LocalDate, Map<Category, Float>> sums = new HashMap<>();
+                    while (rs.next()) {
+                        final Category category = new Category(rs.getLong(2), rs.getString(3));
+                        sums.computeIfAbsent(rs.getDate(1).toLocalDate(), month -> new HashMap<>())
+                                .put(category, rs.getFloat(4));
+                    }
+                    return sums;
+                });
+    }
+}
@@ -2,12 +2,17 @@ package ca.jonathanfritz.ofxcat.datastore;
 
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import ca.jonathanfritz.ofxcat.datastore.utils.SqlConsumer;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -19,6 +24,12 @@ public class TransactionTokenDao {
 
     private static final Logger logger = LogManager.getLogger(TransactionTokenDao.class);
 
+    private static final String UPDATE_TOKEN_COUNT = """
+        UPDATE CategorizedTransaction
+        SET token_count = (SELECT COUNT(*) FROM TransactionToken WHERE transaction_id = ?)
+        WHERE id = ?;
+        """;
+
     /**
      * Inserts tokens for a transaction.
      *
@@ -31,29 +42,81 @@ public class TransactionTokenDao {
             logger.debug("No tokens to insert for transaction {}", transactionId);
             return;
         }
+        insertTokens(t, Map.of(transactionId, tokens));
+    }
 
-        logger.debug("Inserting {} tokens for transaction {}", tokens.size(), transactionId);
-        final String insertStatement = "INSERT INTO TransactionToken (transaction_id, token) VALUES (?, ?);";
-
-        for (String token : tokens) {
-            t.execute(insertStatement, ps -> {
-                ps.setLong(1, transactionId);
-                ps.setString(2, token);
-            });
+    /**
+     * Inserts tokens for several transactions. Each kind of write is sent to the database as a single batch, so the
+     * cost of a statement is paid once per call rather than once per token.
+     *
+     * @param t the database transaction to participate in
+     * @param tokensByTransactionId the set of normalized tokens to store for the ID of each CategorizedTransaction
+     */
+    public void insertTokens(DatabaseTransaction t, Map<Long, Set<String>> tokensByTransactionId) throws SQLException {
+        final List<Map.Entry<Long, String>> postings = new ArrayList<>();
+        tokensByTransactionId.forEach((transactionId, tokens) ->
+                tokens.forEach(token -> postings.add(Map.entry(transactionId, token))));
+        if (postings.isEmpty()) {
+            logger.debug("No tokens to insert for transactions {}", tokensByTransactionId.keySet());
+            return;
         }
+        logger.debug("Inserting {} tokens for {} transactions", postings.size(), tokensByTransactionId.size());
+
+        // add any tokens that aren't yet in the dictionary
+        final Set<String> distinctTokens =
+                postings.stream().map(Map.Entry::getValue).collect(Collectors.toCollection(LinkedHashSet::new));
+        final String insertTokenStatement = "INSERT OR IGNORE INTO Token (token) VALUES (?);";
+        t.executeBatch(insertTokenStatement, distinctTokens, (ps, token) -> ps.setString(1, token));
+
+        // then link each transaction to the ids of its tokens
+        final String insertPostingStatement = """
+            INSERT OR IGNORE INTO TransactionToken (token_id, transaction_id)
+            SELECT id, ? FROM Token WHERE token = ?;
+            """;
+        t.executeBatch(insertPostingStatement, postings, (ps, posting) -> {
+            ps.setLong(1, posting.getKey());
+            ps.setString(2, posting.getValue());
+        });
+        t.executeBatch(UPDATE_TOKEN_COUNT, tokensByTransactionId.keySet(), (ps, transactionId) -> {
+            ps.setLong(1, transactionId);
+            ps.setLong(2, transactionId);
+        });
     }
 
     /**
-     * Deletes all tokens for a transaction.
+     * Deletes all tokens for a transaction. Tokens that no other transaction uses are removed from the dictionary too.
      *
      * @param t the database transaction to participate in
      * @param transactionId the ID of the CategorizedTransaction
      */
     public void deleteTokens(DatabaseTransaction t, long transactionId) throws SQLException {
         logger.debug("Deleting tokens for transaction {}", transactionId);
-        final String deleteStatement = "DELETE FROM TransactionToken WHERE transaction_id = ?;";
+        final String selectStatement = "SELECT token_id FROM TransactionToken WHERE transaction_id = ?;";
+        final List<Long> tokenIds = t.queryColumn(selectStatement, ps -> ps.setLong(1, transactionId), Long.class);
 
+        final String deleteStatement = "DELETE FROM TransactionToken WHERE transaction_id = ?;";
         t.execute(deleteStatement, ps -> ps.setLong(1, transactionId));
+        updateTokenCount(t, transactionId);
+
+        // only the tokens that this transaction used can have lost their last reference
+        if (!tokenIds.isEmpty()) {
+            final String pruneStatement = """
+                DELETE FROM Token
+                WHERE id IN (%s)
+                  AND NOT EXISTS (SELECT 1 FROM TransactionToken tt WHERE tt.token_id = Token.id);
+                """.formatted(placeholders(tokenIds.size()));
+            t.execute(pruneStatement, ps -> setLongs(ps, 1, tokenIds));
+        }
+    }
+
+    /**
+     * Recomputes the token_count column of the specified CategorizedTransaction from the TransactionToken table.
+     */
+    private void updateTokenCount(DatabaseTransaction t, long transactionId) throws SQLException {
+        t.execute(UPDATE_TOKEN_COUNT, ps -> {
+            ps.setLong(1, transactionId);
+            ps.setLong(2, transactionId);
+        });
     }
 
     /**
@@ -65,15 +128,14 @@ public class TransactionTokenDao {
      */
     public Set<String> getTokens(DatabaseTransaction t, long transactionId) throws SQLException {
         logger.debug("Retrieving tokens for transaction {}", transactionId);
-        final String selectStatement = "SELECT token FROM TransactionToken WHERE transaction_id = ?;";
+        final String selectStatement = """
+            SELECT t.token
+            FROM TransactionToken tt
+            JOIN Token t ON tt.token_id = t.id
+            WHERE tt.transaction_id = ?;
+            """;
 
-        return t.queryRaw(selectStatement, ps -> ps.setLong(1, transactionId), rs -> {
-            Set<String> tokens = new HashSet<>();
-            while (rs.next()) {
-                tokens.add(rs.getString("token"));
-            }
-            return tokens;
-        });
+        return new HashSet<>(t.queryColumn(selectStatement, ps -> ps.setLong(1, transactionId), String.class));
     }
 
     /**
@@ -85,10 +147,9 @@ public class TransactionTokenDao {
      */
     public boolean hasTokens(DatabaseTransaction t, long transactionId) throws SQLException {
         logger.debug("Checking if transaction {} has tokens", transactionId);
-        final String selectStatement = "SELECT COUNT(*) as count FROM TransactionToken WHERE transaction_id = ?;";
+        final String selectStatement = "SELECT 1 FROM TransactionToken WHERE transaction_id = ? LIMIT 1;";
 
-        return t.queryRaw(
-                selectStatement, ps -> ps.setLong(1, transactionId), rs -> rs.next() && rs.getInt("count") > 0);
+        return t.exists(selectStatement, ps -> ps.setLong(1, transactionId));
     }
 
     /**
@@ -100,82 +161,120 @@ public class TransactionTokenDao {
      */
     public int getTokenCount(DatabaseTransaction t, long transactionId) throws SQLException {
         logger.debug("Getting token count for transaction {}", transactionId);
-        final String selectStatement = "SELECT COUNT(*) as count FROM TransactionToken WHERE transaction_id = ?;";
+        final String selectStatement = "SELECT token_count FROM CategorizedTransaction WHERE id = ?;";
 
-        return t.queryRaw(
-                selectStatement, ps -> ps.setLong(1, transactionId), rs -> rs.next() ? rs.getInt("count") : 0);
+        return Math.toIntExact(t.queryLong(selectStatement, ps -> ps.setLong(1, transactionId)));
     }
 
     /**
-     * Finds transactions that have matching tokens.
-     * Excludes transactions in the UNKNOWN category.
+     * Finds the categories of the transactions that best match the specified tokens. The overlap ratio of each
+     * transaction is computed as matching tokens / min(search tokens, stored tokens), transactions below
+     * overlapThreshold are discarded, and the best ratio seen for each category is kept. Excludes transactions in the
+     * UNKNOWN category.
      *
      * @param t the database transaction to participate in
      * @param tokens the set of tokens to match against
-     * @return list of match results with transaction ID, category ID, matching token count, and total token count
+     * @param overlapThreshold the minimum overlap ratio required for a transaction to match
+     * @param limit the maximum number of categories to return
+     * @return up to limit category matches, ordered by descending overlap ratio
      */
-    public List<TokenMatchResult> findTransactionsWithMatchingTokens(DatabaseTransaction t, Set<String> tokens)
-            throws SQLException {
+    public List<CategoryMatchResult> findBestMatchingCategories(
+            DatabaseTransaction t, Set<String> tokens, double overlapThreshold, int limit) throws SQLException {
         if (tokens == null || tokens.isEmpty()) {
             logger.debug("No tokens to search for");
             return Collections.emptyList();
         }
 
-        logger.debug("Finding transactions matching tokens: {}", tokens);
+        logger.debug("Finding best {} categories matching tokens: {}", limit, tokens);
 
-        // Build the IN clause dynamically
-        StringBuilder placeholders = new StringBuilder();
-        for (int i = 0; i < tokens.size(); i++) {
-            if (i > 0) {
-                placeholders.append(", ");
-            }
-            placeholders.append("?");
+        final List<Long> tokenIds = selectTokenIds(t, tokens);
+        if (tokenIds.isEmpty()) {
+            logger.debug("None of the tokens have been seen before");
+            return Collections.emptyList();
         }
 
-        // Use a CTE to compute total token counts, avoiding N+1 queries
         final String selectStatement = """
-            WITH TokenCounts AS (
-                SELECT transaction_id, COUNT(*) as total_tokens
-                FROM TransactionToken
-                GROUP BY transaction_id
+            SELECT category_id, MAX(overlap_ratio) as overlap_ratio
+            FROM (
+                SELECT
+                    ct.category_id,
+                    CAST(COUNT(*) AS REAL) / MIN(?, ct.token_count) as overlap_ratio
+                FROM TransactionToken tt
+                JOIN CategorizedTransaction ct ON tt.transaction_id = ct.id
+                WHERE tt.token_id IN (%s)
+                  AND ct.category_id != ?
+                  AND ct.token_count > 0
+                GROUP BY ct.id, ct.category_id, ct.token_count
             )
-            SELECT
-                ct.id as transaction_id,
-                ct.category_id,
-                COUNT(DISTINCT tt.token) as matching_tokens,
-                tc.total_tokens
-            FROM TransactionToken tt
-            JOIN CategorizedTransaction ct ON tt.transaction_id = ct.id
-            JOIN TokenCounts tc ON tc.transaction_id = ct.id
-            WHERE tt.token IN (%s)
-              AND ct.category_id != ?
-            GROUP BY ct.id, ct.category_id, tc.total_tokens
-            ORDER BY matching_tokens DESC
-            """.formatted(placeholders);
-
-        // Convert tokens to list for indexed access
-        List<String> tokenList = new ArrayList<>(tokens);
+            WHERE overlap_ratio >= ?
+            GROUP BY category_id
+            ORDER BY overlap_ratio DESC, category_id
+            LIMIT ?
+            """.formatted(placeholders(tokenIds.size()));
 
-        return t.queryRaw(
+        return t.queryRecords(
                 selectStatement,
                 ps -> {
-                    int paramIndex = 1;
-                    for (String token : tokenList) {
-                        ps.setString(paramIndex++, token);
-                    }
-                    ps.setLong(paramIndex, Category.UNKNOWN.getId());
+                    // the overlap ratio is relative to all search tokens, including those that have never been seen
+                    ps.setInt(1, tokens.size());
+                    int paramIndex = setLongs(ps, 2, tokenIds);
+                    ps.setLong(paramIndex++, Category.UNKNOWN.getId());
+                    ps.setDouble(paramIndex++, overlapThreshold);
+                    ps.setInt(paramIndex, limit);
                 },
-                rs -> {
-                    List<TokenMatchResult> results = new ArrayList<>();
-                    while (rs.next()) {
-                        results.add(new TokenMatchResult(
-                                rs.getLong("transaction_id"),
-                                rs.getLong("category_id"),
-                                rs.getInt("matching_tokens"),
-                                rs.getInt("total_tokens")));
-                    }
-                    return results;
-                });
+                rs -> new CategoryMatchResult(rs.getLong("category_id"), rs.getDouble("overlap_ratio")));
+    }
+
+    /**
+     * Looks up the dictionary ids of the specified tokens. Tokens that have never been stored are omitted.
+     */
+    private List<Long> selectTokenIds(DatabaseTransaction t, Set<String> tokens) throws SQLException {
+        final List<String> tokenList = new ArrayList<>(tokens);
+        final String selectStatement =
+                "SELECT id FROM Token WHERE token IN (%s);".formatted(placeholders(tokenList.size()));
+        return t.queryColumn(selectStatement, ps -> setStrings(ps, 1, tokenList), Long.class);
+    }
+
+    /**
+     * Streams the tokens of every transaction with an id greater than afterTransactionId, grouped by transaction and
+     * in ascending order of transaction id. Used to build and incrementally update an in-memory token index.
+     *
+     * @param t the database transaction to participate in
+     * @param afterTransactionId only transactions with an id greater than this value are returned
+     * @param consumer receives the tokens of each transaction, along with the id of its category
+     */
+    public void selectTokensAfter(
+            DatabaseTransaction t, long afterTransactionId, SqlConsumer<TransactionTokens> consumer)
+            throws SQLException {
+        logger.debug("Selecting tokens for transactions with id greater than {}", afterTransactionId);
+        final String selectStatement = """
+            SELECT tt.transaction_id, ct.category_id, t.token
+            FROM TransactionToken tt
+            JOIN CategorizedTransaction ct ON tt.transaction_id = ct.id
+            JOIN Token t ON tt.token_id = t.id
+            WHERE tt.transaction_id > ?
+            ORDER BY tt.transaction_id
+            """;
+
+        t.queryRaw(selectStatement, ps -> ps.setLong(1, afterTransactionId), rs -> {
+            long currentTransactionId = -1;
+            long currentCategoryId = -1;
+            Set<String> currentTokens = new HashSet<>();
+            while (rs.next()) {
+                final long transactionId = rs.getLong(1);
+                if (transactionId != currentTransactionId && !currentTokens.isEmpty()) {
+                    consumer.accept(new TransactionTokens(currentTransactionId, currentCategoryId, currentTokens));
+                    currentTokens = new HashSet<>();
+                }
+                currentTransactionId = transactionId;
+                currentCategoryId = rs.getLong(2);
+                currentTokens.add(rs.getString(3));
+            }
+            if (!currentTokens.isEmpty()) {
+                consumer.accept(new TransactionTokens(currentTransactionId, currentCategoryId, currentTokens));
+            }
+            return null;
+        });
     }
 
     /**
@@ -188,8 +287,62 @@ public class TransactionTokenDao {
         logger.debug("Deleting all tokens from TransactionToken table");
         final String deleteStatement = "DELETE FROM TransactionToken;";
         t.execute(deleteStatement, ps -> {});
+
+        final String deleteDictionaryStatement = "DELETE FROM Token;";
+        t.execute(deleteDictionaryStatement, ps -> {});
+
+        final String updateStatement = "UPDATE CategorizedTransaction SET token_count = 0 WHERE token_count != 0;";
+        t.execute(updateStatement, ps -> {});
+    }
+
+    /**
+     * Builds a comma separated list of count ? placeholders for use in an IN clause.
+     */
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
     }
 
+    /**
+     * Binds values to consecutive parameters of ps, starting at firstIndex.
+     * @return the index of the next unbound parameter
+     */
+    private static int setStrings(PreparedStatement ps, int firstIndex, List<String> values) throws SQLException {
+        int paramIndex = firstIndex;
+        for (String value : values) {
+            ps.setString(paramIndex++, value);
+        }
+        return paramIndex;
+    }
+
+    /**
+     * Binds values to consecutive parameters of ps, starting at firstIndex.
+     * @return the index of the next unbound parameter
+     */
+    private static int setLongs(PreparedStatement ps, int firstIndex, List<Long> values) throws SQLException {
+        int paramIndex = firstIndex;
+        for (long value : values) {
+            ps.setLong(paramIndex++, value);
+        }
+        return paramIndex;
+    }
+
+    /**
+     * Result of a category matching query.
+     *
+     * @param categoryId the ID of the matching category
+     * @param overlapRatio the best overlap ratio of any transaction in the category
+     */
+    public record CategoryMatchResult(long categoryId, double overlapRatio) {}
+
+    /**
+     * The distinct tokens stored for a single transaction.
+     *
+     * @param transactionId the ID of the transaction
+     * @param categoryId the ID of the transaction's category
+     * @param tokens the tokens stored for the transaction
+     */
+    public record TransactionTokens(long transactionId, long categoryId, Set<String> tokens) {}
+
     /**
      * Result of a token matching query.
      *
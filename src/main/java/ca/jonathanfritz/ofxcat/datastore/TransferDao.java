@@ -32,13 +32,13 @@ public class TransferDao {
 
             final long sourceId = resultSet.getLong("source_id");
             final CategorizedTransaction source = categorizedTransactionDao
-                    .select(sourceId)
+                    .select(transactionState.getDatabaseTransaction(), sourceId)
                     .orElseThrow(() -> new SQLException(
                             String.format("CategorizedTransaction with id %d does not exist", sourceId)));
 
             final long sinkId = resultSet.getLong("sink_id");
             final CategorizedTransaction sink = categorizedTransactionDao
-                    .select(sinkId)
+                    .select(transactionState.getDatabaseTransaction(), sinkId)
                     .orElseThrow(() -> new SQLException(
                             String.format("CategorizedTransaction with id %d does not exist", sinkId)));
 
@@ -66,10 +66,10 @@ public class TransferDao {
     public Optional<Transfer> selectByFitId(String fitId) {
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
             logger.debug("Attempting to query Transfer with sink or source fitId {}", fitId);
-            final String selectStatement =
-                    "SELECT t.* FROM Transfer AS t " + "INNER JOIN CategorizedTransaction AS si ON t.sink_id = si.id "
-                            + "INNER JOIN CategorizedTransaction AS so ON t.source_id = so.id "
-                            + "WHERE si.fitId = ? OR so.fitId = ?";
+            // each side is matched with its own subquery, so that both can be probed through their indexes
+            final String selectStatement = "SELECT t.* FROM Transfer AS t "
+                    + "WHERE t.sink_id IN (SELECT id FROM CategorizedTransaction WHERE fitId = ?) "
+                    + "OR t.source_id IN (SELECT id FROM CategorizedTransaction WHERE fitId = ?)";
             final List<Transfer> results = t.query(
                     selectStatement,
                     ps -> {
@@ -102,18 +102,18 @@ public class TransferDao {
                     ps.setLong(1, transferToInsert.getSource().getId());
                     ps.setLong(2, transferToInsert.getSink().getId());
                 },
-                transferDeserializer);
+                // the source and sink of the Transfer are already in hand, so there is no need to query them again
+                new ResultSetDeserializer<>((transactionState, transfers) -> transfers.add(new Transfer(
+                        transactionState.getResultSet().getLong("id"),
+                        transferToInsert.getSource(),
+                        transferToInsert.getSink()))));
     }
 
     public boolean isDuplicate(DatabaseTransaction t, Transfer transfer) throws SQLException {
-        final String selectStatement = "SELECT * FROM Transfer WHERE source_id = ? AND sink_id = ?;";
-        final List<Transfer> results = t.query(
-                selectStatement,
-                ps -> {
-                    ps.setLong(1, transfer.getSource().getId());
-                    ps.setLong(2, transfer.getSink().getId());
-                },
-                transferDeserializer);
-        return results.size() > 0;
+        final String selectStatement = "SELECT 1 FROM Transfer WHERE source_id = ? AND sink_id = ? LIMIT 1;";
+        return t.exists(selectStatement, ps -> {
+            ps.setLong(1, transfer.getSource().getId());
+            ps.setLong(2, transfer.getSink().getId());
+        });
     }
 }
@@ -0,0 +1,14 @@
+package ca.jonathanfritz.ofxcat.datastore.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A pair of consecutive transactions in an account whose balances don't agree, meaning that one or more transactions
+ * between them are missing from the record.
+ * @param account the account that the transactions belong to
+ * @param lastGoodDate the date of the last transaction before the gap
+ * @param firstDateAfterGap the date of the first transaction after the gap
+ * @param missingCents the net missing amount in cents; positive means net missing credits, negative means net missing
+ *      debits
+ */
+public record BalanceGap(Account account, LocalDate lastGoodDate, LocalDate firstDateAfterGap, long missingCents) {}
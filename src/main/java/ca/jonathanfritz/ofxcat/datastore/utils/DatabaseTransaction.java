@@ -5,7 +5,14 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
@@ -15,6 +22,16 @@ public class DatabaseTransaction implements Closeable {
 
     private final Connection connection;
 
+    // savepoints that have been set but not yet released, most recent first
+    private final Deque<Savepoint> savepoints = new ArrayDeque<>();
+
+    // identity map of the entities that have been read or written by this transaction, so that reference data like
+    // Accounts and Categories is loaded once per transaction instead of once for every row that refers to it
+    private final Map<Class<? extends Entity>, EntityCache> identityMap = new HashMap<>();
+
+    // the maximum number of entities of each type that are kept in the identity map
+    private static final int MAX_CACHED_ENTITIES_PER_TYPE = 1024;
+
     private static final Logger logger = LogManager.getLogger(DatabaseTransaction.class);
 
     public DatabaseTransaction(Connection connection) {
@@ -63,14 +80,16 @@ public class DatabaseTransaction implements Closeable {
         }
 
         // populate the sql parameters
-        try (PreparedStatement statement = connection.prepareStatement(selectStatement)) {
+        try (CachedStatement cachedStatement = prepare(selectStatement)) {
+            final PreparedStatement statement = cachedStatement.statement();
             if (statementPreparer != null) {
                 statementPreparer.accept(statement);
             }
 
             // execute the query and return the results
-            final ResultSet resultSet = statement.executeQuery();
-            return resultDeserializer.apply(new TransactionState(this, resultSet));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultDeserializer.apply(new TransactionState(this, resultSet));
+            }
 
         } catch (SQLException e) {
             throw rollback(e);
@@ -78,13 +97,16 @@ public class DatabaseTransaction implements Closeable {
     }
 
     /**
-     * Saves the specified entity to the database
-     * @param insertStatement the SQL INSERT INTO statement that will be executed to insert the object into the database
+     * Saves the specified entity to the database. The statement returns the inserted record through a RETURNING
+     * clause, so the entity is read back in the same round trip that inserts it
+     * @param insertStatement the SQL INSERT INTO statement that will be executed to insert the object into the
+     *                        database. A RETURNING clause that selects every column is appended to it, so it must not
+     *                        have one of its own
      * @param statementPreparer a {@link Consumer<PreparedStatement>} that allows the caller to populate ? any variables
      *                          that appear in the insertStatement
      * @param resultDeserializer an {@link SqlFunction<TransactionState, Optional<T>>} that is responsible for
-     *                           transforming the ResultSet returned by the database query into an Optional<T> that the
-     *                           caller can use
+     *                           transforming the ResultSet returned by the insertStatement, which holds every column of
+     *                           the inserted record, into an Optional<T> that the caller can use
      * @return a copy of the persisted entity that has its id attribute populated with the primary key of the persisted
      * record
      */
@@ -94,34 +116,20 @@ public class DatabaseTransaction implements Closeable {
             SqlFunction<TransactionState, List<T>> resultDeserializer)
             throws SQLException {
         connection.setAutoCommit(false);
-
-        // verify syntax
-        if (!insertStatement.startsWith("INSERT INTO")) {
-            throw rollback(new SQLException("insertStatement must start with INSERT INTO"));
-        }
+        verifyInsertStatement(insertStatement);
 
         // populate the sql parameters
-        try (PreparedStatement statement = connection.prepareStatement(insertStatement)) {
+        try (CachedStatement cachedStatement = prepare(withReturningClause(insertStatement))) {
+            final PreparedStatement statement = cachedStatement.statement();
             statementPreparer.accept(statement);
 
-            // execute the query
-            final int numResults = statement.executeUpdate();
-            if (numResults == 0) {
-                throw new SQLException("Insert operation failed");
-            }
-
-            // get the returned object
-            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    // we can construct a simple query based on what we know about the table name and returned id
-                    final String tableName = getTableNameFromInsertStatement(insertStatement);
-                    final String selectStatement = String.format("SELECT * FROM %s WHERE id = ?", tableName);
-                    final long id = generatedKeys.getLong(1);
-                    final List<T> results = query(selectStatement, sp -> sp.setLong(1, id), resultDeserializer);
-                    return getFirstResult(results);
-                } else {
-                    throw new SQLException("Insert operation does not result in a generated primary key");
+            // execute the query, which inserts the record and returns it
+            try (ResultSet resultSet = statement.executeQuery()) {
+                final List<T> results = resultDeserializer.apply(new TransactionState(this, resultSet));
+                if (results.isEmpty()) {
+                    throw new SQLException("Insert operation failed");
                 }
+                return getFirstResult(results);
             }
         } catch (SQLException e) {
             throw rollback(e);
@@ -150,7 +158,8 @@ public class DatabaseTransaction implements Closeable {
     public int execute(String statement, SqlConsumer<PreparedStatement> statementPreparer) throws SQLException {
         connection.setAutoCommit(false);
 
-        try (PreparedStatement ps = connection.prepareStatement(statement)) {
+        try (CachedStatement cachedStatement = prepare(statement)) {
+            final PreparedStatement ps = cachedStatement.statement();
             if (statementPreparer != null) {
                 statementPreparer.accept(ps);
             }
@@ -160,6 +169,82 @@ public class DatabaseTransaction implements Closeable {
         }
     }
 
+    /**
+     * Executes a non-returning SQL statement (INSERT, UPDATE, DELETE) once for each of the specified rows, sending them
+     * to the database as a single batch instead of one statement at a time.
+     *
+     * @param statement the SQL statement to execute
+     * @param rows the rows to execute the statement for
+     * @param rowBinder populates the ? parameters of the statement from a single row
+     * @param <T> the type of row
+     * @return the total number of rows affected
+     * @throws SQLException if something goes wrong; the transaction will be rolled back
+     */
+    public <T> int executeBatch(String statement, Iterable<T> rows, SqlBiConsumer<PreparedStatement, T> rowBinder)
+            throws SQLException {
+        connection.setAutoCommit(false);
+
+        try (CachedStatement cachedStatement = prepare(statement)) {
+            final PreparedStatement ps = cachedStatement.statement();
+            for (T row : rows) {
+                rowBinder.accept(ps, row);
+                ps.addBatch();
+            }
+
+            // drivers may report that a row succeeded without saying how many rows it affected
+            int rowsAffected = 0;
+            for (int count : ps.executeBatch()) {
+                rowsAffected += Math.max(count, 0);
+            }
+            return rowsAffected;
+        } catch (SQLException e) {
+            throw rollback(e);
+        }
+    }
+
+    /**
+     * Executes a SELECT query and deserializes its results one row at a time, passing each object to the specified
+     * rowConsumer before the next row is read. Unlike {@link #query}, the results are never collected into a list, so
+     * result sets of any size can be processed in constant memory. The statement is closed once every row has been
+     * consumed, or if the rowConsumer throws.
+     *
+     * @param selectStatement the SQL SELECT statement to execute
+     * @param statementPreparer a consumer to populate any ? parameters, or null if there are none
+     * @param fetchSize a hint for the number of rows that the driver should read from the database at a time
+     * @param resultDeserializer deserializes each row of the ResultSet
+     * @param rowConsumer accepts each deserialized object in turn
+     * @param <T> the type of object to deserialize
+     * @return the number of rows that were consumed
+     * @throws SQLException if something goes wrong; the transaction will be rolled back
+     */
+    public <T extends Entity> int forEach(
+            String selectStatement,
+            SqlConsumer<PreparedStatement> statementPreparer,
+            int fetchSize,
+            ResultSetDeserializer<T> resultDeserializer,
+            SqlConsumer<T> rowConsumer)
+            throws SQLException {
+        connection.setAutoCommit(false);
+
+        if (!selectStatement.startsWith("SELECT") && !selectStatement.startsWith("WITH")) {
+            throw rollback(new SQLException("selectStatement must start with SELECT or WITH"));
+        }
+
+        try (CachedStatement cachedStatement = prepare(selectStatement)) {
+            final PreparedStatement ps = cachedStatement.statement();
+            if (statementPreparer != null) {
+                statementPreparer.accept(ps);
+            }
+            ps.setFetchSize(fetchSize);
+
+            try (ResultSet resultSet = ps.executeQuery()) {
+                return resultDeserializer.forEach(new TransactionState(this, resultSet), rowConsumer);
+            }
+        } catch (SQLException e) {
+            throw rollback(e);
+        }
+    }
+
     /**
      * Executes a SELECT query and processes the ResultSet with a custom handler.
      * Use this for queries that return non-Entity results (counts, simple values, etc.).
@@ -182,7 +267,8 @@ public class DatabaseTransaction implements Closeable {
             throw rollback(new SQLException("selectStatement must start with SELECT or WITH"));
         }
 
-        try (PreparedStatement ps = connection.prepareStatement(selectStatement)) {
+        try (CachedStatement cachedStatement = prepare(selectStatement)) {
+            final PreparedStatement ps = cachedStatement.statement();
             if (statementPreparer != null) {
                 statementPreparer.accept(ps);
             }
@@ -195,22 +281,203 @@ public class DatabaseTransaction implements Closeable {
     }
 
     /**
-     * Extracts tableName, assuming that insertStatement has format "INSERT INTO tableName ..."
+     * Checks if a SELECT query returns any rows. The query should select a constant and be limited to a single row, as
+     * in {@code SELECT 1 FROM ... LIMIT 1}, so that the database stops at the first match and nothing is deserialized.
+     *
+     * @param selectStatement the SQL SELECT statement to execute
+     * @param statementPreparer a consumer to populate any ? parameters (can be null)
+     * @return true if the query returned at least one row, false otherwise
+     * @throws SQLException if something goes wrong; the transaction will be rolled back
+     */
+    public boolean exists(String selectStatement, SqlConsumer<PreparedStatement> statementPreparer)
+            throws SQLException {
+        return queryRaw(selectStatement, statementPreparer, ResultSet::next);
+    }
+
+    /**
+     * Executes a SELECT query that returns a single number, such as a COUNT(*).
+     *
+     * @param selectStatement the SQL SELECT statement to execute
+     * @param statementPreparer a consumer to populate any ? parameters (can be null)
+     * @return the value of the first column of the first row, or zero if the query returned no rows or a NULL value
+     * @throws SQLException if something goes wrong; the transaction will be rolled back
      */
-    private String getTableNameFromInsertStatement(String insertStatement) {
-        final String prefixRemoved = insertStatement.toUpperCase().replace("INSERT INTO ", "");
-        return prefixRemoved.substring(0, prefixRemoved.indexOf(" ")).toLowerCase();
+    public long queryLong(String selectStatement, SqlConsumer<PreparedStatement> statementPreparer)
+            throws SQLException {
+        return queryRaw(selectStatement, statementPreparer, rs -> rs.next() ? rs.getLong(1) : 0);
     }
 
     /**
-     * Rolls back the current transaction, handling exceptions and returning the provided exception so that
-     * it can be re-thrown as necessary.
+     * Executes a SELECT query and reads the value of the first column of every row.
+     *
+     * @param selectStatement the SQL SELECT statement to execute
+     * @param statementPreparer a consumer to populate any ? parameters (can be null)
+     * @param columnType the type of the column's values, such as {@code String.class} or {@code Long.class}
+     * @param <V> the type of the column's values
+     * @return the values of the first column, in the order that the rows were returned
+     * @throws SQLException if something goes wrong; the transaction will be rolled back
+     */
+    public <V> List<V> queryColumn(
+            String selectStatement, SqlConsumer<PreparedStatement> statementPreparer, Class<V> columnType)
+            throws SQLException {
+        return queryRecords(selectStatement, statementPreparer, rs -> rs.getObject(1, columnType));
+    }
+
+    /**
+     * Executes a SELECT query and maps every row to a lightweight projection, such as a record, rather than to an
+     * {@link Entity}. Only the columns that the projection needs should be selected.
+     *
+     * @param selectStatement the SQL SELECT statement to execute
+     * @param statementPreparer a consumer to populate any ? parameters (can be null)
+     * @param rowMapper maps the current row of the ResultSet to a projection, without moving its cursor
+     * @param <R> the type of projection
+     * @return the projections, in the order that the rows were returned
+     * @throws SQLException if something goes wrong; the transaction will be rolled back
+     */
+    public <R> List<R> queryRecords(
+            String selectStatement,
+            SqlConsumer<PreparedStatement> statementPreparer,
+            SqlFunction<ResultSet, R> rowMapper)
+            throws SQLException {
+        return queryRaw(selectStatement, statementPreparer, rs -> {
+            final List<R> records = new ArrayList<>();
+            while (rs.next()) {
+                records.add(rowMapper.apply(rs));
+            }
+            return records;
+        });
+    }
+
+    /**
+     * Sets a savepoint within the current transaction. Until the savepoint is released or rolled back, an
+     * SQLException thrown by any operation on this DatabaseTransaction only rolls back the changes that were made
+     * since the savepoint was set, rather than the entire transaction.
+     * Every call must be followed by exactly one call to either {@link #releaseSavepoint()} or
+     * {@link #rollbackToSavepoint()}.
+     * @throws SQLException if the savepoint cannot be set
+     */
+    public void setSavepoint() throws SQLException {
+        connection.setAutoCommit(false);
+        savepoints.push(connection.setSavepoint());
+    }
+
+    /**
+     * Releases the most recently set savepoint, keeping the changes that were made since it was set as part of the
+     * enclosing transaction.
+     * @throws SQLException if the savepoint cannot be released
+     */
+    public void releaseSavepoint() throws SQLException {
+        connection.releaseSavepoint(savepoints.pop());
+    }
+
+    /**
+     * Discards the changes that were made since the most recently set savepoint, and then releases it.
+     * @throws SQLException if the changes cannot be rolled back
+     */
+    public void rollbackToSavepoint() throws SQLException {
+        identityMap.clear();
+        final Savepoint savepoint = savepoints.pop();
+        connection.rollback(savepoint);
+        connection.releaseSavepoint(savepoint);
+    }
+
+    /**
+     * Commits all changes that have been made so far. The DatabaseTransaction can continue to be used afterward.
+     * @throws SQLException if the changes cannot be committed
+     */
+    public void commit() throws SQLException {
+        // committing the transaction releases all of its savepoints
+        savepoints.clear();
+        connection.commit();
+    }
+
+    /**
+     * Gets an {@link Entity} that was previously read or written by this transaction
+     * @param type the type of Entity to get
+     * @param id the primary key of the Entity to get
+     * @param <T> the type of Entity to get
+     * @return an {@link Optional<T>} containing the cached Entity, or {@link Optional#empty()} if it is not cached
+     */
+    public <T extends Entity> Optional<T> getCachedEntity(Class<T> type, long id) {
+        final EntityCache entities = identityMap.get(type);
+        return entities == null ? Optional.empty() : Optional.ofNullable(type.cast(entities.get(id)));
+    }
+
+    /**
+     * Caches the specified {@link Entity} so that subsequent lookups by id within this transaction do not have to
+     * query the database. Entities that have not been assigned an id are ignored.
+     * @param entity the Entity to cache
+     */
+    public void cacheEntity(Entity entity) {
+        if (entity.getId() != null) {
+            identityMap.computeIfAbsent(entity.getClass(), type -> new EntityCache()).put(entity.getId(), entity);
+        }
+    }
+
+    /**
+     * Removes an {@link Entity} from the cache. Must be called when the Entity is deleted or modified.
+     * @param type the type of Entity to remove
+     * @param id the primary key of the Entity to remove
+     */
+    public void evictEntity(Class<? extends Entity> type, long id) {
+        final EntityCache entities = identityMap.get(type);
+        if (entities != null) {
+            entities.remove(id);
+        }
+    }
+
+    /**
+     * Gets a prepared statement for the specified SQL from the cache of this transaction's connection, or prepares a
+     * new one if it is not cached. Prepared statements are cached by the connection rather than by the transaction,
+     * because the connection is a singleton that outlives the many short transactions that are opened on it. The
+     * statement is returned to the cache when the {@link CachedStatement} is closed. Connections that were not
+     * provided by {@link DatastoreModule} have no cache, so their statements are closed instead.
+     */
+    private CachedStatement prepare(String sql) throws SQLException {
+        if (!(connection instanceof StatementCachingConnection cachingConnection)) {
+            return new CachedStatement(null, sql, connection.prepareStatement(sql));
+        }
+
+        final StatementCache statements = cachingConnection.statements();
+        final PreparedStatement cached = statements.take(sql);
+        if (cached != null) {
+            return new CachedStatement(statements, sql, cached);
+        }
+        return new CachedStatement(statements, sql, connection.prepareStatement(sql));
+    }
+
+    private void verifyInsertStatement(String insertStatement) throws SQLException {
+        if (!insertStatement.startsWith("INSERT INTO")) {
+            throw rollback(new SQLException("insertStatement must start with INSERT INTO"));
+        }
+    }
+
+    /**
+     * Replaces the terminating semicolon of the specified insertStatement, if any, with a RETURNING clause that selects
+     * every column of the inserted record
+     */
+    private static String withReturningClause(String insertStatement) {
+        final String statement = insertStatement.strip();
+        return (statement.endsWith(";") ? statement.substring(0, statement.length() - 1) : statement)
+                + " RETURNING *;";
+    }
+
+    /**
+     * Rolls back the current transaction, or if a savepoint is set, the changes that were made since the most recent
+     * savepoint, handling exceptions and returning the provided exception so that it can be re-thrown as necessary.
      * If an exception occurs during the rollback operation, that exception is added to the returned stack trace.
      */
     private SQLException rollback(SQLException e) {
         try {
-            logger.error("An SQLException occurred. Rolling back transaction", e);
-            connection.rollback();
+            // entities that were cached since the rollback point may no longer exist
+            identityMap.clear();
+            if (savepoints.isEmpty()) {
+                logger.error("An SQLException occurred. Rolling back transaction", e);
+                connection.rollback();
+            } else {
+                logger.error("An SQLException occurred. Rolling back to savepoint", e);
+                connection.rollback(savepoints.peek());
+            }
             return e;
         } catch (SQLException ex) {
             ex.setNextException(e);
@@ -221,9 +488,53 @@ public class DatabaseTransaction implements Closeable {
     @Override
     public void close() {
         try {
+            savepoints.clear();
             connection.commit();
         } catch (SQLException e) {
             logger.error("Failed to commit transaction", e);
         }
     }
+
+    /**
+     * A least recently used cache of entities of a single type, keyed by id
+     */
+    private static final class EntityCache extends LinkedHashMap<Long, Entity> {
+        private static final long serialVersionUID = 1L;
+
+        private EntityCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entity> eldest) {
+            return size() > MAX_CACHED_ENTITIES_PER_TYPE;
+        }
+    }
+
+    /**
+     * A prepared statement that was taken from a {@link StatementCache}, and is returned to it when closed. Statements
+     * that don't belong to a cache are closed instead
+     */
+    private record CachedStatement(StatementCache statements, String sql, PreparedStatement statement)
+            implements AutoCloseable {
+
+        @Override
+        public void close() throws SQLException {
+            if (statements == null) {
+                statement.close();
+                return;
+            }
+
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setFetchSize(0);
+            } catch (SQLException e) {
+                // a statement that can't be reset can't be reused
+                statement.close();
+                throw e;
+            }
+            statements.release(sql, statement);
+        }
+    }
 }
@@ -6,6 +6,7 @@ import com.google.inject.ProvisionException;
 import com.google.inject.Singleton;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Map;
 import javax.sql.DataSource;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,33 +17,37 @@ public class DatastoreModule extends AbstractModule {
 
     private final String connectionString;
     private final Boolean isCleanEnabled;
+    private final Map<Workload, WorkloadProfile> profiles;
 
     private static final Logger logger = LogManager.getLogger(DatastoreModule.class);
 
     /**
      * Wires up a connection to the specified database
+     * @param profiles the profile of each workload. Workloads that are missing use {@link WorkloadProfile#defaults}
      */
-    public static DatastoreModule onDisk(String connectionString) {
-        return new DatastoreModule(connectionString, false);
+    public static DatastoreModule onDisk(String connectionString, Map<Workload, WorkloadProfile> profiles) {
+        return new DatastoreModule(connectionString, false, profiles);
     }
 
     /**
      * Wires up an in-memory database for testing purposes
      */
     public static DatastoreModule inMemory() {
-        return new DatastoreModule("jdbc:sqlite:file::memory:?cache=shared", true);
+        return new DatastoreModule("jdbc:sqlite:file::memory:?cache=shared", true, Map.of());
     }
 
-    private DatastoreModule(String connectionString, Boolean isCleanEnabled) {
+    private DatastoreModule(String connectionString, Boolean isCleanEnabled, Map<Workload, WorkloadProfile> profiles) {
         this.connectionString = connectionString;
         this.isCleanEnabled = isCleanEnabled;
+        this.profiles = profiles;
         logger.info("Database connection string is {}", connectionString);
     }
 
     @Provides
     @Singleton
     public DataSource provideDataSource() {
-        // if any SQLite-specific config is required, this is where it should be added
+        // SQLite settings depend on the work that the application's connection is doing, so they are applied to the
+        // connection by WorkloadProfile rather than configured here
         final SQLiteDataSource dataSource = new SQLiteDataSource();
         dataSource.setUrl(connectionString);
         return dataSource;
@@ -50,16 +55,38 @@ public class DatastoreModule extends AbstractModule {
 
     /**
      * Provides a database connection - we don't ever close this connection, but Guice ensures that it is a singleton,
-     * so it should die with the application
+     * so it should die with the application. The connection starts out under the profile of the interactive workload.
+     * It owns the cache of prepared statements that {@link DatabaseTransaction} reuses, so the cached statements are
+     * released with the connection rather than outliving it
      */
     @Provides
     @Singleton
     public Connection provideConnection(DataSource dataSource) {
+        final Connection connection;
         try {
-            return dataSource.getConnection();
+            connection = new StatementCachingConnection(dataSource.getConnection());
         } catch (SQLException e) {
             throw new ProvisionException("Failed to connect to database", e);
         }
+
+        final WorkloadProfile profile =
+                profiles.getOrDefault(Workload.INTERACTIVE, WorkloadProfile.defaults(Workload.INTERACTIVE));
+        try {
+            profile.apply(connection);
+        } catch (SQLException e) {
+            logger.error("Failed to apply profile {} to the database connection", profile, e);
+        }
+        return connection;
+    }
+
+    /**
+     * Provides access to {@link WorkloadProfiles}, which switches the application's database connection between the
+     * profile of each {@link Workload}
+     */
+    @Provides
+    @Singleton
+    public WorkloadProfiles provideWorkloadProfiles(Connection connection) {
+        return new WorkloadProfiles(connection, profiles);
     }
 
     /**
@@ -44,4 +44,29 @@ public class ResultSetDeserializer<T extends Entity> implements SqlFunction<Tran
         }
         return results;
     }
+
+    /**
+     * Deserializes the rows of the {@link ResultSet} one at a time, passing each object to the specified consumer as
+     * soon as it has been read instead of collecting them into a list
+     * @param transactionState holds the ResultSet to deserialize
+     * @param rowConsumer an {@link SqlConsumer} that accepts each deserialized object in turn
+     * @return the number of rows that were deserialized
+     */
+    @SuppressWarnings("PMD.CloseResource") // ResultSet lifecycle is managed by TransactionState
+    public int forEach(TransactionState transactionState, SqlConsumer<T> rowConsumer) throws SQLException {
+        final List<T> row = new ArrayList<>(1);
+        final ResultSet resultSet = transactionState.getResultSet();
+        int rowCount = 0;
+        while (resultSet.next()) {
+            deserializer.accept(transactionState, row);
+            for (T result : row) {
+                rowConsumer.accept(result);
+            }
+            row.clear();
+            rowCount++;
+        }
+
+        logger.debug("Streamed {} results", rowCount);
+        return rowCount;
+    }
 }
@@ -0,0 +1,14 @@
+package ca.jonathanfritz.ofxcat.datastore.utils;
+
+import java.sql.SQLException;
+
+/**
+ * Just like a {@link java.util.function.BiConsumer<T, U>}, except that its {@link #accept(T, U)} method can throw an
+ * instance of {@link SQLException}.
+ * @param <T> the type of the first argument to the {@link #accept(T, U)} method
+ * @param <U> the type of the second argument to the {@link #accept(T, U)} method
+ */
+@FunctionalInterface
+public interface SqlBiConsumer<T, U> {
+    void accept(T t, U u) throws SQLException;
+}
@@ -0,0 +1,86 @@
+package ca.jonathanfritz.ofxcat.datastore.utils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A least recently used cache of the prepared statements of a single connection, keyed by SQL. Statements that are
+ * evicted from the cache are closed, as is every cached statement when the cache itself is closed.
+ * A statement is taken out of the cache while it is in use, so a statement that is executed while another copy of it is
+ * still being read from gets its own copy.
+ */
+final class StatementCache implements AutoCloseable {
+
+    // the maximum number of prepared statements that are kept open for each connection
+    static final int MAX_CACHED_STATEMENTS = 128;
+
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= MAX_CACHED_STATEMENTS) {
+                return false;
+            }
+            closeQuietly(eldest.getKey(), eldest.getValue());
+            return true;
+        }
+    };
+
+    private boolean closed = false;
+
+    private static final Logger logger = LogManager.getLogger(StatementCache.class);
+
+    /**
+     * Takes the cached statement for the specified SQL out of the cache
+     * @return the cached statement, or null if there is no open statement for the SQL in the cache
+     */
+    synchronized PreparedStatement take(String sql) throws SQLException {
+        final PreparedStatement statement = statements.remove(sql);
+        return statement == null || statement.isClosed() ? null : statement;
+    }
+
+    /**
+     * Returns a statement to the cache once it is no longer in use. If the cache has been closed, the statement is
+     * closed instead.
+     */
+    synchronized void release(String sql, PreparedStatement statement) throws SQLException {
+        if (closed) {
+            statement.close();
+            return;
+        }
+        final PreparedStatement replaced = statements.put(sql, statement);
+        if (replaced != null && replaced != statement) {
+            replaced.close();
+        }
+    }
+
+    /**
+     * @return the number of statements that are currently cached
+     */
+    synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement. Statements that are released afterward are closed rather than cached
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        statements.forEach(StatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    private static void closeQuietly(String sql, PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.warn("Failed to close cached prepared statement {}", sql, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ca.jonathanfritz.ofxcat.datastore.utils;
+
+/**
+ * The kinds of work that the application does against its database. Each one runs under its own
+ * {@link WorkloadProfile}, which is applied to the connection by {@link WorkloadProfiles}.
+ */
+public enum Workload {
+    /** Short lookups and single-row writes, like prompting for a category. The connection's default workload */
+    INTERACTIVE,
+
+    /** Writes many rows at once, like importing transactions or rebuilding summaries */
+    BULK_IMPORT,
+
+    /** Reads large ranges of the transaction history to generate reports */
+    REPORT
+}
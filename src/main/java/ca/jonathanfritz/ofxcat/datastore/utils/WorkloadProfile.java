@@ -0,0 +1,216 @@
+package ca.jonathanfritz.ofxcat.datastore.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The SQLite settings that a {@link Workload} runs under.
+ * Use {@link #defaults(Workload)} for the standard settings of a workload or {@link #builder()} for customization.
+ */
+public class WorkloadProfile {
+
+    private static final long BYTES_PER_MIB = 1024L * 1024L;
+
+    private final JournalMode journalMode;
+    private final Synchronous synchronous;
+    private final int cacheSizeKib;
+    private final int mmapSizeMib;
+    private final TempStore tempStore;
+    private final boolean optimizeOnClose;
+
+    private WorkloadProfile(
+            JournalMode journalMode,
+            Synchronous synchronous,
+            int cacheSizeKib,
+            int mmapSizeMib,
+            TempStore tempStore,
+            boolean optimizeOnClose) {
+        this.journalMode = journalMode;
+        this.synchronous = synchronous;
+        this.cacheSizeKib = cacheSizeKib;
+        this.mmapSizeMib = mmapSizeMib;
+        this.tempStore = tempStore;
+        this.optimizeOnClose = optimizeOnClose;
+    }
+
+    /**
+     * Returns the default profile of the specified workload. Every workload uses write-ahead logging with NORMAL
+     * synchronization, which can't corrupt the database. Bulk imports get a large page cache and keep temporary
+     * tables in memory. Reports also memory-map the database file, because they read much more of it than they write.
+     * These are also the defaults that are written to config.yaml.
+     */
+    public static WorkloadProfile defaults(Workload workload) {
+        return switch (workload) {
+            case INTERACTIVE -> builder().build();
+            case BULK_IMPORT -> builder().cacheSizeKib(65536).tempStore(TempStore.MEMORY).build();
+            case REPORT ->
+                builder()
+                        .cacheSizeKib(32768)
+                        .mmapSizeMib(256)
+                        .tempStore(TempStore.MEMORY)
+                        .optimizeOnClose(false)
+                        .build();
+        };
+    }
+
+    /**
+     * Returns a builder for creating custom profiles, initialized with the settings of the interactive workload.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public JournalMode getJournalMode() {
+        return journalMode;
+    }
+
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Returns the maximum size of the page cache, in kibibytes
+     */
+    public int getCacheSizeKib() {
+        return cacheSizeKib;
+    }
+
+    /**
+     * Returns how much of the database file is memory-mapped, in mebibytes. A value of 0 disables memory-mapped I/O
+     */
+    public int getMmapSizeMib() {
+        return mmapSizeMib;
+    }
+
+    public TempStore getTempStore() {
+        return tempStore;
+    }
+
+    /**
+     * Returns true if PRAGMA optimize should be run when the workload ends, so that SQLite can refresh the statistics
+     * of tables that it changed, or false otherwise
+     */
+    public boolean isOptimizeOnClose() {
+        return optimizeOnClose;
+    }
+
+    /**
+     * Applies this profile to the specified connection. The journal mode can't be changed inside a transaction, so
+     * any transaction that the connection has open is committed first. Must not be called while a
+     * {@link DatabaseTransaction} is using the connection.
+     *
+     * @param connection the connection to apply this profile to
+     * @throws SQLException if one of the settings can't be applied
+     */
+    public void apply(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.setAutoCommit(true);
+        }
+
+        // the values are enums and numbers, so they can safely be formatted into the statements
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = " + journalMode.name() + ";");
+            statement.execute("PRAGMA synchronous = " + synchronous.name() + ";");
+
+            // a negative cache size is a number of kibibytes rather than a number of pages
+            statement.execute("PRAGMA cache_size = -" + cacheSizeKib + ";");
+            statement.execute("PRAGMA mmap_size = " + mmapSizeMib * BYTES_PER_MIB + ";");
+            statement.execute("PRAGMA temp_store = " + tempStore.name() + ";");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadProfile{" + "journalMode="
+                + journalMode + ", synchronous="
+                + synchronous + ", cacheSizeKib="
+                + cacheSizeKib + ", mmapSizeMib="
+                + mmapSizeMib + ", tempStore="
+                + tempStore + ", optimizeOnClose="
+                + optimizeOnClose + '}';
+    }
+
+    /**
+     * How SQLite keeps the database consistent while it is being written to. See PRAGMA journal_mode
+     */
+    public enum JournalMode {
+        DELETE,
+        TRUNCATE,
+        PERSIST,
+        MEMORY,
+        WAL,
+        OFF
+    }
+
+    /**
+     * How often SQLite waits for writes to reach the disk. See PRAGMA synchronous
+     */
+    public enum Synchronous {
+        OFF,
+        NORMAL,
+        FULL,
+        EXTRA
+    }
+
+    /**
+     * Where SQLite keeps temporary tables and indexes, like the ones that it uses for sorting. See PRAGMA temp_store
+     */
+    public enum TempStore {
+        DEFAULT,
+        FILE,
+        MEMORY
+    }
+
+    public static class Builder {
+        private JournalMode journalMode = JournalMode.WAL;
+        private Synchronous synchronous = Synchronous.NORMAL;
+        private int cacheSizeKib = 8192;
+        private int mmapSizeMib = 0;
+        private TempStore tempStore = TempStore.DEFAULT;
+        private boolean optimizeOnClose = true;
+
+        public Builder journalMode(JournalMode journalMode) {
+            this.journalMode = journalMode;
+            return this;
+        }
+
+        public Builder synchronous(Synchronous synchronous) {
+            this.synchronous = synchronous;
+            return this;
+        }
+
+        public Builder cacheSizeKib(int cacheSizeKib) {
+            this.cacheSizeKib = cacheSizeKib;
+            return this;
+        }
+
+        public Builder mmapSizeMib(int mmapSizeMib) {
+            this.mmapSizeMib = mmapSizeMib;
+            return this;
+        }
+
+        public Builder tempStore(TempStore tempStore) {
+            this.tempStore = tempStore;
+            return this;
+        }
+
+        public Builder optimizeOnClose(boolean optimizeOnClose) {
+            this.optimizeOnClose = optimizeOnClose;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cache size or the memory-mapped size is negative
+         */
+        public WorkloadProfile build() {
+            if (cacheSizeKib < 0) {
+                throw new IllegalArgumentException("cacheSizeKib must not be negative, but was " + cacheSizeKib);
+            }
+            if (mmapSizeMib < 0) {
+                throw new IllegalArgumentException("mmapSizeMib must not be negative, but was " + mmapSizeMib);
+            }
+            return new WorkloadProfile(journalMode, synchronous, cacheSizeKib, mmapSizeMib, tempStore, optimizeOnClose);
+        }
+    }
+}
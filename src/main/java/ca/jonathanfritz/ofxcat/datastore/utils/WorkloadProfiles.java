@@ -0,0 +1,124 @@
+package ca.jonathanfritz.ofxcat.datastore.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Switches the application's database connection between the {@link WorkloadProfile} of each {@link Workload}.
+ * The connection starts out under the interactive profile. Work that needs a different one runs inside a
+ * {@link Scope}, which puts the previous profile back when it is closed:
+ * <pre>{@code
+ * try (WorkloadProfiles.Scope scope = workloadProfiles.use(Workload.BULK_IMPORT)) {
+ *     // import transactions
+ * }
+ * }</pre>
+ * Profiles can only be changed between database transactions, so scopes must be opened and closed outside of any
+ * {@link DatabaseTransaction}.
+ */
+public class WorkloadProfiles {
+
+    private final Connection connection;
+    private final Map<Workload, WorkloadProfile> profiles;
+    private Workload current = Workload.INTERACTIVE;
+
+    private static final Logger logger = LogManager.getLogger(WorkloadProfiles.class);
+
+    /**
+     * @param connection the connection to apply profiles to, which is expected to be under the interactive profile
+     * @param profiles the profile of each workload. Workloads that are missing use {@link WorkloadProfile#defaults}
+     */
+    public WorkloadProfiles(Connection connection, Map<Workload, WorkloadProfile> profiles) {
+        this.connection = connection;
+        this.profiles = new EnumMap<>(Workload.class);
+        for (Workload workload : Workload.values()) {
+            this.profiles.put(workload, profiles.getOrDefault(workload, WorkloadProfile.defaults(workload)));
+        }
+    }
+
+    /**
+     * @return the profile of the specified workload
+     */
+    public WorkloadProfile get(Workload workload) {
+        return profiles.get(workload);
+    }
+
+    /**
+     * @return the workload whose profile the connection is currently under
+     */
+    public Workload getCurrent() {
+        return current;
+    }
+
+    /**
+     * Puts the connection under the profile of the specified workload until the returned scope is closed. If the
+     * profile can't be applied, the error is logged and the work runs under the current profile instead.
+     *
+     * @param workload the workload that is about to run
+     * @return a scope that restores the previous profile when it is closed
+     */
+    public Scope use(Workload workload) {
+        final Workload previous = current;
+        if (workload != previous) {
+            logger.debug("Switching database connection from the {} to the {} profile", previous, workload);
+            apply(workload);
+        }
+        return new Scope(workload, previous);
+    }
+
+    private void apply(Workload workload) {
+        try {
+            profiles.get(workload).apply(connection);
+            current = workload;
+        } catch (SQLException e) {
+            logger.error("Failed to apply the {} profile to the database connection", workload, e);
+        }
+    }
+
+    private void optimize(Workload workload) {
+        logger.debug("Optimizing database after {} workload", workload);
+        try {
+            // commit the transaction that the connection may have open, so that the optimization isn't discarded
+            if (!connection.getAutoCommit()) {
+                connection.setAutoCommit(true);
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA optimize;");
+            }
+        } catch (SQLException e) {
+            logger.error("Failed to optimize database after {} workload", workload, e);
+        }
+    }
+
+    /**
+     * A period during which the connection is under the profile of some workload
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final Workload workload;
+        private final Workload previous;
+
+        private Scope(Workload workload, Workload previous) {
+            this.workload = workload;
+            this.previous = previous;
+        }
+
+        /**
+         * Runs PRAGMA optimize if the workload's profile asks for it, and then restores the previous profile
+         */
+        @Override
+        public void close() {
+            if (profiles.get(workload).isOptimizeOnClose()) {
+                optimize(workload);
+            }
+            if (workload != previous) {
+                logger.debug("Switching database connection from the {} back to the {} profile", workload, previous);
+                apply(previous);
+            }
+        }
+    }
+}
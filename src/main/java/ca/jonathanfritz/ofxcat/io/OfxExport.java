@@ -1,11 +1,9 @@
 package ca.jonathanfritz.ofxcat.io;
 
 import java.time.LocalDate;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class OfxExport {
     private final OfxAccount account;
@@ -22,10 +20,7 @@ public class OfxExport {
         this.account = account;
         this.balance = balance;
         this.availableBalance = availableBalance;
-        this.transactions = transactions.stream()
-                .collect(Collectors.toMap(OfxTransaction::getDate, Collections::singletonList, (a, b) -> Stream.concat(
-                                a.stream(), b.stream())
-                        .collect(Collectors.toList())));
+        this.transactions = transactions.stream().collect(Collectors.groupingBy(OfxTransaction::getDate));
     }
 
     public OfxAccount getAccount() {
@@ -11,14 +11,12 @@ import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -53,269 +51,255 @@ public class OfxParser {
 
     private static final Logger logger = LogManager.getLogger(OfxParser.class);
 
+    /**
+     * Parses the specified OFX file into one {@link OfxExport} per account. Transactions are appended to a buffer for
+     * their account as they are read, so parsing is linear in the number of transactions in the file.
+     * @param inputStream the OFX file to parse
+     * @return the parsed accounts, sorted alphabetically by account id
+     */
     public List<OfxExport> parse(final InputStream inputStream) throws IOException, OFXParseException {
-        final Map<OfxAccount, List<OfxTransaction.TransactionBuilder>> transactions = new HashMap<>();
-        final Map<OfxAccount, OfxBalance.Builder> accountBalances = new HashMap<>();
-        final Map<OfxAccount, OfxBalance.Builder> accountAvailableBalances = new HashMap<>();
+        final Map<OfxAccount, List<OfxTransaction>> transactions = new HashMap<>();
+        final OfxContentHandler handler = read(
+                inputStream,
+                transaction -> transactions
+                        .computeIfAbsent(transaction.getAccount(), account -> new ArrayList<>())
+                        .add(transaction));
+
+        // bundle up the imported data for all accounts
+        final List<OfxExport> ofxExports = new ArrayList<>(transactions.size());
+        for (Map.Entry<OfxAccount, List<OfxTransaction>> entry : transactions.entrySet()) {
+            final OfxBalance.Builder balance = handler.accountBalances.get(entry.getKey());
+            final OfxBalance.Builder availableBalance = handler.accountAvailableBalances.get(entry.getKey());
+
+            // if one of our accounts was not assigned a bankId, we can assume that the correct bankId is the first one
+            // found in the OFX file, since the file should only contain accounts that come from a single institution
+            // this ensures that credit cards get a bankId, which means that we run their transactions through the
+            // correct TransactionCleaner
+            OfxAccount account = entry.getKey();
+            if (StringUtils.isBlank(account.getBankId()) && StringUtils.isNotBlank(handler.bankId)) {
+                account = OfxAccount.newBuilder(account).setBankId(handler.bankId).build();
+            }
+
+            ofxExports.add(new OfxExport(
+                    account,
+                    balance.build(),
+                    availableBalance != null ? availableBalance.build() : null,
+                    entry.getValue()));
+        }
+
+        // returned list is sorted alphabetically by account id
+        ofxExports.sort(Comparator.comparing(o -> o.getAccount().getAccountId()));
+        return ofxExports;
+    }
+
+    /**
+     * Parses the specified OFX file, passing each transaction to transactionConsumer as soon as it has been read.
+     * Nothing is buffered, so memory use does not grow with the size of the file. Account balances are not reported,
+     * and the account attached to each transaction is exactly as it appears in the file, so credit cards may not
+     * have a bankId. Use {@link #parse(InputStream)} if either is required.
+     * @param inputStream the OFX file to parse
+     * @param transactionConsumer receives each transaction in the order that it appears in the file
+     */
+    public void parse(final InputStream inputStream, final Consumer<OfxTransaction> transactionConsumer)
+            throws IOException, OFXParseException {
+        read(inputStream, transactionConsumer);
+    }
+
+    private OfxContentHandler read(final InputStream inputStream, final Consumer<OfxTransaction> transactionConsumer)
+            throws IOException, OFXParseException {
+        // no sense in making this a singleton, since a new reader and handler are created every time the file is
+        // parsed to avoid storing state in OfxParser
+        final OfxContentHandler handler = new OfxContentHandler(transactionConsumer);
+        final OFXReader ofxReader = new NanoXMLOFXReader();
+        ofxReader.setContentHandler(handler);
+
+        // blocks until the entire ofx file has been processed
+        ofxReader.parse(inputStream);
+        return handler;
+    }
+
+    private static LocalDate parseDate(String value) {
+        // date format is 20181210120000[-5:EST], but time is always set to 120000, so we can just ignore it
+        // and interpret the first 8 characters as a date
+        return LocalDate.parse(value.substring(0, 8), dateFormatter);
+    }
+
+    /**
+     * The OFXReader executes callback methods on this handler as it encounters elements in the file. Each transaction
+     * is passed to the transaction consumer as soon as its STMTTRN element ends, and account balances are recorded
+     * as they are found.
+     */
+    private static final class OfxContentHandler implements OFXHandler {
+
+        private final Consumer<OfxTransaction> transactionConsumer;
+        private final Map<OfxAccount, OfxBalance.Builder> accountBalances = new HashMap<>();
+        private final Map<OfxAccount, OfxBalance.Builder> accountAvailableBalances = new HashMap<>();
 
         // an OFX file that is exported from an institution may contain a mix of credit cards and traditional bank
         // accounts, but the credit cards may not have a bankId associated with them. This breaks the
         // TransactionCleanerFactory's ability to assign the correct transaction cleaner to the credit card.
         // record the first bankId found in the file and use it for every account unless otherwise specified.
-        // this is a one element array because Java streams can only access effectively final variables from the parent
-        // scope :/
-        final String[] bankId = {null};
+        private String bankId;
 
-        // no sense in making this a singleton, since this whole object is re-created every time the parse function is
-        // called to avoid storing state in OfxParser
-        final OFXReader ofxReader = new NanoXMLOFXReader();
-        ofxReader.setContentHandler(new OFXHandler() {
-            // in progress builders - the OFXReader executes callback methods as it encounters elements in the file, so
-            // we need to start pojos and then add to them as new elements are read
-            OfxAccount.Builder accountBuilder;
-            OfxTransaction.TransactionBuilder transactionBuilder;
-
-            // if the file contains transactions from multiple accounts, a BANKACCTFROM or CCACCTFROM entity will
-            // proceed the transactions for each account. We can attach the transactions for the account to this object.
-            OfxAccount currentAccount;
-
-            // after each BANKTRANLIST element, there's a LEDGERBAL element that contains the current balance for that
-            // account. We can use it to work backward and determine the account balance after each transaction took
-            // place
-            boolean isLedgerBalanceActive = false;
-            boolean isAvailableBalanceActive = false;
-
-            // fired whenever a new ofx entity (an account or a transaction) starts
-            public void startAggregate(String name) {
-                if (BANKACCTFROM.equalsIgnoreCase(name)) {
-                    accountBuilder = OfxAccount.newBuilder();
-                } else if (CCACCTFROM.equalsIgnoreCase(name)) {
-                    // credit cards don't have an ACCTTYPE element, so force the type here
-                    accountBuilder = OfxAccount.newBuilder().setAccountType("CREDIT_CARD");
-                } else if (STMTTRN.equalsIgnoreCase(name)) {
-                    transactionBuilder = OfxTransaction.newBuilder();
-                    if (currentAccount != null) {
-                        transactionBuilder.setAccount(currentAccount);
-                    }
-                } else if (LEDGERBAL.equalsIgnoreCase(name)) {
-                    isLedgerBalanceActive = true;
-                } else if (AVAILBAL.equalsIgnoreCase(name)) {
-                    isAvailableBalanceActive = true;
+        // in progress builders - we need to start pojos and then add to them as new elements are read
+        private OfxAccount.Builder accountBuilder;
+        private OfxTransaction.TransactionBuilder transactionBuilder;
+
+        // if the file contains transactions from multiple accounts, a BANKACCTFROM or CCACCTFROM entity will
+        // proceed the transactions for each account. We can attach the transactions for the account to this object.
+        private OfxAccount currentAccount;
+
+        // after each BANKTRANLIST element, there's a LEDGERBAL element that contains the current balance for that
+        // account. We can use it to work backward and determine the account balance after each transaction took
+        // place
+        private boolean isLedgerBalanceActive = false;
+        private boolean isAvailableBalanceActive = false;
+
+        private OfxContentHandler(Consumer<OfxTransaction> transactionConsumer) {
+            this.transactionConsumer = transactionConsumer;
+        }
+
+        // fired whenever a new ofx entity (an account or a transaction) starts
+        @Override
+        public void startAggregate(String name) {
+            if (BANKACCTFROM.equalsIgnoreCase(name)) {
+                accountBuilder = OfxAccount.newBuilder();
+            } else if (CCACCTFROM.equalsIgnoreCase(name)) {
+                // credit cards don't have an ACCTTYPE element, so force the type here
+                accountBuilder = OfxAccount.newBuilder().setAccountType("CREDIT_CARD");
+            } else if (STMTTRN.equalsIgnoreCase(name)) {
+                transactionBuilder = OfxTransaction.newBuilder();
+                if (currentAccount != null) {
+                    transactionBuilder.setAccount(currentAccount);
                 }
+            } else if (LEDGERBAL.equalsIgnoreCase(name)) {
+                isLedgerBalanceActive = true;
+            } else if (AVAILBAL.equalsIgnoreCase(name)) {
+                isAvailableBalanceActive = true;
             }
+        }
 
-            // fired for each attribute of the ofx entity
-            public void onElement(String name, String value) throws OFXSyntaxException {
-                switch (name.toUpperCase()) {
-                    // account information
-                    case BANKID:
-                        // save the first bankId that we find in the file
-                        if (StringUtils.isBlank(bankId[0])) {
-                            bankId[0] = value;
-                        }
-                        accountBuilder.setBankId(value);
-                        break;
-                    case ACCTID:
-                        // this element is used for the account id on normal bank accounts as well as credit cards
-                        accountBuilder.setAccountId(value);
+        // fired for each attribute of the ofx entity
+        @Override
+        public void onElement(String name, String value) throws OFXSyntaxException {
+            switch (name.toUpperCase()) {
+                // account information
+                case BANKID:
+                    // save the first bankId that we find in the file
+                    if (StringUtils.isBlank(bankId)) {
+                        bankId = value;
+                    }
+                    accountBuilder.setBankId(value);
+                    break;
+                case ACCTID:
+                    // this element is used for the account id on normal bank accounts as well as credit cards
+                    accountBuilder.setAccountId(value);
+                    break;
+                case ACCTTYPE:
+                    accountBuilder.setAccountType(value);
+                    break;
+
+                // transaction information
+                case TRNTYPE:
+                    transactionBuilder.setType(TransactionType.valueOf(value));
+                    break;
+                case DTPOSTED:
+                    try {
+                        transactionBuilder.setDate(parseDate(value));
                         break;
-                    case ACCTTYPE:
-                        accountBuilder.setAccountType(value);
+                    } catch (DateTimeParseException ex) {
+                        throw new OFXSyntaxException(
+                                String.format("Failed to parse DTPOSTED %s as LocalDate", value), ex);
+                    }
+                case TRNAMT:
+                    try {
+                        transactionBuilder.setAmount(Float.parseFloat(value));
                         break;
+                    } catch (NumberFormatException ex) {
+                        throw new OFXSyntaxException(String.format("Failed to parse TRNAMT %s as float", value), ex);
+                    }
+                case FITID:
+                    transactionBuilder.setFitId(value);
+                    break;
+                case NAME:
+                    transactionBuilder.setName(value);
+                    break;
+                case MEMO:
+                    transactionBuilder.setMemo(value);
+                    break;
 
-                    // transaction information
-                    case TRNTYPE:
-                        transactionBuilder.setType(TransactionType.valueOf(value));
+                // ledgerbalance and availablebalance information
+                case BALAMT:
+                    if (!isLedgerBalanceActive && !isAvailableBalanceActive) {
                         break;
-                    case DTPOSTED:
-                        try {
-                            // date format is 20181210120000[-5:EST], but time is always set to 120000, so we can just
-                            // ignore it
-                            // and interpret the first 8 characters as a date
-                            final LocalDate localDate = parseDate(value);
-                            transactionBuilder.setDate(localDate);
-                            break;
-                        } catch (DateTimeParseException ex) {
-                            throw new OFXSyntaxException(
-                                    String.format("Failed to parse DTPOSTED %s as LocalDate", value), ex);
-                        }
-                    case TRNAMT:
-                        try {
-                            transactionBuilder.setAmount(Float.parseFloat(value));
-                            break;
-                        } catch (NumberFormatException ex) {
-                            throw new OFXSyntaxException(
-                                    String.format("Failed to parse TRNAMT %s as float", value), ex);
-                        }
-                    case FITID:
-                        transactionBuilder.setFitId(value);
+                    }
+                    try {
+                        activeBalance().setAmount(Float.parseFloat(value));
                         break;
-                    case NAME:
-                        transactionBuilder.setName(value);
+                    } catch (NumberFormatException ex) {
+                        throw new OFXSyntaxException(String.format("Failed to parse BALAMT %s as float", value), ex);
+                    }
+                case DTASOF:
+                    if (!isLedgerBalanceActive && !isAvailableBalanceActive) {
                         break;
-                    case MEMO:
-                        transactionBuilder.setMemo(value);
+                    }
+                    try {
+                        activeBalance().setDate(parseDate(value));
                         break;
+                    } catch (DateTimeParseException ex) {
+                        throw new OFXSyntaxException(
+                                String.format("Failed to parse DTASOF %s as LocalDate", value), ex);
+                    }
 
-                    // ledgerbalance and availablebalance information
-                    case BALAMT:
-                        if (!isLedgerBalanceActive && !isAvailableBalanceActive) {
-                            break;
-                        }
-
-                        try {
-                            final float amount = Float.parseFloat(value);
-                            if (isLedgerBalanceActive) {
-                                if (accountBalances.containsKey(currentAccount)) {
-                                    accountBalances.get(currentAccount).setAmount(amount);
-                                } else {
-                                    accountBalances.put(
-                                            currentAccount,
-                                            OfxBalance.newBuilder().setAmount(amount));
-                                }
-                            } else {
-                                if (accountAvailableBalances.containsKey(currentAccount)) {
-                                    accountAvailableBalances.get(currentAccount).setAmount(amount);
-                                } else {
-                                    accountAvailableBalances.put(
-                                            currentAccount,
-                                            OfxBalance.newBuilder().setAmount(amount));
-                                }
-                            }
-                            break;
-                        } catch (NumberFormatException ex) {
-                            throw new OFXSyntaxException(
-                                    String.format("Failed to parse BALAMT %s as float", value), ex);
-                        }
-                    case DTASOF:
-                        if (!isLedgerBalanceActive && !isAvailableBalanceActive) {
-                            break;
-                        }
-                        try {
-                            final LocalDate localDate = parseDate(value);
-                            if (isLedgerBalanceActive) {
-                                if (accountBalances.containsKey(currentAccount)) {
-                                    accountBalances.get(currentAccount).setDate(localDate);
-                                } else {
-                                    accountBalances.put(
-                                            currentAccount,
-                                            OfxBalance.newBuilder().setDate(localDate));
-                                }
-                            } else {
-                                if (accountAvailableBalances.containsKey(currentAccount)) {
-                                    accountAvailableBalances.get(currentAccount).setDate(localDate);
-                                } else {
-                                    accountAvailableBalances.put(
-                                            currentAccount,
-                                            OfxBalance.newBuilder().setDate(localDate));
-                                }
-                            }
-                            break;
-                        } catch (DateTimeParseException ex) {
-                            throw new OFXSyntaxException(
-                                    String.format("Failed to parse DTASOF %s as LocalDate", value), ex);
-                        }
-
-                    default:
-                    // unhandled - there are lots of OFX elements that we don't use
-                }
+                default:
+                // unhandled - there are lots of OFX elements that we don't use
             }
+        }
 
-            // fired whenever the currently open ofx entity ends
-            public void endAggregate(String name) {
-                if (BANKACCTFROM.equalsIgnoreCase(name) || CCACCTFROM.equalsIgnoreCase(name)) {
-                    currentAccount = accountBuilder.build();
-                    logger.debug("Parsed bank account information {}", currentAccount);
-                } else if (STMTTRN.equalsIgnoreCase(name)) {
-                    if (transactions.containsKey(currentAccount)) {
-                        transactions.put(
-                                currentAccount,
-                                Stream.concat(transactions.get(currentAccount).stream(), Stream.of(transactionBuilder))
-                                        .collect(Collectors.toList()));
-                    } else {
-                        transactions.put(currentAccount, Collections.singletonList(transactionBuilder));
-                    }
-                    logger.debug("Parsed transaction {}", transactionBuilder.build());
-                } else if (LEDGERBAL.equalsIgnoreCase(name)) {
-                    isLedgerBalanceActive = false;
-                    final OfxBalance ofxBalance =
-                            accountBalances.get(currentAccount).build();
+        // fired whenever the currently open ofx entity ends
+        @Override
+        public void endAggregate(String name) {
+            if (BANKACCTFROM.equalsIgnoreCase(name) || CCACCTFROM.equalsIgnoreCase(name)) {
+                currentAccount = accountBuilder.build();
+                logger.debug("Parsed bank account information {}", currentAccount);
+            } else if (STMTTRN.equalsIgnoreCase(name)) {
+                final OfxTransaction transaction = transactionBuilder.build();
+                logger.debug("Parsed transaction {}", transaction);
+                transactionConsumer.accept(transaction);
+            } else if (LEDGERBAL.equalsIgnoreCase(name)) {
+                isLedgerBalanceActive = false;
+                if (logger.isDebugEnabled()) {
+                    final OfxBalance ofxBalance = accountBalances.get(currentAccount).build();
                     logger.debug(
                             "Recorded ledger balance of ${} on {} for account {}",
                             ofxBalance.getAmount(),
-                            ofxBalance.getDate().toString(),
+                            ofxBalance.getDate(),
                             currentAccount.getAccountId());
-                } else if (AVAILBAL.equalsIgnoreCase(name)) {
-                    isAvailableBalanceActive = false;
-                    final OfxBalance availableBalance =
-                            accountAvailableBalances.get(currentAccount).build();
+                }
+            } else if (AVAILBAL.equalsIgnoreCase(name)) {
+                isAvailableBalanceActive = false;
+                if (logger.isDebugEnabled()) {
+                    final OfxBalance availableBalance = accountAvailableBalances.get(currentAccount).build();
                     logger.debug(
                             "Recorded available balance of ${} on {} for account {}",
                             availableBalance.getAmount(),
-                            availableBalance.getDate().toString(),
+                            availableBalance.getDate(),
                             currentAccount.getAccountId());
                 }
             }
+        }
 
-            // we ignore headers, so this is a no-op
-            public void onHeader(String name, String value) {}
-        });
-
-        // blocks until the entire ofx file has been processed
-        ofxReader.parse(inputStream);
-
-        // bundle up the imported data for all accounts
-        // returned list is sorted alphabetically by account id
-        return transactions.entrySet().stream()
-                .flatMap((Function<
-                                Map.Entry<OfxAccount, List<OfxTransaction.TransactionBuilder>>,
-                                Stream<Map.Entry<OfxAccount, List<OfxTransaction.TransactionBuilder>>>>)
-                        entry -> {
-                            // if one of our accounts was not assigned a bankId, we can assume that the correct bankId
-                            // is the
-                            // first one found in the OFX file, since the file should only contain accounts that come
-                            // from a
-                            // single institution
-                            // this ensures that credit cards get a bankId, which means that we run their transactions
-                            // through
-                            // the correct TransactionCleaner
-                            final OfxAccount account = entry.getKey();
-                            if (StringUtils.isBlank(account.getBankId()) && StringUtils.isNotBlank(bankId[0])) {
-                                final OfxAccount updatedAccount = OfxAccount.newBuilder(account)
-                                        .setBankId(bankId[0])
-                                        .build();
-
-                                final OfxBalance.Builder balance = accountBalances.remove(account);
-                                accountBalances.put(updatedAccount, balance);
-
-                                final OfxBalance.Builder availableBalance = accountAvailableBalances.remove(account);
-                                if (availableBalance != null) {
-                                    accountAvailableBalances.put(updatedAccount, availableBalance);
-                                }
-
-                                return Stream.of(Map.entry(updatedAccount, entry.getValue()));
-                            }
-                            return Stream.of(entry);
-                        })
-                .map(entry -> {
-                    final OfxAccount acct = entry.getKey();
-                    final OfxBalance.Builder availBuilder = accountAvailableBalances.get(acct);
-                    final OfxBalance availBal = availBuilder != null ? availBuilder.build() : null;
-                    return new OfxExport(
-                            acct,
-                            accountBalances.get(acct).build(),
-                            availBal,
-                            entry.getValue().stream()
-                                    .map(OfxTransaction.TransactionBuilder::build)
-                                    .collect(Collectors.toList()));
-                })
-                .sorted(Comparator.comparing(o -> o.getAccount().getAccountId()))
-                .collect(Collectors.toList());
-    }
+        // we ignore headers, so this is a no-op
+        @Override
+        public void onHeader(String name, String value) {}
 
-    private LocalDate parseDate(String value) {
-        // date format is 20181210120000[-5:EST], but time is always set to 120000, so we can just ignore it
-        // and interpret the first 8 characters as a date
-        return LocalDate.parse(value.substring(0, 8), dateFormatter);
+        /**
+         * @return the balance builder for the LEDGERBAL or AVAILBAL element that is currently being read
+         */
+        private OfxBalance.Builder activeBalance() {
+            final Map<OfxAccount, OfxBalance.Builder> balances =
+                    isLedgerBalanceActive ? accountBalances : accountAvailableBalances;
+            return balances.computeIfAbsent(currentAccount, account -> OfxBalance.newBuilder());
+        }
     }
 }
@@ -13,6 +13,9 @@ public class KeywordRule {
     private String category;
     private boolean matchAll;
 
+    // keywords converted to lowercase, computed on first use
+    private List<String> normalizedKeywords;
+
     // Default constructor for Jackson deserialization
     public KeywordRule() {}
 
@@ -32,6 +35,7 @@ public class KeywordRule {
 
     public void setKeywords(List<String> keywords) {
         this.keywords = keywords;
+        this.normalizedKeywords = null;
     }
 
     public String getCategory() {
@@ -62,8 +66,9 @@ public class KeywordRule {
         }
 
         // Normalize keywords to lowercase for comparison
-        List<String> normalizedKeywords =
-                keywords.stream().map(String::toLowerCase).toList();
+        if (normalizedKeywords == null) {
+            normalizedKeywords = keywords.stream().map(String::toLowerCase).toList();
+        }
 
         if (matchAll) {
             // All keywords must be present in tokens
@@ -0,0 +1,124 @@
+package ca.jonathanfritz.ofxcat.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A compiled form of an ordered list of {@link KeywordRule}s. Instead of testing every rule against a transaction's
+ * tokens, each token is looked up in a map of keyword to the indices of the rules that contain it, so the cost of
+ * finding a match depends on the number of tokens rather than on the number of rules.
+ *
+ * <p>The first matching rule wins, exactly as if the rules were tested in order: the result is the matching rule with
+ * the lowest index. Rules that require all of their keywords are matched by counting how many of their keywords appear
+ * in the tokens.</p>
+ */
+final class KeywordRuleIndex {
+
+    private final List<KeywordRule> rules;
+
+    // lowercase keyword -> ascending indices of the rules that match if any of their keywords are present
+    private final Map<String, int[]> anyKeywordRules;
+
+    // lowercase keyword -> ascending indices of the rules that only match if all of their keywords are present
+    private final Map<String, int[]> allKeywordRules;
+
+    // the number of distinct keywords of each rule
+    private final int[] keywordCounts;
+
+    KeywordRuleIndex(List<KeywordRule> rules) {
+        this.rules = List.copyOf(rules);
+        this.keywordCounts = new int[rules.size()];
+
+        final Map<String, List<Integer>> anyKeywordRuleLists = new HashMap<>();
+        final Map<String, List<Integer>> allKeywordRuleLists = new HashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            final KeywordRule rule = rules.get(i);
+            if (rule.getKeywords() == null) {
+                continue;
+            }
+
+            final Set<String> keywords = new LinkedHashSet<>();
+            rule.getKeywords().stream()
+                    .filter(Objects::nonNull)
+                    .map(String::toLowerCase)
+                    .forEach(keywords::add);
+            keywordCounts[i] = keywords.size();
+
+            final Map<String, List<Integer>> target = rule.isMatchAll() ? allKeywordRuleLists : anyKeywordRuleLists;
+            for (String keyword : keywords) {
+                target.computeIfAbsent(keyword, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        this.anyKeywordRules = toArrays(anyKeywordRuleLists);
+        this.allKeywordRules = toArrays(allKeywordRuleLists);
+    }
+
+    /**
+     * Finds the first rule that matches the given normalized tokens.
+     *
+     * @param tokens the normalized tokens from a transaction description
+     * @return the matching rule with the lowest index, or empty if no rule matches
+     */
+    Optional<KeywordRule> findFirstMatch(Set<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // any single keyword is enough to match, so the best candidate is the lowest rule index of any token
+        int firstMatch = Integer.MAX_VALUE;
+        for (String token : tokens) {
+            final int[] ruleIndices = anyKeywordRules.get(token);
+            if (ruleIndices != null) {
+                firstMatch = Math.min(firstMatch, ruleIndices[0]);
+            }
+        }
+
+        // rules that need all of their keywords can only win if they come before the best candidate so far
+        if (!allKeywordRules.isEmpty()) {
+            Map<Integer, Integer> hitCounts = null;
+            for (String token : tokens) {
+                final int[] ruleIndices = allKeywordRules.get(token);
+                if (ruleIndices == null) {
+                    continue;
+                }
+                for (int ruleIndex : ruleIndices) {
+                    if (ruleIndex >= firstMatch) {
+                        break;
+                    }
+                    if (hitCounts == null) {
+                        hitCounts = new HashMap<>();
+                    }
+                    if (hitCounts.merge(ruleIndex, 1, Integer::sum) == keywordCounts[ruleIndex]) {
+                        firstMatch = ruleIndex;
+                    }
+                }
+            }
+        }
+
+        return firstMatch == Integer.MAX_VALUE ? Optional.empty() : Optional.of(rules.get(firstMatch));
+    }
+
+    /**
+     * @return the number of distinct keywords in the index
+     */
+    int keywordCount() {
+        final Set<String> keywords = new HashSet<>(anyKeywordRules.keySet());
+        keywords.addAll(allKeywordRules.keySet());
+        return keywords.size();
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> ruleLists) {
+        final Map<String, int[]> ruleArrays = new HashMap<>(ruleLists.size() * 2);
+        ruleLists.forEach((keyword, ruleIndices) -> ruleArrays.put(
+                keyword, ruleIndices.stream().mapToInt(Integer::intValue).toArray()));
+        return ruleArrays;
+    }
+}
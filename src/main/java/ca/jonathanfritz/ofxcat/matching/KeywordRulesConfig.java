@@ -8,12 +8,17 @@ import java.util.Set;
 /**
  * Configuration for keyword-based automatic categorization rules.
  * Rules are processed in order, and the first matching rule wins.
+ *
+ * <p>Matching is done against a {@link KeywordRuleIndex} that is compiled from the rules by {@link #compile()}, or on
+ * first use if the configuration wasn't loaded by {@link KeywordRulesLoader}. The rules list must not be modified in
+ * place after that; call {@link #setRules(List)} instead.</p>
  */
 public class KeywordRulesConfig {
 
     private int version = 1;
     private Settings settings = new Settings();
     private List<KeywordRule> rules = new ArrayList<>();
+    private volatile KeywordRuleIndex ruleIndex;
 
     // Default constructor for Jackson deserialization
     public KeywordRulesConfig() {}
@@ -44,6 +49,14 @@ public class KeywordRulesConfig {
 
     public void setRules(List<KeywordRule> rules) {
         this.rules = rules != null ? rules : new ArrayList<>();
+        this.ruleIndex = null;
+    }
+
+    /**
+     * Compiles the rules into a {@link KeywordRuleIndex} so that lookups don't have to test every rule in turn.
+     */
+    void compile() {
+        ruleIndex = new KeywordRuleIndex(rules);
     }
 
     /**
@@ -58,7 +71,23 @@ public class KeywordRulesConfig {
             return Optional.empty();
         }
 
-        return rules.stream().filter(rule -> rule.matches(tokens)).findFirst().map(KeywordRule::getCategory);
+        return ruleIndex().findFirstMatch(tokens).map(KeywordRule::getCategory);
+    }
+
+    /**
+     * @return the number of distinct keywords across all rules
+     */
+    int keywordCount() {
+        return ruleIndex().keywordCount();
+    }
+
+    private KeywordRuleIndex ruleIndex() {
+        KeywordRuleIndex index = ruleIndex;
+        if (index == null) {
+            index = new KeywordRuleIndex(rules);
+            ruleIndex = index;
+        }
+        return index;
     }
 
     /**
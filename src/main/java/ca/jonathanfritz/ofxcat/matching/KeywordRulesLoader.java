@@ -71,8 +71,7 @@ public class KeywordRulesLoader {
             if (config == null) {
                 return KeywordRulesConfig.empty();
             }
-            logger.info("Loaded {} keyword rules", config.getRules().size());
-            return config;
+            return compile(config);
         } catch (IOException e) {
             logger.error("Failed to parse keyword rules YAML: {}", e.getMessage());
             return KeywordRulesConfig.empty();
@@ -113,7 +112,17 @@ public class KeywordRulesLoader {
         if (config == null) {
             return KeywordRulesConfig.empty();
         }
-        logger.info("Loaded {} keyword rules", config.getRules().size());
+        return compile(config);
+    }
+
+    /**
+     * Compiles the loaded rules into a keyword index once, so that matching transactions against them doesn't have to
+     * test every rule in turn.
+     */
+    private KeywordRulesConfig compile(KeywordRulesConfig config) {
+        config.compile();
+        logger.info(
+                "Loaded {} keyword rules with {} distinct keywords", config.getRules().size(), config.keywordCount());
         return config;
     }
 }
@@ -41,6 +41,7 @@ public class MatchingModule extends AbstractModule {
     public TokenMatchingConfig provideTokenMatchingConfig() {
         return TokenMatchingConfig.builder()
                 .overlapThreshold(appConfig.getTokenMatching().getOverlapThreshold())
+                .tokenIndexEnabled(appConfig.getTokenMatching().isUseTokenIndex())
                 .build();
     }
 
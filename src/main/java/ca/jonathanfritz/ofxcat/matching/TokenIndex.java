@@ -0,0 +1,210 @@
+package ca.jonathanfritz.ofxcat.matching;
+
+import ca.jonathanfritz.ofxcat.datastore.TransactionTokenDao;
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import com.google.inject.Singleton;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * An in-memory inverted index over the TransactionToken table that answers token overlap queries without touching
+ * SQLite.
+ *
+ * <p>Each transaction that has tokens is assigned a dense integer document number. Every token maps to a posting list
+ * of those document numbers, and the total token count and category of each document are held in parallel primitive
+ * arrays, so a lookup only touches the postings of the tokens being searched for.</p>
+ *
+ * <p>The index is loaded lazily on first use. Because transaction ids are assigned in increasing order, tokens written
+ * for newly imported transactions are picked up incrementally by {@link #refresh(DatabaseTransaction,
+ * TransactionTokenDao)}, which only reads tokens for transactions above the highest id that has already been indexed.
+ * Writes that touch existing transactions (token migration, recategorization, combining categories) must call
+ * {@link #invalidate()} so that the next lookup rebuilds the index from scratch.</p>
+ */
+@Singleton
+public class TokenIndex {
+
+    private static final Logger logger = LogManager.getLogger(TokenIndex.class);
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Map<String, Postings> postingsByToken = new HashMap<>();
+    private final Map<Long, Integer> documentsByTransactionId = new HashMap<>();
+    private final BitSet removedDocuments = new BitSet();
+
+    private long[] transactionIds = new long[INITIAL_CAPACITY];
+    private long[] categoryIds = new long[INITIAL_CAPACITY];
+    private int[] tokenCounts = new int[INITIAL_CAPACITY];
+    private int documentCount = 0;
+
+    // scratch space for counting matching tokens per document, reused between lookups
+    private int[] matchCounts = new int[INITIAL_CAPACITY];
+    private int[] touchedDocuments = new int[INITIAL_CAPACITY];
+
+    private long highestTransactionId = 0;
+    private boolean loaded = false;
+
+    /**
+     * Brings the index up to date with the TransactionToken table. The first call loads every stored token; subsequent
+     * calls only load tokens for transactions that were inserted since the previous call.
+     *
+     * @param t the database transaction to participate in
+     * @param transactionTokenDao the DAO used to read stored tokens
+     */
+    public synchronized void refresh(DatabaseTransaction t, TransactionTokenDao transactionTokenDao)
+            throws SQLException {
+        if (!loaded) {
+            clear();
+            transactionTokenDao.selectTokensAfter(t, highestTransactionId, this::add);
+            loaded = true;
+            logger.debug("Loaded token index with {} transactions and {} distinct tokens", size(), distinctTokenCount());
+            return;
+        }
+
+        final int before = documentCount;
+        transactionTokenDao.selectTokensAfter(t, highestTransactionId, this::add);
+        if (documentCount > before) {
+            logger.debug("Added {} transactions to token index", documentCount - before);
+        }
+    }
+
+    /**
+     * Discards the contents of the index. The next call to {@link #refresh(DatabaseTransaction, TransactionTokenDao)}
+     * will rebuild it from the database.
+     */
+    public synchronized void invalidate() {
+        logger.debug("Invalidating token index");
+        loaded = false;
+    }
+
+    /**
+     * Adds the tokens of a single transaction to the index, replacing any tokens that were previously indexed for it.
+     */
+    synchronized void add(TransactionTokenDao.TransactionTokens transactionTokens) {
+        add(transactionTokens.transactionId(), transactionTokens.categoryId(), transactionTokens.tokens());
+    }
+
+    /**
+     * Adds the tokens of a single transaction to the index, replacing any tokens that were previously indexed for it.
+     *
+     * @param transactionId the id of the CategorizedTransaction that the tokens belong to
+     * @param categoryId the id of the transaction's Category
+     * @param tokens the distinct normalized tokens of the transaction
+     */
+    synchronized void add(long transactionId, long categoryId, Collection<String> tokens) {
+        final Integer previous = documentsByTransactionId.get(transactionId);
+        if (previous != null) {
+            removedDocuments.set(previous);
+        }
+
+        ensureCapacity(documentCount + 1);
+        final int document = documentCount++;
+        transactionIds[document] = transactionId;
+        categoryIds[document] = categoryId;
+        tokenCounts[document] = tokens.size();
+        documentsByTransactionId.put(transactionId, document);
+
+        for (String token : tokens) {
+            postingsByToken.computeIfAbsent(token, k -> new Postings()).add(document);
+        }
+        highestTransactionId = Math.max(highestTransactionId, transactionId);
+    }
+
+    /**
+     * Finds all indexed transactions that share at least one token with searchTokens. Transactions in the UNKNOWN
+     * category are excluded, matching the behaviour of
+     * {@link TransactionTokenDao#findBestMatchingCategories(DatabaseTransaction, Set, double, int)}.
+     *
+     * @param searchTokens the distinct tokens to search for
+     * @return one result per matching transaction, containing its matching and total token counts
+     */
+    public synchronized List<TransactionTokenDao.TokenMatchResult> findTransactionsWithMatchingTokens(
+            Set<String> searchTokens) {
+        int touched = 0;
+        for (String token : searchTokens) {
+            final Postings postings = postingsByToken.get(token);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                final int document = postings.documents[i];
+                if (matchCounts[document]++ == 0) {
+                    touchedDocuments[touched++] = document;
+                }
+            }
+        }
+
+        final List<TransactionTokenDao.TokenMatchResult> results = new ArrayList<>(touched);
+        for (int i = 0; i < touched; i++) {
+            final int document = touchedDocuments[i];
+            final int matching = matchCounts[document];
+            matchCounts[document] = 0;
+
+            if (removedDocuments.get(document) || categoryIds[document] == Category.UNKNOWN.getId()) {
+                continue;
+            }
+            results.add(new TransactionTokenDao.TokenMatchResult(
+                    transactionIds[document], categoryIds[document], matching, tokenCounts[document]));
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of transactions currently held in the index
+     */
+    public synchronized int size() {
+        return documentCount - removedDocuments.cardinality();
+    }
+
+    private int distinctTokenCount() {
+        return postingsByToken.size();
+    }
+
+    private void clear() {
+        postingsByToken.clear();
+        documentsByTransactionId.clear();
+        removedDocuments.clear();
+        transactionIds = new long[INITIAL_CAPACITY];
+        categoryIds = new long[INITIAL_CAPACITY];
+        tokenCounts = new int[INITIAL_CAPACITY];
+        matchCounts = new int[INITIAL_CAPACITY];
+        touchedDocuments = new int[INITIAL_CAPACITY];
+        documentCount = 0;
+        highestTransactionId = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= transactionIds.length) {
+            return;
+        }
+        final int newCapacity = Math.max(capacity, transactionIds.length * 2);
+        transactionIds = Arrays.copyOf(transactionIds, newCapacity);
+        categoryIds = Arrays.copyOf(categoryIds, newCapacity);
+        tokenCounts = Arrays.copyOf(tokenCounts, newCapacity);
+        matchCounts = Arrays.copyOf(matchCounts, newCapacity);
+        touchedDocuments = Arrays.copyOf(touchedDocuments, newCapacity);
+    }
+
+    /**
+     * A growable posting list of document numbers, stored as a primitive array to avoid boxing.
+     */
+    private static final class Postings {
+        private int[] documents = new int[4];
+        private int size = 0;
+
+        void add(int document) {
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+            }
+            documents[size++] = document;
+        }
+    }
+}
@@ -9,16 +9,18 @@ public class TokenMatchingConfig {
     private static final double DEFAULT_OVERLAP_THRESHOLD = 0.8;
 
     private final double overlapThreshold;
+    private final boolean tokenIndexEnabled;
 
-    private TokenMatchingConfig(double overlapThreshold) {
+    private TokenMatchingConfig(double overlapThreshold, boolean tokenIndexEnabled) {
         this.overlapThreshold = overlapThreshold;
+        this.tokenIndexEnabled = tokenIndexEnabled;
     }
 
     /**
-     * Returns the default configuration with 80% overlap threshold.
+     * Returns the default configuration with 80% overlap threshold and the in-memory token index enabled.
      */
     public static TokenMatchingConfig defaults() {
-        return new TokenMatchingConfig(DEFAULT_OVERLAP_THRESHOLD);
+        return new TokenMatchingConfig(DEFAULT_OVERLAP_THRESHOLD, true);
     }
 
     /**
@@ -37,16 +39,30 @@ public class TokenMatchingConfig {
         return overlapThreshold;
     }
 
+    /**
+     * Returns true if matches should be found using the in-memory {@link TokenIndex}, or false if they should be
+     * scored and ranked by the database.
+     */
+    public boolean isTokenIndexEnabled() {
+        return tokenIndexEnabled;
+    }
+
     public static class Builder {
         private double overlapThreshold = DEFAULT_OVERLAP_THRESHOLD;
+        private boolean tokenIndexEnabled = true;
 
         public Builder overlapThreshold(double overlapThreshold) {
             this.overlapThreshold = overlapThreshold;
             return this;
         }
 
+        public Builder tokenIndexEnabled(boolean tokenIndexEnabled) {
+            this.tokenIndexEnabled = tokenIndexEnabled;
+            return this;
+        }
+
         public TokenMatchingConfig build() {
-            return new TokenMatchingConfig(overlapThreshold);
+            return new TokenMatchingConfig(overlapThreshold, tokenIndexEnabled);
         }
     }
 }
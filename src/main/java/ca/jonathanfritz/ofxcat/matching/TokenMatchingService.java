@@ -7,6 +7,7 @@ import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
 import jakarta.inject.Inject;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -19,7 +20,8 @@ import org.apache.logging.log4j.Logger;
 
 /**
  * Service for finding matching categories based on normalized tokens.
- * Uses SQL-based token lookup for efficient matching.
+ * Lookups are answered from an in-memory {@link TokenIndex} that is kept in sync with the TransactionToken table, or
+ * when the index is disabled in {@link TokenMatchingConfig}, by a query that scores and ranks matches in the database.
  */
 public class TokenMatchingService {
 
@@ -28,6 +30,7 @@ public class TokenMatchingService {
     private final CategoryDao categoryDao;
     private final TokenNormalizer tokenNormalizer;
     private final TokenMatchingConfig config;
+    private final TokenIndex tokenIndex;
 
     private static final Logger logger = LogManager.getLogger(TokenMatchingService.class);
 
@@ -37,12 +40,14 @@ public class TokenMatchingService {
             TransactionTokenDao transactionTokenDao,
             CategoryDao categoryDao,
             TokenNormalizer tokenNormalizer,
-            TokenMatchingConfig config) {
+            TokenMatchingConfig config,
+            TokenIndex tokenIndex) {
         this.connection = connection;
         this.transactionTokenDao = transactionTokenDao;
         this.categoryDao = categoryDao;
         this.tokenNormalizer = tokenNormalizer;
         this.config = config;
+        this.tokenIndex = tokenIndex;
     }
 
     /**
@@ -53,8 +58,35 @@ public class TokenMatchingService {
      * @return list of matching categories ranked by overlap ratio
      */
     public List<CategoryMatch> findMatchingCategoriesForDescription(String description) {
+        return findMatchingCategoriesForDescription(description, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the best categories that match the given description string.
+     * The description is normalized to tokens before matching.
+     *
+     * @param description the transaction description to match
+     * @param limit the maximum number of categories to return
+     * @return up to limit matching categories ranked by overlap ratio
+     */
+    public List<CategoryMatch> findMatchingCategoriesForDescription(String description, int limit) {
+        Set<String> tokens = tokenNormalizer.normalize(description);
+        return findMatchingCategories(tokens, limit);
+    }
+
+    /**
+     * Finds the best categories that match the given description string, as part of an existing database transaction.
+     * The description is normalized to tokens before matching.
+     *
+     * @param t the database transaction to participate in
+     * @param description the transaction description to match
+     * @param limit the maximum number of categories to return
+     * @return up to limit matching categories ranked by overlap ratio
+     */
+    public List<CategoryMatch> findMatchingCategoriesForDescription(
+            DatabaseTransaction t, String description, int limit) {
         Set<String> tokens = tokenNormalizer.normalize(description);
-        return findMatchingCategories(tokens);
+        return findMatchingCategories(t, tokens, limit);
     }
 
     /**
@@ -64,6 +96,36 @@ public class TokenMatchingService {
      * @return list of matching categories ranked by overlap ratio, aggregated by category
      */
     public List<CategoryMatch> findMatchingCategories(Set<String> searchTokens) {
+        return findMatchingCategories(searchTokens, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the best categories that match the given set of tokens.
+     *
+     * @param searchTokens the tokens to match against stored transactions
+     * @param limit the maximum number of categories to return
+     * @return up to limit matching categories ranked by overlap ratio, aggregated by category
+     */
+    public List<CategoryMatch> findMatchingCategories(Set<String> searchTokens, int limit) {
+        if (searchTokens == null || searchTokens.isEmpty()) {
+            logger.debug("No tokens to search for, returning empty list");
+            return Collections.emptyList();
+        }
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            return findMatchingCategories(t, searchTokens, limit);
+        }
+    }
+
+    /**
+     * Finds the best categories that match the given set of tokens, as part of an existing database transaction.
+     *
+     * @param t the database transaction to participate in
+     * @param searchTokens the tokens to match against stored transactions
+     * @param limit the maximum number of categories to return
+     * @return up to limit matching categories ranked by overlap ratio, aggregated by category
+     */
+    public List<CategoryMatch> findMatchingCategories(DatabaseTransaction t, Set<String> searchTokens, int limit) {
         if (searchTokens == null || searchTokens.isEmpty()) {
             logger.debug("No tokens to search for, returning empty list");
             return Collections.emptyList();
@@ -71,49 +133,27 @@ public class TokenMatchingService {
 
         logger.debug("Finding matching categories for tokens: {}", searchTokens);
 
-        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            // Step 1: Find all transactions with matching tokens
-            List<TransactionTokenDao.TokenMatchResult> matchResults =
-                    transactionTokenDao.findTransactionsWithMatchingTokens(t, searchTokens);
+        try {
+            // Step 1: Find the best overlap ratio of each matching category, either from the in-memory index or by
+            // letting the database do the scoring
+            final List<TransactionTokenDao.CategoryMatchResult> matchResults = config.isTokenIndexEnabled()
+                    ? findBestMatchingCategoriesInIndex(t, searchTokens, limit)
+                    : transactionTokenDao.findBestMatchingCategories(
+                            t, searchTokens, config.getOverlapThreshold(), limit);
 
             if (matchResults.isEmpty()) {
                 logger.debug("No matching transactions found");
                 return Collections.emptyList();
             }
 
-            // Step 2: Calculate overlap ratio and aggregate by category in a single pass.
-            // Only fetch each Category once, keeping the best overlap ratio for each.
-            Map<Long, CategoryMatch> aggregated = new HashMap<>();
-            for (TransactionTokenDao.TokenMatchResult result : matchResults) {
-                double overlapRatio = calculateOverlapRatio(
-                        result.matchingTokenCount(), searchTokens.size(), result.totalTokenCount());
-
-                if (overlapRatio < config.getOverlapThreshold()) {
-                    continue;
-                }
-
-                long categoryId = result.categoryId();
-                CategoryMatch existing = aggregated.get(categoryId);
-
-                if (existing != null) {
-                    // Already have this category - update only if new overlap ratio is better
-                    if (overlapRatio > existing.overlapRatio()) {
-                        aggregated.put(categoryId, new CategoryMatch(existing.category(), overlapRatio));
-                    }
-                } else {
-                    // First time seeing this category - fetch it from DB
-                    categoryDao
-                            .select(categoryId)
-                            .ifPresent(
-                                    category -> aggregated.put(categoryId, new CategoryMatch(category, overlapRatio)));
-                }
+            // Step 2: Fetch each of the matched categories from the DB
+            final List<CategoryMatch> matches = new ArrayList<>(matchResults.size());
+            for (TransactionTokenDao.CategoryMatchResult result : matchResults) {
+                categoryDao
+                        .select(t, result.categoryId())
+                        .ifPresent(category -> matches.add(new CategoryMatch(category, result.overlapRatio())));
             }
-
-            // Step 3: Sort by overlap ratio descending
-            return aggregated.values().stream()
-                    .sorted(Comparator.comparingDouble(CategoryMatch::overlapRatio)
-                            .reversed())
-                    .collect(Collectors.toList());
+            return matches;
 
         } catch (SQLException e) {
             logger.error("Failed to find matching categories", e);
@@ -121,6 +161,39 @@ public class TokenMatchingService {
         }
     }
 
+    /**
+     * Scores the transactions in the {@link TokenIndex} that match searchTokens, keeping the best overlap ratio of
+     * each category.
+     */
+    private List<TransactionTokenDao.CategoryMatchResult> findBestMatchingCategoriesInIndex(
+            DatabaseTransaction t, Set<String> searchTokens, int limit) throws SQLException {
+        // pick up any tokens stored since the last lookup
+        tokenIndex.refresh(t, transactionTokenDao);
+        final List<TransactionTokenDao.TokenMatchResult> matchResults =
+                tokenIndex.findTransactionsWithMatchingTokens(searchTokens);
+
+        // calculate overlap ratio and aggregate by category in a single pass
+        final Map<Long, Double> bestOverlapRatios = new HashMap<>();
+        for (TransactionTokenDao.TokenMatchResult result : matchResults) {
+            double overlapRatio =
+                    calculateOverlapRatio(result.matchingTokenCount(), searchTokens.size(), result.totalTokenCount());
+
+            if (overlapRatio < config.getOverlapThreshold()) {
+                continue;
+            }
+            bestOverlapRatios.merge(result.categoryId(), overlapRatio, Math::max);
+        }
+
+        // sort by overlap ratio descending
+        return bestOverlapRatios.entrySet().stream()
+                .map(entry -> new TransactionTokenDao.CategoryMatchResult(entry.getKey(), entry.getValue()))
+                .sorted(Comparator.comparingDouble(TransactionTokenDao.CategoryMatchResult::overlapRatio)
+                        .reversed()
+                        .thenComparingLong(TransactionTokenDao.CategoryMatchResult::categoryId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Calculates the overlap ratio between search tokens and stored tokens.
      * The ratio is computed as: matchingTokens / min(searchTokens, storedTokens)
@@ -1,12 +1,29 @@
 package ca.jonathanfritz.ofxcat.matching;
 
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 
 /**
  * Converts transaction descriptions into normalized token sets for matching.
+ *
+ * <p>Normalization decodes XML entities, lowercases the description, merges single-letter initials around ampersands
+ * ("A & W" becomes "aw"), drops joiner punctuation ("WAL-MART" becomes "walmart") and splits on everything else that
+ * isn't a lowercase ASCII letter or a digit. This is done with a hand-written scanner over a reusable buffer rather
+ * than with regular expressions, because it runs for every transaction that is imported or migrated.</p>
  */
 public class TokenNormalizer {
 
+    private static final int INITIAL_BUFFER_SIZE = 128;
+
+    // XML entities that OFX files use to encode special characters, other than &amp; which is handled separately
+    private static final String[] ENTITY_NAMES = {"lt;", "gt;", "quot;", "apos;"};
+    private static final char[] ENTITY_CHARS = {'<', '>', '"', '\''};
+    private static final String AMPERSAND_ENTITY_NAME = "amp;";
+
+    // scratch space that descriptions are decoded into and tokenized in place
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[INITIAL_BUFFER_SIZE]);
+
     private final NormalizationConfig config;
 
     /**
@@ -36,52 +53,230 @@ public class TokenNormalizer {
             return Set.of();
         }
 
-        // Decode XML entities first (OFX files encode special characters)
-        String decoded = decodeXmlEntities(description);
+        // Fast path: decode XML entities and lowercase ASCII descriptions in a single pass
+        char[] buffer = buffer(description.length());
+        int length = decodeAndLowercaseAscii(description, buffer);
 
-        // Lowercase
-        String lowercased = decoded.toLowerCase();
+        if (length < 0) {
+            // Slow path: non-ASCII characters, or a default locale that lowercases ASCII letters unusually, must be
+            // lowercased by String.toLowerCase() to produce the same tokens as for any other description
+            final String lowercased = decodeXmlEntities(description).toLowerCase();
+            length = lowercased.length();
+            buffer = buffer(length);
+            lowercased.getChars(0, length, buffer, 0);
+        }
 
-        // Step 1: Merge single-letter initials around ampersands
-        // e.g., "A & W" -> "aw", "H&M" -> "hm", "B & J Photo" -> "bj photo"
-        // This preserves context for business names based on owner initials
-        String initialsmerged = lowercased.replaceAll("([a-z])\\s*&\\s*([a-z])", "$1$2");
+        return tokenize(buffer, length);
+    }
 
-        // Step 2: Remove remaining "joiner" punctuation that should merge adjacent words
-        // e.g., MCDONALD'S -> mcdonalds, WAL-MART -> walmart
-        String merged = initialsmerged.replaceAll("[-'&]", "");
+    /**
+     * Splits the first length characters of the lowercased buffer into tokens, compacting each token into the start of
+     * the buffer as it is read:
+     * <ul>
+     *     <li>Single-letter initials around ampersands are merged, e.g. "a & w" -> "aw", "h&m" -> "hm". Matches don't
+     *     overlap, so in "a & b & c" only "a & b" is merged</li>
+     *     <li>Joiner punctuation is dropped without ending the token, e.g. mcdonald's -> mcdonalds, wal-mart -> walmart
+     *     </li>
+     *     <li>Any other character that isn't a lowercase ASCII letter or a digit ends the token, e.g.
+     *     amazon.ca*t23yp3f33 -> [amazon, ca, t23yp3f33]</li>
+     * </ul>
+     */
+    private Set<String> tokenize(char[] buffer, int length) {
+        final Set<String> tokens = new HashSet<>();
+        int tokenLength = 0;
+        int i = 0;
+        while (i < length) {
+            final char c = buffer[i];
+            if (isLetter(c)) {
+                buffer[tokenLength++] = c;
+                final int mergedInitial = findMergedInitial(buffer, length, i);
+                if (mergedInitial >= 0) {
+                    buffer[tokenLength++] = buffer[mergedInitial];
+                    i = mergedInitial + 1;
+                } else {
+                    i++;
+                }
+            } else if (isDigit(c)) {
+                buffer[tokenLength++] = c;
+                i++;
+            } else if (isJoiner(c)) {
+                i++;
+            } else {
+                addToken(tokens, buffer, tokenLength);
+                tokenLength = 0;
+                i++;
+            }
+        }
+        addToken(tokens, buffer, tokenLength);
+        return tokens;
+    }
 
-        // Step 3: Split on remaining non-alphanumeric characters (delimiters)
-        // e.g., Amazon.ca*T23YP3F33 -> [amazon, ca, t23yp3f33]
-        String[] parts = merged.split("[^a-z0-9]+");
+    /**
+     * If the letter at index start is followed by optional whitespace, an ampersand, optional whitespace and another
+     * letter, returns the index of that second letter. Otherwise, returns -1.
+     */
+    private static int findMergedInitial(char[] buffer, int length, int start) {
+        int i = start + 1;
+        while (i < length && isWhitespace(buffer[i])) {
+            i++;
+        }
+        if (i >= length || buffer[i] != '&') {
+            return -1;
+        }
+        i++;
+        while (i < length && isWhitespace(buffer[i])) {
+            i++;
+        }
+        return i < length && isLetter(buffer[i]) ? i : -1;
+    }
 
-        // Apply filters to each token
-        Set<String> tokens = new java.util.HashSet<>();
-        for (String part : parts) {
-            if (isValidToken(part)) {
-                tokens.add(part);
+    /**
+     * Adds the token held in the first tokenLength characters of the buffer to tokens if it passes all filters
+     */
+    private void addToken(Set<String> tokens, char[] buffer, int tokenLength) {
+        if (tokenLength == 0 || tokenLength < config.getMinTokenLength() || isNumeric(buffer, tokenLength)) {
+            return;
+        }
+        final String token = new String(buffer, 0, tokenLength);
+        if (!config.getStopWords().contains(token)) {
+            tokens.add(token);
+        }
+    }
+
+    private static boolean isNumeric(char[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!isDigit(buffer[i])) {
+                return false;
             }
         }
+        return true;
+    }
 
-        return tokens;
+    /**
+     * Decodes XML entities in the ASCII input and lowercases it into the output buffer, which must be at least as long
+     * as the input.
+     * @return the number of characters written to output, or -1 if the input can't be handled by this fast path
+     */
+    private static int decodeAndLowercaseAscii(String input, char[] output) {
+        if (hasUnusualAsciiLowercasing(Locale.getDefault())) {
+            return -1;
+        }
+
+        int length = 0;
+        int i = 0;
+        while (i < input.length()) {
+            final char c = input.charAt(i);
+            if (c >= 0x80) {
+                return -1;
+            } else if (c == '&') {
+                final int entityLength = entityLength(input, i);
+                output[length++] = entityLength > 1 ? entityChar(input, i) : '&';
+                i += entityLength;
+            } else {
+                output[length++] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                i++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the XML entities that OFX files use to encode special characters. Note that the ampersand in "&amp;amp;"
+     * is decoded before the other entities, so "&amp;lt;" decodes to "<", but "&amp;amp;" only decodes to "&amp;".
+     */
+    private static String decodeXmlEntities(String input) {
+        final StringBuilder decoded = new StringBuilder(input.length());
+        int i = 0;
+        while (i < input.length()) {
+            final char c = input.charAt(i);
+            if (c == '&') {
+                final int entityLength = entityLength(input, i);
+                decoded.append(entityLength > 1 ? entityChar(input, i) : '&');
+                i += entityLength;
+            } else {
+                decoded.append(c);
+                i++;
+            }
+        }
+        return decoded.toString();
     }
 
-    private boolean isValidToken(String token) {
-        return !token.isEmpty()
-                && token.length() >= config.getMinTokenLength()
-                && !isNumeric(token)
-                && !config.getStopWords().contains(token);
+    /**
+     * Returns the number of characters of the XML entity that starts with the ampersand at index start, or 1 if the
+     * ampersand does not start an entity.
+     */
+    private static int entityLength(String input, int start) {
+        if (input.startsWith(AMPERSAND_ENTITY_NAME, start + 1)) {
+            // the decoded ampersand may itself start one of the other entities
+            final int entity = findEntity(input, start + 1 + AMPERSAND_ENTITY_NAME.length());
+            return 1 + AMPERSAND_ENTITY_NAME.length() + (entity >= 0 ? ENTITY_NAMES[entity].length() : 0);
+        }
+        final int entity = findEntity(input, start + 1);
+        return entity >= 0 ? 1 + ENTITY_NAMES[entity].length() : 1;
     }
 
-    private boolean isNumeric(String str) {
-        return str.matches("\\d+");
+    /**
+     * Returns the character that the XML entity starting with the ampersand at index start decodes to. Must only be
+     * called if {@link #entityLength(String, int)} returned a value greater than 1.
+     */
+    private static char entityChar(String input, int start) {
+        int nameStart = start + 1;
+        if (input.startsWith(AMPERSAND_ENTITY_NAME, nameStart)) {
+            nameStart += AMPERSAND_ENTITY_NAME.length();
+        }
+        final int entity = findEntity(input, nameStart);
+        return entity >= 0 ? ENTITY_CHARS[entity] : '&';
+    }
+
+    /**
+     * Returns the index into {@link #ENTITY_NAMES} of the entity name that appears at offset of input, or -1
+     */
+    private static int findEntity(String input, int offset) {
+        for (int i = 0; i < ENTITY_NAMES.length; i++) {
+            if (input.startsWith(ENTITY_NAMES[i], offset)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
-    private String decodeXmlEntities(String input) {
-        return input.replace("&amp;", "&")
-                .replace("&lt;", "<")
-                .replace("&gt;", ">")
-                .replace("&quot;", "\"")
-                .replace("&apos;", "'");
+    /**
+     * Turkish and Azerbaijani lowercase the ASCII letter I to a dotless i, so ASCII descriptions can only be lowercased
+     * by the fast path in other locales.
+     */
+    private static boolean hasUnusualAsciiLowercasing(Locale locale) {
+        final String language = locale.getLanguage();
+        return "tr".equals(language) || "az".equals(language);
+    }
+
+    /**
+     * Returns a scratch buffer for the current thread that can hold at least size characters.
+     */
+    private static char[] buffer(int size) {
+        char[] buffer = BUFFERS.get();
+        if (buffer.length < size) {
+            buffer = new char[Math.max(size, buffer.length * 2)];
+            BUFFERS.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isJoiner(char c) {
+        return c == '-' || c == '\'' || c == '&';
+    }
+
+    /**
+     * Matches the same characters as \s in a Java regular expression
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 }
@@ -5,6 +5,7 @@ import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
 import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import ca.jonathanfritz.ofxcat.matching.TokenIndex;
 import jakarta.inject.Inject;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -25,13 +26,18 @@ public class CategoryCombineService {
     private final Connection connection;
     private final CategoryDao categoryDao;
     private final CategorizedTransactionDao categorizedTransactionDao;
+    private final TokenIndex tokenIndex;
 
     @Inject
     public CategoryCombineService(
-            Connection connection, CategoryDao categoryDao, CategorizedTransactionDao categorizedTransactionDao) {
+            Connection connection,
+            CategoryDao categoryDao,
+            CategorizedTransactionDao categorizedTransactionDao,
+            TokenIndex tokenIndex) {
         this.connection = connection;
         this.categoryDao = categoryDao;
         this.categorizedTransactionDao = categorizedTransactionDao;
+        this.tokenIndex = tokenIndex;
     }
 
     /**
@@ -82,14 +88,15 @@ public class CategoryCombineService {
             List<CategorizedTransaction> batch = transactions.subList(i, end);
 
             try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-                for (CategorizedTransaction txn : batch) {
-                    categorizedTransactionDao.updateCategory(t, txn.getId(), target);
-                    processed++;
-                    progressCallback.onProgress(processed, total);
-                }
+                categorizedTransactionDao.updateCategory(t, batch, target);
+                processed += batch.size();
+                progressCallback.onProgress(processed, total);
             } catch (SQLException ex) {
                 logger.error("Failed to move transactions at batch starting index {}", i, ex);
                 throw new RuntimeException("Failed to combine categories", ex);
+            } finally {
+                // the token index caches the category of every transaction, so it must be rebuilt
+                tokenIndex.invalidate();
             }
         }
 
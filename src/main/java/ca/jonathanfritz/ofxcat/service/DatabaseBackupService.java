@@ -0,0 +1,44 @@
+package ca.jonathanfritz.ofxcat.service;
+
+import jakarta.inject.Inject;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes a copy of the database through the application's own connection. In WAL mode, committed transactions can sit
+ * in the write-ahead log next to the database file until they are checkpointed, so copying the database file on its own
+ * could miss them. VACUUM INTO writes a consistent copy that includes every committed transaction.
+ */
+public class DatabaseBackupService {
+
+    private final Connection connection;
+
+    private static final Logger logger = LogManager.getLogger(DatabaseBackupService.class);
+
+    @Inject
+    public DatabaseBackupService(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Writes a copy of the database to the specified file
+     * @param backupPath the file to write the copy to, which must not exist yet
+     * @throws SQLException if the copy could not be written
+     */
+    public void backup(Path backupPath) throws SQLException {
+        logger.debug("Backing up database to {}", backupPath);
+
+        // VACUUM can't run inside a transaction, so commit the one that the connection may have open
+        if (!connection.getAutoCommit()) {
+            connection.setAutoCommit(true);
+        }
+        try (PreparedStatement statement = connection.prepareStatement("VACUUM INTO ?;")) {
+            statement.setString(1, backupPath.toString());
+            statement.execute();
+        }
+    }
+}
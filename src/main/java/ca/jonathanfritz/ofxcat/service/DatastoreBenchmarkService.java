@@ -0,0 +1,105 @@
+package ca.jonathanfritz.ofxcat.service;
+
+import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
+import ca.jonathanfritz.ofxcat.datastore.utils.Workload;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfiles;
+import jakarta.inject.Inject;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Times the queries behind transaction reports under the profile of each {@link Workload}, so that the datastore
+ * settings in config.yaml can be tuned against the user's own database. The queries only read, so no transactions are
+ * changed by a benchmark. Applying a profile can still change the database file itself, because its journal mode
+ * persists and {@code PRAGMA optimize} can store fresh query planner statistics.
+ */
+public class DatastoreBenchmarkService {
+
+    private static final Logger logger = LogManager.getLogger(DatastoreBenchmarkService.class);
+
+    private final CategorizedTransactionDao categorizedTransactionDao;
+    private final WorkloadProfiles workloadProfiles;
+
+    @Inject
+    public DatastoreBenchmarkService(
+            CategorizedTransactionDao categorizedTransactionDao, WorkloadProfiles workloadProfiles) {
+        this.categorizedTransactionDao = categorizedTransactionDao;
+        this.workloadProfiles = workloadProfiles;
+    }
+
+    /**
+     * The time that a query took under the profile of a workload.
+     *
+     * @param workload the workload whose profile the query ran under
+     * @param query a short description of the query
+     * @param medianMillis the median duration of the timed runs, in milliseconds
+     */
+    public record Result(Workload workload, String query, double medianMillis) {}
+
+    /**
+     * Runs every query once to warm up the page cache, and then the specified number of timed runs, under the
+     * profile of each workload in turn.
+     *
+     * @param runs the number of timed runs of each query. Must be at least 1
+     * @param progressCallback receives the number of queries that have been benchmarked so far
+     * @return the median duration of each query under each workload, ordered by workload
+     */
+    @SuppressWarnings("try") // the scope is only held open while the queries run
+    public List<Result> benchmark(int runs, ProgressCallback progressCallback) {
+        if (runs < 1) {
+            throw new IllegalArgumentException("runs must be at least 1");
+        }
+
+        final Map<String, Runnable> queries = createQueries();
+        final int total = Workload.values().length * queries.size();
+        final List<Result> results = new ArrayList<>();
+        for (Workload workload : Workload.values()) {
+            try (WorkloadProfiles.Scope scope = workloadProfiles.use(workload)) {
+                for (Map.Entry<String, Runnable> query : queries.entrySet()) {
+                    final double medianMillis = time(query.getValue(), runs);
+                    logger.debug("{} took {} ms under the {} profile", query.getKey(), medianMillis, workload);
+                    results.add(new Result(workload, query.getKey(), medianMillis));
+                    progressCallback.onProgress(results.size(), total);
+                }
+            }
+        }
+        return results;
+    }
+
+    private Map<String, Runnable> createQueries() {
+        // a five-year window is wider than most reports, so that the differences between profiles are visible
+        final LocalDate endDate = LocalDate.now();
+        final LocalDate startDate = endDate.minusYears(5);
+
+        final Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("read all transactions", () -> categorizedTransactionDao.forEach(transaction -> {}));
+        queries.put(
+                "monthly category totals",
+                () -> categorizedTransactionDao.selectMonthlySumGroupByCategory(startDate, endDate));
+        queries.put(
+                "transactions by category", () -> categorizedTransactionDao.selectGroupByCategory(startDate, endDate));
+        return queries;
+    }
+
+    private static double time(Runnable query, int runs) {
+        query.run();
+
+        final long[] durations = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            final long start = System.nanoTime();
+            query.run();
+            durations[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(durations);
+
+        final double medianNanos =
+                runs % 2 == 1 ? durations[runs / 2] : (durations[runs / 2 - 1] + durations[runs / 2]) / 2.0;
+        return medianNanos / 1_000_000.0;
+    }
+}
@@ -1,9 +1,9 @@
 package ca.jonathanfritz.ofxcat.service;
 
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
-import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
+import ca.jonathanfritz.ofxcat.datastore.GapDao;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
-import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
+import ca.jonathanfritz.ofxcat.datastore.dto.BalanceGap;
 import jakarta.inject.Inject;
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -12,7 +12,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -26,12 +25,12 @@ public class GapDetectionService {
     private static final Logger logger = LogManager.getLogger(GapDetectionService.class);
 
     private final AccountDao accountDao;
-    private final CategorizedTransactionDao categorizedTransactionDao;
+    private final GapDao gapDao;
 
     @Inject
-    public GapDetectionService(AccountDao accountDao, CategorizedTransactionDao categorizedTransactionDao) {
+    public GapDetectionService(AccountDao accountDao, GapDao gapDao) {
         this.accountDao = accountDao;
-        this.categorizedTransactionDao = categorizedTransactionDao;
+        this.gapDao = gapDao;
     }
 
     /**
@@ -53,43 +52,37 @@ public class GapDetectionService {
      * producing balance discrepancies that are import artifacts rather than genuine data gaps. Real
      * gaps always span at least one calendar day boundary.
      *
+     * <p>Gaps are detected as transactions are inserted and stored in the Gap table, so this reads
+     * the stored gaps rather than the account's full history.
+     *
      * @param account the account to check
      * @return list of gaps detected; empty if no gaps found or fewer than two transactions exist
      */
     public List<Gap> detectGaps(Account account) {
-        List<CategorizedTransaction> transactions = categorizedTransactionDao.selectByAccount(account);
         List<Gap> gaps = new ArrayList<>();
-
-        for (int i = 1; i < transactions.size(); i++) {
-            CategorizedTransaction prev = transactions.get(i - 1);
-            CategorizedTransaction curr = transactions.get(i);
-
-            // Same-day pairs are skipped: balance discrepancies between transactions on the same
-            // date are always import-ordering artifacts, not genuine gaps in the data.
-            if (prev.getDate().equals(curr.getDate())) {
-                continue;
-            }
-
-            long prevBalanceCents = Math.round(prev.getBalance() * 100);
-            long currAmountCents = Math.round(curr.getAmount() * 100);
-            long expectedCents = prevBalanceCents + currAmountCents;
-            long actualCents = Math.round(curr.getBalance() * 100);
-
-            if (expectedCents != actualCents) {
-                float missingAmount = (actualCents - expectedCents) / 100f;
-                gaps.add(new Gap(account, prev.getDate(), curr.getDate(), missingAmount));
-                logger.debug(
-                        "Gap detected for account {} between {} and {}: missing amount {}",
-                        account.getName(),
-                        prev.getDate(),
-                        curr.getDate(),
-                        missingAmount);
-            }
+        for (BalanceGap balanceGap : gapDao.select(account)) {
+            float missingAmount = balanceGap.missingCents() / 100f;
+            gaps.add(new Gap(account, balanceGap.lastGoodDate(), balanceGap.firstDateAfterGap(), missingAmount));
+            logger.debug(
+                    "Gap detected for account {} between {} and {}: missing amount {}",
+                    account.getName(),
+                    balanceGap.lastGoodDate(),
+                    balanceGap.firstDateAfterGap(),
+                    missingAmount);
         }
-
         return gaps;
     }
 
+    /**
+     * Discards the stored gaps and detects them all again from the transaction record. The gaps are
+     * kept up to date as transactions are imported, so this is only needed for repair.
+     *
+     * @return true if the gaps were rebuilt, false otherwise
+     */
+    public boolean rebuildGaps() {
+        return gapDao.rebuild();
+    }
+
     /**
      * Detects gaps across all accounts.
      *
@@ -125,10 +118,29 @@ public class GapDetectionService {
      * @return list of accounts with fewer than two transactions
      */
     public List<Account> indeterminateAccounts() {
-        return accountDao.select().stream()
-                .filter(account ->
-                        categorizedTransactionDao.selectByAccount(account).size() < 2)
-                .collect(Collectors.toList());
+        return accountDao.selectWithFewerTransactionsThan(2);
+    }
+
+    /**
+     * The gaps that affect each month of a report.
+     *
+     * @param gapAmountsByMonth map from month-start date to net missing amount for that month
+     * @param fullyMissingMonths set of month-start dates where the entire month is within a gap
+     */
+    public record MonthlyGaps(Map<LocalDate, Float> gapAmountsByMonth, Set<LocalDate> fullyMissingMonths) {}
+
+    /**
+     * Detects gaps across all accounts once, and summarizes them by month for the months in
+     * [{@code start}, {@code end}]. Equivalent to calling {@link #gapAmountsByMonth(LocalDate, LocalDate)}
+     * and {@link #fullyMissingMonths(LocalDate, LocalDate)}, but without scanning the transaction record twice.
+     *
+     * @param start the beginning of the date range (any day of the starting month)
+     * @param end the end of the date range (any day of the ending month)
+     * @return the gap amounts and fully missing months in the date range
+     */
+    public MonthlyGaps monthlyGaps(LocalDate start, LocalDate end) {
+        List<Gap> gaps = detectGaps();
+        return new MonthlyGaps(gapAmountsByMonth(gaps, start, end), fullyMissingMonths(gaps, start, end));
     }
 
     /**
@@ -140,7 +152,10 @@ public class GapDetectionService {
      * @return map from month-start date to net missing amount for that month
      */
     public Map<LocalDate, Float> gapAmountsByMonth(LocalDate start, LocalDate end) {
-        List<Gap> gaps = detectGaps();
+        return gapAmountsByMonth(detectGaps(), start, end);
+    }
+
+    private Map<LocalDate, Float> gapAmountsByMonth(List<Gap> gaps, LocalDate start, LocalDate end) {
         Map<LocalDate, Float> result = new HashMap<>();
 
         LocalDate startMonth = start.withDayOfMonth(1);
@@ -165,27 +180,31 @@ public class GapDetectionService {
      * @return set of month-start dates where the entire month is within a gap
      */
     public Set<LocalDate> fullyMissingMonths(LocalDate start, LocalDate end) {
-        List<Gap> gaps = detectGaps();
+        return fullyMissingMonths(detectGaps(), start, end);
+    }
+
+    private Set<LocalDate> fullyMissingMonths(List<Gap> gaps, LocalDate start, LocalDate end) {
         Set<LocalDate> result = new HashSet<>();
 
-        LocalDate month = start.withDayOfMonth(1);
+        LocalDate startMonth = start.withDayOfMonth(1);
         LocalDate endMonth = end.withDayOfMonth(1);
 
-        while (!month.isAfter(endMonth)) {
-            final LocalDate monthStart = month;
-            final LocalDate nextMonth = month.plusMonths(1);
-
-            for (Gap gap : gaps) {
-                // The month is fully within the gap if the last good transaction was before this
-                // month AND the first post-gap transaction is in the next month or later.
-                if (gap.lastGoodDate().isBefore(monthStart)
-                        && !gap.firstDateAfterGap().isBefore(nextMonth)) {
-                    result.add(monthStart);
-                    break;
-                }
+        for (Gap gap : gaps) {
+            // A month is fully within the gap if the last good transaction was before the month
+            // AND the first post-gap transaction is in the next month or later, so each gap covers
+            // the months strictly between the months of its two transactions.
+            LocalDate firstMissingMonth = gap.lastGoodDate().withDayOfMonth(1).plusMonths(1);
+            LocalDate lastMissingMonth = gap.firstDateAfterGap().withDayOfMonth(1).minusMonths(1);
+            if (firstMissingMonth.isBefore(startMonth)) {
+                firstMissingMonth = startMonth;
+            }
+            if (lastMissingMonth.isAfter(endMonth)) {
+                lastMissingMonth = endMonth;
             }
 
-            month = nextMonth;
+            for (LocalDate month = firstMissingMonth; !month.isAfter(lastMissingMonth); month = month.plusMonths(1)) {
+                result.add(month);
+            }
         }
 
         return result;
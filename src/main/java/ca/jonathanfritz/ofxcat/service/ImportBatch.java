@@ -0,0 +1,116 @@
+package ca.jonathanfritz.ofxcat.service;
+
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import ca.jonathanfritz.ofxcat.exception.OfxCatException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the rows of an import to the database in batches, so that SQLite commits (and syncs to disk) once per batch
+ * instead of once per row. Each row is written inside its own savepoint, so a row that fails to import is rolled back
+ * on its own without discarding the rows that were written before it.
+ */
+class ImportBatch implements AutoCloseable {
+
+    private final DatabaseTransaction t;
+    private final int batchSize;
+    private int uncommittedRowCount = 0;
+    private int commitCount = 0;
+
+    private static final Logger logger = LogManager.getLogger(ImportBatch.class);
+
+    /**
+     * @param connection the database connection to write to
+     * @param batchSize the number of rows to write in each commit. If zero or less, rows are only committed when
+     *                  {@link #commit()} is called
+     */
+    ImportBatch(Connection connection, int batchSize) {
+        this.t = new DatabaseTransaction(connection);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Writes a single row inside a savepoint, committing the batch if it is full. If rowWriter throws, the changes
+     * that it made are rolled back and the failure is logged. Unexpected runtime failures are rethrown after the
+     * changes are rolled back.
+     * @param row the row being written, used to identify it in log messages
+     * @param rowWriter writes the row to the database
+     * @param <T> the type of result returned by rowWriter
+     * @return the result of rowWriter, or {@link Optional#empty()} if the row could not be written
+     * @throws SQLException if the batch is full and could not be committed
+     */
+    <T> Optional<T> write(Object row, RowWriter<T> rowWriter) throws SQLException {
+        try {
+            t.setSavepoint();
+        } catch (SQLException e) {
+            logger.error("Failed to set savepoint for {}", row, e);
+            return Optional.empty();
+        }
+
+        Optional<T> result;
+        try {
+            result = rowWriter.write(t);
+            t.releaseSavepoint();
+        } catch (SQLException | OfxCatException e) {
+            logger.error("Failed to import {}", row, e);
+            rollbackToSavepoint(row);
+            result = Optional.empty();
+        } catch (RuntimeException e) {
+            // an unexpected failure aborts the import, but the partially written row must not be committed with it
+            rollbackToSavepoint(row);
+            throw e;
+        }
+
+        uncommittedRowCount++;
+        if (batchSize > 0 && uncommittedRowCount >= batchSize) {
+            commit();
+        }
+        return result;
+    }
+
+    /**
+     * Commits all rows that have been written since the last commit
+     * @throws SQLException if the rows could not be committed
+     */
+    void commit() throws SQLException {
+        if (uncommittedRowCount == 0) {
+            return;
+        }
+        t.commit();
+        commitCount++;
+        logger.debug("Committed batch of {} rows", uncommittedRowCount);
+        uncommittedRowCount = 0;
+    }
+
+    /**
+     * @return the number of times that this batch has been committed
+     */
+    int getCommitCount() {
+        return commitCount;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        commit();
+    }
+
+    private void rollbackToSavepoint(Object row) {
+        try {
+            t.rollbackToSavepoint();
+        } catch (SQLException e) {
+            logger.error("Failed to roll back changes for {}", row, e);
+        }
+    }
+
+    /**
+     * Writes a single row to the database as part of a batch
+     * @param <T> the type of result returned
+     */
+    @FunctionalInterface
+    interface RowWriter<T> {
+        Optional<T> write(DatabaseTransaction t) throws SQLException, OfxCatException;
+    }
+}
@@ -3,4 +3,17 @@ package ca.jonathanfritz.ofxcat.service;
 import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import java.util.List;
 
-public record ImportResult(List<CategorizedTransaction> transactions, int duplicateCount) {}
+/**
+ * The outcome of importing a batch of OFX exports
+ * @param transactions the transactions that were inserted
+ * @param duplicateCount the number of transactions that were skipped because they had already been imported
+ * @param discontinuities gaps between the opening balance of an export and the balance that was already stored for its
+ *      account before the export's first transaction
+ */
+public record ImportResult(
+        List<CategorizedTransaction> transactions, int duplicateCount, List<GapDetectionService.Gap> discontinuities) {
+
+    public ImportResult(List<CategorizedTransaction> transactions, int duplicateCount) {
+        this(transactions, duplicateCount, List.of());
+    }
+}
@@ -7,7 +7,6 @@ import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
-import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
 import com.google.common.collect.Streams;
 import jakarta.inject.Inject;
 import java.io.IOException;
@@ -18,7 +17,6 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,9 +57,11 @@ public class ReportingService {
         final LocalDate effectiveEndDate = validateAndResolveEndDate(startDate, endDate);
         final MonthlyReportData data = collectMonthlyReportData(startDate, effectiveEndDate);
 
-        // compute gap data for the GAP column
-        final Map<LocalDate, Float> gapAmounts = gapDetectionService.gapAmountsByMonth(startDate, effectiveEndDate);
-        final Set<LocalDate> fullyMissingMonths = gapDetectionService.fullyMissingMonths(startDate, effectiveEndDate);
+        // compute gap data for the GAP column from a single scan of the transaction record
+        final GapDetectionService.MonthlyGaps monthlyGaps =
+                gapDetectionService.monthlyGaps(startDate, effectiveEndDate);
+        final Map<LocalDate, Float> gapAmounts = monthlyGaps.gapAmountsByMonth();
+        final Set<LocalDate> fullyMissingMonths = monthlyGaps.fullyMissingMonths();
         final Stats gapStats = computeStats(data.dateSpend.keySet().stream()
                 .map(key -> gapAmounts.getOrDefault(key.withDayOfMonth(1), 0f))
                 .collect(Collectors.toList()));
@@ -112,12 +112,12 @@ public class ReportingService {
         }
 
         // trailing average rows are only emitted when the report spans at least as many months as the window size
-        if (data.months.size() >= 3) {
+        if (data.dateSpend.size() >= 3) {
             lines.add(generateStatsString("t3m", stats -> stats.trailing3m, data.sortedCategories, data.categoryStats)
                     + CSV_DELIMITER
                     + CURRENCY_FORMATTER.format(gapStats.trailing3m()));
         }
-        if (data.months.size() >= 6) {
+        if (data.dateSpend.size() >= 6) {
             lines.add(generateStatsString("t6m", stats -> stats.trailing6m, data.sortedCategories, data.categoryStats)
                     + CSV_DELIMITER
                     + CURRENCY_FORMATTER.format(gapStats.trailing6m()));
@@ -155,9 +155,11 @@ public class ReportingService {
         final LocalDate effectiveEndDate = validateAndResolveEndDate(startDate, endDate);
         final MonthlyReportData data = collectMonthlyReportData(startDate, effectiveEndDate);
 
-        // compute gap data for the GAP column
-        final Map<LocalDate, Float> gapAmounts = gapDetectionService.gapAmountsByMonth(startDate, effectiveEndDate);
-        final Set<LocalDate> fullyMissingMonths = gapDetectionService.fullyMissingMonths(startDate, effectiveEndDate);
+        // compute gap data for the GAP column from a single scan of the transaction record
+        final GapDetectionService.MonthlyGaps monthlyGaps =
+                gapDetectionService.monthlyGaps(startDate, effectiveEndDate);
+        final Map<LocalDate, Float> gapAmounts = monthlyGaps.gapAmountsByMonth();
+        final Set<LocalDate> fullyMissingMonths = monthlyGaps.fullyMissingMonths();
         final Stats gapStats = computeStats(data.dateSpend.keySet().stream()
                 .map(key -> gapAmounts.getOrDefault(key.withDayOfMonth(1), 0f))
                 .collect(Collectors.toList()));
@@ -216,13 +218,13 @@ public class ReportingService {
             }
 
             // trailing average rows are only emitted when the report spans at least as many months as the window size
-            if (data.months.size() >= 3) {
+            if (data.dateSpend.size() >= 3) {
                 writeXlsxStatsRow(ws, row, "t3m", stats -> stats.trailing3m, data);
                 ws.value(row, gapCol, gapStats.trailing3m());
                 ws.style(row, gapCol).format(XLSX_CURRENCY_FORMAT).set();
                 row++;
             }
-            if (data.months.size() >= 6) {
+            if (data.dateSpend.size() >= 6) {
                 writeXlsxStatsRow(ws, row, "t6m", stats -> stats.trailing6m, data);
                 ws.value(row, gapCol, gapStats.trailing6m());
                 ws.style(row, gapCol).format(XLSX_CURRENCY_FORMAT).set();
@@ -293,42 +295,11 @@ public class ReportingService {
     }
 
     private MonthlyReportData collectMonthlyReportData(final LocalDate startDate, final LocalDate effectiveEndDate) {
-        // each list entry represents the start and end of a month within the specified date range;
-        // clamp the first range's start to startDate and each range's end to effectiveEndDate so that
-        // DAO queries never exceed the user-supplied inclusive date range
-        LocalDate startMonth = startDate.withDayOfMonth(1);
-        final List<LocalDateRange> months = new ArrayList<>();
-        do {
-            final LocalDate rangeStart = startMonth.isBefore(startDate) ? startDate : startMonth;
-            final LocalDate endOfMonth = startMonth.withDayOfMonth(startMonth.lengthOfMonth());
-            final LocalDate rangeEnd = endOfMonth.isAfter(effectiveEndDate) ? effectiveEndDate : endOfMonth;
-            months.add(new LocalDateRange(rangeStart, rangeEnd));
-            startMonth = startMonth.plusMonths(1);
-        } while (!startMonth.isAfter(effectiveEndDate));
-
-        // get amount spent in each category for every 1 month long bucket, preserving chronological order
-        final Map<LocalDate, Map<Category, Float>> dateSpend = months.stream()
-                .map(localDateRange -> {
-                    final Map<Category, List<CategorizedTransaction>> categorizedTransactions =
-                            categorizedTransactionDao.selectGroupByCategory(localDateRange.start, localDateRange.end);
-
-                    return Pair.of(
-                            localDateRange.start,
-                            categorizedTransactions.entrySet().stream()
-                                    .map(categoryListEntry -> Pair.of(
-                                            categoryListEntry.getKey(),
-                                            categoryListEntry.getValue().stream()
-                                                    .map(Transaction::getAmount)
-                                                    .reduce(0f, Float::sum)))
-                                    .collect(Collectors.toMap(Pair::getKey, Pair::getValue)));
-                })
-                .collect(Collectors.toMap(
-                        Pair::getKey,
-                        Pair::getValue,
-                        (a, b) -> {
-                            throw new IllegalStateException("Duplicate key");
-                        },
-                        LinkedHashMap::new));
+        // get amount spent in each category for every 1 month long bucket, preserving chronological order. The first
+        // bucket starts on startDate and the last ends on effectiveEndDate, so that the sums never exceed the
+        // user-supplied inclusive date range
+        final Map<LocalDate, Map<Category, Float>> dateSpend =
+                categorizedTransactionDao.selectMonthlySumGroupByCategory(startDate, effectiveEndDate);
 
         // only include categories that have at least one transaction in the date range
         final List<Category> sortedCategories = dateSpend.values().stream()
@@ -354,7 +325,7 @@ public class ReportingService {
                         Pair.of(categorySpendEntry.getKey(), computeStats(categorySpendEntry.getValue())))
                 .collect(Collectors.toMap(Pair::getKey, Pair::getValue));
 
-        return new MonthlyReportData(months, dateSpend, sortedCategories, categoryStats);
+        return new MonthlyReportData(dateSpend, sortedCategories, categoryStats);
     }
 
     private String generateStatsString(
@@ -465,10 +436,7 @@ public class ReportingService {
 
     private record Stats(float trailing3m, float trailing6m, float total, float avg) {}
 
-    private record LocalDateRange(LocalDate start, LocalDate end) {}
-
     private record MonthlyReportData(
-            List<LocalDateRange> months,
             Map<LocalDate, Map<Category, Float>> dateSpend,
             List<Category> sortedCategories,
             Map<Category, Stats> categoryStats) {}
@@ -502,4 +470,20 @@ public class ReportingService {
                 .forEach(category -> lines.add(category.getId() + CSV_DELIMITER + category.getName()));
         cli.println(lines);
     }
+
+    /**
+     * Checks if the monthly category summaries that transaction reports are generated from must be rebuilt
+     * @return true if there are transactions that have not been summarized, false otherwise
+     */
+    public boolean isMonthlySummaryRebuildNeeded() {
+        return categorizedTransactionDao.isMonthlySummaryRebuildNeeded();
+    }
+
+    /**
+     * Recomputes the monthly category summaries that transaction reports are generated from
+     * @return true if the summaries were rebuilt, false otherwise
+     */
+    public boolean rebuildMonthlySummaries() {
+        return categorizedTransactionDao.rebuildMonthlySummaries();
+    }
 }
@@ -7,13 +7,17 @@ import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
 import ca.jonathanfritz.ofxcat.matching.KeywordRulesConfig;
+import ca.jonathanfritz.ofxcat.matching.TokenIndex;
 import ca.jonathanfritz.ofxcat.matching.TokenNormalizer;
 import jakarta.inject.Inject;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,6 +36,7 @@ public class TokenMigrationService {
     private final CategoryDao categoryDao;
     private final TokenNormalizer tokenNormalizer;
     private final KeywordRulesConfig keywordRulesConfig;
+    private final TokenIndex tokenIndex;
 
     @Inject
     public TokenMigrationService(
@@ -40,13 +45,15 @@ public class TokenMigrationService {
             TransactionTokenDao transactionTokenDao,
             CategoryDao categoryDao,
             TokenNormalizer tokenNormalizer,
-            KeywordRulesConfig keywordRulesConfig) {
+            KeywordRulesConfig keywordRulesConfig,
+            TokenIndex tokenIndex) {
         this.connection = connection;
         this.categorizedTransactionDao = categorizedTransactionDao;
         this.transactionTokenDao = transactionTokenDao;
         this.categoryDao = categoryDao;
         this.tokenNormalizer = tokenNormalizer;
         this.keywordRulesConfig = keywordRulesConfig;
+        this.tokenIndex = tokenIndex;
     }
 
     /**
@@ -71,40 +78,48 @@ public class TokenMigrationService {
     public MigrationReport migrateExistingTransactions(ProgressCallback progressCallback) {
         MigrationReport report = new MigrationReport();
 
-        // Only load transactions that actually need migration (no tokens yet)
-        List<CategorizedTransaction> needsMigration = categorizedTransactionDao.selectWithoutTokens();
+        // Only count transactions that actually need migration (no tokens yet)
+        final int total = categorizedTransactionDao.countWithoutTokens();
 
-        if (needsMigration.isEmpty()) {
+        if (total == 0) {
             logger.debug("Token migration: no transactions need migration");
             return report;
         }
 
-        logger.info("Token migration: processing {} transactions", needsMigration.size());
-        final int total = needsMigration.size();
+        logger.info("Token migration: processing {} transactions", total);
         int processed = 0;
 
-        // Process in batches for efficiency
-        for (int i = 0; i < needsMigration.size(); i += BATCH_SIZE) {
-            int end = Math.min(i + BATCH_SIZE, needsMigration.size());
-            List<CategorizedTransaction> batch = needsMigration.subList(i, end);
-
+        // Process in batches, loading one page of transactions at a time so that memory use doesn't grow with history
+        long lastId = 0;
+        boolean morePages = true;
+        while (morePages) {
             try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+                final List<CategorizedTransaction> batch =
+                        categorizedTransactionDao.selectWithoutTokens(t, lastId, BATCH_SIZE);
+                morePages = batch.size() == BATCH_SIZE;
+
+                // the tokens of the whole batch are stored together, so that each kind of write is sent as one batch
+                final Map<Long, Set<String>> tokensByTransactionId = new LinkedHashMap<>();
                 for (CategorizedTransaction txn : batch) {
-                    migrateTransaction(t, txn, report);
+                    migrateTransaction(t, txn, tokensByTransactionId, report);
                     processed++;
                     progressCallback.onProgress(processed, total);
                 }
+                transactionTokenDao.insertTokens(t, tokensByTransactionId);
+                if (!batch.isEmpty()) {
+                    lastId = batch.getLast().getId();
+                }
             } catch (SQLException ex) {
-                logger.error("Token migration failed at batch starting index {}", i, ex);
+                logger.error("Token migration failed at batch starting after id {}", lastId, ex);
                 throw new RuntimeException("Token migration failed", ex);
+            } finally {
+                // tokens and categories of existing transactions have changed, so the index must be rebuilt
+                tokenIndex.invalidate();
             }
 
             // Log progress for large migrations
-            if (needsMigration.size() > BATCH_SIZE && (i + BATCH_SIZE) % (BATCH_SIZE * 10) == 0) {
-                logger.info(
-                        "Token migration progress: {} / {} transactions processed",
-                        Math.min(i + BATCH_SIZE, needsMigration.size()),
-                        needsMigration.size());
+            if (total > BATCH_SIZE && processed % (BATCH_SIZE * 10) == 0) {
+                logger.info("Token migration progress: {} / {} transactions processed", processed, total);
             }
         }
 
@@ -118,9 +133,13 @@ public class TokenMigrationService {
     }
 
     /**
-     * Migrates a single transaction by storing its tokens and optionally recategorizing.
+     * Migrates a single transaction by collecting its tokens to be stored and optionally recategorizing.
      */
-    private void migrateTransaction(DatabaseTransaction t, CategorizedTransaction txn, MigrationReport report)
+    private void migrateTransaction(
+            DatabaseTransaction t,
+            CategorizedTransaction txn,
+            Map<Long, Set<String>> tokensByTransactionId,
+            MigrationReport report)
             throws SQLException {
         String description = txn.getDescription();
         Set<String> tokens = tokenNormalizer.normalize(description);
@@ -133,7 +152,7 @@ public class TokenMigrationService {
         }
 
         // Store tokens
-        transactionTokenDao.insertTokens(t, txn.getId(), tokens);
+        tokensByTransactionId.put(txn.getId(), tokens);
         report.incrementProcessed();
 
         // Check keyword rules for potential recategorization
@@ -224,6 +243,7 @@ public class TokenMigrationService {
         // Delete all existing tokens
         try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
             transactionTokenDao.deleteAllTokens(t);
+            tokenIndex.invalidate();
             logger.info("Force migration: deleted all existing tokens");
         } catch (SQLException ex) {
             logger.error("Force migration: failed to delete existing tokens", ex);
@@ -240,22 +260,23 @@ public class TokenMigrationService {
     private MigrationReport simulateMigration(ProgressCallback progressCallback) {
         MigrationReport report = new MigrationReport();
 
-        // Load all transactions (regardless of token status)
-        List<CategorizedTransaction> allTransactions = categorizedTransactionDao.selectAll();
+        // Stream all transactions (regardless of token status), so that they are never all in memory at once
+        final int total = categorizedTransactionDao.count();
 
-        if (allTransactions.isEmpty()) {
+        if (total == 0) {
             logger.debug("Dry run: no transactions to simulate");
             return report;
         }
 
-        logger.info("Dry run: simulating migration of {} transactions", allTransactions.size());
-        final int total = allTransactions.size();
-        int processed = 0;
+        logger.info("Dry run: simulating migration of {} transactions", total);
+        final AtomicInteger processed = new AtomicInteger(0);
 
-        for (CategorizedTransaction txn : allTransactions) {
+        final boolean simulated = categorizedTransactionDao.forEach(txn -> {
             simulateTransactionMigration(txn, report);
-            processed++;
-            progressCallback.onProgress(processed, total);
+            progressCallback.onProgress(processed.incrementAndGet(), total);
+        });
+        if (!simulated) {
+            throw new RuntimeException("Dry run failed");
         }
 
         logger.info(
@@ -30,6 +30,9 @@ public class TransactionCategoryService {
 
     private static final Logger logger = LogManager.getLogger(TransactionCategoryService.class);
 
+    // the maximum number of token-based category matches that the user will be asked to choose between
+    private static final int MAX_TOKEN_MATCH_CHOICES = 5;
+
     @Inject
     public TransactionCategoryService(
             CategoryDao categoryDao,
@@ -57,7 +60,8 @@ public class TransactionCategoryService {
             throws SQLException {
         // Step 1: Try keyword rules matching first (auto-categorization based on rules)
         if (keywordRulesConfig.isAutoCategorizeEnabled()) {
-            Optional<CategorizedTransaction> categorizedTransaction = categorizeTransactionByKeywordRules(transaction);
+            Optional<CategorizedTransaction> categorizedTransaction =
+                    categorizeTransactionByKeywordRules(t, transaction);
             if (categorizedTransaction.isPresent()) {
                 return categorizedTransaction.get();
             }
@@ -70,13 +74,13 @@ public class TransactionCategoryService {
         }
 
         // Step 3: Try token-based matching (finding similar transactions)
-        categorizedTransaction = categorizeTransactionByTokenMatch(transaction);
+        categorizedTransaction = categorizeTransactionByTokenMatch(t, transaction);
         if (categorizedTransaction.isPresent()) {
             return categorizedTransaction.get();
         }
 
         // Step 4: No matches - prompt user to choose or create a category
-        return chooseExistingCategoryOrAddNew(transaction);
+        return chooseExistingCategoryOrAddNew(t, transaction);
     }
 
     /**
@@ -84,7 +88,8 @@ public class TransactionCategoryService {
      * Normalizes the transaction description and checks against configured rules.
      * TODO: what if multiple rules match? right now we take the first, but could prompt user to choose
      */
-    private Optional<CategorizedTransaction> categorizeTransactionByKeywordRules(Transaction transaction) {
+    private Optional<CategorizedTransaction> categorizeTransactionByKeywordRules(
+            DatabaseTransaction t, Transaction transaction) {
         Set<String> tokens = tokenNormalizer.normalize(transaction.getDescription());
         Optional<String> matchedCategoryName = keywordRulesConfig.findMatchingCategory(tokens);
 
@@ -97,7 +102,7 @@ public class TransactionCategoryService {
         logger.info("Keyword rule matched: {} -> {}", tokens, categoryName);
 
         // Get or create the category in the database
-        Optional<Category> category = categoryDao.getOrCreate(categoryName);
+        Optional<Category> category = categoryDao.getOrCreate(t, categoryName);
         if (category.isEmpty()) {
             logger.error("Failed to get or create category: {}", categoryName);
             return Optional.empty();
@@ -145,10 +150,11 @@ public class TransactionCategoryService {
      * Attempts to categorize a transaction using token-based matching.
      * Finds similar transactions by comparing normalized tokens and their overlap ratio.
      */
-    private Optional<CategorizedTransaction> categorizeTransactionByTokenMatch(Transaction transaction) {
+    private Optional<CategorizedTransaction> categorizeTransactionByTokenMatch(
+            DatabaseTransaction t, Transaction transaction) {
         // Use TokenMatchingService to find matching categories
-        List<TokenMatchingService.CategoryMatch> matches =
-                tokenMatchingService.findMatchingCategoriesForDescription(transaction.getDescription());
+        List<TokenMatchingService.CategoryMatch> matches = tokenMatchingService.findMatchingCategoriesForDescription(
+                t, transaction.getDescription(), MAX_TOKEN_MATCH_CHOICES);
 
         if (matches.isEmpty()) {
             logger.info("No token-based matches found for transaction description");
@@ -157,10 +163,9 @@ public class TransactionCategoryService {
 
         logger.info("Found {} token-based category matches for transaction", matches.size());
 
-        // Extract the top categories (up to 5) ranked by overlap ratio
+        // Extract the top categories ranked by overlap ratio
         List<Category> choices = matches.stream()
                 .map(TokenMatchingService.CategoryMatch::category)
-                .limit(5)
                 .collect(Collectors.toList());
 
         // If only one category matched, auto-categorize with it
@@ -193,8 +198,8 @@ public class TransactionCategoryService {
      * Prompts the user to choose a category from the list of all known categories, with the option to add a new category
      * if none suffice. The chosen category will be associated with the specified transaction
      */
-    private CategorizedTransaction chooseExistingCategoryOrAddNew(Transaction transaction) {
-        final List<Category> allCategories = categoryDao.select();
+    private CategorizedTransaction chooseExistingCategoryOrAddNew(DatabaseTransaction t, Transaction transaction) {
+        final List<Category> allCategories = categoryDao.select(t);
         if (allCategories.size() > 0) {
             // choose one from the list of all known categories
             final Optional<Category> chosenCategory = cli.chooseCategoryOrAddNew(allCategories);
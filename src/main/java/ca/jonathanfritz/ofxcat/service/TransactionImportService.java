@@ -3,6 +3,7 @@ package ca.jonathanfritz.ofxcat.service;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleaner;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleanerFactory;
 import ca.jonathanfritz.ofxcat.cli.CLI;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
@@ -31,14 +32,21 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -58,6 +66,8 @@ public class TransactionImportService {
     private final TransferDao transferDao;
     private final TransactionTokenDao transactionTokenDao;
     private final TokenNormalizer tokenNormalizer;
+    private final AppConfig.ImportSettings importSettings;
+    private final int transferDateWindowDays;
 
     private static final Logger logger = LogManager.getLogger(TransactionImportService.class);
 
@@ -74,7 +84,8 @@ public class TransactionImportService {
             TransferMatchingService transferMatchingService,
             TransferDao transferDao,
             TransactionTokenDao transactionTokenDao,
-            TokenNormalizer tokenNormalizer) {
+            TokenNormalizer tokenNormalizer,
+            AppConfig appConfig) {
         this.cli = cli;
         this.ofxParser = ofxParser;
         this.accountDao = accountDao;
@@ -87,24 +98,31 @@ public class TransactionImportService {
         this.transferDao = transferDao;
         this.transactionTokenDao = transactionTokenDao;
         this.tokenNormalizer = tokenNormalizer;
+        this.importSettings = appConfig.getImportSettings();
+        this.transferDateWindowDays = Math.max(0, appConfig.getTransferMatching().getDateWindowDays());
     }
 
     public void importTransactions(final File inputFile) throws OfxCatException {
+        importTransactions(List.of(inputFile));
+    }
+
+    /**
+     * Imports the transactions in all the specified files as a single batch. The files are parsed concurrently, and
+     * transactions that belong to the same account are merged before inter-account transfers are identified, so a
+     * transfer whose source and sink appear in different files is still matched.
+     */
+    public void importTransactions(final List<File> inputFiles) throws OfxCatException {
         cli.printWelcomeBanner();
-        cli.println("Loading transactions from file:");
-        cli.println("value", inputFile.toString());
+        cli.println(inputFiles.size() == 1 ? "Loading transactions from file:" : "Loading transactions from files:");
+        for (File inputFile : inputFiles) {
+            cli.println("value", inputFile.toString());
+        }
 
-        logger.debug("Attempting to parse file {}", inputFile);
-        final List<OfxExport> ofxTransactions;
-        try (FileInputStream inputStream = new FileInputStream(inputFile)) {
-            ofxTransactions = ofxParser.parse(inputStream);
-        } catch (FileNotFoundException e) {
-            throw new OfxCatException("File not found", e);
-        } catch (OFXParseException e) {
-            throw new OfxCatException("Failed to parse OFX file", e);
-        } catch (IOException e) {
-            throw new OfxCatException("An unexpected exception occurred", e);
+        final List<Callable<List<OfxExport>>> parseTasks = new ArrayList<>(inputFiles.size());
+        for (File inputFile : inputFiles) {
+            parseTasks.add(() -> parse(inputFile));
         }
+        final List<OfxExport> ofxTransactions = runConcurrently(parseTasks).stream().flatMap(List::stream).toList();
 
         final ImportResult result = categorizeTransactions(ofxTransactions);
         final String importMessage = result.duplicateCount() > 0
@@ -115,145 +133,322 @@ public class TransactionImportService {
                         "Successfully imported %d transactions",
                         result.transactions().size());
         cli.println(importMessage);
+
+        if (!result.discontinuities().isEmpty()) {
+            cli.println("Warning: some imported transactions do not connect to the balance of existing transactions:");
+            cli.println("ACCOUNT, GAP FROM, GAP TO, MISSING AMOUNT");
+            for (GapDetectionService.Gap gap : result.discontinuities()) {
+                cli.println(String.format(
+                        "%s, %s, %s, %.2f",
+                        gap.account().getName(), gap.lastGoodDate(), gap.firstDateAfterGap(), gap.missingAmount()));
+            }
+        }
+    }
+
+    private List<OfxExport> parse(final File inputFile) throws OfxCatException {
+        logger.debug("Attempting to parse file {}", inputFile);
+        try (FileInputStream inputStream = new FileInputStream(inputFile)) {
+            return ofxParser.parse(inputStream);
+        } catch (FileNotFoundException e) {
+            throw new OfxCatException("File not found", e);
+        } catch (OFXParseException e) {
+            throw new OfxCatException("Failed to parse OFX file", e);
+        } catch (IOException e) {
+            throw new OfxCatException("An unexpected exception occurred", e);
+        }
     }
 
     public ImportResult categorizeTransactions(final List<OfxExport> ofxExports) {
-        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        // figure out which account each export belongs to. This is done one export at a time, because the user is
+        // prompted to name any account that we haven't seen before
+        final List<Account> accounts = new ArrayList<>(ofxExports.size());
         for (OfxExport ofxExport : ofxExports) {
-            // figure out which account these transactions belong to
             final Account account = accountDao
                     .selectByAccountNumber(ofxExport.getAccount().getAccountId())
                     .or(() -> accountDao.insert(cli.assignAccountName(ofxExport.getAccount())))
                     .orElseThrow(() ->
                             new RuntimeException(String.format("Failed to find or create account %s", ofxExport)));
             logger.info("Processing transactions for Account {}", account);
+            accounts.add(account);
+        }
+
+        // each export is cleaned up on its own virtual thread
+        final List<Callable<List<Transaction>>> cleanTasks = new ArrayList<>(ofxExports.size());
+        for (int i = 0; i < ofxExports.size(); i++) {
+            final OfxExport ofxExport = ofxExports.get(i);
+            final Account account = accounts.get(i);
+            cleanTasks.add(() -> cleanTransactions(ofxExport, account));
+        }
+        final List<List<Transaction>> cleanedTransactions;
+        try {
+            cleanedTransactions = runConcurrently(cleanTasks);
+        } catch (OfxCatException e) {
+            throw new RuntimeException("Failed to clean imported transactions", e);
+        }
 
-            // an ofx file contains the account balance after all included transactions were processed, but does not
-            // include the initial account balance or the account balance after each individual transaction was
-            // processed.
-            // we can determine the initial account balance by summing up the amount of all transactions and subtracting
-            // that value from the final account balance. This can then be used to determine the account balance after
-            // each transaction was applied.
-            final float totalTransactionAmount = ofxExport.getTransactions().values().stream()
-                    .flatMap((Function<List<OfxTransaction>, Stream<OfxTransaction>>) Collection::stream)
-                    .map(OfxTransaction::getAmount)
-                    .reduce(0F, Float::sum, Float::sum);
-
-            // Use AVAILBAL as the balance anchor for bank accounts (CHECKING, SAVINGS) when present.
-            // AVAILBAL reflects the cleared balance without deductions for pending outgoing payments,
-            // which are committed but not yet settled and therefore absent from STMTTRN. Using
-            // LEDGERBAL for these accounts produces running balances that are too low by the pending
-            // amount, creating false gaps at subsequent import boundaries.
-            // For credit cards and credit lines, AVAILBAL means available credit (limit − owed) and
-            // must not be used as a balance anchor; LEDGERBAL is used instead.
-            final String accountType = ofxExport.getAccount().getAccountType();
-            final boolean isBankAccount = "CHECKING".equals(accountType) || "SAVINGS".equals(accountType);
-            final float anchor = ofxExport.getAvailableBalance() != null && isBankAccount
-                    ? ofxExport.getAvailableBalance().getAmount()
-                    : ofxExport.getBalance().getAmount();
-            final Float initialBalance = anchor - totalTransactionAmount;
-            logger.debug("Initial balance for Account {} was {}", account.getAccountNumber(), initialBalance);
-
-            // sorts transactions by date, transforms them into our internal representation, sets the resulting account
-            // balance on each, and associates each with an account
-            final TransactionCleaner transactionCleaner = transactionCleanerFactory.findByBankId(account.getBankId());
-            final Accumulator<Float> balanceAccumulator = new Accumulator<>(initialBalance, Float::sum);
-            accountTransactions.put(
-                    account,
-                    ofxExport.getTransactions().entrySet().stream()
-                            .flatMap((Function<Map.Entry<LocalDate, List<OfxTransaction>>, Stream<OfxTransaction>>)
-                                    entry -> entry.getValue().stream())
-                            .sorted(Comparator.comparing(OfxTransaction::getDate))
-                            .map(transactionCleaner::clean)
-                            .map(builder -> builder.setBalance(balanceAccumulator.add(builder.getAmount())))
-                            .map(builder -> builder.setAccount(account).build())
-                            .toList());
-            logger.debug(
-                    "Final balance for Account {} was {}",
-                    account.getAccountNumber(),
-                    balanceAccumulator.getCurrentValue());
+        // when several exports contain transactions for the same account, they are merged in date order. Exports
+        // that cover overlapping date ranges will contain some of the same transactions, so only the first copy of
+        // each fitId is kept
+        final AtomicInteger duplicateCount = new AtomicInteger(0);
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        for (int i = 0; i < ofxExports.size(); i++) {
+            accountTransactions.merge(accounts.get(i), cleanedTransactions.get(i), (existing, additional) -> {
+                final Set<String> fitIds = new HashSet<>();
+                final List<Transaction> merged = Stream.concat(existing.stream(), additional.stream())
+                        .filter(transaction -> fitIds.add(transaction.getFitId()))
+                        .sorted(Comparator.comparing(Transaction::getDate))
+                        .toList();
+                duplicateCount.addAndGet(existing.size() + additional.size() - merged.size());
+                return merged;
+            });
         }
 
         // all of our transactions have been cleaned up and enriched with account and balance information
         // at this point, we can attempt to identify inter-account transfers
-        final List<CategorizedTransaction> categorizedTransactions =
-                new ArrayList<>(identifyTransfers(accountTransactions));
-        final AtomicInteger duplicateCount = new AtomicInteger(0);
+        // rows are written in batches to avoid committing (and syncing the database to disk) after every transaction
+        final List<CategorizedTransaction> categorizedTransactions = new ArrayList<>();
+        final Map<Long, Set<String>> existingFitIds = selectExistingFitIds(accountTransactions);
+        final int commitCount;
+        try (ImportBatch batch = new ImportBatch(connection, importSettings.getCommitBatchSize())) {
+            categorizedTransactions.addAll(identifyTransfers(batch, accountTransactions));
+            batch.commit();
 
-        for (Map.Entry<Account, List<Transaction>> entry : accountTransactions.entrySet()) {
-            // TODO: this can probably be cleaned up too
-            // filter out duplicates, categorize transactions, and insert them into the database
-            entry.getValue().forEach(transaction -> {
-                try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-                    if (categorizedTransactionDao.isDuplicate(t, transaction)) {
+            for (Map.Entry<Account, List<Transaction>> entry : accountTransactions.entrySet()) {
+                // filter out duplicates, categorize transactions, and insert them into the database
+                final Set<String> accountFitIds =
+                        existingFitIds.computeIfAbsent(entry.getKey().getId(), id -> new HashSet<>());
+                for (Transaction transaction : entry.getValue()) {
+                    if (accountFitIds.contains(transaction.getFitId())) {
                         logger.info("Ignored duplicate Transaction {}", transaction);
                         duplicateCount.incrementAndGet();
-                        return;
+                        continue;
                     }
+                    batch.write(transaction, t -> importTransaction(t, transaction))
+                            .ifPresent(inserted -> {
+                                accountFitIds.add(inserted.getFitId());
+                                categorizedTransactions.add(inserted);
+                            });
+                }
+                batch.commit();
+            }
 
-                    // try to automatically categorize the transaction, prompting the user for a category if necessary
-                    cli.printFoundNewTransaction(transaction);
-                    CategorizedTransaction categorizedTransaction =
-                            transactionCategoryService.categorizeTransaction(t, transaction);
-                    if (categorizedTransaction.getCategory().getId() == null) {
-                        // this is a new category, so we have to insert it before inserting the categorized transaction
-                        final Transaction newTransaction = categorizedTransaction.getTransaction();
-                        final String newCategoryName =
-                                categorizedTransaction.getCategory().getName();
-                        categorizedTransaction = categoryDao
-                                .insert(t, categorizedTransaction.getCategory())
-                                .map(newCategory -> new CategorizedTransaction(newTransaction, newCategory))
-                                .orElseThrow(() -> new OfxCatException(
-                                        String.format("Failed to insert new Category %s", newCategoryName)));
-                    }
-                    categorizedTransactionDao.insert(t, categorizedTransaction).ifPresent(inserted -> {
-                        categorizedTransactions.add(inserted);
-                        storeTokensForTransaction(t, inserted);
-                    });
+            commitCount = batch.getCommitCount() + reconcileTransfers(cleanedTransactions);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to commit imported transactions", e);
+        }
+        logger.info("Imported {} transactions in {} commits", categorizedTransactions.size(), commitCount);
 
-                    cli.printTransactionCategorizedAs(categorizedTransaction.getCategory());
-                    logger.info("Categorized Transaction {} as {}", transaction, categorizedTransaction.getCategory());
+        final List<GapDetectionService.Gap> discontinuities = findDiscontinuities(accounts, cleanedTransactions);
+        return new ImportResult(categorizedTransactions, duplicateCount.get(), discontinuities);
+    }
+
+    /**
+     * Checks that each export connects cleanly to the transactions that were stored before it, by comparing the
+     * balance of its first transaction to the last stored balance for its account before that transaction's date.
+     * This applies the same invariant as {@link GapDetectionService}, but only at the start of each export, so it
+     * takes one indexed lookup per export rather than a scan of each account's history
+     * @return a gap for each export whose opening balance does not follow from the balance that precedes it
+     */
+    private List<GapDetectionService.Gap> findDiscontinuities(
+            List<Account> accounts, List<List<Transaction>> cleanedTransactions) {
+        final List<GapDetectionService.Gap> discontinuities = new ArrayList<>();
+        for (int i = 0; i < accounts.size(); i++) {
+            if (cleanedTransactions.get(i).isEmpty()) {
+                continue;
+            }
+            final Account account = accounts.get(i);
+            final Transaction first = cleanedTransactions.get(i).getFirst();
+            final Optional<CategorizedTransaction> previous =
+                    categorizedTransactionDao.selectLastBefore(account, first.getDate());
+            if (previous.isEmpty()) {
+                // nothing was stored before this export, so there is nothing for it to connect to
+                continue;
+            }
 
-                } catch (SQLException | OfxCatException e) {
-                    logger.error("Failed to import transaction {}", transaction, e);
+            final long expectedCents =
+                    Math.round(previous.get().getBalance() * 100) + Math.round(first.getAmount() * 100);
+            final long actualCents = Math.round(first.getBalance() * 100);
+            if (expectedCents != actualCents) {
+                final GapDetectionService.Gap gap = new GapDetectionService.Gap(
+                        account, previous.get().getDate(), first.getDate(), (actualCents - expectedCents) / 100f);
+                if (!discontinuities.contains(gap)) {
+                    logger.warn("Imported transactions for Account {} do not connect to stored ones: {}", account, gap);
+                    discontinuities.add(gap);
                 }
-            });
+            }
         }
+        return discontinuities;
+    }
 
-        // find unmatched XFER type transactions in the CategorizedTransaction table and group them into Transfers.
-        // this will add support for the source and sink to appear in separate OFX files, such as when a payment takes
-        // days to clear
-        identifyTransfers(categorizedTransactionDao.findUnlinkedTransfers());
+    /**
+     * Sorts the transactions in the specified export by date, transforms them into our internal representation, sets
+     * the resulting account balance on each, and associates each with the specified account
+     */
+    private List<Transaction> cleanTransactions(OfxExport ofxExport, Account account) {
+        // an ofx file contains the account balance after all included transactions were processed, but does not
+        // include the initial account balance or the account balance after each individual transaction was
+        // processed.
+        // we can determine the initial account balance by summing up the amount of all transactions and subtracting
+        // that value from the final account balance. This can then be used to determine the account balance after
+        // each transaction was applied.
+        final float totalTransactionAmount = ofxExport.getTransactions().values().stream()
+                .flatMap((Function<List<OfxTransaction>, Stream<OfxTransaction>>) Collection::stream)
+                .map(OfxTransaction::getAmount)
+                .reduce(0F, Float::sum, Float::sum);
+
+        // Use AVAILBAL as the balance anchor for bank accounts (CHECKING, SAVINGS) when present.
+        // AVAILBAL reflects the cleared balance without deductions for pending outgoing payments,
+        // which are committed but not yet settled and therefore absent from STMTTRN. Using
+        // LEDGERBAL for these accounts produces running balances that are too low by the pending
+        // amount, creating false gaps at subsequent import boundaries.
+        // For credit cards and credit lines, AVAILBAL means available credit (limit − owed) and
+        // must not be used as a balance anchor; LEDGERBAL is used instead.
+        final String accountType = ofxExport.getAccount().getAccountType();
+        final boolean isBankAccount = "CHECKING".equals(accountType) || "SAVINGS".equals(accountType);
+        final float anchor = ofxExport.getAvailableBalance() != null && isBankAccount
+                ? ofxExport.getAvailableBalance().getAmount()
+                : ofxExport.getBalance().getAmount();
+        final Float initialBalance = anchor - totalTransactionAmount;
+        logger.debug("Initial balance for Account {} was {}", account.getAccountNumber(), initialBalance);
 
-        return new ImportResult(categorizedTransactions, duplicateCount.get());
+        // sorts transactions by date, transforms them into our internal representation, sets the resulting account
+        // balance on each, and associates each with an account
+        final TransactionCleaner transactionCleaner = transactionCleanerFactory.findByBankId(account.getBankId());
+        final Accumulator<Float> balanceAccumulator = new Accumulator<>(initialBalance, Float::sum);
+        final List<Transaction> transactions = ofxExport.getTransactions().entrySet().stream()
+                .flatMap((Function<Map.Entry<LocalDate, List<OfxTransaction>>, Stream<OfxTransaction>>)
+                        entry -> entry.getValue().stream())
+                .sorted(Comparator.comparing(OfxTransaction::getDate))
+                .map(transactionCleaner::clean)
+                .map(builder -> builder.setBalance(balanceAccumulator.add(builder.getAmount())))
+                .map(builder -> builder.setAccount(account).build())
+                .toList();
+        logger.debug(
+                "Final balance for Account {} was {}",
+                account.getAccountNumber(),
+                balanceAccumulator.getCurrentValue());
+        return transactions;
     }
 
-    private List<CategorizedTransaction> identifyTransfers(Map<Account, List<Transaction>> accountTransactions) {
-        return transferMatchingService.match(accountTransactions).stream()
-                .flatMap((Function<Transfer, Stream<CategorizedTransaction>>) transfer -> {
-                    try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-                        // insert each transaction
-                        final CategorizedTransaction source =
-                                TransactionImportService.this.insertTransferTransaction(t, transfer.getSource());
-                        final CategorizedTransaction sink =
-                                TransactionImportService.this.insertTransferTransaction(t, transfer.getSink());
-
-                        // create the transfer
-                        Transfer newTransfer = new Transfer(source, sink);
-                        if (!transferDao.isDuplicate(t, newTransfer)) {
-                            newTransfer = transferDao
-                                    .insert(t, newTransfer)
-                                    .orElseThrow(() -> new SQLException("Failed to insert Transfer"));
-
-                            cli.printFoundNewTransfer(newTransfer);
-                        }
-                        return Stream.of(source, sink);
-                    } catch (SQLException | OfxCatException e) {
-                        logger.error("Failed to import Transfer {}", transfer, e);
-                        return Stream.empty();
-                    }
-                })
-                .collect(Collectors.toList());
+    /**
+     * Runs each of the specified tasks on its own virtual thread and waits for all of them to finish
+     * @return the results of the tasks, in the same order as the tasks
+     * @throws OfxCatException if any of the tasks fails
+     */
+    private static <T> List<T> runConcurrently(List<Callable<T>> tasks) throws OfxCatException {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<T> results = new ArrayList<>(tasks.size());
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OfxCatException ofxCatException) {
+                throw ofxCatException;
+            }
+            throw new OfxCatException("An unexpected exception occurred", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OfxCatException("Import was interrupted", e);
+        }
+    }
+
+    /**
+     * Loads the fitIds of existing transactions that could be duplicates of the incoming transactions with a single
+     * query, so that each incoming transaction can be checked for duplicates without going back to the database
+     * @return a map of account id to the set of fitIds that already exist in that account
+     */
+    private Map<Long, Set<String>> selectExistingFitIds(Map<Account, List<Transaction>> accountTransactions) {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            return categorizedTransactionDao.selectFitIds(t, accountTransactions);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find existing transactions", e);
+        }
+    }
+
+    /**
+     * Categorizes the specified transaction, prompting the user if necessary, and inserts it into the database
+     * @return the inserted transaction, or {@link Optional#empty()} if it could not be inserted
+     */
+    private Optional<CategorizedTransaction> importTransaction(DatabaseTransaction t, Transaction transaction)
+            throws SQLException, OfxCatException {
+        // try to automatically categorize the transaction, prompting the user for a category if necessary
+        cli.printFoundNewTransaction(transaction);
+        CategorizedTransaction categorizedTransaction =
+                transactionCategoryService.categorizeTransaction(t, transaction);
+        if (categorizedTransaction.getCategory().getId() == null) {
+            // this is a new category, so we have to insert it before inserting the categorized transaction
+            final Transaction newTransaction = categorizedTransaction.getTransaction();
+            final String newCategoryName = categorizedTransaction.getCategory().getName();
+            categorizedTransaction = categoryDao
+                    .insert(t, categorizedTransaction.getCategory())
+                    .map(newCategory -> new CategorizedTransaction(newTransaction, newCategory))
+                    .orElseThrow(() ->
+                            new OfxCatException(String.format("Failed to insert new Category %s", newCategoryName)));
+        }
+        final Optional<CategorizedTransaction> inserted = categorizedTransactionDao.insert(t, categorizedTransaction);
+        inserted.ifPresent(insertedTransaction -> storeTokensForTransaction(t, insertedTransaction));
+
+        cli.printTransactionCategorizedAs(categorizedTransaction.getCategory());
+        logger.info("Categorized Transaction {} as {}", transaction, categorizedTransaction.getCategory());
+        return inserted;
+    }
+
+    /**
+     * Finds unmatched XFER type transactions in the CategorizedTransaction table and groups them into Transfers. This
+     * adds support for the source and sink to appear in separate OFX files, such as when a payment takes days to clear.
+     * Only the transactions within the transfer matching window of the imported dates are considered, because older
+     * ones can't be paired with anything that was imported, and every Transfer that is found is written in one commit
+     * @return the number of commits that were made
+     * @throws SQLException if the matched transfers could not be committed
+     */
+    private int reconcileTransfers(List<List<Transaction>> cleanedTransactions) throws SQLException {
+        final List<LocalDate> importedDates = cleanedTransactions.stream()
+                .flatMap(List::stream)
+                .map(Transaction::getDate)
+                .toList();
+        if (importedDates.isEmpty()) {
+            return 0;
+        }
+
+        final LocalDate startDate = Collections.min(importedDates).minusDays(transferDateWindowDays);
+        final LocalDate endDate = Collections.max(importedDates).plusDays(transferDateWindowDays);
+        try (ImportBatch batch = new ImportBatch(connection, 0)) {
+            identifyTransfers(batch, categorizedTransactionDao.findUnlinkedTransfers(startDate, endDate));
+            batch.commit();
+            return batch.getCommitCount();
+        }
+    }
+
+    private List<CategorizedTransaction> identifyTransfers(
+            ImportBatch batch, Map<Account, List<Transaction>> accountTransactions) throws SQLException {
+        final List<CategorizedTransaction> categorizedTransactions = new ArrayList<>();
+        for (Transfer transfer : transferMatchingService.match(accountTransactions)) {
+            batch.write(transfer, t -> Optional.of(insertTransfer(t, transfer)))
+                    .ifPresent(categorizedTransactions::addAll);
+        }
+        return categorizedTransactions;
+    }
+
+    /**
+     * Inserts the source and sink of the specified transfer, along with a Transfer record that links them
+     * @return the inserted source and sink transactions
+     */
+    private List<CategorizedTransaction> insertTransfer(DatabaseTransaction t, Transfer transfer)
+            throws SQLException, OfxCatException {
+        // insert each transaction
+        final CategorizedTransaction source = insertTransferTransaction(t, transfer.getSource());
+        final CategorizedTransaction sink = insertTransferTransaction(t, transfer.getSink());
+
+        // create the transfer
+        Transfer newTransfer = new Transfer(source, sink);
+        if (!transferDao.isDuplicate(t, newTransfer)) {
+            newTransfer =
+                    transferDao.insert(t, newTransfer).orElseThrow(() -> new SQLException("Failed to insert Transfer"));
+
+            cli.printFoundNewTransfer(newTransfer);
+        }
+        return List.of(source, sink);
     }
 
     private CategorizedTransaction insertTransferTransaction(DatabaseTransaction t, Transaction transaction)
@@ -263,7 +458,7 @@ public class TransactionImportService {
             if (categorizedTransactionDao.isDuplicate(t, transaction)) {
                 logger.info("Ignored duplicate Transaction {}", transaction);
                 return categorizedTransactionDao
-                        .selectByFitId(transaction.getFitId())
+                        .selectByFitId(t, transaction.getAccount(), transaction.getFitId())
                         .get();
             }
 
@@ -1,10 +1,19 @@
 package ca.jonathanfritz.ofxcat.service;
 
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transfer;
+import jakarta.inject.Inject;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -14,62 +23,197 @@ import java.util.stream.Stream;
 
 public class TransferMatchingService {
 
+    private final int dateWindowDays;
+
+    @Inject
+    public TransferMatchingService(AppConfig appConfig) {
+        this.dateWindowDays = Math.max(0, appConfig.getTransferMatching().getDateWindowDays());
+    }
+
     /**
      * Extracts inter-account transfers of type XFER out of the specified map of account transactions.
-     * To be considered a valid transaction pair, both transactions must be of type XFER, must have occurred on the same
-     * date, must affect different accounts, and one must have a value equal to the negation of the value of the other.
+     * To be considered a valid transaction pair, both transactions must be of type XFER, must have occurred within the
+     * configured number of days of each other, must affect different accounts, and one must have a value equal to the
+     * negation of the value of the other. Pairs are chosen in order of the number of days between them, so a source
+     * with several candidate sinks is matched with the closest one that no other source needs. Transactions that can
+     * only be paired by choosing between equally close candidates are left unmatched.
      * @param accountTransactions the map of account transactions. Modified byref to remove Transactions that are
      *                            identified as transfers.
      * @return a set of matched {@link Transfer}s
      */
     public Set<Transfer> match(Map<Account, List<Transaction>> accountTransactions) {
         // all of our transactions have been cleaned up and enriched with account and balance information
-        // we can attempt to identify inter-account transfers by looking for the XFER type
-        final Set<Transaction> sourceTransactions = new HashSet<>();
-        final Set<Transaction> sinkTransactions = new HashSet<>();
-        for (Map.Entry<Account, List<Transaction>> entry : accountTransactions.entrySet()) {
-            sourceTransactions.addAll(entry.getValue().stream()
-                    .filter(t -> t.getType() == Transaction.TransactionType.XFER)
-                    .filter(t -> t.getAmount() < 0)
-                    .toList());
-            sinkTransactions.addAll(entry.getValue().stream()
-                    .filter(t -> t.getType() == Transaction.TransactionType.XFER)
-                    .filter(t -> t.getAmount() > 0)
-                    .toList());
+        // we can attempt to identify inter-account transfers by looking for the XFER type. Sources and sinks are
+        // grouped by amount in cents, so that each source is only compared to sinks for the same amount (negated)
+        final Map<Long, List<Transaction>> sourcesByCents = new HashMap<>();
+        final Map<Long, List<Transaction>> sinksByCents = new HashMap<>();
+        for (List<Transaction> transactions : accountTransactions.values()) {
+            for (Transaction transaction : transactions) {
+                if (transaction.getType() != Transaction.TransactionType.XFER) {
+                    continue;
+                }
+                if (transaction.getAmount() < 0) {
+                    sourcesByCents
+                            .computeIfAbsent(-toCents(transaction.getAmount()), k -> new ArrayList<>())
+                            .add(transaction);
+                } else if (transaction.getAmount() > 0) {
+                    sinksByCents
+                            .computeIfAbsent(toCents(transaction.getAmount()), k -> new ArrayList<>())
+                            .add(transaction);
+                }
+            }
         }
 
-        // next we'll attempt to match each source transaction with a corresponding sink transaction that took place on
-        // the same day, is for the same amount (negated), and belongs to a different account
-        final Set<Transfer> transfers = new HashSet<>();
-        for (Transaction source : sourceTransactions) {
-            final List<Transaction> potentialSinks = sinkTransactions.stream()
-                    .filter(t -> t.getDate().equals(source.getDate()))
-                    .filter(t -> Float.compare(t.getAmount(), -source.getAmount()) == 0)
-                    .filter(t -> !t.getAccount().equals(source.getAccount()))
-                    .toList();
+        // next we'll find every sink that is close enough to each source to be its other half, and consider the
+        // closest pairs first
+        final List<Candidate> candidates = new ArrayList<>();
+        for (Map.Entry<Long, List<Transaction>> entry : sourcesByCents.entrySet()) {
+            final List<Transaction> sinks = sinksByCents.get(entry.getKey());
+            if (sinks != null) {
+                candidates.addAll(findCandidates(entry.getValue(), sinks));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Candidate::days));
 
-            // if we found exactly one candidate, create a Transfer that represents the movement of funds from one
-            // account to the other
-            if (potentialSinks.size() == 1) {
-                final Transaction sink = potentialSinks.get(0);
-                transfers.add(new Transfer(
-                        new CategorizedTransaction(source, Category.TRANSFER),
-                        new CategorizedTransaction(sink, Category.TRANSFER)));
+        // the candidates are resolved one distance at a time, closest first. Candidates that can't be resolved at their
+        // own distance are reconsidered along with the more distant ones, which may leave them with only one option
+        final Set<Transfer> transfers = new HashSet<>();
+        final Set<Transaction> matched = new HashSet<>();
+        List<Candidate> unresolved = List.of();
+        int first = 0;
+        while (first < candidates.size()) {
+            int last = first;
+            while (last < candidates.size() && candidates.get(last).days() == candidates.get(first).days()) {
+                last++;
             }
+            final List<Candidate> open = Stream.concat(unresolved.stream(), candidates.subList(first, last).stream())
+                    .filter(c -> !matched.contains(c.source()) && !matched.contains(c.sink()))
+                    .toList();
+            unresolved = resolve(open, matched, transfers);
+            first = last;
         }
 
         // finally, we can remove all matched transactions from the incoming map of account transactions
-        final Set<CategorizedTransaction> matchedTransactions = transfers.stream()
+        final Set<String> matchedFitIds = transfers.stream()
                 .flatMap(t -> Stream.of(t.getSink(), t.getSource()))
+                .map(CategorizedTransaction::getFitId)
                 .collect(Collectors.toSet());
         for (Map.Entry<Account, List<Transaction>> entry : accountTransactions.entrySet()) {
             final List<Transaction> filtered = entry.getValue().stream()
-                    .filter(t -> matchedTransactions.stream()
-                            .noneMatch(ct -> ct.getFitId().equals(t.getFitId())))
+                    .filter(t -> !matchedFitIds.contains(t.getFitId()))
                     .toList();
             entry.setValue(filtered);
         }
 
         return transfers;
     }
+
+    /**
+     * Pairs each source with the sinks in other accounts that were posted within the date window of it. Both lists are
+     * sorted by date and swept together, so each source only visits the sinks in its own window.
+     * @param sources the source transactions, all for the same amount
+     * @param sinks the sink transactions, all for the negation of that amount
+     * @return the candidate pairs, in no particular order
+     */
+    private List<Candidate> findCandidates(List<Transaction> sources, List<Transaction> sinks) {
+        final List<Transaction> sortedSources =
+                sources.stream().sorted(Comparator.comparing(Transaction::getDate)).toList();
+        final List<Transaction> sortedSinks =
+                sinks.stream().sorted(Comparator.comparing(Transaction::getDate)).toList();
+
+        final List<Candidate> candidates = new ArrayList<>();
+        int windowStart = 0;
+        for (Transaction source : sortedSources) {
+            final LocalDate earliest = source.getDate().minusDays(dateWindowDays);
+            final LocalDate latest = source.getDate().plusDays(dateWindowDays);
+            while (windowStart < sortedSinks.size() && sortedSinks.get(windowStart).getDate().isBefore(earliest)) {
+                windowStart++;
+            }
+            for (int i = windowStart; i < sortedSinks.size() && !sortedSinks.get(i).getDate().isAfter(latest); i++) {
+                final Transaction sink = sortedSinks.get(i);
+                if (!sink.getAccount().equals(source.getAccount())) {
+                    final long days = Math.abs(ChronoUnit.DAYS.between(source.getDate(), sink.getDate()));
+                    candidates.add(new Candidate(source, sink, days));
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Matches each transaction that has only one open candidate with that candidate, and creates a Transfer that
+     * represents the movement of funds from one account to the other. If the candidate is also the only option of
+     * another transaction, the two can't be told apart, and neither is matched. Matching a pair can leave the other
+     * candidates of its transactions with only one option, so they are revisited until nothing changes.
+     * @param candidates the open candidates to resolve
+     * @param matched the transactions that have been matched. Modified byref to add newly matched transactions
+     * @param transfers the matched transfers. Modified byref to add newly matched transfers
+     * @return the candidates that are still open
+     */
+    private static List<Candidate> resolve(
+            List<Candidate> candidates, Set<Transaction> matched, Set<Transfer> transfers) {
+        final Map<Transaction, List<Candidate>> candidatesByTransaction = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            candidatesByTransaction.computeIfAbsent(candidate.source(), k -> new ArrayList<>()).add(candidate);
+            candidatesByTransaction.computeIfAbsent(candidate.sink(), k -> new ArrayList<>()).add(candidate);
+        }
+
+        final Deque<Transaction> pending = new ArrayDeque<>(candidatesByTransaction.keySet());
+        while (!pending.isEmpty()) {
+            final Transaction transaction = pending.pop();
+            if (matched.contains(transaction)) {
+                continue;
+            }
+            final List<Candidate> options = openCandidates(transaction, candidatesByTransaction, matched);
+            if (options.size() != 1) {
+                continue;
+            }
+            final Transaction other = options.get(0).other(transaction);
+            final List<Candidate> otherOptions = openCandidates(other, candidatesByTransaction, matched);
+            final long rivals = otherOptions.stream()
+                    .filter(c -> openCandidates(c.other(other), candidatesByTransaction, matched).size() == 1)
+                    .count();
+            if (rivals > 1) {
+                continue;
+            }
+
+            final Candidate candidate = options.get(0);
+            matched.add(candidate.source());
+            matched.add(candidate.sink());
+            transfers.add(new Transfer(
+                    new CategorizedTransaction(candidate.source(), Category.TRANSFER),
+                    new CategorizedTransaction(candidate.sink(), Category.TRANSFER)));
+            otherOptions.forEach(c -> pending.add(c.other(other)));
+        }
+
+        return candidates.stream()
+                .filter(c -> !matched.contains(c.source()) && !matched.contains(c.sink()))
+                .toList();
+    }
+
+    private static List<Candidate> openCandidates(
+            Transaction transaction,
+            Map<Transaction, List<Candidate>> candidatesByTransaction,
+            Set<Transaction> matched) {
+        return candidatesByTransaction.get(transaction).stream()
+                .filter(c -> !matched.contains(c.other(transaction)))
+                .toList();
+    }
+
+    private static long toCents(float amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * A sink that could be the other half of a source, and the number of days between them
+     */
+    private record Candidate(Transaction source, Transaction sink, long days) {
+
+        /**
+         * @return the sink if the specified transaction is the source, or the source otherwise
+         */
+        Transaction other(Transaction transaction) {
+            return source.equals(transaction) ? sink : source;
+        }
+    }
 }
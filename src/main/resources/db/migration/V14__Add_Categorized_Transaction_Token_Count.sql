@@ -0,0 +1,8 @@
+-- Stores the number of tokens held in TransactionToken for each transaction, so that token matching queries don't
+-- have to group the entire TransactionToken table to compute it. Maintained by TransactionTokenDao.
+ALTER TABLE CategorizedTransaction ADD token_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE CategorizedTransaction
+SET token_count = (
+    SELECT COUNT(*) FROM TransactionToken tt WHERE tt.transaction_id = CategorizedTransaction.id
+);
@@ -0,0 +1,33 @@
+-- Replaces the token TEXT stored on every TransactionToken row with an integer id that references a dictionary of
+-- distinct tokens. The posting table is clustered on (token_id, transaction_id), so that finding the transactions that
+-- contain a set of tokens is a range scan over the primary key.
+CREATE TABLE Token (
+    id INTEGER PRIMARY KEY,
+    token TEXT NOT NULL UNIQUE
+);
+
+INSERT INTO Token (token)
+SELECT DISTINCT token FROM TransactionToken ORDER BY token;
+
+CREATE TABLE TransactionTokenPosting (
+    token_id INTEGER NOT NULL REFERENCES Token(id),
+    transaction_id INTEGER NOT NULL REFERENCES CategorizedTransaction(id) ON DELETE CASCADE,
+    PRIMARY KEY (token_id, transaction_id)
+) WITHOUT ROWID;
+
+INSERT OR IGNORE INTO TransactionTokenPosting (token_id, transaction_id)
+SELECT t.id, tt.transaction_id
+FROM TransactionToken tt
+JOIN Token t ON t.token = tt.token;
+
+DROP TABLE TransactionToken;
+
+ALTER TABLE TransactionTokenPosting RENAME TO TransactionToken;
+
+CREATE INDEX idx_transaction_token_transaction_id ON TransactionToken(transaction_id);
+
+-- duplicate tokens for the same transaction were collapsed above, so token counts must be recomputed
+UPDATE CategorizedTransaction
+SET token_count = (
+    SELECT COUNT(*) FROM TransactionToken tt WHERE tt.transaction_id = CategorizedTransaction.id
+);
@@ -0,0 +1,2 @@
+-- Duplicate detection during import looks up an incoming transaction's fitId on its own
+CREATE INDEX idx_categorized_transaction_fit_id ON CategorizedTransaction(fitId);
@@ -0,0 +1,20 @@
+-- Holds the total, count, minimum and maximum amount of the transactions in each account and category for each month, so
+-- that monthly reports don't have to scan every CategorizedTransaction. Maintained by CategorizedTransactionDao.
+-- month holds the first day of the month, bound the same way as CategorizedTransaction.date.
+-- The table is populated by the application on startup, because months must be computed in the same time zone that
+-- transaction dates were written in.
+CREATE TABLE MonthlyCategorySummary (
+    account_id INTEGER NOT NULL REFERENCES Account (id),
+    category_id INTEGER NOT NULL REFERENCES Category (id),
+    month INTEGER NOT NULL,
+    total REAL NOT NULL,
+    transaction_count INTEGER NOT NULL,
+    min_amount REAL NOT NULL,
+    max_amount REAL NOT NULL,
+    PRIMARY KEY (account_id, category_id, month)
+) WITHOUT ROWID;
+
+CREATE INDEX idx_monthly_category_summary_month ON MonthlyCategorySummary(month);
+
+-- recomputing the summary of a single account, category and month after a transaction is moved between categories
+CREATE INDEX idx_categorized_transaction_category_date ON CategorizedTransaction(category_id, date);
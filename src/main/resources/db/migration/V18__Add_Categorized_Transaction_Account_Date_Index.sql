@@ -0,0 +1,2 @@
+-- Gap detection walks each account's transactions in date order to compare consecutive balances
+CREATE INDEX idx_categorized_transaction_account_date ON CategorizedTransaction(account_id, date);
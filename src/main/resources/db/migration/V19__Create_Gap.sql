@@ -0,0 +1,29 @@
+-- Holds each pair of consecutive transactions in an account whose balances don't agree, meaning that one or more
+-- transactions between them are missing from the record. Maintained by CategorizedTransactionDao, so that gap reports
+-- don't have to walk every account's history.
+-- A gap is identified by the date of the transaction after it, because only the first transaction on each date can
+-- follow a gap. Dates are stored the same way as CategorizedTransaction.date, and the missing amount is in cents.
+CREATE TABLE Gap (
+    account_id INTEGER NOT NULL REFERENCES Account (id) ON DELETE CASCADE,
+    first_date_after_gap INTEGER NOT NULL,
+    last_good_date INTEGER NOT NULL,
+    missing_cents INTEGER NOT NULL,
+    PRIMARY KEY (account_id, first_date_after_gap)
+) WITHOUT ROWID;
+
+-- gaps in the transactions that were imported before this table existed. Same-day pairs are skipped, because their
+-- order is an artifact of how overlapping exports were imported. A null balance is treated as zero
+INSERT INTO Gap (account_id, first_date_after_gap, last_good_date, missing_cents)
+SELECT account_id, date, previous_date, balance_cents - (previous_balance_cents + amount_cents)
+FROM (
+    SELECT account_id, date,
+        CAST(ROUND(amount * 100) AS INTEGER) AS amount_cents,
+        CAST(ROUND(COALESCE(balance, 0) * 100) AS INTEGER) AS balance_cents,
+        LAG(date) OVER (PARTITION BY account_id ORDER BY date, id) AS previous_date,
+        LAG(CAST(ROUND(COALESCE(balance, 0) * 100) AS INTEGER)) OVER (PARTITION BY account_id ORDER BY date, id)
+            AS previous_balance_cents
+    FROM CategorizedTransaction
+)
+WHERE previous_date IS NOT NULL
+    AND previous_date <> date
+    AND balance_cents <> previous_balance_cents + amount_cents;
@@ -0,0 +1,3 @@
+-- Reconciling unlinked transfers probes each side of the Transfer table for every TRANSFER transaction
+CREATE INDEX idx_transfer_source_id ON Transfer(source_id);
+CREATE INDEX idx_transfer_sink_id ON Transfer(sink_id);
@@ -0,0 +1,6 @@
+-- Date range reports filter on date alone. Including category_id and amount lets the monthly sums of partial months be
+-- read from the index without visiting the table
+CREATE INDEX idx_categorized_transaction_date_category ON CategorizedTransaction(date, category_id, amount);
+
+-- Categorization looks for previously imported transactions with exactly the same description
+CREATE INDEX idx_categorized_transaction_description ON CategorizedTransaction(description);
@@ -6,6 +6,7 @@ import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
 import ca.jonathanfritz.ofxcat.datastore.TransactionTokenDao;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatastoreModule;
 import ca.jonathanfritz.ofxcat.matching.KeywordRulesConfig;
+import ca.jonathanfritz.ofxcat.matching.TokenIndex;
 import ca.jonathanfritz.ofxcat.matching.TokenMatchingConfig;
 import ca.jonathanfritz.ofxcat.matching.TokenMatchingService;
 import ca.jonathanfritz.ofxcat.matching.TokenNormalizer;
@@ -59,7 +60,12 @@ public abstract class AbstractDatabaseTest {
             CategoryDao categoryDao, CategorizedTransactionDao categorizedTransactionDao, CLI cli) {
         TransactionTokenDao transactionTokenDao = new TransactionTokenDao();
         TokenMatchingService tokenMatchingService = new TokenMatchingService(
-                connection, transactionTokenDao, categoryDao, tokenNormalizer, tokenMatchingConfig);
+                connection,
+                transactionTokenDao,
+                categoryDao,
+                tokenNormalizer,
+                tokenMatchingConfig,
+                injector.getInstance(TokenIndex.class));
         KeywordRulesConfig keywordRulesConfig = KeywordRulesConfig.empty();
 
         return new TransactionCategoryService(
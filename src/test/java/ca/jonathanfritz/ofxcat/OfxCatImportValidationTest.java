@@ -4,9 +4,12 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import ca.jonathanfritz.ofxcat.cli.CLI;
 import ca.jonathanfritz.ofxcat.config.AppConfig;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfiles;
 import ca.jonathanfritz.ofxcat.exception.CliException;
 import ca.jonathanfritz.ofxcat.matching.KeywordRulesConfig;
 import ca.jonathanfritz.ofxcat.service.CategoryCombineService;
+import ca.jonathanfritz.ofxcat.service.DatabaseBackupService;
+import ca.jonathanfritz.ofxcat.service.DatastoreBenchmarkService;
 import ca.jonathanfritz.ofxcat.service.GapDetectionService;
 import ca.jonathanfritz.ofxcat.service.MigrationReport;
 import ca.jonathanfritz.ofxcat.service.ReportingService;
@@ -17,8 +20,12 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,12 +44,12 @@ class OfxCatImportValidationTest {
     private OfxCat ofxCat;
     private TestPathUtils testPathUtils;
     private boolean importServiceCalled;
-    private File importedFile;
+    private List<File> importedFiles;
 
     @BeforeEach
     void setUp() {
         importServiceCalled = false;
-        importedFile = null;
+        importedFiles = null;
         testPathUtils = new TestPathUtils(tempDir);
 
         // Create OfxCat with test doubles
@@ -53,6 +60,9 @@ class OfxCatImportValidationTest {
                 new StubTokenMigrationService(),
                 new StubCategoryCombineService(),
                 new StubGapDetectionService(),
+                new StubDatastoreBenchmarkService(),
+                new StubDatabaseBackupService(),
+                new StubWorkloadProfiles(),
                 testPathUtils,
                 new StubCLI(),
                 KeywordRulesConfig.empty(),
@@ -77,25 +87,77 @@ class OfxCatImportValidationTest {
     }
 
     @Test
-    void importWithDirectoryPassesValidation() throws IOException {
-        // Setup: Create a directory instead of a file
+    void importWithDirectoryImportsOfxFilesInDirectory() throws IOException {
+        // Setup: Create a directory that contains two OFX files and a file of some other type
         Path directory = tempDir.resolve("some-directory");
         Files.createDirectory(directory);
+        Path first = directory.resolve("a.ofx");
+        Path second = directory.resolve("b.OFX");
+        Files.writeString(first, "<?xml version=\"1.0\"?><OFX></OFX>");
+        Files.writeString(second, "<?xml version=\"1.0\"?><OFX></OFX>");
+        Files.writeString(directory.resolve("notes.txt"), "not an ofx file");
 
-        // Note: The current validation only checks Files.exists() && Files.isReadable()
-        // Directories pass this check, so validation succeeds.
-        // The error will occur later when trying to parse the directory as an OFX file.
-        // This test documents the current behavior.
-
-        // Execute: Validation passes, import service is called
-        // (The import service stub doesn't actually parse, so no error)
+        // Execute: Every OFX file in the directory is imported in a single call
         assertDoesNotThrow(() -> {
             ofxCat.importTransactions(directory.toString());
         });
 
-        // The import service was called (it would fail in real usage when parsing)
+        assertEquals(List.of(first.toFile(), second.toFile()), importedFiles);
+    }
+
+    @Test
+    void importWithEmptyDirectoryFails() throws IOException {
+        // Setup: Create a directory that doesn't contain any OFX files
+        Path directory = tempDir.resolve("empty-directory");
+        Files.createDirectory(directory);
+
+        // Execute & Verify: Should throw CliException
+        CliException exception = assertThrows(CliException.class, () -> {
+            ofxCat.importTransactions(directory.toString());
+        });
+
         assertTrue(
-                importServiceCalled, "Import service is called even for directories (validation doesn't check isFile)");
+                exception.getMessage().contains("No OFX files"),
+                "Error message should indicate that there is nothing to import, got: " + exception.getMessage());
+        assertFalse(importServiceCalled, "Import service should not be called when there is nothing to import");
+    }
+
+    @Test
+    void importWithGlobImportsMatchingFiles() throws IOException {
+        // Setup: Create files that do and do not match the pattern
+        Path first = tempDir.resolve("rbc-2024-01.ofx");
+        Path second = tempDir.resolve("rbc-2024-02.ofx");
+        Files.writeString(first, "<?xml version=\"1.0\"?><OFX></OFX>");
+        Files.writeString(second, "<?xml version=\"1.0\"?><OFX></OFX>");
+        Files.writeString(tempDir.resolve("td-2024-01.ofx"), "<?xml version=\"1.0\"?><OFX></OFX>");
+
+        // Execute
+        assertDoesNotThrow(() -> {
+            ofxCat.importTransactions(tempDir.resolve("rbc-*.ofx").toString());
+        });
+
+        assertEquals(List.of(first.toFile(), second.toFile()), importedFiles);
+    }
+
+    @Test
+    void importWithMultipleFilesImportsAllFilesAndBacksUpDatabaseOnce() throws Exception {
+        // Setup: Create database file and two valid import files
+        Files.writeString(testPathUtils.getDatabasePath(), "database content");
+        Path first = tempDir.resolve("first.ofx");
+        Path second = tempDir.resolve("second.ofx");
+        Files.writeString(first, "<?xml version=\"1.0\"?><OFX></OFX>");
+        Files.writeString(second, "<?xml version=\"1.0\"?><OFX></OFX>");
+
+        // Execute
+        ofxCat.importTransactions(List.of(first.toString(), second.toString()));
+
+        // Verify: Both files are imported together, backed up, and the database is backed up once
+        assertEquals(List.of(first.toFile(), second.toFile()), importedFiles);
+        assertTrue(Files.exists(testPathUtils.getImportedFilesPath().resolve("first.ofx")));
+        assertTrue(Files.exists(testPathUtils.getImportedFilesPath().resolve("second.ofx")));
+        try (Stream<Path> backups = Files.list(testPathUtils.getBackupsPath())) {
+            assertEquals(1, backups.count(), "Database should only be backed up once");
+        }
     }
 
     @Test
@@ -110,7 +172,7 @@ class OfxCatImportValidationTest {
         });
 
         assertTrue(importServiceCalled, "Import service should be called for valid file");
-        assertEquals(validFile.toFile(), importedFile, "Import service should receive the correct file");
+        assertEquals(List.of(validFile.toFile()), importedFiles, "Import service should receive the correct file");
     }
 
     @Test
@@ -131,21 +193,16 @@ class OfxCatImportValidationTest {
     }
 
     @Test
-    void importWithEmptyPathUsesCurrentDirectory() {
+    void importWithEmptyPathFails() {
         // Setup: Empty string path
         String emptyPath = "";
 
-        // Note: Path.of("") returns the current working directory, which exists and is readable.
-        // This means empty path passes validation and import service is called.
-        // This test documents the current behavior.
-
-        // Execute: Validation passes because "" resolves to current directory
-        assertDoesNotThrow(() -> {
+        // Execute & Verify: Should throw CliException rather than importing the current directory
+        assertThrows(CliException.class, () -> {
             ofxCat.importTransactions(emptyPath);
         });
 
-        // Import service was called (it would fail in real usage when parsing a directory)
-        assertTrue(importServiceCalled, "Empty path resolves to current directory, which passes exists/readable check");
+        assertFalse(importServiceCalled, "Import service should not be called for an empty path");
     }
 
     @Test
@@ -340,14 +397,14 @@ class OfxCatImportValidationTest {
         StubTransactionImportService() {
             // 12 null params to match constructor: CLI, OfxParser, AccountDao, TransactionCleanerFactory,
             // Connection, CategorizedTransactionDao, TransactionCategoryService, CategoryDao,
-            // TransferMatchingService, TransferDao, TransactionTokenDao, TokenNormalizer
-            super(null, null, null, null, null, null, null, null, null, null, null, null);
+            // TransferMatchingService, TransferDao, TransactionTokenDao, TokenNormalizer, then AppConfig
+            super(null, null, null, null, null, null, null, null, null, null, null, null, AppConfig.defaults());
         }
 
         @Override
-        public void importTransactions(File file) {
+        public void importTransactions(List<File> files) {
             importServiceCalled = true;
-            importedFile = file;
+            importedFiles = files;
         }
     }
 
@@ -360,9 +417,9 @@ class OfxCatImportValidationTest {
 
     private static class StubTokenMigrationService extends TokenMigrationService {
         StubTokenMigrationService() {
-            // 6 null params: Connection, CategorizedTransactionDao, TransactionTokenDao,
-            // CategoryDao, TokenNormalizer, KeywordRulesConfig
-            super(null, null, null, null, null, null);
+            // 7 null params: Connection, CategorizedTransactionDao, TransactionTokenDao,
+            // CategoryDao, TokenNormalizer, KeywordRulesConfig, TokenIndex
+            super(null, null, null, null, null, null, null);
         }
 
         @Override
@@ -378,7 +435,7 @@ class OfxCatImportValidationTest {
 
     private static class StubCategoryCombineService extends CategoryCombineService {
         StubCategoryCombineService() {
-            super(null, null, null);
+            super(null, null, null, null);
         }
     }
 
@@ -388,6 +445,34 @@ class OfxCatImportValidationTest {
         }
     }
 
+    private static class StubDatastoreBenchmarkService extends DatastoreBenchmarkService {
+        StubDatastoreBenchmarkService() {
+            super(null, null);
+        }
+    }
+
+    private class StubDatabaseBackupService extends DatabaseBackupService {
+        StubDatabaseBackupService() {
+            super(null);
+        }
+
+        @Override
+        public void backup(Path backupPath) throws SQLException {
+            // the test database is a plain file rather than a live connection, so it is copied instead
+            try {
+                Files.copy(testPathUtils.getDatabasePath(), backupPath);
+            } catch (IOException e) {
+                throw new SQLException("Failed to copy database", e);
+            }
+        }
+    }
+
+    private static class StubWorkloadProfiles extends WorkloadProfiles {
+        StubWorkloadProfiles() {
+            super(null, Map.of());
+        }
+    }
+
     private static class StubFlyway extends Flyway {
         StubFlyway() {
             super(Flyway.configure());
@@ -444,6 +444,33 @@ class OfxCatParameterParsingTest {
         assertThrows(CliException.class, () -> OfxCat.getRenameOptions(args));
     }
 
+    @Test
+    void getRebuildTargetWithValidSummariesTarget() throws CliException {
+        // Setup: Valid REBUILD mode and target
+        String[] args = {"rebuild", "summaries"};
+
+        // Execute & Verify
+        assertEquals(OfxCat.Mode.REBUILD, OfxCat.getMode(args));
+        assertEquals(OfxCat.RebuildTarget.SUMMARIES, OfxCat.getRebuildTarget(args));
+    }
+
+    @Test
+    void getRebuildTargetWithValidGapsTarget() throws CliException {
+        // Setup: Valid REBUILD mode and target
+        String[] args = {"rebuild", "gaps"};
+
+        // Execute & Verify
+        assertEquals(OfxCat.Mode.REBUILD, OfxCat.getMode(args));
+        assertEquals(OfxCat.RebuildTarget.GAPS, OfxCat.getRebuildTarget(args));
+    }
+
+    @Test
+    void getRebuildTargetRequiresKnownTarget() {
+        // Execute & Verify: the target is required, and must be one that can be rebuilt
+        assertThrows(CliException.class, () -> OfxCat.getRebuildTarget(new String[] {"rebuild"}));
+        assertThrows(CliException.class, () -> OfxCat.getRebuildTarget(new String[] {"rebuild", "accounts"}));
+    }
+
     @Test
     void getOptionsDefaultFormatIsTerminal() throws CliException {
         // Setup: No --format flag
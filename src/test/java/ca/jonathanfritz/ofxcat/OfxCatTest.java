@@ -2,6 +2,7 @@ package ca.jonathanfritz.ofxcat;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import ca.jonathanfritz.ofxcat.datastore.utils.Workload;
 import ca.jonathanfritz.ofxcat.exception.CliException;
 import org.junit.jupiter.api.Test;
 
@@ -19,6 +20,20 @@ class OfxCatTest {
         assertEquals(OfxCat.Mode.MIGRATE, mode);
     }
 
+    @Test
+    void getMode_parsesBenchmarkMode() throws CliException {
+        OfxCat.Mode mode = OfxCat.getMode(new String[] {"benchmark"});
+        assertEquals(OfxCat.Mode.BENCHMARK, mode);
+    }
+
+    @Test
+    void mode_runsUnderMatchingWorkload() {
+        assertEquals(Workload.BULK_IMPORT, OfxCat.Mode.IMPORT.getWorkload());
+        assertEquals(Workload.BULK_IMPORT, OfxCat.Mode.REBUILD.getWorkload());
+        assertEquals(Workload.REPORT, OfxCat.Mode.GET.getWorkload());
+        assertEquals(Workload.INTERACTIVE, OfxCat.Mode.HELP.getWorkload());
+    }
+
     @Test
     void getMigrateOptions_defaultsToNotDryRun() throws CliException {
         OfxCat.MigrateOptions options = OfxCat.getMigrateOptions(new String[] {"migrate"});
@@ -88,6 +88,28 @@ class AppConfigLoaderTest {
         assertNotNull(result.config().getTokenMatching());
     }
 
+    @Test
+    void mergesPartialDatastoreProfileWithDefaults() throws IOException {
+        // Setup: Create a config that only overrides one setting of one profile
+        String yaml = """
+                datastore:
+                  bulk_import:
+                    synchronous: FULL
+                """;
+        Path configFile = tempDir.resolve("config.yaml");
+        Files.writeString(configFile, yaml);
+
+        // Execute: Load partial config
+        AppConfigLoader.LoadResult result = loader.loadOrCreate(tempDir);
+
+        // Verify: The overridden setting is loaded, and the rest of the profile keeps its own defaults
+        AppConfig.DatastoreSettings datastore = result.config().getDatastore();
+        assertEquals("FULL", datastore.getBulkImport().getSynchronous());
+        assertEquals(65536, datastore.getBulkImport().getCacheSizeKib());
+        assertEquals("MEMORY", datastore.getBulkImport().getTempStore());
+        assertEquals(256, datastore.getReport().getMmapSizeMib());
+    }
+
     @Test
     void handlesInvalidYaml() throws IOException {
         // Setup: Create an invalid YAML file
@@ -154,6 +176,8 @@ class AppConfigLoaderTest {
         assertTrue(content.contains("# Path to keyword rules file"));
         assertTrue(content.contains("# Token-based transaction matching"));
         assertTrue(content.contains("# Minimum overlap ratio"));
+        assertTrue(content.contains("# SQLite settings for each kind of work"));
+        assertTrue(content.contains("datastore:\n  interactive:\n    journal_mode: WAL\n"));
     }
 
     @Test
@@ -2,7 +2,10 @@ package ca.jonathanfritz.ofxcat.config;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import ca.jonathanfritz.ofxcat.datastore.utils.Workload;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfile;
 import java.nio.file.Path;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -18,6 +21,77 @@ class AppConfigTest {
         assertEquals("keyword-rules.yaml", config.getKeywordRulesPath());
         assertNotNull(config.getTokenMatching());
         assertEquals(0.6, config.getTokenMatching().getOverlapThreshold());
+        assertEquals(3, config.getTransferMatching().getDateWindowDays());
+    }
+
+    @Test
+    void defaultsHaveDatastoreProfiles() {
+        AppConfig.DatastoreSettings datastore = AppConfig.defaults().getDatastore();
+
+        assertEquals("WAL", datastore.getInteractive().getJournalMode());
+        assertEquals("NORMAL", datastore.getInteractive().getSynchronous());
+        assertEquals(8192, datastore.getInteractive().getCacheSizeKib());
+        assertEquals(0, datastore.getInteractive().getMmapSizeMib());
+        assertTrue(datastore.getInteractive().isOptimizeOnClose());
+        assertEquals(65536, datastore.getBulkImport().getCacheSizeKib());
+        assertEquals("MEMORY", datastore.getBulkImport().getTempStore());
+        assertEquals(256, datastore.getReport().getMmapSizeMib());
+        assertFalse(datastore.getReport().isOptimizeOnClose());
+    }
+
+    @Test
+    void defaultDatastoreProfilesMatchWorkloadDefaults() {
+        Map<Workload, WorkloadProfile> profiles = AppConfig.defaults().getDatastore().toWorkloadProfiles();
+
+        for (Workload workload : Workload.values()) {
+            assertEquals(WorkloadProfile.defaults(workload).toString(), profiles.get(workload).toString());
+        }
+    }
+
+    @Test
+    void toWorkloadProfilesConvertsDatastoreSettings() {
+        AppConfig.DatastoreSettings datastore = AppConfig.defaults().getDatastore();
+        datastore.getReport().setSynchronous("full");
+        datastore.getReport().setMmapSizeMib(512);
+
+        Map<Workload, WorkloadProfile> profiles = datastore.toWorkloadProfiles();
+
+        assertEquals(3, profiles.size());
+        WorkloadProfile report = profiles.get(Workload.REPORT);
+        assertEquals(WorkloadProfile.Synchronous.FULL, report.getSynchronous());
+        assertEquals(512, report.getMmapSizeMib());
+        assertEquals(WorkloadProfile.TempStore.MEMORY, report.getTempStore());
+        assertFalse(report.isOptimizeOnClose());
+    }
+
+    @Test
+    void toWorkloadProfilesFallsBackToDefaultsForInvalidSetting() {
+        AppConfig.DatastoreSettings datastore = AppConfig.defaults().getDatastore();
+        datastore.getBulkImport().setJournalMode("sideways");
+        datastore.getBulkImport().setCacheSizeKib(1024);
+
+        Map<Workload, WorkloadProfile> profiles = datastore.toWorkloadProfiles();
+
+        // the whole profile is replaced, not just the invalid setting
+        WorkloadProfile bulkImport = profiles.get(Workload.BULK_IMPORT);
+        assertEquals(WorkloadProfile.JournalMode.WAL, bulkImport.getJournalMode());
+        assertEquals(WorkloadProfile.defaults(Workload.BULK_IMPORT).getCacheSizeKib(), bulkImport.getCacheSizeKib());
+    }
+
+    @Test
+    void toWorkloadProfilesRejectsNegativeSizes() {
+        AppConfig.DatastoreSettings datastore = AppConfig.defaults().getDatastore();
+        datastore.getInteractive().setCacheSizeKib(-2000);
+        datastore.getReport().setMmapSizeMib(-1);
+
+        Map<Workload, WorkloadProfile> profiles = datastore.toWorkloadProfiles();
+
+        assertEquals(
+                WorkloadProfile.defaults(Workload.INTERACTIVE).getCacheSizeKib(),
+                profiles.get(Workload.INTERACTIVE).getCacheSizeKib());
+        assertEquals(
+                WorkloadProfile.defaults(Workload.REPORT).getMmapSizeMib(),
+                profiles.get(Workload.REPORT).getMmapSizeMib());
     }
 
     @Test
@@ -190,6 +190,55 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
             final CategorizedTransaction categorizedTransaction = new CategorizedTransaction(transaction, category);
             categorizedTransactionDao.insert(t, categorizedTransaction);
             Assertions.assertTrue(categorizedTransactionDao.isDuplicate(t, transaction));
+
+            // fitIds are only unique within an account, so the same fitId in another account is not a duplicate
+            final Account otherAccount =
+                    accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+            final Transaction otherTransaction = TestUtils.createRandomTransaction(otherAccount, transaction.getFitId());
+            Assertions.assertFalse(categorizedTransactionDao.isDuplicate(t, otherTransaction));
+            Assertions.assertTrue(categorizedTransactionDao
+                    .selectByFitId(t, otherAccount, transaction.getFitId())
+                    .isEmpty());
+            Assertions.assertTrue(categorizedTransactionDao
+                    .selectByFitId(t, account, transaction.getFitId())
+                    .isPresent());
+        }
+    }
+
+    @Test
+    void selectFitIdsTest() throws SQLException {
+        final Category category =
+                categoryDao.insert(TestUtils.createRandomCategory()).orElse(null);
+        final Account account =
+                accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        final Account otherAccount =
+                accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+
+        // existing transactions inside and outside of the date range of the incoming transactions
+        final LocalDate start = LocalDate.of(2024, 3, 1);
+        final LocalDate end = LocalDate.of(2024, 3, 31);
+        final Transaction before = TestUtils.createRandomTransaction(account, start.minusDays(1));
+        final Transaction first = TestUtils.createRandomTransaction(account, start);
+        final Transaction last = TestUtils.createRandomTransaction(account, end);
+        final Transaction after = TestUtils.createRandomTransaction(account, end.plusDays(1));
+        final Transaction other = TestUtils.createRandomTransaction(otherAccount, start);
+        for (Transaction transaction : List.of(before, first, last, after, other)) {
+            categorizedTransactionDao.insert(new CategorizedTransaction(transaction, category));
+        }
+
+        // the incoming transactions only cover the first account
+        final Map<Account, List<Transaction>> incoming = Map.of(
+                account,
+                List.of(
+                        TestUtils.createRandomTransaction(account, end),
+                        TestUtils.createRandomTransaction(account, start)));
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final Map<Long, Set<String>> fitIds = categorizedTransactionDao.selectFitIds(t, incoming);
+            Assertions.assertEquals(Map.of(account.getId(), Set.of(first.getFitId(), last.getFitId())), fitIds);
+
+            // nothing to look up
+            Assertions.assertTrue(categorizedTransactionDao.selectFitIds(t, Map.of()).isEmpty());
         }
     }
 
@@ -289,8 +338,11 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
                 .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(sinkAccount), category))
                 .orElse(null);
 
-        // both transactions should be returned if we find unlinked transactions
-        final Map<Account, List<Transaction>> unlinkedTransfers = categorizedTransactionDao.findUnlinkedTransfers();
+        // both transactions should be returned if we find unlinked transactions in the years that they were dated
+        final LocalDate startDate = LocalDate.of(2020, 1, 1);
+        final LocalDate endDate = LocalDate.of(2022, 12, 31);
+        final Map<Account, List<Transaction>> unlinkedTransfers =
+                categorizedTransactionDao.findUnlinkedTransfers(startDate, endDate);
         Assertions.assertEquals(2, unlinkedTransfers.size());
         Assertions.assertEquals(Set.of(sourceAccount, sinkAccount), unlinkedTransfers.keySet());
         Assertions.assertEquals(1, unlinkedTransfers.get(sourceAccount).size());
@@ -306,7 +358,33 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
 
         // then they are no longer returned by the unlinked transactions method
         Assertions.assertEquals(
-                0, categorizedTransactionDao.findUnlinkedTransfers().size());
+                0, categorizedTransactionDao.findUnlinkedTransfers(startDate, endDate).size());
+    }
+
+    @Test
+    void findUnlinkedTransfersBetweenDatesTest() {
+        final Category transfer = categoryDao.select(1).orElseThrow();
+        final Account sourceAccount =
+                accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        final Account sinkAccount =
+                accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+
+        // Setup: an unlinked transfer on either end of the window, one before it, and a linked pair inside it
+        final CategorizedTransaction first = insertTransfer(sourceAccount, transfer, LocalDate.of(2023, 1, 10));
+        final CategorizedTransaction last = insertTransfer(sinkAccount, transfer, LocalDate.of(2023, 1, 20));
+        insertTransfer(sinkAccount, transfer, LocalDate.of(2023, 1, 9));
+        final CategorizedTransaction source = insertTransfer(sourceAccount, transfer, LocalDate.of(2023, 1, 15));
+        final CategorizedTransaction sink = insertTransfer(sinkAccount, transfer, LocalDate.of(2023, 1, 15));
+        new TransferDao(connection, categorizedTransactionDao).insert(new Transfer(source, sink));
+
+        // Execute
+        final Map<Account, List<Transaction>> unlinkedTransfers =
+                categorizedTransactionDao.findUnlinkedTransfers(LocalDate.of(2023, 1, 10), LocalDate.of(2023, 1, 20));
+
+        // Verify: only the unlinked transfers in the window are returned
+        Assertions.assertEquals(
+                Map.of(sourceAccount, List.of(first.getTransaction()), sinkAccount, List.of(last.getTransaction())),
+                unlinkedTransfers);
     }
 
     @Test
@@ -350,9 +428,11 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
     }
 
     @Test
-    void selectWithoutTokens_returnsEmptyWhenNoTransactions() {
+    void selectWithoutTokens_returnsEmptyWhenNoTransactions() throws SQLException {
         // Empty database should return empty list
-        Assertions.assertTrue(categorizedTransactionDao.selectWithoutTokens().isEmpty());
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            Assertions.assertTrue(categorizedTransactionDao.selectWithoutTokens(t, 0, 10).isEmpty());
+        }
     }
 
     @Test
@@ -376,9 +456,11 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
         }
 
         // Should return only the transaction without tokens
-        List<CategorizedTransaction> result = categorizedTransactionDao.selectWithoutTokens();
-        Assertions.assertEquals(1, result.size());
-        Assertions.assertEquals(withoutTokens.getId(), result.getFirst().getId());
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            List<CategorizedTransaction> result = categorizedTransactionDao.selectWithoutTokens(t, 0, 10);
+            Assertions.assertEquals(1, result.size());
+            Assertions.assertEquals(withoutTokens.getId(), result.getFirst().getId());
+        }
     }
 
     @Test
@@ -399,7 +481,41 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
         }
 
         // Should return empty list - all transactions have tokens
-        Assertions.assertTrue(categorizedTransactionDao.selectWithoutTokens().isEmpty());
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            Assertions.assertTrue(categorizedTransactionDao.selectWithoutTokens(t, 0, 10).isEmpty());
+        }
+    }
+
+    @Test
+    void selectWithoutTokens_pagesThroughTransactionsById() throws SQLException {
+        final Category category = categoryDao.insert(TestUtils.createRandomCategory()).orElseThrow();
+        final Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+
+        // Create five transactions, and give tokens to the second one
+        final List<CategorizedTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            transactions.add(categorizedTransactionDao
+                    .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                    .orElseThrow());
+        }
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            transactionTokenDao.insertTokens(t, transactions.get(1).getId(), Set.of("test", "token"));
+        }
+        Assertions.assertEquals(4, categorizedTransactionDao.countWithoutTokens());
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // Each page starts after the last ID of the previous one, and skips the transaction that has tokens
+            final List<CategorizedTransaction> firstPage = categorizedTransactionDao.selectWithoutTokens(t, 0, 2);
+            Assertions.assertEquals(List.of(transactions.get(0), transactions.get(2)), firstPage);
+
+            final List<CategorizedTransaction> secondPage =
+                    categorizedTransactionDao.selectWithoutTokens(t, firstPage.getLast().getId(), 2);
+            Assertions.assertEquals(List.of(transactions.get(3), transactions.get(4)), secondPage);
+
+            Assertions.assertTrue(categorizedTransactionDao
+                    .selectWithoutTokens(t, secondPage.getLast().getId(), 2)
+                    .isEmpty());
+        }
     }
 
     @Test
@@ -473,4 +589,114 @@ class CategorizedTransactionDaoTest extends AbstractDatabaseTest {
         Assertions.assertEquals(1, result.size());
         Assertions.assertEquals(txnA.getId(), result.getFirst().getId());
     }
+
+    @Test
+    void forEach_hydratesAccountAndCategoryFromJoin() {
+        final Account account =
+                accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        final Category category =
+                categoryDao.insert(TestUtils.createRandomCategory()).orElse(null);
+
+        final CategorizedTransaction first = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElse(null);
+        final CategorizedTransaction second = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElse(null);
+
+        final List<CategorizedTransaction> result = new ArrayList<>();
+        Assertions.assertTrue(categorizedTransactionDao.forEach(result::add));
+        Assertions.assertEquals(Set.of(first, second), Set.copyOf(result));
+
+        // every column of the joined Account and Category rows is hydrated
+        Assertions.assertEquals(account.getBankId(), result.get(0).getAccount().getBankId());
+        Assertions.assertEquals(account.getAccountNumber(), result.get(0).getAccount().getAccountNumber());
+        Assertions.assertEquals(account.getAccountType(), result.get(0).getAccount().getAccountType());
+        Assertions.assertEquals(account.getName(), result.get(0).getAccount().getName());
+        Assertions.assertEquals(category.getName(), result.get(0).getCategory().getName());
+
+        // rows that share an Account and Category share the same instances
+        Assertions.assertSame(result.get(0).getAccount(), result.get(1).getAccount());
+        Assertions.assertSame(result.get(0).getCategory(), result.get(1).getCategory());
+    }
+
+    @Test
+    void select_failsForTransactionWithMissingCategory() throws SQLException {
+        final Account account =
+                accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        final Category category =
+                categoryDao.insert(TestUtils.createRandomCategory()).orElse(null);
+        final CategorizedTransaction orphan = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElse(null);
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // point the transaction at a category that doesn't exist
+            t.execute(
+                    "UPDATE CategorizedTransaction SET category_id = 9999 WHERE id = ?;",
+                    ps -> ps.setLong(1, orphan.getId()));
+
+            // the row is reported instead of silently dropping out of the join
+            final SQLException ex = Assertions.assertThrows(
+                    SQLException.class, () -> categorizedTransactionDao.select(t, orphan.getId()));
+            Assertions.assertTrue(ex.getMessage().contains("Category with id 9999 does not exist"));
+        }
+    }
+
+    @Test
+    void forEach_streamsEveryTransaction() {
+        final Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        final Category category = categoryDao.insert(TestUtils.createRandomCategory()).orElseThrow();
+        final List<CategorizedTransaction> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            expected.add(categorizedTransactionDao
+                    .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                    .orElseThrow());
+        }
+
+        final List<CategorizedTransaction> streamed = new ArrayList<>();
+        Assertions.assertTrue(categorizedTransactionDao.forEach(streamed::add));
+
+        Assertions.assertEquals(Set.copyOf(expected), Set.copyOf(streamed));
+        Assertions.assertEquals(3, categorizedTransactionDao.count());
+    }
+
+    @Test
+    void selectMonthlySumGroupByCategoryTest() {
+        final Account account =
+                accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        final Category groceries = categoryDao.insert(new Category("GROCERIES")).orElse(null);
+        final Category restaurants = categoryDao.insert(new Category("RESTAURANTS")).orElse(null);
+
+        // two transactions in January, one in March, and one on either side of the queried date range
+        insertTransaction(account, groceries, LocalDate.of(2023, 1, 15), -10.25f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 1, 31), -4.50f);
+        insertTransaction(account, restaurants, LocalDate.of(2023, 1, 20), -30.00f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 3, 1), -7.75f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 1, 9), -100.00f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 3, 11), -100.00f);
+
+        final Map<LocalDate, Map<Category, Float>> monthlySums = categorizedTransactionDao
+                .selectMonthlySumGroupByCategory(LocalDate.of(2023, 1, 10), LocalDate.of(2023, 3, 10));
+
+        // months are in chronological order, the first is keyed by the start date, and empty months are included
+        Assertions.assertEquals(
+                List.of(LocalDate.of(2023, 1, 10), LocalDate.of(2023, 2, 1), LocalDate.of(2023, 3, 1)),
+                new ArrayList<>(monthlySums.keySet()));
+        Assertions.assertEquals(
+                Map.of(groceries, -14.75f, restaurants, -30.00f), monthlySums.get(LocalDate.of(2023, 1, 10)));
+        Assertions.assertEquals(Map.of(), monthlySums.get(LocalDate.of(2023, 2, 1)));
+        Assertions.assertEquals(Map.of(groceries, -7.75f), monthlySums.get(LocalDate.of(2023, 3, 1)));
+    }
+
+    private CategorizedTransaction insertTransfer(Account account, Category category, LocalDate date) {
+        return categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account, date), category))
+                .orElseThrow();
+    }
+
+    private void insertTransaction(Account account, Category category, LocalDate date, float amount) {
+        categorizedTransactionDao.insert(
+                new CategorizedTransaction(TestUtils.createRandomTransaction(account, date, amount), category));
+    }
 }
@@ -2,6 +2,8 @@ package ca.jonathanfritz.ofxcat.datastore;
 
 import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.Assertions;
@@ -177,4 +179,35 @@ class CategoryDaoTest extends AbstractDatabaseTest {
         Assertions.assertTrue(unknown.isPresent());
         Assertions.assertEquals(Category.UNKNOWN.getName(), unknown.get().getName());
     }
+
+    @Test
+    void selectWithinTransactionReturnsCachedCategory() throws SQLException {
+        final CategoryDao categoryDao = new CategoryDao(connection);
+        final Category inserted = categoryDao.insert(new Category("Cached")).get();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // the first select loads the category, and the second is served from the transaction's identity map
+            final Category first = categoryDao.select(t, inserted.getId()).get();
+            Assertions.assertSame(first, categoryDao.select(t, inserted.getId()).get());
+
+            // deleting the category evicts it from the identity map
+            Assertions.assertTrue(categoryDao.delete(t, inserted.getId()));
+            Assertions.assertFalse(categoryDao.select(t, inserted.getId()).isPresent());
+        }
+    }
+
+    @Test
+    void rollbackToSavepointClearsCachedCategories() throws SQLException {
+        final CategoryDao categoryDao = new CategoryDao(connection);
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.setSavepoint();
+            final Category inserted = categoryDao.insert(t, new Category("Rolled Back")).get();
+            Assertions.assertTrue(categoryDao.select(t, inserted.getId()).isPresent());
+
+            // the insert is undone, so the cached copy must not be returned
+            t.rollbackToSavepoint();
+            Assertions.assertFalse(categoryDao.select(t, inserted.getId()).isPresent());
+        }
+    }
 }
@@ -12,6 +12,7 @@ import ca.jonathanfritz.ofxcat.datastore.utils.SqlFunction;
 import ca.jonathanfritz.ofxcat.datastore.utils.TransactionState;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -188,6 +189,33 @@ class DatabaseTransactionErrorHandlingTest extends AbstractDatabaseTest {
         }
     }
 
+    @Test
+    void insert_returnsInsertedRecord() throws SQLException {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            SqlFunction<TransactionState, List<Category>> deserializer = new ResultSetDeserializer<>((ts, list) -> {
+                ResultSet rs = ts.getResultSet();
+                list.add(new Category(rs.getLong("id"), rs.getString("name")));
+            });
+
+            // Execute: the statement may or may not be terminated, since the RETURNING clause is appended to it
+            final Category terminated = t.insert(
+                            "INSERT INTO Category (name) VALUES (?);",
+                            ps -> ps.setString(1, "TERMINATED"),
+                            deserializer)
+                    .orElseThrow();
+            final Category unterminated = t.insert(
+                            "INSERT INTO Category (name) VALUES (?)",
+                            ps -> ps.setString(1, "UNTERMINATED"),
+                            deserializer)
+                    .orElseThrow();
+
+            // Verify: each record is returned with its generated primary key
+            assertEquals("TERMINATED", terminated.getName());
+            assertEquals("UNTERMINATED", unterminated.getName());
+            assertEquals(terminated.getId() + 1, unterminated.getId().longValue());
+        }
+    }
+
     @Test
     void getFirstResult_emptyList_returnsEmpty() throws SQLException {
         Optional<Category> result = DatabaseTransaction.getFirstResult(Collections.emptyList());
@@ -208,4 +236,186 @@ class DatabaseTransactionErrorHandlingTest extends AbstractDatabaseTest {
         SQLException ex = assertThrows(SQLException.class, () -> DatabaseTransaction.getFirstResult(multiple));
         assertTrue(ex.getMessage().contains("Expected a single result, but got 2"));
     }
+
+    @Test
+    void failureInsideSavepointOnlyRollsBackToSavepoint() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            categoryDao.insert(t, new Category("Before Savepoint"));
+
+            // Execute: a statement fails after a savepoint was set
+            t.setSavepoint();
+            categoryDao.insert(t, new Category("After Savepoint"));
+            assertThrows(SQLException.class, () -> t.execute("INSERT INTO NoSuchTable (id) VALUES (1)", null));
+            t.rollbackToSavepoint();
+
+            categoryDao.insert(t, new Category("After Rollback"));
+        }
+
+        // Verify: only the changes made after the savepoint were discarded
+        final List<String> names =
+                categoryDao.select().stream().map(Category::getName).toList();
+        assertEquals(initialCategoryCount + 2, names.size());
+        assertTrue(names.contains("BEFORE SAVEPOINT"));
+        assertFalse(names.contains("AFTER SAVEPOINT"));
+        assertTrue(names.contains("AFTER ROLLBACK"));
+    }
+
+    @Test
+    void releasedSavepointIsCommittedWithTransaction() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.setSavepoint();
+            categoryDao.insert(t, new Category("Inside Savepoint"));
+            t.releaseSavepoint();
+        }
+
+        assertEquals(initialCategoryCount + 1, categoryDao.select().size());
+    }
+
+    @Test
+    void commitKeepsTransactionUsable() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            categoryDao.insert(t, new Category("First Commit"));
+            t.commit();
+
+            // a failure after the commit does not roll back the committed changes
+            assertThrows(SQLException.class, () -> t.execute("INSERT INTO NoSuchTable (id) VALUES (1)", null));
+            categoryDao.insert(t, new Category("Second Commit"));
+        }
+
+        assertEquals(initialCategoryCount + 2, categoryDao.select().size());
+    }
+
+    @Test
+    void executeBatchWritesEveryRow() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final int rowsAffected = t.executeBatch(
+                    "INSERT INTO Category (name) VALUES (?)",
+                    List.of("BATCH A", "BATCH B", "BATCH C"),
+                    (ps, name) -> ps.setString(1, name));
+            assertEquals(3, rowsAffected);
+        }
+
+        assertEquals(initialCategoryCount + 3, categoryDao.select().size());
+    }
+
+    @Test
+    void executeBatchFailureRollsBackTransaction() {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // Execute: the second row reuses the primary key of the first
+            assertThrows(
+                    SQLException.class,
+                    () -> t.executeBatch(
+                            "INSERT INTO Category (id, name) VALUES (?, ?)",
+                            List.of(1000L, 1000L),
+                            (ps, id) -> {
+                                ps.setLong(1, id);
+                                ps.setString(2, "BATCH DUPLICATE");
+                            }));
+        }
+
+        // Verify: none of the rows in the batch were committed
+        assertEquals(initialCategoryCount, categoryDao.select().size());
+    }
+
+    @Test
+    void statementCanBeRunAgainWhileItsResultsAreBeingRead() throws SQLException {
+        categoryDao.insert(new Category("Outer")).orElseThrow();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final String selectStatement = "SELECT COUNT(*) FROM Category WHERE name = ?";
+
+            // Execute: run the same SQL from inside the result handler of an outer query
+            final List<Integer> counts = t.queryRaw(selectStatement, ps -> ps.setString(1, "OUTER"), rs -> {
+                final int inner = t.queryRaw(selectStatement, ps -> ps.setString(1, "NO SUCH CATEGORY"), innerRs -> {
+                    innerRs.next();
+                    return innerRs.getInt(1);
+                });
+                rs.next();
+                return List.of(rs.getInt(1), inner);
+            });
+
+            // Verify: the inner query did not disturb the results of the outer one
+            assertEquals(List.of(1, 0), counts);
+        }
+    }
+
+    @Test
+    void forEachPassesEachRowToConsumer() throws SQLException {
+        categoryDao.insert(new Category("Streamed")).orElseThrow();
+        final int categoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            final List<String> names = new ArrayList<>();
+            final int rowCount = t.forEach(
+                    "SELECT * FROM Category",
+                    null,
+                    1,
+                    new ResultSetDeserializer<Category>((ts, list) -> {
+                        ResultSet rs = ts.getResultSet();
+                        list.add(new Category(rs.getLong("id"), rs.getString("name")));
+                    }),
+                    category -> names.add(category.getName()));
+
+            assertEquals(categoryCount, rowCount);
+            assertEquals(categoryCount, names.size());
+            assertTrue(names.contains("STREAMED"));
+        }
+    }
+
+    @Test
+    void forEachConsumerFailureRollsBackTransaction() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.execute("INSERT INTO Category (name) VALUES ('UNCOMMITTED')", null);
+
+            // Execute: the consumer fails part way through the result set
+            assertThrows(
+                    SQLException.class,
+                    () -> t.forEach(
+                            "SELECT * FROM Category",
+                            null,
+                            1,
+                            new ResultSetDeserializer<Category>(
+                                    (ts, list) -> list.add(new Category(ts.getResultSet().getLong("id"), "IGNORED"))),
+                            category -> {
+                                throw new SQLException("Consumer failed");
+                            }));
+        }
+
+        // Verify: the insert that preceded the failure was rolled back
+        assertEquals(initialCategoryCount, categoryDao.select().size());
+    }
+
+    @Test
+    void projectionQueriesReadValuesWithoutEntities() throws SQLException {
+        final Category first = categoryDao.insert(new Category("Projected A")).orElseThrow();
+        final Category second = categoryDao.insert(new Category("Projected B")).orElseThrow();
+        final String selectStatement = "SELECT id, name FROM Category WHERE name LIKE 'PROJECTED%' ORDER BY id";
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            assertTrue(t.exists("SELECT 1 FROM Category WHERE name = ? LIMIT 1", ps -> ps.setString(1, "PROJECTED A")));
+            assertFalse(t.exists("SELECT 1 FROM Category WHERE name = ? LIMIT 1", ps -> ps.setString(1, "MISSING")));
+
+            assertEquals(2, t.queryLong("SELECT COUNT(*) FROM Category WHERE name LIKE 'PROJECTED%'", null));
+            assertEquals(0, t.queryLong("SELECT id FROM Category WHERE name = 'MISSING'", null));
+
+            assertEquals(List.of(first.getId(), second.getId()), t.queryColumn(selectStatement, null, Long.class));
+            assertEquals(
+                    List.of(new NameProjection("PROJECTED A"), new NameProjection("PROJECTED B")),
+                    t.queryRecords(selectStatement, null, rs -> new NameProjection(rs.getString("name"))));
+        }
+    }
+
+    private record NameProjection(String name) {}
 }
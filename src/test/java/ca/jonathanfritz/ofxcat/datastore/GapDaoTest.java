@@ -0,0 +1,111 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
+import ca.jonathanfritz.ofxcat.TestUtils;
+import ca.jonathanfritz.ofxcat.datastore.dto.Account;
+import ca.jonathanfritz.ofxcat.datastore.dto.BalanceGap;
+import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class GapDaoTest extends AbstractDatabaseTest {
+
+    private final CategoryDao categoryDao;
+    private final AccountDao accountDao;
+    private final CategorizedTransactionDao categorizedTransactionDao;
+    private final GapDao gapDao;
+
+    GapDaoTest() {
+        categoryDao = injector.getInstance(CategoryDao.class);
+        accountDao = injector.getInstance(AccountDao.class);
+        categorizedTransactionDao = injector.getInstance(CategorizedTransactionDao.class);
+        gapDao = injector.getInstance(GapDao.class);
+    }
+
+    @Test
+    void insertCreatesGapWhenBalancesDisagree() {
+        // Setup: expected balance on Mar 1 is 950 - 30 = 920, but 850 was stored
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category category = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        insert(account, category, LocalDate.of(2023, 1, 15), -50f, 950f);
+        insert(account, category, LocalDate.of(2023, 3, 1), -30f, 850f);
+
+        // Verify
+        assertEquals(
+                List.of(new BalanceGap(account, LocalDate.of(2023, 1, 15), LocalDate.of(2023, 3, 1), -7000)),
+                gapDao.select(account));
+    }
+
+    @Test
+    void insertRemovesGapThatItFills() {
+        // Setup: Jan 15 and Mar 1 are stored, but the Feb 1 transaction that connects them is missing
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category category = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        insert(account, category, LocalDate.of(2023, 1, 15), -50f, 950f);
+        insert(account, category, LocalDate.of(2023, 3, 1), -30f, 850f);
+        assertEquals(1, gapDao.select(account).size());
+
+        // Execute: the missing transaction is imported
+        insert(account, category, LocalDate.of(2023, 2, 1), -70f, 880f);
+
+        // Verify: 950 - 70 = 880, and 880 - 30 = 850
+        assertTrue(gapDao.select(account).isEmpty());
+    }
+
+    @Test
+    void insertOnlyAffectsItsOwnAccount() {
+        // Setup: Both accounts have a gap
+        Account chequing = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Account savings = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category category = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        insert(chequing, category, LocalDate.of(2023, 1, 15), -50f, 950f);
+        insert(chequing, category, LocalDate.of(2023, 3, 1), -30f, 850f);
+        insert(savings, category, LocalDate.of(2023, 1, 15), -50f, 950f);
+        insert(savings, category, LocalDate.of(2023, 3, 1), -30f, 850f);
+
+        // Execute: Fill the gap in chequing
+        insert(chequing, category, LocalDate.of(2023, 2, 1), -70f, 880f);
+
+        // Verify: The gap in savings remains
+        assertTrue(gapDao.select(chequing).isEmpty());
+        assertEquals(1, gapDao.select(savings).size());
+    }
+
+    @Test
+    void rebuildMatchesGapsMaintainedOnInsert() throws SQLException {
+        // Setup: Transactions inserted out of order, with a same-day discrepancy that is not a gap
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category category = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        insert(account, category, LocalDate.of(2023, 4, 1), -10f, 700f);
+        insert(account, category, LocalDate.of(2023, 1, 15), -50f, 950f);
+        insert(account, category, LocalDate.of(2023, 3, 1), -30f, 850f);
+        insert(account, category, LocalDate.of(2023, 3, 1), -20f, 800f);
+        insert(account, category, LocalDate.of(2023, 5, 1), 100f, 800f);
+        final List<BalanceGap> expected = gapDao.select(account);
+        assertEquals(2, expected.size());
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // Setup: Discard the gaps that were maintained during insert
+            t.execute("DELETE FROM Gap;", null);
+
+            // Execute
+            assertEquals(expected.size(), gapDao.rebuild(t));
+        }
+
+        // Verify
+        assertEquals(expected, gapDao.select(account));
+    }
+
+    private void insert(Account account, Category category, LocalDate date, float amount, float balance) {
+        categorizedTransactionDao
+                .insert(new CategorizedTransaction(
+                        TestUtils.createTransactionWithBalance(account, date, amount, balance), category))
+                .orElseThrow();
+    }
+}
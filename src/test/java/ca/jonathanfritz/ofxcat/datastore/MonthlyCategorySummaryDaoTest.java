@@ -0,0 +1,179 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
+import ca.jonathanfritz.ofxcat.TestUtils;
+import ca.jonathanfritz.ofxcat.datastore.dto.Account;
+import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class MonthlyCategorySummaryDaoTest extends AbstractDatabaseTest {
+
+    private final CategoryDao categoryDao;
+    private final AccountDao accountDao;
+    private final CategorizedTransactionDao categorizedTransactionDao;
+    private final MonthlyCategorySummaryDao monthlyCategorySummaryDao;
+
+    MonthlyCategorySummaryDaoTest() {
+        categoryDao = injector.getInstance(CategoryDao.class);
+        accountDao = injector.getInstance(AccountDao.class);
+        categorizedTransactionDao = injector.getInstance(CategorizedTransactionDao.class);
+        monthlyCategorySummaryDao = injector.getInstance(MonthlyCategorySummaryDao.class);
+    }
+
+    @Test
+    void insertAddsTransactionToSummary() throws SQLException {
+        // Setup: Two transactions in the same month, and one in the next
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category groceries = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        insertTransaction(account, groceries, LocalDate.of(2023, 1, 5), -10.25f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 1, 31), -4.50f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 2, 1), -7.75f);
+
+        // Verify: One summary per month, holding the total, count, min and max of its transactions
+        final LocalDate january = LocalDate.of(2023, 1, 1);
+        final LocalDate february = LocalDate.of(2023, 2, 1);
+        assertEquals(
+                Set.of(
+                        new Summary(account.getId(), groceries.getId(), january, -14.75, 2, -10.25, -4.50),
+                        new Summary(account.getId(), groceries.getId(), february, -7.75, 1, -7.75, -7.75)),
+                selectSummaries());
+    }
+
+    @Test
+    void updateCategoryMovesTransactionBetweenSummaries() throws SQLException {
+        // Setup: Two transactions in the same month and category
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category groceries = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        Category restaurants = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
+        CategorizedTransaction moved = insertTransaction(account, groceries, LocalDate.of(2023, 1, 5), -10.25f);
+        insertTransaction(account, groceries, LocalDate.of(2023, 1, 20), -4.50f);
+
+        // Execute: Move the transaction that holds the minimum amount to another category
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            assertTrue(categorizedTransactionDao.updateCategory(t, moved.getId(), restaurants));
+        }
+
+        // Verify: The old summary no longer includes the moved transaction, and the new one does
+        final LocalDate january = LocalDate.of(2023, 1, 1);
+        assertEquals(
+                Set.of(
+                        new Summary(account.getId(), groceries.getId(), january, -4.50, 1, -4.50, -4.50),
+                        new Summary(account.getId(), restaurants.getId(), january, -10.25, 1, -10.25, -10.25)),
+                selectSummaries());
+
+        // Verify: Moving the last transaction out of a summary deletes it
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            assertTrue(categorizedTransactionDao.updateCategory(t, moved.getId(), groceries));
+        }
+        assertEquals(
+                Set.of(new Summary(account.getId(), groceries.getId(), january, -14.75, 2, -10.25, -4.50)),
+                selectSummaries());
+    }
+
+    @Test
+    void rebuildRecomputesSummariesFromTransactions() throws SQLException {
+        // Setup: Transactions in two accounts spanning several months
+        Account chequing = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Account savings = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category groceries = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        Category restaurants = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
+        insertTransaction(chequing, groceries, LocalDate.of(2022, 12, 31), -3.00f);
+        insertTransaction(chequing, groceries, LocalDate.of(2023, 1, 1), -10.25f);
+        insertTransaction(chequing, restaurants, LocalDate.of(2023, 1, 15), -30.00f);
+        insertTransaction(savings, groceries, LocalDate.of(2023, 1, 15), -4.50f);
+        insertTransaction(savings, groceries, LocalDate.of(2023, 4, 30), 12.00f);
+        final Set<Summary> expected = selectSummaries();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // Setup: Discard the summaries that were maintained during insert
+            t.execute("DELETE FROM MonthlyCategorySummary;", null);
+            assertTrue(monthlyCategorySummaryDao.isRebuildNeeded(t));
+
+            // Execute
+            assertEquals(expected.size(), monthlyCategorySummaryDao.rebuild(t));
+
+            // Verify: Rebuilt summaries match the ones that were maintained incrementally
+            assertFalse(monthlyCategorySummaryDao.isRebuildNeeded(t));
+        }
+        assertEquals(expected, selectSummaries());
+    }
+
+    @Test
+    void rebuildWithNoTransactions() throws SQLException {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            assertFalse(monthlyCategorySummaryDao.isRebuildNeeded(t));
+            assertEquals(0, monthlyCategorySummaryDao.rebuild(t));
+        }
+    }
+
+    @Test
+    void selectMonthlySumGroupByCategoryCombinesSummariesAndPartialMonths() {
+        // Setup: Transactions in a partial month on either side of two full months, in two accounts
+        Account chequing = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Account savings = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        Category groceries = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        insertTransaction(chequing, groceries, LocalDate.of(2023, 1, 14), -1.00f);
+        insertTransaction(chequing, groceries, LocalDate.of(2023, 1, 15), -2.00f);
+        insertTransaction(chequing, groceries, LocalDate.of(2023, 2, 1), -3.00f);
+        insertTransaction(savings, groceries, LocalDate.of(2023, 2, 28), -4.00f);
+        insertTransaction(chequing, groceries, LocalDate.of(2023, 4, 10), -5.00f);
+        insertTransaction(chequing, groceries, LocalDate.of(2023, 4, 11), -6.00f);
+
+        // Execute
+        final Map<LocalDate, Map<Category, Float>> monthlySums = categorizedTransactionDao
+                .selectMonthlySumGroupByCategory(LocalDate.of(2023, 1, 15), LocalDate.of(2023, 4, 10));
+
+        // Verify: Full months are summed across accounts, and partial months only include dates in the range
+        assertEquals(Map.of(groceries, -2.00f), monthlySums.get(LocalDate.of(2023, 1, 15)));
+        assertEquals(Map.of(groceries, -7.00f), monthlySums.get(LocalDate.of(2023, 2, 1)));
+        assertEquals(Map.of(), monthlySums.get(LocalDate.of(2023, 3, 1)));
+        assertEquals(Map.of(groceries, -5.00f), monthlySums.get(LocalDate.of(2023, 4, 1)));
+    }
+
+    private CategorizedTransaction insertTransaction(Account account, Category category, LocalDate date, float amount) {
+        return categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account, date, amount), category))
+                .orElseThrow();
+    }
+
+    private Set<Summary> selectSummaries() throws SQLException {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            return t.queryRaw(
+                    "SELECT account_id, category_id, month, total, transaction_count, min_amount, max_amount "
+                            + "FROM MonthlyCategorySummary;",
+                    null,
+                    rs -> {
+                        final Set<Summary> summaries = new HashSet<>();
+                        while (rs.next()) {
+                            summaries.add(new Summary(
+                                    rs.getLong(1),
+                                    rs.getLong(2),
+                                    rs.getDate(3).toLocalDate(),
+                                    rs.getDouble(4),
+                                    rs.getInt(5),
+                                    rs.getDouble(6),
+                                    rs.getDouble(7)));
+                        }
+                        return summaries;
+                    });
+        }
+    }
+
+    private record Summary(
+            long accountId,
+            long categoryId,
+            LocalDate month,
+            double total,
+            int transactionCount,
+            double minAmount,
+            double maxAmount) {}
+}
@@ -0,0 +1,212 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
+import ca.jonathanfritz.ofxcat.TestUtils;
+import ca.jonathanfritz.ofxcat.datastore.dto.Account;
+import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.dto.Transfer;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs EXPLAIN QUERY PLAN on the statements that the DAOs prepare, and fails if any of them scans a whole table, so
+ * that a change to a query or a migration can't silently stop it from using an index.
+ * Account and Category only hold a handful of rows, so scanning them is allowed. The DAO methods that read every row
+ * on purpose, like forEach, count and the summary and gap rebuilds, are not exercised here.
+ */
+class QueryPlanTest extends AbstractDatabaseTest {
+
+    private static final Set<String> SMALL_TABLES = Set.of("Account", "Category");
+
+    // the table or alias that a plan step scans, for example "SCAN ct" or "SCAN Transfer USING COVERING INDEX ..."
+    private static final Pattern SCAN = Pattern.compile("SCAN (\\w+)");
+
+    // the tables that a statement reads or writes, along with their aliases
+    private static final Pattern TABLE_REFERENCE = Pattern.compile(
+            "\\b(?:FROM|JOIN|UPDATE|INTO)\\s+(\\w+)(?:\\s+(?:AS\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+
+    @Test
+    void daoStatementsUseIndexes() throws SQLException {
+        // Setup: DAOs whose connection records every statement that they prepare
+        final Set<String> statements = new LinkedHashSet<>();
+        final Connection recordingConnection = recordingConnection(statements);
+        final Injector recordingInjector =
+                Guice.createInjector(binder -> binder.bind(Connection.class).toInstance(recordingConnection));
+        final AccountDao accountDao = recordingInjector.getInstance(AccountDao.class);
+        final CategoryDao categoryDao = recordingInjector.getInstance(CategoryDao.class);
+        final CategorizedTransactionDao categorizedTransactionDao =
+                recordingInjector.getInstance(CategorizedTransactionDao.class);
+        final TransferDao transferDao = recordingInjector.getInstance(TransferDao.class);
+        final TransactionTokenDao transactionTokenDao = recordingInjector.getInstance(TransactionTokenDao.class);
+        final GapDao gapDao = recordingInjector.getInstance(GapDao.class);
+
+        // Execute: every lookup that runs during an import, while categorizing, or when generating a report
+        final LocalDate startDate = LocalDate.of(2023, 1, 15);
+        final LocalDate endDate = LocalDate.of(2023, 3, 10);
+        final Account checking = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        final Account savings = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        accountDao.select(checking.getId());
+        accountDao.selectByAccountNumber(checking.getAccountNumber());
+        accountDao.selectWithFewerTransactionsThan(10);
+
+        final Category groceries = categoryDao.getOrCreate("GROCERIES").orElseThrow();
+        categoryDao.select(groceries.getId());
+
+        final CategorizedTransaction source = categorizedTransactionDao
+                .insert(new CategorizedTransaction(
+                        TestUtils.createRandomTransaction(checking, LocalDate.of(2023, 2, 1), -10f),
+                        Category.TRANSFER))
+                .orElseThrow();
+        final CategorizedTransaction sink = categorizedTransactionDao
+                .insert(new CategorizedTransaction(
+                        TestUtils.createRandomTransaction(savings, LocalDate.of(2023, 2, 1), 10f), Category.TRANSFER))
+                .orElseThrow();
+        categorizedTransactionDao.select(source.getId());
+        categorizedTransactionDao.selectByFitId(source.getTransaction().getFitId());
+        categorizedTransactionDao.selectGroupByCategory(startDate, endDate);
+        categorizedTransactionDao.selectMonthlySumGroupByCategory(startDate, endDate);
+        categorizedTransactionDao.selectByCategory(Category.TRANSFER);
+        categorizedTransactionDao.selectByCategory(Category.TRANSFER, startDate, endDate);
+        categorizedTransactionDao.selectByAccount(checking);
+        categorizedTransactionDao.selectLastBefore(checking, endDate);
+        categorizedTransactionDao.findUnlinkedTransfers(startDate, endDate);
+        gapDao.select(checking);
+
+        final Transfer transfer = transferDao.insert(new Transfer(source, sink)).orElseThrow();
+        transferDao.select(transfer.getId());
+        transferDao.selectByFitId(source.getTransaction().getFitId());
+
+        try (DatabaseTransaction t = new DatabaseTransaction(recordingConnection)) {
+            categorizedTransactionDao.isDuplicate(t, source.getTransaction());
+            categorizedTransactionDao.selectByFitId(t, checking, source.getTransaction().getFitId());
+            categorizedTransactionDao.selectFitIds(t, Map.of(checking, List.of(source.getTransaction())));
+            categorizedTransactionDao.findByDescription(t, source.getTransaction().getDescription());
+            categorizedTransactionDao.selectWithoutTokens(t, 0, 10);
+            transferDao.isDuplicate(t, transfer);
+
+            transactionTokenDao.insertTokens(t, source.getId(), Set.of("coffee", "shop"));
+            transactionTokenDao.insertTokens(t, Map.of(sink.getId(), Set.of("coffee")));
+            transactionTokenDao.getTokens(t, source.getId());
+            transactionTokenDao.hasTokens(t, source.getId());
+            transactionTokenDao.getTokenCount(t, source.getId());
+            transactionTokenDao.findBestMatchingCategories(t, Set.of("coffee"), 0.5, 3);
+            transactionTokenDao.selectTokensAfter(t, 0, tokens -> {});
+            transactionTokenDao.deleteTokens(t, source.getId());
+
+            categorizedTransactionDao.updateCategory(t, source.getId(), groceries);
+            categorizedTransactionDao.updateCategory(t, List.of(sink), groceries);
+        }
+
+        // Verify
+        final List<String> fullScans = new ArrayList<>();
+        for (String statement : statements) {
+            for (String scan : findFullScans(statement)) {
+                fullScans.add(scan + " in " + statement);
+            }
+        }
+        assertFalse(statements.isEmpty());
+        assertTrue(fullScans.isEmpty(), "Statements scan a whole table:\n" + String.join("\n", fullScans));
+    }
+
+    @Test
+    void fullScansOfLargeTablesAreFound() throws SQLException {
+        assertEquals(
+                List.of("SCAN ct"),
+                findFullScans("SELECT ct.id FROM CategorizedTransaction AS ct WHERE ct.balance = ?;"));
+        assertEquals(List.of(), findFullScans("SELECT * FROM CategorizedTransaction WHERE id = ?;"));
+        assertEquals(List.of(), findFullScans("SELECT * FROM Category WHERE name = ?;"));
+    }
+
+    /**
+     * Explains the specified statement with every parameter bound to null
+     * @return the plan steps that scan a table that isn't one of the {@link #SMALL_TABLES}
+     */
+    private List<String> findFullScans(String statement) throws SQLException {
+        final Map<String, String> tables = findTables(statement);
+        final List<String> fullScans = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement("EXPLAIN QUERY PLAN " + statement)) {
+            for (int i = 1; i <= ps.getParameterMetaData().getParameterCount(); i++) {
+                ps.setNull(i, Types.NULL);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    final String detail = rs.getString("detail");
+                    final Matcher matcher = SCAN.matcher(detail);
+                    if (matcher.lookingAt()) {
+                        final String table = tables.get(matcher.group(1));
+                        if (table != null && !SMALL_TABLES.contains(table)) {
+                            fullScans.add(detail);
+                        }
+                    }
+                }
+            }
+        }
+        return fullScans;
+    }
+
+    /**
+     * @return a map of the names and aliases that the specified statement uses for tables to the tables that they
+     *      refer to. Common table expressions and subqueries are not tables, so they are omitted
+     */
+    private Map<String, String> findTables(String statement) throws SQLException {
+        final Set<String> schemaTables;
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            schemaTables = new HashSet<>(
+                    t.queryColumn("SELECT name FROM sqlite_master WHERE type = 'table';", null, String.class));
+        }
+
+        final Map<String, String> tables = new HashMap<>();
+        final Matcher matcher = TABLE_REFERENCE.matcher(statement);
+        while (matcher.find()) {
+            final String table = matcher.group(1);
+            if (schemaTables.contains(table)) {
+                tables.put(table, table);
+                if (matcher.group(2) != null) {
+                    tables.put(matcher.group(2), table);
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Wraps the test's connection in one that adds the SQL of every statement that it prepares to the specified set.
+     * The wrapper isn't a StatementCachingConnection, so DatabaseTransaction prepares every statement through it
+     * instead of reusing a cached one
+     */
+    private Connection recordingConnection(Set<String> statements) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement")) {
+                        statements.add((String) args[0]);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -10,6 +10,7 @@ import ca.jonathanfritz.ofxcat.datastore.dto.Category;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.Test;
 
@@ -80,7 +81,33 @@ class TransactionTokenDaoTest extends AbstractDatabaseTest {
     }
 
     @Test
-    void findTransactionsWithMatchingTokens() throws SQLException {
+    void deleteTokens_prunesTokensThatNoTransactionUses() throws SQLException {
+        // Setup: Two transactions that share one token
+        Category category = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        CategorizedTransaction txn1 = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+        CategorizedTransaction txn2 = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            transactionTokenDao.insertTokens(t, txn1.getId(), Set.of("starbucks", "coffee"));
+            transactionTokenDao.insertTokens(t, txn2.getId(), Set.of("coffee"));
+
+            // Execute: Delete the tokens of the first transaction
+            transactionTokenDao.deleteTokens(t, txn1.getId());
+
+            // Verify: The token that only it used is gone from the dictionary, and the shared one is kept
+            final List<String> dictionary = t.queryColumn("SELECT token FROM Token;", null, String.class);
+            assertEquals(List.of("coffee"), dictionary);
+            assertEquals(Set.of("coffee"), transactionTokenDao.getTokens(t, txn2.getId()));
+        }
+    }
+
+    @Test
+    void findBestMatchingCategories_onlyMatchesSharedTokens() throws SQLException {
         // Setup: Create two categorized transactions with overlapping tokens
         Category restaurants = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
         Category groceries = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
@@ -99,15 +126,14 @@ class TransactionTokenDaoTest extends AbstractDatabaseTest {
             transactionTokenDao.insertTokens(t, starbucksTxn.getId(), Set.of("starbucks", "coffee"));
             transactionTokenDao.insertTokens(t, walmartTxn.getId(), Set.of("walmart", "grocery"));
 
-            // Execute: Find transactions matching "starbucks"
-            List<TransactionTokenDao.TokenMatchResult> results =
-                    transactionTokenDao.findTransactionsWithMatchingTokens(t, Set.of("starbucks", "coffee"));
+            // Execute: Find categories matching "starbucks coffee"
+            List<TransactionTokenDao.CategoryMatchResult> results =
+                    transactionTokenDao.findBestMatchingCategories(t, Set.of("starbucks", "coffee"), 0.5, 10);
 
-            // Verify: Only starbucks transaction is found
+            // Verify: Only the starbucks transaction's category is found, with every token matching
             assertEquals(1, results.size());
-            assertEquals(starbucksTxn.getId(), results.get(0).transactionId());
             assertEquals(restaurants.getId(), results.get(0).categoryId());
-            assertEquals(2, results.get(0).matchingTokenCount());
+            assertEquals(1.0, results.get(0).overlapRatio());
         }
     }
 
@@ -148,7 +174,7 @@ class TransactionTokenDaoTest extends AbstractDatabaseTest {
     }
 
     @Test
-    void findTransactionsWithMatchingTokens_excludesUnknownCategory() throws SQLException {
+    void findBestMatchingCategories_excludesUnknownCategory() throws SQLException {
         // Setup: Create transaction in UNKNOWN category
         Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
         CategorizedTransaction unknownTxn = categorizedTransactionDao
@@ -159,41 +185,14 @@ class TransactionTokenDaoTest extends AbstractDatabaseTest {
             transactionTokenDao.insertTokens(t, unknownTxn.getId(), Set.of("random", "merchant"));
 
             // Execute: Search for matching tokens
-            List<TransactionTokenDao.TokenMatchResult> results =
-                    transactionTokenDao.findTransactionsWithMatchingTokens(t, Set.of("random", "merchant"));
+            List<TransactionTokenDao.CategoryMatchResult> results =
+                    transactionTokenDao.findBestMatchingCategories(t, Set.of("random", "merchant"), 0.5, 10);
 
             // Verify: UNKNOWN category transactions are excluded
             assertTrue(results.isEmpty());
         }
     }
 
-    @Test
-    void findTransactionsWithMatchingTokens_returnsMultipleMatches() throws SQLException {
-        // Setup: Create multiple transactions with same tokens
-        Category restaurants = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
-        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
-
-        CategorizedTransaction txn1 = categorizedTransactionDao
-                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), restaurants))
-                .orElseThrow();
-
-        CategorizedTransaction txn2 = categorizedTransactionDao
-                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), restaurants))
-                .orElseThrow();
-
-        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
-            transactionTokenDao.insertTokens(t, txn1.getId(), Set.of("starbucks"));
-            transactionTokenDao.insertTokens(t, txn2.getId(), Set.of("starbucks", "coffee"));
-
-            // Execute: Find transactions with "starbucks"
-            List<TransactionTokenDao.TokenMatchResult> results =
-                    transactionTokenDao.findTransactionsWithMatchingTokens(t, Set.of("starbucks"));
-
-            // Verify: Both transactions match
-            assertEquals(2, results.size());
-        }
-    }
-
     @Test
     void getTokenCount_returnsCorrectCount() throws SQLException {
         // Setup: Create transaction with multiple tokens
@@ -245,4 +244,139 @@ class TransactionTokenDaoTest extends AbstractDatabaseTest {
             assertFalse(transactionTokenDao.hasTokens(t, txn2.getId()));
         }
     }
+
+    @Test
+    void tokenCount_isMaintainedByInsertAndDelete() throws SQLException {
+        // Setup: Create a transaction
+        Category category = categoryDao.insert(new Category("SHOPPING")).orElseThrow();
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        CategorizedTransaction transaction = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            assertEquals(0, transactionTokenDao.getTokenCount(t, transaction.getId()));
+
+            transactionTokenDao.insertTokens(t, transaction.getId(), Set.of("amazon", "shopping"));
+            assertEquals(2, transactionTokenDao.getTokenCount(t, transaction.getId()));
+
+            transactionTokenDao.deleteTokens(t, transaction.getId());
+            assertEquals(0, transactionTokenDao.getTokenCount(t, transaction.getId()));
+
+            transactionTokenDao.insertTokens(t, transaction.getId(), Set.of("amazon", "shopping", "online"));
+            assertEquals(3, transactionTokenDao.getTokenCount(t, transaction.getId()));
+
+            transactionTokenDao.deleteAllTokens(t);
+            assertEquals(0, transactionTokenDao.getTokenCount(t, transaction.getId()));
+        }
+    }
+
+    @Test
+    void findBestMatchingCategories_keepsBestOverlapPerCategory() throws SQLException {
+        // Setup: Two restaurant transactions with different overlap, and one grocery transaction
+        Category restaurants = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
+        Category groceries = categoryDao.insert(new Category("GROCERIES")).orElseThrow();
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+
+        CategorizedTransaction timHortons = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), restaurants))
+                .orElseThrow();
+        CategorizedTransaction starbucks = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), restaurants))
+                .orElseThrow();
+        CategorizedTransaction walmart = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), groceries))
+                .orElseThrow();
+        CategorizedTransaction unknown = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), Category.UNKNOWN))
+                .orElseThrow();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            transactionTokenDao.insertTokens(t, timHortons.getId(), Set.of("tim", "hortons", "coffee", "donuts"));
+            transactionTokenDao.insertTokens(t, starbucks.getId(), Set.of("starbucks", "coffee"));
+            transactionTokenDao.insertTokens(t, walmart.getId(), Set.of("walmart", "coffee", "grocery"));
+            transactionTokenDao.insertTokens(t, unknown.getId(), Set.of("starbucks", "coffee"));
+
+            // Execute: 3 search tokens
+            // tim hortons: 2 / min(3, 4) = 0.667, starbucks: 2 / min(3, 2) = 1.0, walmart: 1 / min(3, 3) = 0.333
+            List<TransactionTokenDao.CategoryMatchResult> results = transactionTokenDao.findBestMatchingCategories(
+                    t, Set.of("starbucks", "coffee", "hortons"), 0.3, 10);
+
+            // Verify: Best ratio per category, ordered by ratio, UNKNOWN excluded
+            assertEquals(2, results.size());
+            assertEquals(restaurants.getId(), results.get(0).categoryId());
+            assertEquals(1.0, results.get(0).overlapRatio(), 0.001);
+            assertEquals(groceries.getId(), results.get(1).categoryId());
+            assertEquals(1.0 / 3.0, results.get(1).overlapRatio(), 0.001);
+
+            // Verify: Threshold and limit are applied
+            results = transactionTokenDao.findBestMatchingCategories(
+                    t, Set.of("starbucks", "coffee", "hortons"), 0.5, 10);
+            assertEquals(1, results.size());
+            assertEquals(restaurants.getId(), results.getFirst().categoryId());
+
+            results = transactionTokenDao.findBestMatchingCategories(t, Set.of("coffee"), 0.3, 1);
+            assertEquals(1, results.size());
+        }
+    }
+
+    @Test
+    void insertTokens_storesEachDistinctTokenOnce() throws SQLException {
+        // Setup: Create two transactions that share a token
+        Category category = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        CategorizedTransaction txn1 = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+        CategorizedTransaction txn2 = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // Execute: Insert overlapping tokens, inserting the first set twice
+            transactionTokenDao.insertTokens(t, txn1.getId(), Set.of("starbucks", "coffee"));
+            transactionTokenDao.insertTokens(t, txn1.getId(), Set.of("starbucks", "coffee"));
+            transactionTokenDao.insertTokens(t, txn2.getId(), Set.of("tim", "hortons", "coffee"));
+
+            // Verify: The dictionary holds each distinct token once
+            final int dictionarySize =
+                    t.queryRaw("SELECT COUNT(*) FROM Token", null, rs -> rs.next() ? rs.getInt(1) : 0);
+            assertEquals(4, dictionarySize);
+
+            // Verify: Re-inserting tokens did not create duplicate postings
+            assertEquals(Set.of("starbucks", "coffee"), transactionTokenDao.getTokens(t, txn1.getId()));
+            assertEquals(2, transactionTokenDao.getTokenCount(t, txn1.getId()));
+            assertEquals(Set.of("tim", "hortons", "coffee"), transactionTokenDao.getTokens(t, txn2.getId()));
+
+            // Verify: Tokens that have never been stored don't match anything
+            assertTrue(transactionTokenDao
+                    .findBestMatchingCategories(t, Set.of("walmart"), 0.5, 10)
+                    .isEmpty());
+        }
+    }
+
+    @Test
+    void insertTokens_storesTokensForSeveralTransactionsAtOnce() throws SQLException {
+        // Setup: Create two transactions that share a token
+        Category category = categoryDao.insert(new Category("RESTAURANTS")).orElseThrow();
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
+        CategorizedTransaction txn1 = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+        CategorizedTransaction txn2 = categorizedTransactionDao
+                .insert(new CategorizedTransaction(TestUtils.createRandomTransaction(account), category))
+                .orElseThrow();
+
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            // Execute
+            transactionTokenDao.insertTokens(
+                    t, Map.of(txn1.getId(), Set.of("starbucks", "coffee"), txn2.getId(), Set.of("tim", "coffee")));
+
+            // Verify: Each transaction has its own tokens and token count
+            assertEquals(Set.of("starbucks", "coffee"), transactionTokenDao.getTokens(t, txn1.getId()));
+            assertEquals(2, transactionTokenDao.getTokenCount(t, txn1.getId()));
+            assertEquals(Set.of("tim", "coffee"), transactionTokenDao.getTokens(t, txn2.getId()));
+            assertEquals(2, transactionTokenDao.getTokenCount(t, txn2.getId()));
+        }
+    }
 }
@@ -0,0 +1,93 @@
+package ca.jonathanfritz.ofxcat.datastore;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
+import ca.jonathanfritz.ofxcat.datastore.utils.Workload;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfile;
+import ca.jonathanfritz.ofxcat.datastore.utils.WorkloadProfiles;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class WorkloadProfilesTest extends AbstractDatabaseTest {
+
+    @Test
+    void connectionStartsUnderInteractiveProfile() throws SQLException {
+        final WorkloadProfiles workloadProfiles = injector.getInstance(WorkloadProfiles.class);
+
+        assertEquals(Workload.INTERACTIVE, workloadProfiles.getCurrent());
+        assertEquals(-8192, readPragma("cache_size"));
+        assertEquals(0, readPragma("temp_store"));
+    }
+
+    @Test
+    @SuppressWarnings("try") // the scope is only held open while the profile is checked
+    void scopeAppliesProfileAndRestoresPreviousOne() throws SQLException {
+        // Setup: profiles whose settings are easy to tell apart
+        final WorkloadProfiles workloadProfiles = new WorkloadProfiles(
+                connection,
+                Map.of(
+                        Workload.REPORT,
+                        WorkloadProfile.builder()
+                                .cacheSizeKib(4096)
+                                .tempStore(WorkloadProfile.TempStore.MEMORY)
+                                .optimizeOnClose(false)
+                                .build()));
+
+        // Execute & Verify: the report profile is applied while its scope is open
+        try (WorkloadProfiles.Scope scope = workloadProfiles.use(Workload.REPORT)) {
+            assertEquals(Workload.REPORT, workloadProfiles.getCurrent());
+            assertEquals(-4096, readPragma("cache_size"));
+            assertEquals(2, readPragma("temp_store"));
+        }
+
+        // Verify: and the interactive profile is back once it is closed
+        assertEquals(Workload.INTERACTIVE, workloadProfiles.getCurrent());
+        assertEquals(-8192, readPragma("cache_size"));
+        assertEquals(0, readPragma("temp_store"));
+    }
+
+    @Test
+    @SuppressWarnings("try") // the scope is only held open while the profile is checked
+    void scopeCanBeUsedBetweenDatabaseTransactions() throws SQLException {
+        // Setup: a transaction that is left open by a previous DAO call
+        final CategoryDao categoryDao = injector.getInstance(CategoryDao.class);
+        final WorkloadProfiles workloadProfiles = injector.getInstance(WorkloadProfiles.class);
+        connection.setAutoCommit(false);
+
+        // Execute: switch to the bulk import profile, write, and switch back
+        try (WorkloadProfiles.Scope scope = workloadProfiles.use(Workload.BULK_IMPORT)) {
+            assertEquals(-65536, readPragma("cache_size"));
+            assertTrue(categoryDao.getOrCreate("GROCERIES").isPresent());
+        }
+
+        // Verify: the write survived the switch back to the interactive profile
+        assertEquals(Workload.INTERACTIVE, workloadProfiles.getCurrent());
+        assertTrue(categoryDao.select("GROCERIES").isPresent());
+    }
+
+    @Test
+    void defaultProfilesDifferByWorkload() {
+        final WorkloadProfile interactive = WorkloadProfile.defaults(Workload.INTERACTIVE);
+        final WorkloadProfile bulkImport = WorkloadProfile.defaults(Workload.BULK_IMPORT);
+        final WorkloadProfile report = WorkloadProfile.defaults(Workload.REPORT);
+
+        assertEquals(WorkloadProfile.JournalMode.WAL, interactive.getJournalMode());
+        assertEquals(WorkloadProfile.Synchronous.NORMAL, bulkImport.getSynchronous());
+        assertTrue(bulkImport.getCacheSizeKib() > interactive.getCacheSizeKib());
+        assertTrue(report.getMmapSizeMib() > 0);
+        assertTrue(bulkImport.isOptimizeOnClose());
+        assertFalse(report.isOptimizeOnClose());
+    }
+
+    private long readPragma(String name) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("PRAGMA " + name + ";")) {
+            assertTrue(resultSet.next());
+            return resultSet.getLong(1);
+        }
+    }
+}
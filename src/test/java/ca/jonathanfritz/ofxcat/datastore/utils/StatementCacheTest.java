@@ -0,0 +1,84 @@
+package ca.jonathanfritz.ofxcat.datastore.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StatementCacheTest {
+
+    private StatementCachingConnection connection;
+
+    @BeforeEach
+    void connect() throws SQLException {
+        connection = new StatementCachingConnection(DriverManager.getConnection("jdbc:sqlite::memory:"));
+        connection.setAutoCommit(false);
+    }
+
+    @AfterEach
+    void disconnect() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void statementsAreReusedAcrossTransactions() throws SQLException {
+        final String selectStatement = "SELECT 1";
+
+        // Execute: run the same SQL in two transactions
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.queryRaw(selectStatement, null, ResultSet::next);
+        }
+        final PreparedStatement first = connection.statements().take(selectStatement);
+        connection.statements().release(selectStatement, first);
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.queryRaw(selectStatement, null, ResultSet::next);
+        }
+
+        // Verify: the second transaction used the statement that was prepared by the first
+        assertEquals(1, connection.statements().size());
+        assertSame(first, connection.statements().take(selectStatement));
+    }
+
+    @Test
+    void closingTheConnectionClosesCachedStatements() throws SQLException {
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.queryRaw("SELECT 1", null, ResultSet::next);
+        }
+        final PreparedStatement cached = connection.statements().take("SELECT 1");
+        connection.statements().release("SELECT 1", cached);
+
+        // Execute
+        connection.close();
+
+        // Verify: the cache was emptied, and its statement was closed along with the connection
+        assertEquals(0, connection.statements().size());
+        assertTrue(cached.isClosed());
+    }
+
+    @Test
+    void leastRecentlyUsedStatementsAreEvicted() throws SQLException {
+        final String firstStatement = "SELECT 0";
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            t.queryRaw(firstStatement, null, ResultSet::next);
+        }
+        final PreparedStatement evicted = connection.statements().take(firstStatement);
+        connection.statements().release(firstStatement, evicted);
+
+        // Execute: run more distinct statements than the cache holds
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            for (int i = 1; i <= StatementCache.MAX_CACHED_STATEMENTS; i++) {
+                t.queryRaw("SELECT " + i, null, ResultSet::next);
+            }
+        }
+
+        // Verify: the cache stayed within its bound, and the statement that was pushed out of it was closed
+        assertEquals(StatementCache.MAX_CACHED_STATEMENTS, connection.statements().size());
+        assertNull(connection.statements().take(firstStatement));
+        assertTrue(evicted.isClosed());
+    }
+}
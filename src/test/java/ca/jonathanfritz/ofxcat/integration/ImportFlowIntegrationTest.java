@@ -6,6 +6,7 @@ import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
 import ca.jonathanfritz.ofxcat.TestUtils;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleanerFactory;
 import ca.jonathanfritz.ofxcat.cli.CLI;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
@@ -126,7 +127,8 @@ class ImportFlowIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> imported =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -184,7 +186,8 @@ class ImportFlowIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> firstImport =
                 tis1.categorizeTransactions(ofxExports).transactions();
@@ -206,7 +209,8 @@ class ImportFlowIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> secondImport =
                 tis2.categorizeTransactions(ofxExports).transactions();
@@ -259,7 +263,8 @@ class ImportFlowIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> imported =
                 tis.categorizeTransactions(ofxExports).transactions();
@@ -313,7 +318,8 @@ class ImportFlowIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> imported =
                 tis.categorizeTransactions(ofxExports).transactions();
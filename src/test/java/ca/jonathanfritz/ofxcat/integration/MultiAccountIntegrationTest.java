@@ -6,6 +6,7 @@ import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
 import ca.jonathanfritz.ofxcat.TestUtils;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleanerFactory;
 import ca.jonathanfritz.ofxcat.cli.CLI;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
@@ -111,7 +112,8 @@ class MultiAccountIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> imported =
                 tis.categorizeTransactions(ofxExports).transactions();
@@ -198,7 +200,8 @@ class MultiAccountIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> imported =
                 tis.categorizeTransactions(ofxExports).transactions();
@@ -263,7 +266,8 @@ class MultiAccountIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> firstImport =
                 tis1.categorizeTransactions(checkingExport).transactions();
@@ -301,7 +305,8 @@ class MultiAccountIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> secondImport =
                 tis2.categorizeTransactions(savingsExport).transactions();
@@ -355,7 +360,8 @@ class MultiAccountIntegrationTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> imported =
                 tis.categorizeTransactions(ofxExports).transactions();
@@ -7,6 +7,7 @@ import com.webcohesion.ofx4j.io.OFXParseException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -280,6 +281,18 @@ class OfxParserTest {
         MatcherAssert.assertThat(ofxExports.get(0).getAvailableBalance(), IsNull.nullValue());
     }
 
+    @Test
+    void parseWithConsumerEmitsTransactionsInFileOrderTest() throws IOException, OFXParseException {
+        final OfxParser ofxParser = new OfxParser();
+        final List<OfxTransaction> transactions = new ArrayList<>();
+        ofxParser.parse(loadOfxFile(TWO_ACCOUNTS_OFX), transactions::add);
+
+        // the file lists the six transactions from account 1 before the two transactions from account 2
+        final List<OfxTransaction> expected = new ArrayList<>(expectedAccount1Transactions);
+        expected.addAll(expectedAccount2Transactions);
+        MatcherAssert.assertThat(transactions, IsEqual.equalTo(expected));
+    }
+
     private InputStream loadOfxFile(String filename) {
         return this.getClass().getClassLoader().getResourceAsStream(filename);
     }
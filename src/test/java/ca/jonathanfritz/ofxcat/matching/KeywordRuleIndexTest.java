@@ -0,0 +1,98 @@
+package ca.jonathanfritz.ofxcat.matching;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class KeywordRuleIndexTest {
+
+    @Test
+    void lowestMatchingRuleIndexWins() {
+        // Setup: a match_all rule that comes before an any-keyword rule sharing one of its keywords
+        final KeywordRule pizzaHut = new KeywordRule(List.of("pizza", "hut"), "FAST_FOOD", true);
+        final KeywordRule walmart = new KeywordRule(List.of("walmart"), "GROCERIES");
+        final KeywordRule pizza = new KeywordRule(List.of("pizza"), "RESTAURANTS");
+        final KeywordRuleIndex index = new KeywordRuleIndex(List.of(pizzaHut, walmart, pizza));
+
+        // Verify: the earlier match_all rule only wins when all of its keywords are present
+        assertEquals(Optional.of(pizzaHut), index.findFirstMatch(Set.of("hut", "pizza", "walmart")));
+        assertEquals(Optional.of(walmart), index.findFirstMatch(Set.of("pizza", "walmart")));
+        assertEquals(Optional.of(pizza), index.findFirstMatch(Set.of("pizza", "downtown")));
+        assertEquals(Optional.empty(), index.findFirstMatch(Set.of("hut", "downtown")));
+    }
+
+    @Test
+    void duplicateAndMixedCaseKeywordsAreMatchedOnce() {
+        // Setup: a match_all rule that lists the same keyword twice with different case
+        final KeywordRule timHortons = new KeywordRule(List.of("Tim", "TIM", "Hortons"), "RESTAURANTS", true);
+        final KeywordRuleIndex index = new KeywordRuleIndex(List.of(timHortons));
+
+        // Verify: both distinct keywords are required, and are matched case-insensitively
+        assertEquals(Optional.of(timHortons), index.findFirstMatch(Set.of("tim", "hortons")));
+        assertEquals(Optional.empty(), index.findFirstMatch(Set.of("tim")));
+    }
+
+    @Test
+    void rulesWithoutKeywordsNeverMatch() {
+        final KeywordRule noKeywords = new KeywordRule(List.of(), "RESTAURANTS", true);
+        final KeywordRule nullKeywords = new KeywordRule(null, "GROCERIES");
+        final KeywordRuleIndex index = new KeywordRuleIndex(List.of(noKeywords, nullKeywords));
+
+        assertEquals(Optional.empty(), index.findFirstMatch(Set.of("anything")));
+        assertEquals(Optional.empty(), index.findFirstMatch(Set.of()));
+        assertEquals(Optional.empty(), index.findFirstMatch(null));
+    }
+
+    @Test
+    void matchesRuleByRuleEvaluationForBundledRules() throws IOException {
+        // Setup: the bundled default rules
+        final KeywordRulesConfig config;
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("keyword-rules.yaml")) {
+            assertNotNull(is);
+            config = new KeywordRulesLoader().loadFromString(new String(is.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        final List<KeywordRule> rules = config.getRules();
+        assertFalse(rules.isEmpty());
+        final KeywordRuleIndex index = new KeywordRuleIndex(rules);
+
+        // Build token sets from every rule's keywords, partial keyword sets, and combinations of neighbouring rules
+        final List<Set<String>> tokenSets = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            final List<String> keywords = rules.get(i).getKeywords();
+            final Set<String> tokens = lowercase(keywords);
+            tokenSets.add(tokens);
+            tokenSets.add(lowercase(keywords.subList(0, 1)));
+            tokenSets.add(lowercase(keywords.subList(keywords.size() - 1, keywords.size())));
+
+            final Set<String> withNeighbour = new HashSet<>(tokens);
+            withNeighbour.addAll(lowercase(rules.get((i + 1) % rules.size()).getKeywords()));
+            withNeighbour.add("unmatched");
+            tokenSets.add(withNeighbour);
+
+            final Set<String> withLaterRule = new HashSet<>(lowercase(keywords.subList(0, 1)));
+            withLaterRule.addAll(lowercase(rules.get((i * 7 + 3) % rules.size()).getKeywords()));
+            tokenSets.add(withLaterRule);
+        }
+
+        // Verify: the index finds the same rule as testing each rule in order
+        for (Set<String> tokens : tokenSets) {
+            final Optional<KeywordRule> expected =
+                    rules.stream().filter(rule -> rule.matches(tokens)).findFirst();
+            assertEquals(expected, index.findFirstMatch(tokens), () -> "Unexpected match for " + tokens);
+        }
+    }
+
+    private static Set<String> lowercase(List<String> keywords) {
+        final Set<String> tokens = new HashSet<>();
+        keywords.forEach(keyword -> tokens.add(keyword.toLowerCase()));
+        return tokens;
+    }
+}
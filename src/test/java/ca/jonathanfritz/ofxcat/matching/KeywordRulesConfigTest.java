@@ -208,4 +208,20 @@ class KeywordRulesConfigTest {
                 "RESTAURANTS",
                 config.findMatchingCategory(Set.of("tim", "hortons")).orElse(null));
     }
+
+    @Test
+    void setRulesReplacesCompiledRules() {
+        // Setup: a config that has already been used to match
+        KeywordRulesConfig config =
+                new KeywordRulesConfig(List.of(new KeywordRule(List.of("starbucks"), "RESTAURANTS")));
+        assertEquals(
+                "RESTAURANTS", config.findMatchingCategory(Set.of("starbucks")).orElse(null));
+
+        // Execute: replace the rules
+        config.setRules(List.of(new KeywordRule(List.of("starbucks"), "COFFEE_SHOPS")));
+
+        // Verify: the new rules are used
+        assertEquals(
+                "COFFEE_SHOPS", config.findMatchingCategory(Set.of("starbucks")).orElse(null));
+    }
 }
@@ -0,0 +1,90 @@
+package ca.jonathanfritz.ofxcat.matching;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.datastore.TransactionTokenDao;
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class TokenIndexTest {
+
+    private static final long RESTAURANTS = 10L;
+    private static final long GROCERIES = 11L;
+
+    @Test
+    void countsMatchingAndTotalTokensPerTransaction() {
+        final TokenIndex tokenIndex = new TokenIndex();
+        tokenIndex.add(1, RESTAURANTS, Set.of("tim", "hortons", "coffee"));
+        tokenIndex.add(2, RESTAURANTS, Set.of("starbucks", "coffee"));
+        tokenIndex.add(3, GROCERIES, Set.of("walmart"));
+
+        final List<TransactionTokenDao.TokenMatchResult> results = sorted(
+                tokenIndex.findTransactionsWithMatchingTokens(Set.of("coffee", "hortons", "pharmacy")));
+
+        assertEquals(2, results.size());
+        assertEquals(new TransactionTokenDao.TokenMatchResult(1, RESTAURANTS, 2, 3), results.get(0));
+        assertEquals(new TransactionTokenDao.TokenMatchResult(2, RESTAURANTS, 1, 2), results.get(1));
+    }
+
+    @Test
+    void repeatedLookupsDoNotAccumulateCounts() {
+        final TokenIndex tokenIndex = new TokenIndex();
+        tokenIndex.add(1, RESTAURANTS, Set.of("starbucks", "coffee"));
+
+        tokenIndex.findTransactionsWithMatchingTokens(Set.of("starbucks", "coffee"));
+        final List<TransactionTokenDao.TokenMatchResult> results =
+                tokenIndex.findTransactionsWithMatchingTokens(Set.of("starbucks", "coffee"));
+
+        assertEquals(List.of(new TransactionTokenDao.TokenMatchResult(1, RESTAURANTS, 2, 2)), results);
+    }
+
+    @Test
+    void excludesUnknownCategory() {
+        final TokenIndex tokenIndex = new TokenIndex();
+        tokenIndex.add(1, Category.UNKNOWN.getId(), Set.of("random", "merchant"));
+
+        assertTrue(tokenIndex
+                .findTransactionsWithMatchingTokens(Set.of("random", "merchant"))
+                .isEmpty());
+    }
+
+    @Test
+    void addingTransactionAgainReplacesItsTokens() {
+        final TokenIndex tokenIndex = new TokenIndex();
+        tokenIndex.add(1, RESTAURANTS, Set.of("starbucks"));
+        tokenIndex.add(1, GROCERIES, Set.of("walmart", "supercentre"));
+
+        assertTrue(tokenIndex
+                .findTransactionsWithMatchingTokens(Set.of("starbucks"))
+                .isEmpty());
+        assertEquals(
+                List.of(new TransactionTokenDao.TokenMatchResult(1, GROCERIES, 1, 2)),
+                tokenIndex.findTransactionsWithMatchingTokens(Set.of("walmart")));
+        assertEquals(1, tokenIndex.size());
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        final TokenIndex tokenIndex = new TokenIndex();
+        for (long id = 1; id <= 1000; id++) {
+            tokenIndex.add(id, RESTAURANTS, Set.of("coffee", "store" + id));
+        }
+
+        assertEquals(1000, tokenIndex.size());
+        assertEquals(
+                1000, tokenIndex.findTransactionsWithMatchingTokens(Set.of("coffee")).size());
+        assertEquals(
+                List.of(new TransactionTokenDao.TokenMatchResult(500, RESTAURANTS, 1, 2)),
+                tokenIndex.findTransactionsWithMatchingTokens(Set.of("store500")));
+    }
+
+    private static List<TransactionTokenDao.TokenMatchResult> sorted(
+            List<TransactionTokenDao.TokenMatchResult> results) {
+        return results.stream()
+                .sorted(Comparator.comparingLong(TransactionTokenDao.TokenMatchResult::transactionId))
+                .toList();
+    }
+}
@@ -44,8 +44,8 @@ class TokenMatchingServiceTest extends AbstractDatabaseTest {
     void setUpTestData() {
         // Create default config and service
         TokenMatchingConfig config = TokenMatchingConfig.defaults();
-        tokenMatchingService =
-                new TokenMatchingService(connection, transactionTokenDao, categoryDao, tokenNormalizer, config);
+        tokenMatchingService = new TokenMatchingService(
+                connection, transactionTokenDao, categoryDao, tokenNormalizer, config, new TokenIndex());
 
         // Set up common test data
         account = accountDao.insert(TestUtils.createRandomAccount()).orElseThrow();
@@ -126,8 +126,8 @@ class TokenMatchingServiceTest extends AbstractDatabaseTest {
         // Execute with strict threshold (1.0 = 100% match required)
         final TokenMatchingConfig strictConfig =
                 TokenMatchingConfig.builder().overlapThreshold(1.0).build();
-        final TokenMatchingService strictService =
-                new TokenMatchingService(connection, transactionTokenDao, categoryDao, tokenNormalizer, strictConfig);
+        final TokenMatchingService strictService = new TokenMatchingService(
+                connection, transactionTokenDao, categoryDao, tokenNormalizer, strictConfig, new TokenIndex());
 
         List<TokenMatchingService.CategoryMatch> matches = strictService.findMatchingCategories(
                 searchTokens // 1 of 2 tokens matches
@@ -139,8 +139,8 @@ class TokenMatchingServiceTest extends AbstractDatabaseTest {
         // Execute with loose threshold (0.5 = 50% match required)
         final TokenMatchingConfig looseConfig =
                 TokenMatchingConfig.builder().overlapThreshold(0.5).build();
-        final TokenMatchingService looseService =
-                new TokenMatchingService(connection, transactionTokenDao, categoryDao, tokenNormalizer, looseConfig);
+        final TokenMatchingService looseService = new TokenMatchingService(
+                connection, transactionTokenDao, categoryDao, tokenNormalizer, looseConfig, new TokenIndex());
 
         matches = looseService.findMatchingCategories(
                 searchTokens // 1 of 2 tokens matches
@@ -245,9 +245,102 @@ class TokenMatchingServiceTest extends AbstractDatabaseTest {
         assertEquals(1.0, matches.getFirst().overlapRatio(), 0.001);
     }
 
+    @Test
+    void findsTokensStoredAfterFirstLookup() throws SQLException {
+        // Setup: Perform a lookup so that the token index is loaded before any tokens exist
+        assertTrue(tokenMatchingService.findMatchingCategories(Set.of("starbucks")).isEmpty());
+
+        // Store tokens for a new transaction
+        createTransactionWithTokens("STARBUCKS #4756", restaurants, Set.of("starbucks"));
+
+        // Execute: Search again
+        List<TokenMatchingService.CategoryMatch> matches =
+                tokenMatchingService.findMatchingCategories(Set.of("starbucks"));
+
+        // Verify: The newly stored tokens were picked up by the index
+        assertEquals(1, matches.size());
+        assertEquals(restaurants.getId(), matches.getFirst().category().getId());
+    }
+
+    @Test
+    void invalidatedIndexReflectsRecategorization() throws SQLException {
+        // Setup: Create a service that shares its token index with the test
+        final TokenIndex tokenIndex = new TokenIndex();
+        final TokenMatchingService service = new TokenMatchingService(
+                connection,
+                transactionTokenDao,
+                categoryDao,
+                tokenNormalizer,
+                TokenMatchingConfig.defaults(),
+                tokenIndex);
+        final CategorizedTransaction txn =
+                createTransactionWithTokens("SHOPPERS DRUG MART", restaurants, Set.of("shoppers", "drug", "mart"));
+        assertEquals(
+                restaurants.getId(),
+                service.findMatchingCategories(Set.of("shoppers")).getFirst().category().getId());
+
+        // Execute: Move the transaction to another category and invalidate the index
+        try (DatabaseTransaction t = new DatabaseTransaction(connection)) {
+            categorizedTransactionDao.updateCategory(t, txn.getId(), groceries);
+        }
+        tokenIndex.invalidate();
+
+        // Verify: The index was rebuilt with the new category
+        List<TokenMatchingService.CategoryMatch> matches = service.findMatchingCategories(Set.of("shoppers"));
+        assertEquals(1, matches.size());
+        assertEquals(groceries.getId(), matches.getFirst().category().getId());
+    }
+
+    @Test
+    void databaseScoringMatchesTokenIndex() throws SQLException {
+        // Setup: Create transactions with varying token overlap across categories
+        createTransactionWithTokens("TIM HORTONS COFFEE", restaurants, Set.of("tim", "hortons", "coffee"));
+        createTransactionWithTokens("STARBUCKS COFFEE", restaurants, Set.of("starbucks", "coffee"));
+        createTransactionWithTokens("SHOPPERS DRUG MART", groceries, Set.of("shoppers", "drug", "mart"));
+        createTransactionWithTokens("COFFEE BEANS", groceries, Set.of("coffee", "beans"));
+
+        final TokenMatchingConfig databaseConfig =
+                TokenMatchingConfig.builder().tokenIndexEnabled(false).build();
+        final TokenMatchingService databaseService = new TokenMatchingService(
+                connection, transactionTokenDao, categoryDao, tokenNormalizer, databaseConfig, new TokenIndex());
+
+        for (Set<String> searchTokens : List.of(
+                Set.of("coffee"),
+                Set.of("starbucks", "coffee"),
+                Set.of("shoppers", "drug"),
+                Set.of("coffee", "beans", "tim"),
+                Set.of("walmart"))) {
+            // Execute: Search using both engines
+            List<TokenMatchingService.CategoryMatch> expected =
+                    tokenMatchingService.findMatchingCategories(searchTokens);
+            List<TokenMatchingService.CategoryMatch> actual = databaseService.findMatchingCategories(searchTokens);
+
+            // Verify: Both return the same categories in the same order with the same ratios
+            assertEquals(expected.size(), actual.size(), searchTokens.toString());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).category(), actual.get(i).category(), searchTokens.toString());
+                assertEquals(expected.get(i).overlapRatio(), actual.get(i).overlapRatio(), 0.0001);
+            }
+        }
+    }
+
+    @Test
+    void limitRestrictsNumberOfCategories() throws SQLException {
+        // Setup: Create matching transactions in two categories
+        createTransactionWithTokens("STARBUCKS COFFEE", restaurants, Set.of("starbucks", "coffee"));
+        createTransactionWithTokens("COFFEE BEANS", groceries, Set.of("coffee", "beans"));
+
+        // Execute: Search with a limit of 1
+        List<TokenMatchingService.CategoryMatch> matches =
+                tokenMatchingService.findMatchingCategories(Set.of("coffee"), 1);
+
+        // Verify: Only one category was returned
+        assertEquals(1, matches.size());
+    }
+
     // Helper method to create a transaction with tokens
-    private void createTransactionWithTokens(String description, Category category, Set<String> tokens)
-            throws SQLException {
+    private CategorizedTransaction createTransactionWithTokens(
+            String description, Category category, Set<String> tokens) throws SQLException {
 
         final Transaction txn = Transaction.newBuilder(TestUtils.createRandomTransaction(account))
                 .setDescription(description)
@@ -259,6 +352,7 @@ class TokenMatchingServiceTest extends AbstractDatabaseTest {
                     .orElseThrow();
 
             transactionTokenDao.insertTokens(t, categorizedTxn.getId(), tokens);
+            return categorizedTxn;
         }
     }
 }
@@ -0,0 +1,157 @@
+package ca.jonathanfritz.ofxcat.matching;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifies that TokenNormalizer produces exactly the same tokens as the regular expression based implementation that it
+ * replaced, so that tokens stored by previous versions of the application continue to match.
+ */
+class TokenNormalizerEquivalenceTest {
+
+    private static final List<String> DESCRIPTIONS = List.of(
+            // inputs from TokenNormalizerTest
+            "STARBUCKS COFFEE",
+            "MCDONALD'S",
+            "STARBUCKS #4756",
+            "STARBUCKS 800-782-7282",
+            "A & W RESTAURANT",
+            "THE BEER STORE OF ONTARIO",
+            "",
+            "   \t\n   ",
+            "A&amp;W #4330",
+            "SP * ONCE UPON A CHILD",
+            "PAYPAL *FACERECORDS",
+            "WAL-MART #1155",
+            "WAL-MART #3045",
+            "MCDONALD'S #290",
+            "Amazon.ca*T23YP3F33",
+            "Amazon.ca*X56OF5GV3",
+            "THE STARBUCKS COFFEE",
+            "SP STARBUCKS",
+            // ampersands and initials
+            "H&M",
+            "B & J PHOTO",
+            "a&b&c",
+            "a & b & c",
+            "A &\t\nW",
+            "7 & B",
+            "A & 7",
+            "AT&T WIRELESS",
+            "A &-W",
+            "A-& W",
+            "&",
+            "& &",
+            "A &",
+            "& W",
+            // xml entities
+            "&amp;lt;",
+            "&amp;amp;",
+            "&amp;amp;W",
+            "&AMP;",
+            "A&lt;B&gt;C",
+            "JOE&apos;S &quot;DINER&quot;",
+            "A&amp;amp;W",
+            "&amp",
+            "&am",
+            "TRAILING&",
+            "&apos;&apos;",
+            // whitespace and delimiters
+            "\u000BA\fB\rC",
+            "---",
+            "'''",
+            "123 456",
+            "007BOND",
+            "...A...B...",
+            // non-ascii characters
+            "CAF\u00C9 D\u00C9PANNEUR",
+            "\u00C9COLE & CO",
+            "STRASSE \u00DF",
+            "\u0130STANBUL KEBAB",
+            "TIM HORTONS\u00A0#1234",
+            "\u00A0\u2003");
+
+    @Test
+    void matchesLegacyImplementationWithDefaultConfig() {
+        assertMatchesLegacyImplementation(NormalizationConfig.defaults());
+    }
+
+    @Test
+    void matchesLegacyImplementationWithCustomStopWords() {
+        assertMatchesLegacyImplementation(NormalizationConfig.builder()
+                .stopWords(Set.of("coffee", "a", "w"))
+                .build());
+    }
+
+    @Test
+    void matchesLegacyImplementationWithCustomMinTokenLength() {
+        assertMatchesLegacyImplementation(
+                NormalizationConfig.builder().minTokenLength(3).build());
+    }
+
+    @Test
+    void matchesLegacyImplementationInTurkishLocale() {
+        final Locale defaultLocale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            assertMatchesLegacyImplementation(NormalizationConfig.defaults());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void matchesLegacyImplementationForLongDescriptions() {
+        // longer than the initial scratch buffer, to exercise buffer growth
+        final String description = "A & W ".repeat(100) + "STARBUCKS-COFFEE ".repeat(100);
+        assertEquals(
+                legacyNormalize(NormalizationConfig.defaults(), description),
+                new TokenNormalizer().normalize(description));
+    }
+
+    private static void assertMatchesLegacyImplementation(NormalizationConfig config) {
+        final TokenNormalizer tokenNormalizer = new TokenNormalizer(config);
+        for (String description : DESCRIPTIONS) {
+            assertEquals(
+                    legacyNormalize(config, description),
+                    tokenNormalizer.normalize(description),
+                    () -> String.format("Unexpected tokens for \"%s\"", description));
+        }
+    }
+
+    /**
+     * The original regular expression based implementation of {@link TokenNormalizer#normalize(String)}
+     */
+    private static Set<String> legacyNormalize(NormalizationConfig config, String description) {
+        if (description == null || description.isBlank()) {
+            return Set.of();
+        }
+
+        final String decoded = description
+                .replace("&amp;", "&")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'");
+        final String lowercased = decoded.toLowerCase();
+        final String initialsMerged = lowercased.replaceAll("([a-z])\\s*&\\s*([a-z])", "$1$2");
+        final String merged = initialsMerged.replaceAll("[-'&]", "");
+        final String[] parts = merged.split("[^a-z0-9]+");
+
+        final Set<String> tokens = new HashSet<>();
+        for (String part : parts) {
+            if (!part.isEmpty()
+                    && part.length() >= config.getMinTokenLength()
+                    && !part.matches("\\d+")
+                    && !config.getStopWords().contains(part)) {
+                tokens.add(part);
+            }
+        }
+        return tokens;
+    }
+}
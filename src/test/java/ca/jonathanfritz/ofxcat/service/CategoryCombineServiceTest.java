@@ -11,6 +11,7 @@ import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
+import ca.jonathanfritz.ofxcat.matching.TokenIndex;
 import java.time.LocalDate;
 import java.util.UUID;
 import org.junit.jupiter.api.BeforeEach;
@@ -35,7 +36,8 @@ class CategoryCombineServiceTest extends AbstractDatabaseTest {
     void setUp() {
         testAccount = accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
         assertNotNull(testAccount);
-        categoryCombineService = new CategoryCombineService(connection, categoryDao, categorizedTransactionDao);
+        categoryCombineService = new CategoryCombineService(
+                connection, categoryDao, categorizedTransactionDao, injector.getInstance(TokenIndex.class));
     }
 
     @Test
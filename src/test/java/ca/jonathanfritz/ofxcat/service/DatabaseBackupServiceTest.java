@@ -0,0 +1,66 @@
+package ca.jonathanfritz.ofxcat.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
+import ca.jonathanfritz.ofxcat.datastore.utils.DatastoreModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseBackupServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Injector injector;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() {
+        // WAL mode only applies to databases on disk, so this test can't use the shared in-memory database
+        final String connectionString = "jdbc:sqlite:" + tempDir.resolve("ofxcat.db");
+        injector = Guice.createInjector(DatastoreModule.onDisk(connectionString, Map.of()));
+        injector.getInstance(Flyway.class).migrate();
+        connection = injector.getInstance(Connection.class);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void backupIncludesTransactionsThatAreOnlyInTheWriteAheadLog() throws SQLException {
+        // Setup: a committed row that has not been checkpointed into the database file yet
+        final CategoryDao categoryDao = injector.getInstance(CategoryDao.class);
+        assertTrue(categoryDao.getOrCreate("GROCERIES").isPresent());
+        assertTrue(Files.exists(tempDir.resolve("ofxcat.db-wal")));
+
+        // Execute
+        final Path backupPath = tempDir.resolve("backup.db");
+        injector.getInstance(DatabaseBackupService.class).backup(backupPath);
+
+        // Verify: the backup can be opened on its own, and it contains the row
+        try (Connection backup = DriverManager.getConnection("jdbc:sqlite:" + backupPath);
+                PreparedStatement statement = backup.prepareStatement("SELECT COUNT(*) FROM Category WHERE name = ?")) {
+            statement.setString(1, "GROCERIES");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next());
+                assertEquals(1, resultSet.getInt(1));
+            }
+        }
+    }
+}
@@ -7,13 +7,17 @@ import ca.jonathanfritz.ofxcat.TestUtils;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
+import ca.jonathanfritz.ofxcat.datastore.GapDao;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.dto.CategorizedTransaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +27,7 @@ class GapDetectionServiceTest extends AbstractDatabaseTest {
     private final AccountDao accountDao;
     private final CategorizedTransactionDao categorizedTransactionDao;
     private final CategoryDao categoryDao;
+    private final GapDao gapDao;
     private GapDetectionService gapDetectionService;
 
     private Category testCategory;
@@ -31,11 +36,12 @@ class GapDetectionServiceTest extends AbstractDatabaseTest {
         accountDao = injector.getInstance(AccountDao.class);
         categorizedTransactionDao = injector.getInstance(CategorizedTransactionDao.class);
         categoryDao = injector.getInstance(CategoryDao.class);
+        gapDao = injector.getInstance(GapDao.class);
     }
 
     @BeforeEach
     void setUp() {
-        gapDetectionService = new GapDetectionService(accountDao, categorizedTransactionDao);
+        gapDetectionService = new GapDetectionService(accountDao, gapDao);
         testCategory = categoryDao.insert(new Category("TEST")).orElse(null);
     }
 
@@ -141,6 +147,55 @@ class GapDetectionServiceTest extends AbstractDatabaseTest {
         assertTrue(gapDetectionService.detectGaps(account).isEmpty());
     }
 
+    @Test
+    void detectGapsMatchesConsecutiveBalanceComparison() {
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        // A random history with same-day runs, rounding-sensitive amounts, and occasional missing transactions
+        Random random = new Random(42);
+        LocalDate date = LocalDate.of(2023, 1, 1);
+        long balanceCents = 100000;
+        List<Transaction> history = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            if (random.nextInt(3) > 0) {
+                date = date.plusDays(random.nextInt(5) + 1);
+            }
+            long amountCents = random.nextInt(20001) - 10000;
+            balanceCents += amountCents;
+            if (random.nextInt(10) == 0) {
+                // simulate a transaction that is missing from the record
+                balanceCents += random.nextInt(5001) - 2500;
+            }
+            history.add(TestUtils.createTransactionWithBalance(account, date, amountCents / 100f, balanceCents / 100f));
+        }
+
+        // Inserting out of order fills and opens gaps on both sides of each transaction as the history grows
+        Collections.shuffle(history, random);
+        for (Transaction transaction : history) {
+            categorizedTransactionDao.insert(new CategorizedTransaction(transaction, testCategory));
+        }
+
+        // The reference implementation compares consecutive balances of the account's full history in Java
+        List<CategorizedTransaction> transactions = categorizedTransactionDao.selectByAccount(account);
+        List<GapDetectionService.Gap> expected = new ArrayList<>();
+        for (int i = 1; i < transactions.size(); i++) {
+            CategorizedTransaction prev = transactions.get(i - 1);
+            CategorizedTransaction curr = transactions.get(i);
+            if (prev.getDate().equals(curr.getDate())) {
+                continue;
+            }
+            long expectedCents = Math.round(prev.getBalance() * 100) + Math.round(curr.getAmount() * 100);
+            long actualCents = Math.round(curr.getBalance() * 100);
+            if (expectedCents != actualCents) {
+                expected.add(new GapDetectionService.Gap(
+                        account, prev.getDate(), curr.getDate(), (actualCents - expectedCents) / 100f));
+            }
+        }
+
+        List<GapDetectionService.Gap> gaps = gapDetectionService.detectGaps(account);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, gaps);
+    }
+
     // --- detectGaps() / detectGaps(ProgressCallback) ---
 
     @Test
@@ -233,6 +288,42 @@ class GapDetectionServiceTest extends AbstractDatabaseTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void fullyMissingMonthsClampsGapToRange() {
+        Account account = accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        // Gap: lastGoodDate=Nov 15 2022, firstDateAfterGap=Jun 1 2023 → Dec through May are fully missing
+        insert(account, LocalDate.of(2022, 11, 15), -50f, 950f);
+        insert(account, LocalDate.of(2023, 6, 1), -30f, 850f);
+
+        Set<LocalDate> result =
+                gapDetectionService.fullyMissingMonths(LocalDate.of(2023, 2, 10), LocalDate.of(2023, 3, 5));
+
+        assertEquals(Set.of(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 3, 1)), result);
+    }
+
+    // --- monthlyGaps ---
+
+    @Test
+    void monthlyGapsMatchesGapAmountsAndFullyMissingMonths() {
+        Account chequing = accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        Account savings = accountDao.insert(TestUtils.createRandomAccount()).orElse(null);
+        // Gap in chequing: lastGoodDate=Jan 15, firstDateAfterGap=Apr 1 → Feb and Mar are fully missing
+        insert(chequing, LocalDate.of(2023, 1, 15), -50f, 950f);
+        insert(chequing, LocalDate.of(2023, 4, 1), -30f, 850f);
+        // Gap in savings: lastGoodDate=Jan 20, firstDateAfterGap=Feb 10 → no month is fully missing
+        insert(savings, LocalDate.of(2023, 1, 20), 100f, 1100f);
+        insert(savings, LocalDate.of(2023, 2, 10), 50f, 1200f);
+
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        LocalDate end = LocalDate.of(2023, 6, 30);
+        GapDetectionService.MonthlyGaps result = gapDetectionService.monthlyGaps(start, end);
+
+        assertEquals(gapDetectionService.gapAmountsByMonth(start, end), result.gapAmountsByMonth());
+        assertEquals(gapDetectionService.fullyMissingMonths(start, end), result.fullyMissingMonths());
+        assertEquals(-20f, result.gapAmountsByMonth().get(LocalDate.of(2023, 1, 1)), 0.001f);
+        assertEquals(Set.of(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 3, 1)), result.fullyMissingMonths());
+    }
+
     // --- indeterminateAccounts ---
 
     @Test
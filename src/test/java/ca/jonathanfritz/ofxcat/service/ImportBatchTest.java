@@ -0,0 +1,109 @@
+package ca.jonathanfritz.ofxcat.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
+import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
+import ca.jonathanfritz.ofxcat.datastore.dto.Category;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+class ImportBatchTest extends AbstractDatabaseTest {
+
+    private final CategoryDao categoryDao;
+
+    ImportBatchTest() {
+        categoryDao = injector.getInstance(CategoryDao.class);
+    }
+
+    @Test
+    void commitsOncePerFullBatch() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        final int commitCount;
+        try (ImportBatch batch = new ImportBatch(connection, 2)) {
+            for (int i = 0; i < 5; i++) {
+                final Category category = new Category("Category " + i);
+                batch.write(category, t -> categoryDao.insert(t, category));
+            }
+            batch.close();
+            commitCount = batch.getCommitCount();
+        }
+
+        // two full batches, plus the remaining row when the batch is closed
+        assertEquals(3, commitCount);
+        assertEquals(initialCategoryCount + 5, categoryDao.select().size());
+    }
+
+    @Test
+    void batchSizeOfZeroOnlyCommitsWhenAsked() throws SQLException {
+        try (ImportBatch batch = new ImportBatch(connection, 0)) {
+            for (int i = 0; i < 5; i++) {
+                final Category category = new Category("Category " + i);
+                batch.write(category, t -> categoryDao.insert(t, category));
+            }
+            assertEquals(0, batch.getCommitCount());
+
+            batch.commit();
+            assertEquals(1, batch.getCommitCount());
+
+            // nothing left to commit
+            batch.commit();
+            assertEquals(1, batch.getCommitCount());
+        }
+    }
+
+    @Test
+    void failedRowIsRolledBackWithoutDiscardingBatch() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (ImportBatch batch = new ImportBatch(connection, 10)) {
+            final Category first = new Category("First");
+            assertTrue(batch.write(first, t -> categoryDao.insert(t, first)).isPresent());
+
+            // a row that writes something and then fails
+            final Category failed = new Category("Failed");
+            final Optional<Category> result = batch.write(failed, t -> {
+                categoryDao.insert(t, failed);
+                throw new SQLException("Simulated failure");
+            });
+            assertTrue(result.isEmpty());
+
+            final Category last = new Category("Last");
+            assertTrue(batch.write(last, t -> categoryDao.insert(t, last)).isPresent());
+        }
+
+        final List<String> names =
+                categoryDao.select().stream().map(Category::getName).toList();
+        assertEquals(initialCategoryCount + 2, names.size());
+        assertTrue(names.contains("FIRST"));
+        assertFalse(names.contains("FAILED"));
+        assertTrue(names.contains("LAST"));
+    }
+
+    @Test
+    void unexpectedFailureIsRolledBackAndRethrown() throws SQLException {
+        final int initialCategoryCount = categoryDao.select().size();
+
+        try (ImportBatch batch = new ImportBatch(connection, 10)) {
+            final Category first = new Category("First");
+            assertTrue(batch.write(first, t -> categoryDao.insert(t, first)).isPresent());
+
+            // a row that writes something and then fails with an exception that the batch doesn't expect
+            final Category failed = new Category("Failed");
+            assertThrows(IllegalStateException.class, () -> batch.write(failed, t -> {
+                categoryDao.insert(t, failed);
+                throw new IllegalStateException("Simulated failure");
+            }));
+        }
+
+        // the rows written before the failure are still committed when the batch is closed
+        final List<String> names =
+                categoryDao.select().stream().map(Category::getName).toList();
+        assertEquals(initialCategoryCount + 1, names.size());
+        assertTrue(names.contains("FIRST"));
+        assertFalse(names.contains("FAILED"));
+    }
+}
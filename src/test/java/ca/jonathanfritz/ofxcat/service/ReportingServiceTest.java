@@ -23,7 +23,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
@@ -45,13 +44,8 @@ class ReportingServiceTest extends AbstractDatabaseTest {
         }
 
         @Override
-        public Map<LocalDate, Float> gapAmountsByMonth(LocalDate start, LocalDate end) {
-            return Collections.emptyMap();
-        }
-
-        @Override
-        public Set<LocalDate> fullyMissingMonths(LocalDate start, LocalDate end) {
-            return Collections.emptySet();
+        public MonthlyGaps monthlyGaps(LocalDate start, LocalDate end) {
+            return new MonthlyGaps(Collections.emptyMap(), Collections.emptySet());
         }
     }
 
@@ -15,6 +15,7 @@ import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
 import ca.jonathanfritz.ofxcat.datastore.utils.DatabaseTransaction;
 import ca.jonathanfritz.ofxcat.matching.KeywordRule;
 import ca.jonathanfritz.ofxcat.matching.KeywordRulesConfig;
+import ca.jonathanfritz.ofxcat.matching.TokenIndex;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
@@ -363,7 +364,8 @@ class TokenMigrationServiceTest extends AbstractDatabaseTest {
                 transactionTokenDao,
                 categoryDao,
                 tokenNormalizer,
-                keywordRulesConfig);
+                keywordRulesConfig,
+                injector.getInstance(TokenIndex.class));
     }
 
     private CategorizedTransaction insertTransactionWithoutTokens(String description, Category category) {
@@ -3,6 +3,7 @@ package ca.jonathanfritz.ofxcat.service;
 import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
 import ca.jonathanfritz.ofxcat.TestUtils;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleanerFactory;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
@@ -78,7 +79,8 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -124,7 +126,8 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -187,7 +190,8 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -249,7 +253,8 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -310,7 +315,8 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -375,7 +381,8 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -404,6 +411,58 @@ class TransactionImportServiceBalanceTest extends AbstractDatabaseTest {
                 "Jan 1 transaction should have final balance");
     }
 
+    @Test
+    void exportsThatDoNotConnectToStoredBalanceAreReported() {
+        // Setup: A January export is already stored, ending with a balance of $900
+        final Account testAccount =
+                accountDao.insert(TestUtils.createRandomAccount()).get();
+        final Category testCategory =
+                categoryDao.insert(new Category("Test Category")).get();
+        final OfxAccount ofxAccount = TestUtils.accountToOfxAccount(testAccount);
+        final OfxTransaction jan1 = createOfxTransaction("FIT1", -100.0f, LocalDate.of(2023, 1, 1), ofxAccount);
+        final List<OfxExport> januaryExport = Collections.singletonList(new OfxExport(
+                ofxAccount, OfxBalance.newBuilder().setAmount(900.0f).build(), Collections.singletonList(jan1)));
+
+        // Setup: A February export that connects to January ($900 - $50 = $850), and an April export that doesn't
+        // ($850 - $25 = $825 is expected, but the export ends at $700)
+        final OfxTransaction feb1 = createOfxTransaction("FIT2", -50.0f, LocalDate.of(2023, 2, 1), ofxAccount);
+        final OfxTransaction apr1 = createOfxTransaction("FIT3", -25.0f, LocalDate.of(2023, 4, 1), ofxAccount);
+        final List<OfxExport> laterExports = Arrays.asList(
+                new OfxExport(ofxAccount, OfxBalance.newBuilder().setAmount(850.0f).build(), List.of(feb1)),
+                new OfxExport(ofxAccount, OfxBalance.newBuilder().setAmount(700.0f).build(), List.of(apr1)));
+
+        // Execute
+        final SpyCli spyCli = new SpyCli(testCategory);
+        final TransactionCategoryService transactionCategoryService =
+                createTransactionCategoryService(categoryDao, categorizedTransactionDao, spyCli);
+        final TransactionImportService transactionImportService = new TransactionImportService(
+                spyCli,
+                null,
+                accountDao,
+                transactionCleanerFactory,
+                connection,
+                categorizedTransactionDao,
+                transactionCategoryService,
+                categoryDao,
+                transferMatchingService,
+                transferDao,
+                transactionTokenDao,
+                tokenNormalizer,
+                AppConfig.defaults());
+
+        final ImportResult januaryResult = transactionImportService.categorizeTransactions(januaryExport);
+        final ImportResult laterResult = transactionImportService.categorizeTransactions(laterExports);
+
+        // Verify: The first import has nothing to connect to, and only the April export is discontinuous
+        Assertions.assertTrue(januaryResult.discontinuities().isEmpty());
+        Assertions.assertEquals(1, laterResult.discontinuities().size());
+        final GapDetectionService.Gap gap = laterResult.discontinuities().getFirst();
+        Assertions.assertEquals(testAccount.getId(), gap.account().getId());
+        Assertions.assertEquals(LocalDate.of(2023, 2, 1), gap.lastGoodDate());
+        Assertions.assertEquals(LocalDate.of(2023, 4, 1), gap.firstDateAfterGap());
+        Assertions.assertEquals(-125.0f, gap.missingAmount(), 0.01f);
+    }
+
     // Helper method to create OFX transactions
     private OfxTransaction createOfxTransaction(String fitId, float amount, LocalDate date, OfxAccount account) {
         final TransactionType type = amount >= 0 ? TransactionType.CREDIT : TransactionType.DEBIT;
@@ -4,6 +4,7 @@ import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
 import ca.jonathanfritz.ofxcat.TestUtils;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleanerFactory;
 import ca.jonathanfritz.ofxcat.cli.CLI;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
@@ -82,7 +83,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         final List<CategorizedTransaction> categorizedTransactions =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
         Assertions.assertEquals(1, categorizedTransactions.size());
@@ -104,6 +106,57 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
         Assertions.assertEquals(testCategory, actual.getCategory());
     }
 
+    @Test
+    void categorizeTransactionsMergesExportsForSameAccountTest() {
+        final Account testAccount =
+                accountDao.insert(TestUtils.createRandomAccount()).get();
+        categoryDao.insert(new Category("Test Category")).get();
+        final OfxAccount ofxAccount = TestUtils.accountToOfxAccount(testAccount);
+
+        // two exports for the same account with date ranges that overlap by one transaction
+        final Transaction first = TestUtils.createRandomTransaction(testAccount, LocalDate.of(2024, 1, 5));
+        final Transaction overlap = TestUtils.createRandomTransaction(testAccount, LocalDate.of(2024, 1, 20));
+        final Transaction last = TestUtils.createRandomTransaction(testAccount, LocalDate.of(2024, 2, 5));
+        final List<OfxExport> ofxExports = List.of(
+                new OfxExport(
+                        ofxAccount,
+                        OfxBalance.newBuilder().setAmount(0f).build(),
+                        List.of(
+                                TestUtils.transactionToOfxTransaction(overlap),
+                                TestUtils.transactionToOfxTransaction(last))),
+                new OfxExport(
+                        ofxAccount,
+                        OfxBalance.newBuilder().setAmount(0f).build(),
+                        List.of(
+                                TestUtils.transactionToOfxTransaction(first),
+                                TestUtils.transactionToOfxTransaction(overlap))));
+
+        final SpyCli spyCli = new SpyCli();
+        final TransactionCategoryService transactionCategoryService =
+                createTransactionCategoryService(categoryDao, categorizedTransactionDao, spyCli);
+        final TransactionImportService transactionImportService = new TransactionImportService(
+                spyCli,
+                null,
+                accountDao,
+                transactionCleanerFactory,
+                connection,
+                categorizedTransactionDao,
+                transactionCategoryService,
+                categoryDao,
+                transferMatchingService,
+                transferDao,
+                transactionTokenDao,
+                tokenNormalizer,
+                AppConfig.defaults());
+        final ImportResult result = transactionImportService.categorizeTransactions(ofxExports);
+
+        // transactions from both exports are imported once each, in date order
+        Assertions.assertEquals(
+                List.of(first.getFitId(), overlap.getFitId(), last.getFitId()),
+                result.transactions().stream().map(CategorizedTransaction::getFitId).toList());
+        Assertions.assertEquals(1, result.duplicateCount());
+    }
+
     @Test
     void categorizeTransactionsDuplicateTransactionIsIgnoredTest() {
         // there is one existing transaction with a known fitId
@@ -136,7 +189,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         final ImportResult result = transactionImportService.categorizeTransactions(ofxExports);
         Assertions.assertTrue(result.transactions().isEmpty());
         Assertions.assertEquals(1, result.duplicateCount());
@@ -195,7 +249,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         final List<CategorizedTransaction> categorizedTransactions =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
 
@@ -277,7 +332,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         List<CategorizedTransaction> categorizedTransactions =
                 transactionImportService.categorizeTransactions(sourceOfxFile).transactions();
 
@@ -312,7 +368,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         categorizedTransactions =
                 transactionImportService.categorizeTransactions(sinkOfxFile).transactions();
 
@@ -393,7 +450,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         transactionImportService.categorizeTransactions(ofxExports);
 
         // try to insert the transfer again
@@ -439,7 +497,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         final List<CategorizedTransaction> categorizedTransactions =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
 
@@ -509,7 +568,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 tis.categorizeTransactions(List.of(ofxExport)).transactions();
@@ -565,7 +625,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 tis.categorizeTransactions(List.of(ofxExport)).transactions();
@@ -626,7 +687,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 tis.categorizeTransactions(List.of(ofxExport)).transactions();
@@ -666,7 +728,8 @@ class TransactionImportServiceTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
         final List<CategorizedTransaction> categorizedTransactions =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
 
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import ca.jonathanfritz.ofxcat.AbstractDatabaseTest;
 import ca.jonathanfritz.ofxcat.TestUtils;
 import ca.jonathanfritz.ofxcat.cleaner.TransactionCleanerFactory;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.AccountDao;
 import ca.jonathanfritz.ofxcat.datastore.CategorizedTransactionDao;
 import ca.jonathanfritz.ofxcat.datastore.CategoryDao;
@@ -81,7 +82,8 @@ class TransactionImportTokenStorageTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -135,7 +137,8 @@ class TransactionImportTokenStorageTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -184,7 +187,8 @@ class TransactionImportTokenStorageTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         final List<CategorizedTransaction> result =
                 transactionImportService.categorizeTransactions(ofxExports).transactions();
@@ -231,7 +235,8 @@ class TransactionImportTokenStorageTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> firstResult =
                 firstImportService.categorizeTransactions(firstExport).transactions();
@@ -261,7 +266,8 @@ class TransactionImportTokenStorageTest extends AbstractDatabaseTest {
                 transferMatchingService,
                 transferDao,
                 transactionTokenDao,
-                tokenNormalizer);
+                tokenNormalizer,
+                AppConfig.defaults());
 
         List<CategorizedTransaction> secondResult =
                 secondImportService.categorizeTransactions(secondExport).transactions();
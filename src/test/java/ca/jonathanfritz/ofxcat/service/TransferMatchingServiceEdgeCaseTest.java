@@ -3,6 +3,7 @@ package ca.jonathanfritz.ofxcat.service;
 import static org.junit.jupiter.api.Assertions.*;
 
 import ca.jonathanfritz.ofxcat.TestUtils;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transfer;
@@ -23,7 +24,7 @@ import org.junit.jupiter.api.Test;
  */
 class TransferMatchingServiceEdgeCaseTest {
 
-    private final TransferMatchingService service = new TransferMatchingService();
+    private final TransferMatchingService service = new TransferMatchingService(AppConfig.defaults());
 
     @Test
     void transferWithNoMatchingSink() {
@@ -188,8 +189,8 @@ class TransferMatchingServiceEdgeCaseTest {
     @Test
     void transferOnDifferentDatesOffByOneDay() {
         // Setup: Source on 2023-01-01, sink on 2023-01-02
-        // Expected: Not matched (date matching is exact)
-        // This documents a known limitation - transfers that take days to clear won't auto-match
+        // Expected: Matched (the sink is within the default 3-day window)
+        // Transfers between institutions often take a day or more to clear
         final Account checking = TestUtils.createRandomAccount("Checking");
         final Account savings = TestUtils.createRandomAccount("Savings");
 
@@ -213,6 +214,45 @@ class TransferMatchingServiceEdgeCaseTest {
         // Execute
         final Set<Transfer> transfers = service.match(accountTransactions);
 
+        // Verify: Matched despite the date difference
+        assertEquals(1, transfers.size());
+        final Transfer transfer = transfers.iterator().next();
+        assertEquals(source.getFitId(), transfer.getSource().getFitId());
+        assertEquals(sink.getFitId(), transfer.getSink().getFitId());
+        assertTrue(accountTransactions.get(checking).isEmpty());
+        assertTrue(accountTransactions.get(savings).isEmpty());
+    }
+
+    @Test
+    void transferOnDifferentDatesWithSameDayWindow() {
+        // Setup: Source on 2023-01-01, sink on 2023-01-02, and a window of 0 days
+        // Expected: Not matched (date matching is exact)
+        final AppConfig appConfig = AppConfig.defaults();
+        appConfig.getTransferMatching().setDateWindowDays(0);
+        final TransferMatchingService sameDayService = new TransferMatchingService(appConfig);
+        final Account checking = TestUtils.createRandomAccount("Checking");
+        final Account savings = TestUtils.createRandomAccount("Savings");
+
+        final Transaction source = TestUtils.createRandomTransaction(
+                checking,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 1),
+                -100f,
+                Transaction.TransactionType.XFER);
+        final Transaction sink = TestUtils.createRandomTransaction(
+                savings,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 2),
+                100f,
+                Transaction.TransactionType.XFER);
+
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        accountTransactions.put(checking, new ArrayList<>(Collections.singletonList(source)));
+        accountTransactions.put(savings, new ArrayList<>(Collections.singletonList(sink)));
+
+        // Execute
+        final Set<Transfer> transfers = sameDayService.match(accountTransactions);
+
         // Verify: Not matched due to date difference
         assertEquals(0, transfers.size());
         assertEquals(1, accountTransactions.get(checking).size());
@@ -3,10 +3,13 @@ package ca.jonathanfritz.ofxcat.service;
 import static org.junit.jupiter.api.Assertions.*;
 
 import ca.jonathanfritz.ofxcat.TestUtils;
+import ca.jonathanfritz.ofxcat.config.AppConfig;
 import ca.jonathanfritz.ofxcat.datastore.dto.Account;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transaction;
 import ca.jonathanfritz.ofxcat.datastore.dto.Transfer;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -17,7 +20,7 @@ import org.junit.jupiter.api.Test;
 
 class TransferMatchingServiceTest {
 
-    private final TransferMatchingService service = new TransferMatchingService();
+    private final TransferMatchingService service = new TransferMatchingService(AppConfig.defaults());
 
     @Test
     public void test() {
@@ -82,4 +85,181 @@ class TransferMatchingServiceTest {
 
         assertTrue(accountTransactions.get(savings).isEmpty());
     }
+
+    @Test
+    void sourceWithSeveralEquallyCloseSinksIsNotMatched() {
+        final LocalDate today = LocalDate.now();
+        final Account checking = TestUtils.createRandomAccount("Checking");
+        final Account savings = TestUtils.createRandomAccount("Savings");
+        final Account investments = TestUtils.createRandomAccount("Investments");
+
+        // a $100 transfer out of checking could have gone to either savings or investments
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        accountTransactions.put(
+                checking,
+                List.of(TestUtils.createRandomTransaction(
+                        checking, UUID.randomUUID().toString(), today, -100f, Transaction.TransactionType.XFER)));
+        accountTransactions.put(
+                savings,
+                List.of(TestUtils.createRandomTransaction(
+                        savings, UUID.randomUUID().toString(), today, 100f, Transaction.TransactionType.XFER)));
+        accountTransactions.put(
+                investments,
+                List.of(TestUtils.createRandomTransaction(
+                        investments, UUID.randomUUID().toString(), today, 100f, Transaction.TransactionType.XFER)));
+
+        // the sinks are the same distance from the source, so every transaction is left in place
+        assertTrue(service.match(accountTransactions).isEmpty());
+        assertEquals(1, accountTransactions.get(checking).size());
+        assertEquals(1, accountTransactions.get(savings).size());
+        assertEquals(1, accountTransactions.get(investments).size());
+    }
+
+    @Test
+    void sinkWithSeveralEquallyCloseSourcesIsNotMatched() {
+        final LocalDate today = LocalDate.now();
+        final Account checking = TestUtils.createRandomAccount("Checking");
+        final Account savings = TestUtils.createRandomAccount("Savings");
+        final Account investments = TestUtils.createRandomAccount("Investments");
+
+        // a $100 deposit into investments could have come from either checking or savings
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        accountTransactions.put(
+                checking,
+                List.of(TestUtils.createRandomTransaction(
+                        checking, UUID.randomUUID().toString(), today, -100f, Transaction.TransactionType.XFER)));
+        accountTransactions.put(
+                savings,
+                List.of(TestUtils.createRandomTransaction(
+                        savings, UUID.randomUUID().toString(), today, -100f, Transaction.TransactionType.XFER)));
+        accountTransactions.put(
+                investments,
+                List.of(TestUtils.createRandomTransaction(
+                        investments, UUID.randomUUID().toString(), today, 100f, Transaction.TransactionType.XFER)));
+
+        // the sources are the same distance from the sink, so every transaction is left in place
+        assertTrue(service.match(accountTransactions).isEmpty());
+        assertEquals(1, accountTransactions.get(checking).size());
+        assertEquals(1, accountTransactions.get(savings).size());
+        assertEquals(1, accountTransactions.get(investments).size());
+    }
+
+    @Test
+    void sourceIsMatchedWithClosestSinkInWindow() {
+        final Account checking = TestUtils.createRandomAccount("Checking");
+        final Account savings = TestUtils.createRandomAccount("Savings");
+        final Account investments = TestUtils.createRandomAccount("Investments");
+
+        // a $100 transfer out of checking on Jan 1 could have arrived in savings on Jan 3 or in investments on Jan 2
+        final Transaction source = TestUtils.createRandomTransaction(
+                checking,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 1),
+                -100f,
+                Transaction.TransactionType.XFER);
+        final Transaction fartherSink = TestUtils.createRandomTransaction(
+                savings,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 3),
+                100f,
+                Transaction.TransactionType.XFER);
+        final Transaction closerSink = TestUtils.createRandomTransaction(
+                investments,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 2),
+                100f,
+                Transaction.TransactionType.XFER);
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        accountTransactions.put(checking, List.of(source));
+        accountTransactions.put(savings, List.of(fartherSink));
+        accountTransactions.put(investments, List.of(closerSink));
+
+        final Set<Transfer> transfers = service.match(accountTransactions);
+
+        // the closer sink is chosen, and the farther one is left in place
+        assertEquals(1, transfers.size());
+        final Transfer transfer = transfers.iterator().next();
+        assertEquals(source.getFitId(), transfer.getSource().getFitId());
+        assertEquals(closerSink.getFitId(), transfer.getSink().getFitId());
+        assertEquals(List.of(fartherSink), accountTransactions.get(savings));
+    }
+
+    @Test
+    void recurringTransfersAreAssignedByDateDistance() {
+        final Account checking = TestUtils.createRandomAccount("Checking");
+        final Account savings = TestUtils.createRandomAccount("Savings");
+
+        // two $100 transfers that each took a day to arrive. The Jan 2 deposit is one day from both withdrawals, but
+        // only pairing it with the Jan 1 withdrawal leaves the Jan 4 deposit with a match
+        final Transaction firstSource = TestUtils.createRandomTransaction(
+                checking,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 1),
+                -100f,
+                Transaction.TransactionType.XFER);
+        final Transaction secondSource = TestUtils.createRandomTransaction(
+                checking,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 3),
+                -100f,
+                Transaction.TransactionType.XFER);
+        final Transaction firstSink = TestUtils.createRandomTransaction(
+                savings,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 2),
+                100f,
+                Transaction.TransactionType.XFER);
+        final Transaction secondSink = TestUtils.createRandomTransaction(
+                savings,
+                UUID.randomUUID().toString(),
+                LocalDate.of(2023, 1, 4),
+                100f,
+                Transaction.TransactionType.XFER);
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        accountTransactions.put(checking, List.of(firstSource, secondSource));
+        accountTransactions.put(savings, List.of(firstSink, secondSink));
+
+        final Set<Transfer> transfers = service.match(accountTransactions);
+
+        assertEquals(2, transfers.size());
+        assertTrue(transfers.stream()
+                .anyMatch(t -> t.getSource().getFitId().equals(firstSource.getFitId())
+                        && t.getSink().getFitId().equals(firstSink.getFitId())));
+        assertTrue(transfers.stream()
+                .anyMatch(t -> t.getSource().getFitId().equals(secondSource.getFitId())
+                        && t.getSink().getFitId().equals(secondSink.getFitId())));
+        assertTrue(accountTransactions.get(checking).isEmpty());
+        assertTrue(accountTransactions.get(savings).isEmpty());
+    }
+
+    @Test
+    void matchesLargeImportWithoutComparingEverySourceToEverySink() {
+        final LocalDate today = LocalDate.now();
+        final Account checking = TestUtils.createRandomAccount("Checking");
+        final Account savings = TestUtils.createRandomAccount("Savings");
+
+        // 50,000 transfers from checking to savings, each with a distinct date and amount
+        final int transferCount = 50_000;
+        final List<Transaction> checkingTransactions = new ArrayList<>(transferCount);
+        final List<Transaction> savingsTransactions = new ArrayList<>(transferCount);
+        for (int i = 0; i < transferCount; i++) {
+            final LocalDate date = today.minusDays(i % 365);
+            final float amount = (i + 1) / 100f;
+            checkingTransactions.add(TestUtils.createRandomTransaction(
+                    checking, UUID.randomUUID().toString(), date, -amount, Transaction.TransactionType.XFER));
+            savingsTransactions.add(TestUtils.createRandomTransaction(
+                    savings, UUID.randomUUID().toString(), date, amount, Transaction.TransactionType.XFER));
+        }
+        final Map<Account, List<Transaction>> accountTransactions = new HashMap<>();
+        accountTransactions.put(checking, checkingTransactions);
+        accountTransactions.put(savings, savingsTransactions);
+
+        // comparing every source to every sink would take minutes
+        final Set<Transfer> transfers =
+                assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.match(accountTransactions));
+
+        assertEquals(transferCount, transfers.size());
+        assertTrue(accountTransactions.get(checking).isEmpty());
+        assertTrue(accountTransactions.get(savings).isEmpty());
+    }
 }